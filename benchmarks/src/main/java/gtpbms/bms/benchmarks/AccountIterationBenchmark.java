@@ -0,0 +1,82 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.SavingsAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing every balance in a bank: over the {@link Bank#getAllAccounts()} copy, over the
+ * {@link Bank#getAccounts()} view, and through sequential, parallel and type-filtered
+ * {@link Bank#streamAccounts()} streams. Run with {@code -prof gc} to see the copy's
+ * allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class AccountIterationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Registry {
+        @Param({"1000", "1000000"})
+        int accounts;
+
+        Bank bank;
+
+        @Setup
+        public void open() {
+            bank = new Bank("NONA BANK", accounts);
+            for (int i = 0; i < accounts; i++) {
+                AccountKind kind = i % 2 == 0 ? AccountKind.SAVINGS : AccountKind.CURRENT;
+                bank.addAccount(kind.open("NONA" + i));
+            }
+        }
+    }
+
+    @Benchmark
+    public long copy(Registry registry) {
+        long total = 0;
+        for (BankAccount account : registry.bank.getAllAccounts()) {
+            total += account.getBalance();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long view(Registry registry) {
+        long total = 0;
+        for (BankAccount account : registry.bank.getAccounts()) {
+            total += account.getBalance();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long stream(Registry registry) {
+        return registry.bank.streamAccounts().mapToLong(BankAccount::getBalance).sum();
+    }
+
+    @Benchmark
+    public long parallelStream(Registry registry) {
+        return registry.bank.streamAccounts().parallel().mapToLong(BankAccount::getBalance).sum();
+    }
+
+    @Benchmark
+    public long savingsOnly(Registry registry) {
+        return registry.bank.streamAccounts(SavingsAccount.class).mapToLong(BankAccount::getBalance).sum();
+    }
+}
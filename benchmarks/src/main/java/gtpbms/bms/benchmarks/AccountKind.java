@@ -0,0 +1,40 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.FixedDepositAccount;
+import gtpbms.bms.model.SavingsAccount;
+
+import java.time.LocalDate;
+
+/**
+ * The account types benchmarks are parameterised over.
+ */
+public enum AccountKind {
+    SAVINGS,
+    CURRENT,
+    FIXED_DEPOSIT;
+
+    /** A large opening balance, so that withdrawals in a benchmark loop are never refused. */
+    static final long OPENING_BALANCE = 1_000_000_000_00L;
+
+    /**
+     * Creates an account of this kind holding {@link #OPENING_BALANCE}. Fixed deposits are
+     * created already matured, so that withdrawals are allowed.
+     *
+     * @param accountNumber the account number
+     * @return the account
+     */
+    BankAccount open(String accountNumber) {
+        return switch (this) {
+            case SAVINGS -> new SavingsAccount("Benchmark Holder", accountNumber, OPENING_BALANCE);
+            case CURRENT -> new CurrentAccount("Benchmark Holder", accountNumber, OPENING_BALANCE);
+            case FIXED_DEPOSIT -> {
+                BankAccount account = FixedDepositAccount.restore("Benchmark Holder", accountNumber,
+                        LocalDate.now().minusDays(1));
+                account.deposit(OPENING_BALANCE);
+                yield account;
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.BankAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit and withdraw on each account type, on a private account per thread and on one
+ * account shared by four threads.
+ *
+ * <p>Every operation appends to the account's journal, so accounts are replaced at each
+ * iteration to keep the journal from growing across the whole run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class AccountOperationsBenchmark {
+
+    @State(Scope.Thread)
+    public static class PrivateAccount {
+        @Param
+        AccountKind kind;
+
+        BankAccount account;
+
+        @Setup(Level.Iteration)
+        public void open() {
+            account = kind.open("NONA1001");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedAccount {
+        @Param
+        AccountKind kind;
+
+        BankAccount account;
+
+        @Setup(Level.Iteration)
+        public void open() {
+            account = kind.open("NONA1001");
+        }
+    }
+
+    @Benchmark
+    public void deposit(PrivateAccount state) {
+        state.account.deposit(100_00L);
+    }
+
+    @Benchmark
+    public boolean withdraw(PrivateAccount state) {
+        return state.account.withdraw(1L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void depositContended(SharedAccount state) {
+        state.account.deposit(100_00L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean withdrawContended(SharedAccount state) {
+        return state.account.withdraw(1L);
+    }
+}
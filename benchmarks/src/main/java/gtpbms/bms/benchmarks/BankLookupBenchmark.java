@@ -0,0 +1,75 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.SavingsAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Bank#getAccount(String)} for existing accounts at different registry sizes, from one
+ * thread and from four at once.
+ *
+ * <p>Lookups cycle through a shuffled list of account numbers held in a separate array, so
+ * the cost includes the cache misses of a large registry rather than repeatedly hitting one
+ * entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BankLookupBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Registry {
+        @Param({"1000", "1000000", "10000000"})
+        int accounts;
+
+        Bank bank;
+        String[] probes;
+
+        @Setup
+        public void open() {
+            bank = new Bank("NONA BANK", accounts);
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccount(new SavingsAccount("Holder " + i, "NONA" + i, 1_000_00L));
+            }
+            SplittableRandom random = new SplittableRandom(42);
+            probes = new String[PROBES];
+            for (int i = 0; i < PROBES; i++) {
+                probes[i] = "NONA" + random.nextInt(accounts);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public BankAccount lookup(Registry registry, Cursor cursor) {
+        return registry.bank.getAccount(registry.probes[cursor.next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BankAccount lookupContended(Registry registry, Cursor cursor) {
+        return registry.bank.getAccount(registry.probes[cursor.next++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,31 @@
+package gtpbms.bms.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with JSON results by default, so that runs from different builds can be
+ * compared (for example with JMH Visualizer or {@code jq}).
+ *
+ * <p>Takes the usual JMH command line. Unless {@code -rf} or {@code -rff} is given, results
+ * are written as JSON to {@code jmh-result.json}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLine.getResultFormat().hasValue() || commandLine.getResult().hasValue()) {
+            builder.parent(commandLine);
+        } else {
+            builder.parent(commandLine).resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.FixedDepositAccount;
+import gtpbms.bms.model.PostingResult;
+import gtpbms.bms.model.SavingsAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of declined withdrawals: through {@link BankAccount#tryWithdraw(long)}, which
+ * returns a result code, and through {@link BankAccount#withdraw(long)}, which throws, both
+ * with the default stackless exceptions and in a fork started with
+ * {@code -Dbms.exceptions.stacktraces=true}. Run with {@code -prof gc} to see the allocation
+ * of each decline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class DeclineBenchmark {
+
+    /** The rules that decline the withdrawal. */
+    public enum Decline {
+        /** A savings withdrawal beyond the balance, which throws {@code InsufficientFundsException}. */
+        INSUFFICIENT_FUNDS,
+
+        /** A withdrawal from an unmatured fixed deposit, which throws {@code PrematureWithdrawalException}. */
+        NOT_MATURED
+    }
+
+    @State(Scope.Thread)
+    public static class Declined {
+        @Param
+        Decline decline;
+
+        BankAccount account;
+        long amount;
+
+        @Setup
+        public void open() {
+            account = switch (decline) {
+                case INSUFFICIENT_FUNDS -> new SavingsAccount("Benchmark Holder", "NONA1001", 1_000_00L);
+                case NOT_MATURED -> new FixedDepositAccount("Benchmark Holder", "NONA1001", 1_000_00L,
+                        LocalDate.now().plusYears(1));
+            };
+            amount = 2_000_00L;
+        }
+    }
+
+    @Benchmark
+    public PostingResult resultCode(Declined state) {
+        return state.account.tryWithdraw(state.amount);
+    }
+
+    @Benchmark
+    public Object exception(Declined state) {
+        try {
+            return state.account.withdraw(state.amount);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Dbms.exceptions.stacktraces=true"})
+    public Object exceptionWithStackTrace(Declined state) {
+        try {
+            return state.account.withdraw(state.amount);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.Transaction;
+import gtpbms.bms.model.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time lookups on an account whose history is spread evenly over three years: the week's
+ * transactions through {@link BankAccount#getTransactions(Instant, Instant)} and
+ * {@link BankAccount#getBalanceAt(Instant)}, against finding the same week by walking the
+ * history. Each call uses the next of 1024 random instants.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class HistoryLookupBenchmark {
+    private static final Instant START = Instant.parse("2023-01-01T00:00:00Z");
+    private static final Duration SPAN = Duration.ofDays(3 * 365);
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    @State(Scope.Thread)
+    public static class History {
+        @Param({"1000", "100000", "10000000"})
+        int size;
+
+        BankAccount account;
+        Instant[] instants = new Instant[1024];
+        int next;
+
+        @Setup
+        public void open() {
+            account = CurrentAccount.restore("Holder", "NONA1001");
+            long start = START.toEpochMilli() * 1000;
+            long step = SPAN.toNanos() / 1000 / size;
+            for (int i = 0; i < size; i++) {
+                account.replay(i == 0 ? TransactionType.ACCOUNT_OPENED : TransactionType.DEPOSIT,
+                        1_000_00L + i * 1_00L, start + i * step);
+            }
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 0; i < instants.length; i++) {
+                instants[i] = START.plusSeconds(random.nextLong(SPAN.minus(WEEK).toSeconds()));
+            }
+        }
+
+        Instant nextInstant() {
+            return instants[next++ & (instants.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public int weekByIndex(History history) {
+        Instant from = history.nextInstant();
+        return history.account.getTransactions(from, from.plus(WEEK)).size();
+    }
+
+    @Benchmark
+    public long balanceAt(History history) {
+        return history.account.getBalanceAt(history.nextInstant());
+    }
+
+    @Benchmark
+    public int weekByScan(History history) {
+        Instant from = history.nextInstant();
+        long fromMicros = from.toEpochMilli() * 1000;
+        long toMicros = fromMicros + WEEK.toNanos() / 1000;
+        int count = 0;
+        List<Transaction> transactions = history.account.getTransactionHistory();
+        for (Transaction transaction : transactions) {
+            long timestamp = transaction.getTimestampMicros();
+            if (timestamp < fromMicros) {
+                break;
+            }
+            if (timestamp < toMicros) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
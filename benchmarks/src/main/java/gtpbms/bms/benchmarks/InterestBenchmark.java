@@ -0,0 +1,67 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.InterestBearing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InterestBearing#calculateInterest()} on savings and fixed deposit accounts, from one
+ * thread and from four threads sweeping the same accounts.
+ *
+ * <p>Each call posts a credit and interest compounds, so calling it on one account in a loop
+ * would soon overflow the balance. Calls are therefore spread over a pool of accounts, which
+ * is replaced at each iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class InterestBenchmark {
+    private static final int POOL_SIZE = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"SAVINGS", "FIXED_DEPOSIT"})
+        AccountKind kind;
+
+        InterestBearing[] accounts;
+
+        @Setup(Level.Iteration)
+        public void open() {
+            accounts = new InterestBearing[POOL_SIZE];
+            for (int i = 0; i < POOL_SIZE; i++) {
+                accounts[i] = (InterestBearing) kind.open("NONA" + i);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public void calculateInterest(Pool pool, Cursor cursor) {
+        pool.accounts[cursor.next++ & (POOL_SIZE - 1)].calculateInterest();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void calculateInterestContended(Pool pool, Cursor cursor) {
+        pool.accounts[cursor.next++ & (POOL_SIZE - 1)].calculateInterest();
+    }
+}
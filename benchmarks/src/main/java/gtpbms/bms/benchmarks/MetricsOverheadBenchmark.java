@@ -0,0 +1,140 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.metrics.LedgerMetrics;
+import gtpbms.bms.metrics.OperationMetrics;
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link LedgerMetrics} on the instrumented hot paths. Each operation is measured
+ * with metrics on, and again in forks started with {@code -Dbms.metrics.enabled=false}; the
+ * difference is the overhead per operation. Metrics are switched when the JVM starts, so the
+ * two sides cannot share a fork; each runs in {@value #FORKS} forks instead, which keeps the
+ * error bars below the difference. The bare recorder is measured on its own, from one thread
+ * and from four at once.
+ *
+ * <p>Deposits and withdrawals are timed in runs of {@value #OPERATIONS} on a fresh account, so
+ * every run pays the same journal growth and no journal grows across the whole iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = MetricsOverheadBenchmark.FORKS, jvmArgsAppend = "-Xmx4g")
+public class MetricsOverheadBenchmark {
+    static final int FORKS = 3;
+    static final int OPERATIONS = 4096;
+
+    private static final String DISABLED = "-D" + LedgerMetrics.ENABLED_PROPERTY + "=false";
+
+    @State(Scope.Thread)
+    public static class PrivateAccount {
+        @Param
+        AccountKind kind;
+
+        BankAccount account;
+
+        @Setup(Level.Invocation)
+        public void open() {
+            Bank bank = new Bank("NONA BANK");
+            account = kind.open("NONA1001");
+            bank.addAccount(account);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        Bank bank;
+
+        @Setup
+        public void open() {
+            bank = new Bank("NONA BANK");
+            bank.addAccount(AccountKind.CURRENT.open("NONA1001"));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recorder {
+        final OperationMetrics metrics = LedgerMetrics.operation("benchmark", LedgerMetrics.ANY_ACCOUNT_TYPE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void deposit(PrivateAccount state) {
+        deposits(state.account);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    @Fork(value = FORKS, jvmArgsAppend = {"-Xmx4g", DISABLED})
+    public void depositWithoutMetrics(PrivateAccount state) {
+        deposits(state.account);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public boolean withdraw(PrivateAccount state) {
+        return withdrawals(state.account);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    @Fork(value = FORKS, jvmArgsAppend = {"-Xmx4g", DISABLED})
+    public boolean withdrawWithoutMetrics(PrivateAccount state) {
+        return withdrawals(state.account);
+    }
+
+    @Benchmark
+    public BankAccount getAccount(Lookup state) {
+        return state.bank.getAccount("NONA1001");
+    }
+
+    @Benchmark
+    @Fork(value = FORKS, jvmArgsAppend = {"-Xmx4g", DISABLED})
+    public BankAccount getAccountWithoutMetrics(Lookup state) {
+        return state.bank.getAccount("NONA1001");
+    }
+
+    private static void deposits(BankAccount account) {
+        for (int i = 0; i < OPERATIONS; i++) {
+            account.deposit(100_00L);
+        }
+    }
+
+    private static boolean withdrawals(BankAccount account) {
+        boolean all = true;
+        for (int i = 0; i < OPERATIONS; i++) {
+            all &= account.withdraw(1L);
+        }
+        return all;
+    }
+
+    @Benchmark
+    public void recorder(Recorder state) {
+        OperationMetrics metrics = state.metrics;
+        metrics.end(metrics.start());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recorderContended(Recorder state) {
+        OperationMetrics metrics = state.metrics;
+        metrics.end(metrics.start());
+    }
+}
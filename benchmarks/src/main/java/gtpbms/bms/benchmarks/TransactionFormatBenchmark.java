@@ -0,0 +1,70 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.Transaction;
+import gtpbms.bms.model.TransactionFormatter;
+import gtpbms.bms.model.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting a transaction as a statement line: {@link Transaction#toString()}, the same line
+ * built the way it used to be (a new {@link DateTimeFormatter} and {@link String#format} per
+ * call), and {@link TransactionFormatter} writing into a reused {@link StringBuilder} and
+ * {@link ByteBuffer}. Run with {@code -prof gc} to compare allocation per line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TransactionFormatBenchmark {
+    private final Transaction transaction = new Transaction(TransactionType.DEPOSIT, 1_250_75L, 98_765_43L);
+    private final StringBuilder builder = new StringBuilder(128);
+    private final ByteBuffer buffer = ByteBuffer.allocate(128);
+
+    @Benchmark
+    public String format() {
+        return transaction.toString();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String formatContended() {
+        return transaction.toString();
+    }
+
+    @Benchmark
+    public String formatWithPerCallFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+        return String.format("[%s] %s: %s | Balance: %s", transaction.getTimestamp().format(formatter),
+                transaction.getDescription(), Money.format(transaction.getAmount()),
+                Money.format(transaction.getBalanceAfter()));
+    }
+
+    @Benchmark
+    public StringBuilder appendLine() {
+        builder.setLength(0);
+        return TransactionFormatter.appendLine(builder, transaction);
+    }
+
+    @Benchmark
+    public ByteBuffer putLine() {
+        buffer.clear();
+        return TransactionFormatter.putLine(buffer, transaction.getType(), transaction.getAmount(),
+                transaction.getBalanceAfter(), transaction.getTimestampMicros());
+    }
+}
@@ -0,0 +1,107 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BankAccount#getTransactionHistory()} at different history sizes: taking the view,
+ * reading the last ten entries the UI shows, and walking the whole history. The contended
+ * group reads the last ten entries while another thread keeps depositing to the same account.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class TransactionHistoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"10", "1000", "100000"})
+        int size;
+
+        BankAccount account;
+
+        @Setup
+        public void open() {
+            account = new CurrentAccount("Holder", "NONA1001", 1_000_00L);
+            for (int i = 1; i < size; i++) {
+                account.deposit(1_00L);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> view(History history) {
+        return history.account.getTransactionHistory();
+    }
+
+    @Benchmark
+    public void lastTen(History history, Blackhole blackhole) {
+        List<Transaction> transactions = history.account.getTransactionHistory();
+        for (int i = 0, n = Math.min(10, transactions.size()); i < n; i++) {
+            blackhole.consume(transactions.get(i));
+        }
+    }
+
+    @Benchmark
+    public long walk(History history) {
+        long total = 0;
+        for (Transaction transaction : history.account.getTransactionHistory()) {
+            total += transaction.getAmount();
+        }
+        return total;
+    }
+
+    @State(Scope.Group)
+    public static class LiveHistory {
+        @Param({"10", "1000", "100000"})
+        int size;
+
+        BankAccount account;
+
+        @Setup(Level.Iteration)
+        public void open() {
+            account = new CurrentAccount("Holder", "NONA1001", 1_000_00L);
+            for (int i = 1; i < size; i++) {
+                account.deposit(1_00L);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("lastTenWhileDepositing")
+    @GroupThreads(1)
+    public void reader(LiveHistory history, Blackhole blackhole) {
+        List<Transaction> transactions = history.account.getTransactionHistory();
+        for (int i = 0, n = Math.min(10, transactions.size()); i < n; i++) {
+            blackhole.consume(transactions.get(i));
+        }
+    }
+
+    @Benchmark
+    @Group("lastTenWhileDepositing")
+    @GroupThreads(1)
+    public void depositor(LiveHistory history) {
+        history.account.deposit(1L);
+    }
+}
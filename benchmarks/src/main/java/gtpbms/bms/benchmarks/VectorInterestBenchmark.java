@@ -0,0 +1,67 @@
+package gtpbms.bms.benchmarks;
+
+import gtpbms.bms.model.InterestBatch;
+import gtpbms.bms.model.Product;
+import gtpbms.bms.model.ProductCatalogue;
+import gtpbms.bms.model.SavingsAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The month-end interest pass of an {@link InterestBatch} over a column of savings balances,
+ * with the Vector API kernel in a fork started with {@code --add-modules jdk.incubator.vector},
+ * and with the scalar {@link gtpbms.bms.model.Money#applyRate} loop in a fork started with
+ * {@code -Dbms.interest.vector=false}. Both produce the same amounts; the score is the time
+ * for one pass over the whole batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorInterestBenchmark {
+
+    @State(Scope.Thread)
+    public static class Batch {
+        @Param({"256", "4096", "65536"})
+        int size;
+
+        InterestBatch batch;
+
+        @Setup
+        public void fill() {
+            batch = InterestBatch.forProduct(ProductCatalogue.product(Product.SAVINGS), size);
+            for (int i = 0; i < size; i++) {
+                batch.add(new SavingsAccount("Holder " + i, "NONA" + i, 100_00L + i * 7_919L));
+            }
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public void vectorKernel(Batch state) {
+        if (!InterestBatch.isVectorized()) {
+            throw new IllegalStateException("The Vector API kernel is not in use");
+        }
+        state.batch.computeInterest();
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = "-Dbms.interest.vector=false")
+    public void scalarLoop(Batch state) {
+        if (InterestBatch.isVectorized()) {
+            throw new IllegalStateException("The Vector API kernel is in use");
+        }
+        state.batch.computeInterest();
+    }
+}
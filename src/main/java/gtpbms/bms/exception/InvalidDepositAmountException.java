@@ -8,4 +8,9 @@ public class InvalidDepositAmountException extends IllegalArgumentException {
   public InvalidDepositAmountException(String message, Throwable cause) {
     super(message, cause);
   }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+  }
 }
@@ -8,4 +8,9 @@ public class InvalidInitialBalanceException extends IllegalArgumentException {
   public InvalidInitialBalanceException(String message, Throwable status) {
     super(message, status);
   }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+  }
 }
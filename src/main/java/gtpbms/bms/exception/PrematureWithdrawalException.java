@@ -5,14 +5,16 @@ import java.time.temporal.ChronoUnit;
 
 public class PrematureWithdrawalException extends UnsupportedOperationException {
   public PrematureWithdrawalException(LocalDate maturityDate) {
-    super(String.format("Withdrawal not allowed before maturity date: %s", maturityDate));
+    super("Withdrawal not allowed before maturity date: " + maturityDate);
   }
 
   public PrematureWithdrawalException(LocalDate currentDate, LocalDate maturityDate) {
-    super(String.format(
-        "Withdrawal blocked! %d days remaining until maturity (due: %s)",
-        ChronoUnit.DAYS.between(currentDate, maturityDate),
-        maturityDate));
+    super("Withdrawal blocked! " + ChronoUnit.DAYS.between(currentDate, maturityDate)
+        + " days remaining until maturity (due: " + maturityDate + ")");
   }
 
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+  }
 }
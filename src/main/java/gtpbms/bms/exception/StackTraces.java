@@ -0,0 +1,15 @@
+package gtpbms.bms.exception;
+
+/**
+ * Whether the domain exceptions capture a stack trace. They report ordinary business
+ * declines, where the trace is never read but costs more than the rest of the exception, so
+ * capture is off unless the {@value #PROPERTY} system property is {@code true}.
+ */
+final class StackTraces {
+  static final String PROPERTY = "bms.exceptions.stacktraces";
+
+  static final boolean CAPTURED = Boolean.getBoolean(PROPERTY);
+
+  private StackTraces() {
+  }
+}
@@ -0,0 +1,237 @@
+package gtpbms.bms.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The registry of ledger metrics: one {@link OperationMetrics} per operation and account type,
+ * a count of declines per reason, a count of rejections per exception type and the outcome of
+ * the bank's recovery at startup.
+ *
+ * <p>After {@link #registerMBeans()} every entry is published on the platform MBean server,
+ * under {@value #DOMAIN}{@code :type=Ledger,operation=<operation>,accountType=<type>}, with the
+ * decline, rejection and recovery figures under {@value #DOMAIN}{@code :type=Ledger,name=Summary}. Entries created
+ * later are published as they are created. Collection is configured with system properties,
+ * read once when the class is loaded:
+ * <ul>
+ *   <li>{@value #ENABLED_PROPERTY}: {@code false} turns every recording call into a no-op
+ *       (default {@code true})</li>
+ *   <li>{@value #SAMPLE_INTERVAL_PROPERTY}: time one call in this many, rounded up to a power
+ *       of two (default {@value #DEFAULT_SAMPLE_INTERVAL}); 1 times every call</li>
+ * </ul>
+ */
+public final class LedgerMetrics {
+    public static final String ENABLED_PROPERTY = "bms.metrics.enabled";
+    public static final String SAMPLE_INTERVAL_PROPERTY = "bms.metrics.sample.interval";
+
+    /** The JMX domain the metrics are published under. */
+    public static final String DOMAIN = "gtpbms.bms";
+
+    /** The account type of an operation that is not on one account, such as a lookup. */
+    public static final String ANY_ACCOUNT_TYPE = "any";
+
+    private static final int DEFAULT_SAMPLE_INTERVAL = 64;
+
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+    static final int SAMPLE_MASK = sampleMask(Integer.getInteger(SAMPLE_INTERVAL_PROPERTY, DEFAULT_SAMPLE_INTERVAL));
+
+    private static final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private static final ConcurrentMap<Enum<?>, LongAdder> declines = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, LongAdder> rejections = new ConcurrentHashMap<>();
+    private static volatile MBeanServer server;
+    private static volatile int recoveredAccounts;
+    private static volatile long recoveryNanos;
+
+    /**
+     * Gets the metrics of an operation on an account type, creating them on first use.
+     *
+     * @param operation the operation's name, such as {@code withdraw}
+     * @param accountType the account type, or {@value #ANY_ACCOUNT_TYPE}
+     * @return the metrics
+     */
+    public static OperationMetrics operation(String operation, String accountType) {
+        String key = operation + '/' + accountType;
+        OperationMetrics metrics = operations.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        metrics = operations.computeIfAbsent(key, k -> new OperationMetrics(operation, accountType));
+        if (server != null) {
+            publish(metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Gets the metrics of an operation on an account class, named by the class's simple name.
+     *
+     * @param operation the operation's name, such as {@code withdraw}
+     * @param accountType the account class
+     * @return the metrics
+     */
+    public static OperationMetrics operation(String operation, Class<?> accountType) {
+        return operation(operation, accountType.getSimpleName());
+    }
+
+    /**
+     * Creates a per-class lookup of an operation's metrics, for an operation implemented once
+     * for several account types. Looking up a class that has been seen before does not allocate.
+     *
+     * @param operation the operation's name, such as {@code deposit}
+     * @return the lookup
+     */
+    public static ClassValue<OperationMetrics> byAccountType(String operation) {
+        return new ClassValue<>() {
+            @Override
+            protected OperationMetrics computeValue(Class<?> accountType) {
+                return operation(operation, accountType);
+            }
+        };
+    }
+
+    /**
+     * Gets the metrics of every operation seen so far, ordered by operation and account type.
+     *
+     * @return a live, read-only view
+     */
+    public static Collection<OperationMetrics> getOperations() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    /**
+     * Gets the number of operations declined for each reason.
+     *
+     * @return the counts by reason name, in name order
+     */
+    public static Map<String, Long> getDeclines() {
+        Map<String, Long> counts = new TreeMap<>();
+        declines.forEach((reason, count) -> counts.merge(reason.name(), count.sum(), Long::sum));
+        return counts;
+    }
+
+    /**
+     * Gets the number of operations that ended in each type of exception.
+     *
+     * @return the counts by exception simple class name, in name order
+     */
+    public static Map<String, Long> getRejections() {
+        Map<String, Long> counts = new TreeMap<>();
+        rejections.forEach((type, count) -> counts.merge(type.getSimpleName(), count.sum(), Long::sum));
+        return counts;
+    }
+
+    /**
+     * Records the outcome of recovering the bank from storage at startup.
+     *
+     * @param accounts the number of accounts recovered
+     * @param nanos how long recovery took, in nanoseconds
+     */
+    public static void recovered(int accounts, long nanos) {
+        recoveryNanos = nanos;
+        recoveredAccounts = accounts;
+    }
+
+    /**
+     * Publishes every metric on the platform MBean server. Calling it again has no effect.
+     *
+     * @throws IllegalStateException if the MBeans cannot be registered
+     */
+    public static synchronized void registerMBeans() {
+        if (server != null) {
+            return;
+        }
+        MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+        register(platform, new Summary(), DOMAIN + ":type=Ledger,name=Summary");
+        server = platform;
+        for (OperationMetrics metrics : operations.values()) {
+            publish(metrics);
+        }
+    }
+
+    /**
+     * Counts one decline under its reason.
+     *
+     * @param reason the reason
+     */
+    static void declined(Enum<?> reason) {
+        declines.computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts one rejection under the exception's type.
+     *
+     * @param exception the exception
+     */
+    static void rejected(RuntimeException exception) {
+        rejections.computeIfAbsent(exception.getClass(), type -> new LongAdder()).increment();
+    }
+
+    private static void publish(OperationMetrics metrics) {
+        register(server, metrics, DOMAIN + ":type=Ledger,operation=" + metrics.getOperation()
+                + ",accountType=" + metrics.getAccountType());
+    }
+
+    private static void register(MBeanServer server, Object mbean, String name) {
+        try {
+            server.registerMBean(mbean, new ObjectName(name));
+        } catch (InstanceAlreadyExistsException e) {
+            // published by registerMBeans and by operation at the same time
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics MBean " + name, e);
+        }
+    }
+
+    private static int sampleMask(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException(SAMPLE_INTERVAL_PROPERTY + " must be at least 1. Received: " + interval);
+        }
+        return interval == 1 ? 0 : (Integer.highestOneBit(interval - 1) << 1) - 1;
+    }
+
+    /** The MBean for the registry-wide metrics. */
+    private static final class Summary implements LedgerMetricsMXBean {
+        @Override
+        public Map<String, Long> getDeclines() {
+            return LedgerMetrics.getDeclines();
+        }
+
+        @Override
+        public Map<String, Long> getRejections() {
+            return LedgerMetrics.getRejections();
+        }
+
+        @Override
+        public int getRecoveredAccounts() {
+            return recoveredAccounts;
+        }
+
+        @Override
+        public double getRecoveryMillis() {
+            return recoveryNanos / 1e6;
+        }
+
+        @Override
+        public int getSampleInterval() {
+            return SAMPLE_MASK + 1;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+    }
+
+    private LedgerMetrics() {
+    }
+}
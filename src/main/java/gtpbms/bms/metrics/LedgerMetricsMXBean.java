@@ -0,0 +1,53 @@
+package gtpbms.bms.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of ledger metrics that are not tied to one operation.
+ */
+public interface LedgerMetricsMXBean {
+
+    /**
+     * Gets the number of ledger operations declined for each reason, such as
+     * {@code INSUFFICIENT_FUNDS}, whether the caller saw a result code or an exception.
+     *
+     * @return the counts by reason name
+     */
+    Map<String, Long> getDeclines();
+
+    /**
+     * Gets the number of ledger operations that ended in each type of exception, such as
+     * {@code InsufficientFundsException}.
+     *
+     * @return the counts by exception simple class name
+     */
+    Map<String, Long> getRejections();
+
+    /**
+     * Gets the number of accounts recovered from snapshots and the write-ahead log at startup.
+     *
+     * @return the account count, or 0 if the bank is not persisted
+     */
+    int getRecoveredAccounts();
+
+    /**
+     * Gets how long recovering the bank at startup took.
+     *
+     * @return the time in milliseconds, or 0 if the bank is not persisted
+     */
+    double getRecoveryMillis();
+
+    /**
+     * Gets how many calls there are, on average, for each call whose latency is recorded.
+     *
+     * @return the sample interval
+     */
+    int getSampleInterval();
+
+    /**
+     * Tells whether metrics are being collected.
+     *
+     * @return true unless disabled with {@value LedgerMetrics#ENABLED_PROPERTY}
+     */
+    boolean isEnabled();
+}
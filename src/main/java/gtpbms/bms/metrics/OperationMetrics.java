@@ -0,0 +1,171 @@
+package gtpbms.bms.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times one ledger operation on one account type. Obtain instances from
+ * {@link LedgerMetrics}, which publishes them over JMX.
+ *
+ * <p>An instrumented operation calls {@link #start()} on entry and {@link #end(long)} on every
+ * exit, and reports a refusal or an exception on the way:
+ * <pre>
+ *   long start = metrics.start();
+ *   try {
+ *     ...
+ *   } catch (RuntimeException e) {
+ *     metrics.rejected(e);
+ *     throw e;
+ *   } finally {
+ *     metrics.end(start);
+ *   }
+ * </pre>
+ * Every call is counted in a {@link LongAdder}, which stripes its count across cells under
+ * contention. Reading the clock costs more than the rest of the bookkeeping put together, so
+ * only a random one in every {@link LedgerMetricsMXBean#getSampleInterval() sample interval}
+ * calls is timed into the {@link LatencyHistogram}.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final String operation;
+    private final String accountType;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String operation, String accountType) {
+        this.operation = operation;
+        this.accountType = accountType;
+    }
+
+    /**
+     * Counts a call and, if it is sampled, reads the clock.
+     *
+     * @return the token to pass to {@link #end(long)}
+     */
+    public long start() {
+        if (!LedgerMetrics.ENABLED) {
+            return NOT_SAMPLED;
+        }
+        calls.increment();
+        return (ThreadLocalRandom.current().nextInt() & LedgerMetrics.SAMPLE_MASK) == 0
+                ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Records the latency of a sampled call.
+     *
+     * @param start the token {@link #start()} returned
+     */
+    public void end(long start) {
+        if (start != NOT_SAMPLED) {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /** Counts a call the rules refused without an exception. */
+    public void refused() {
+        if (LedgerMetrics.ENABLED) {
+            refused.increment();
+        }
+    }
+
+    /**
+     * Counts a call the rules refused without an exception, here and under the reason in
+     * {@link LedgerMetrics#getDeclines()}. Does not allocate once the reason has been seen.
+     *
+     * @param reason the reason, such as a decline code
+     */
+    public void declined(Enum<?> reason) {
+        if (LedgerMetrics.ENABLED) {
+            refused.increment();
+            LedgerMetrics.declined(reason);
+        }
+    }
+
+    /**
+     * Counts a call that ended in an exception, here and under the exception's type in
+     * {@link LedgerMetrics#getRejections()}.
+     *
+     * @param exception the exception
+     */
+    public void rejected(RuntimeException exception) {
+        if (LedgerMetrics.ENABLED) {
+            rejected.increment();
+            LedgerMetrics.rejected(exception);
+        }
+    }
+
+    /**
+     * Gets the histogram of sampled latencies.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String getAccountType() {
+        return accountType;
+    }
+
+    @Override
+    public long getCount() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getRefused() {
+        return refused.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getLatencySamples() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getMeanLatencyNanos() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getP50LatencyNanos() {
+        return latency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP99LatencyNanos() {
+        return latency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getP999LatencyNanos() {
+        return latency.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxLatencyNanos() {
+        return latency.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %d calls, %d refused, %d rejected, latency p50 %d ns, p99 %d ns, max %d ns",
+                accountType, operation, getCount(), getRefused(), getRejected(),
+                getP50LatencyNanos(), getP99LatencyNanos(), getMaxLatencyNanos());
+    }
+}
@@ -0,0 +1,86 @@
+package gtpbms.bms.metrics;
+
+/**
+ * The JMX view of one ledger operation on one account type. Latencies are in nanoseconds and
+ * are taken from the sampled calls only.
+ */
+public interface OperationMetricsMXBean {
+
+    /**
+     * Gets the operation's name, such as {@code withdraw}.
+     *
+     * @return the operation
+     */
+    String getOperation();
+
+    /**
+     * Gets the simple class name of the account type, or {@code any} for a bank-wide operation.
+     *
+     * @return the account type
+     */
+    String getAccountType();
+
+    /**
+     * Gets the number of calls, whatever their outcome.
+     *
+     * @return the call count
+     */
+    long getCount();
+
+    /**
+     * Gets the number of calls the account's rules refused without an exception, such as a
+     * withdrawal below the minimum balance or a lookup of an unknown account.
+     *
+     * @return the refused count
+     */
+    long getRefused();
+
+    /**
+     * Gets the number of calls that ended in an exception.
+     *
+     * @return the rejected count
+     */
+    long getRejected();
+
+    /**
+     * Gets the number of calls whose latency was recorded.
+     *
+     * @return the sample count
+     */
+    long getLatencySamples();
+
+    /**
+     * Gets the mean sampled latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    double getMeanLatencyNanos();
+
+    /**
+     * Gets the median sampled latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    long getP50LatencyNanos();
+
+    /**
+     * Gets the 99th percentile sampled latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    long getP99LatencyNanos();
+
+    /**
+     * Gets the 99.9th percentile sampled latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    long getP999LatencyNanos();
+
+    /**
+     * Gets the largest sampled latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    long getMaxLatencyNanos();
+}
@@ -1,37 +1,58 @@
 package gtpbms.bms.model;
 
+import java.time.Instant;
 import java.util.List;
 
 /**
  * Represents a bank account with basic operations and transaction tracking.
  * This interface defines the common behavior for all types of bank accounts.
  *
+ * <p>All amounts are in minor units (pesewas); see {@link Money}.
+ *
  */
 public interface Account {
 
   /**
    * Deposits the specified amount into the account.
    *
-   * @param amount the amount to deposit (must be positive)
+   * @param amount the amount to deposit in pesewas (must be positive)
    * @throws IllegalArgumentException if amount is negative or zero
    */
-  void deposit(double amount);
+  void deposit(long amount);
 
   /**
    * Withdraws the specified amount from the account.
    *
-   * @param amount the amount to withdraw (must be positive)
+   * @param amount the amount to withdraw in pesewas (must be positive)
    * @return true if withdrawal was successful, false otherwise
    * @throws IllegalArgumentException if amount is negative or zero
    */
-  boolean withdraw(double amount);
+  boolean withdraw(long amount);
+
+  /**
+   * Deposits the specified amount into the account, reporting a decline as a result rather
+   * than an exception. A declined deposit allocates nothing.
+   *
+   * @param amount the amount to deposit in pesewas
+   * @return {@link PostingResult#APPROVED}, or why the deposit was declined
+   */
+  PostingResult tryDeposit(long amount);
+
+  /**
+   * Withdraws the specified amount from the account, reporting a decline as a result rather
+   * than an exception. A declined withdrawal allocates nothing.
+   *
+   * @param amount the amount to withdraw in pesewas
+   * @return {@link PostingResult#APPROVED}, or why the withdrawal was declined
+   */
+  PostingResult tryWithdraw(long amount);
 
   /**
    * Gets the current balance of the account.
    *
-   * @return the current balance
+   * @return the current balance in pesewas
    */
-  double getBalance();
+  long getBalance();
 
   /**
    * Gets the unique account number identifying this account.
@@ -41,10 +62,12 @@ public interface Account {
   String getAccountNumber();
 
   /**
-   * Adds a transaction to the account's transaction history.
+   * Posts a transaction to the account: its amount is applied to the balance and it is added
+   * to the transaction history.
    *
-   * @param transaction the transaction to add
-   * @throws IllegalArgumentException if transaction is null
+   * @param transaction the transaction to post, whose balance after must be the current
+   *                    balance plus its amount
+   * @throws IllegalArgumentException if transaction is null or does not follow the current balance
    */
   void addTransaction(Transaction transaction);
 
@@ -55,6 +78,45 @@ public interface Account {
    */
   List<Transaction> getTransactionHistory();
 
+  /**
+   * Gets the number of transactions recorded on the account.
+   *
+   * @return the transaction count
+   */
+  int getTransactionCount();
+
+  /**
+   * Gets one page of the transaction history, most recent first.
+   * The page is a read-only view of the history at the time of the call; it is not a copy.
+   *
+   * @param offset the number of most recent transactions to skip (must be >= 0)
+   * @param limit the maximum number of transactions to return (must be >= 0)
+   * @return the page, which may be shorter than limit or empty
+   * @throws IllegalArgumentException if offset or limit is negative
+   */
+  List<Transaction> getTransactions(int offset, int limit);
+
+  /**
+   * Gets the transactions recorded in a time range, most recent first.
+   * The result is a read-only view, not a copy.
+   *
+   * @param from the start of the range (inclusive)
+   * @param to the end of the range (exclusive)
+   * @return the transactions in the range
+   * @throws IllegalArgumentException if from or to is null
+   */
+  List<Transaction> getTransactions(Instant from, Instant to);
+
+  /**
+   * Gets the balance as it stood at a given time, from the balance recorded with the last
+   * transaction at or before it.
+   *
+   * @param instant the time
+   * @return the balance in pesewas, or 0 if the account had no transactions by then
+   * @throws IllegalArgumentException if instant is null
+   */
+  long getBalanceAt(Instant instant);
+
   /**
    * Gets the type of the account (e.g., "Savings", "Checking").
    *
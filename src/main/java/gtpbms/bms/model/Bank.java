@@ -1,17 +1,48 @@
 package gtpbms.bms.model;
 
+import gtpbms.bms.exception.InvalidWithdrawalAmountException;
+import gtpbms.bms.metrics.LedgerMetrics;
+import gtpbms.bms.metrics.OperationMetrics;
+
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * Represents a banking institution that manages multiple bank accounts.
- * Provides functionality to add, retrieve, and list accounts.
+ * Provides functionality to add, retrieve, and list accounts, and to transfer between them.
+ *
+ * <p>The account registry is a {@link ConcurrentHashMap}, so any number of threads may
+ * register and look up accounts at the same time. Lookups never block, and registrations
+ * only contend when they land in the same hash bin. Accounts are also indexed by holder name
+ * for customer search; an account appears in the index once its registration has completed.
+ *
+ * <p>A {@link PostingListener} can be set to observe every account opening and posting,
+ * for example to write them to a durable log. A batch registration excludes single
+ * registrations and {@link #registrationLock() snapshots} while it runs, so that neither can
+ * see a batch that has been logged but not registered, or registered but not yet logged.
  */
 public class Bank {
+  private static final int DEFAULT_EXPECTED_ACCOUNTS = 16;
+  private static final OperationMetrics LOOKUP_METRICS =
+          LedgerMetrics.operation("getAccount", LedgerMetrics.ANY_ACCOUNT_TYPE);
+
   private final String name;
-  private final Map<String, BankAccount> accounts;
+  private final ConcurrentMap<String, BankAccount> accounts;
+  private final Collection<BankAccount> accountsView;
+  private final HolderIndex holders = new HolderIndex();
+  // Held exclusively by a batch registration, shared by single registrations and snapshots
+  private final ReadWriteLock registrations = new ReentrantReadWriteLock();
+  private volatile PostingListener postingListener = PostingListener.NONE;
 
   /**
    * Constructs a new Bank with the specified name.
@@ -20,33 +51,289 @@ public class Bank {
    * @throws IllegalArgumentException if name is null or empty
    */
   public Bank(String name) {
+    this(name, DEFAULT_EXPECTED_ACCOUNTS);
+  }
+
+  /**
+   * Constructs a new Bank sized for the expected number of accounts.
+   * Pre-sizing avoids rehashing the registry while a large book of accounts is loaded.
+   *
+   * @param name the name of the bank (cannot be null or empty)
+   * @param expectedAccounts the number of accounts the bank is expected to hold
+   * @throws IllegalArgumentException if name is null or empty, or expectedAccounts is negative
+   */
+  public Bank(String name, int expectedAccounts) {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Bank name cannot be null or empty");
+    }
     this.name = name;
-    this.accounts = new HashMap<>();
+    this.accounts = new ConcurrentHashMap<>(expectedAccounts);
+    this.accountsView = Collections.unmodifiableCollection(accounts.values());
   }
 
   /**
    * Adds a new account to the bank.
+   * The duplicate check and the registration are a single atomic step, so two threads
+   * registering the same account number can never both succeed.
    *
    * @param account the account to add (cannot be null)
-   * @throws IllegalArgumentException if account is null or an account with the same number already exists
+   * @throws IllegalArgumentException if account is null, has no holder name, or an account with the same number already exists
    */
   public void addAccount(BankAccount account) {
-    accounts.put(account.getAccountNumber(), account);
+    if (account == null) {
+      throw new IllegalArgumentException("Account cannot be null");
+    }
+    String holderKey = HolderIndex.keyOf(account);
+
+    registrations.readLock().lock();
+    try {
+      // Holding the account's monitor keeps its first posting behind the opening notification
+      synchronized (account) {
+        BankAccount existing = accounts.putIfAbsent(account.getAccountNumber(), account);
+        if (existing != null) {
+          throw new IllegalArgumentException("Account number already exists: " + account.getAccountNumber());
+        }
+
+        PostingListener listener = postingListener;
+        try {
+          listener.accountOpened(account);
+        } catch (RuntimeException e) {
+          accounts.remove(account.getAccountNumber(), account);
+          throw e;
+        }
+        account.attach(listener);
+        holders.add(account, holderKey);
+      }
+    } finally {
+      registrations.readLock().unlock();
+    }
+  }
+
+  /**
+   * Registers a batch of new accounts. The listener is told about the whole batch in one
+   * {@link PostingListener#accountsOpened(List)} call before any of the accounts can be found,
+   * which lets a durable listener record the batch with a single write.
+   *
+   * <p>The accounts must not yet be shared with other threads. An account whose number is
+   * already registered, or repeats an earlier number in the batch, is not registered and is
+   * returned instead. Other registrations, single or batch, wait until the batch is added. If
+   * the listener fails, none of the batch is registered; the listener must then have recorded
+   * none of it either.
+   *
+   * @param batch the accounts to add (cannot be null or contain null)
+   * @return the accounts that were not registered because their numbers were taken (never null)
+   * @throws IllegalArgumentException if batch is null, contains null or an account with no holder name;
+   *         nothing is registered then
+   */
+  public List<BankAccount> addAccounts(List<BankAccount> batch) {
+    if (batch == null) {
+      throw new IllegalArgumentException("Accounts cannot be null");
+    }
+    String[] holderKeys = new String[batch.size()];
+    for (int i = 0; i < holderKeys.length; i++) {
+      BankAccount account = batch.get(i);
+      if (account == null) {
+        throw new IllegalArgumentException("Accounts cannot be null");
+      }
+      holderKeys[i] = HolderIndex.keyOf(account);
+    }
+
+    Set<String> numbers = new HashSet<>(Math.max(16, batch.size() * 2));
+    List<BankAccount> accepted = new ArrayList<>(batch.size());
+    List<String> acceptedKeys = new ArrayList<>(batch.size());
+    List<BankAccount> duplicates = new ArrayList<>();
+    registrations.writeLock().lock();
+    try {
+      // No other registration can take a number between this check and the put below
+      for (int i = 0; i < holderKeys.length; i++) {
+        BankAccount account = batch.get(i);
+        String number = account.getAccountNumber();
+        if (numbers.add(number) && !accounts.containsKey(number)) {
+          accepted.add(account);
+          acceptedKeys.add(holderKeys[i]);
+        } else {
+          duplicates.add(account);
+        }
+      }
+
+      PostingListener listener = postingListener;
+      listener.accountsOpened(accepted);
+      for (int i = 0; i < accepted.size(); i++) {
+        BankAccount account = accepted.get(i);
+        // Attached before registration, so that postings made as soon as it can be found are logged
+        account.attach(listener);
+        accounts.put(account.getAccountNumber(), account);
+        holders.add(account, acceptedKeys.get(i));
+      }
+    } finally {
+      registrations.writeLock().unlock();
+    }
+    return duplicates;
+  }
+
+  /**
+   * Gets a lock that keeps {@link #addAccounts(List)} from running while it is held. A snapshot
+   * holds it from the point its log position is taken until every account has been visited,
+   * so each batch is either wholly logged before that position and registered, or not yet
+   * begun. Single registrations and postings carry on meanwhile.
+   *
+   * @return the lock
+   */
+  public Lock registrationLock() {
+    return registrations.readLock();
+  }
+
+  /**
+   * Sets the listener that observes account openings and postings, replacing any previous one.
+   * Accounts already registered are attached as well; the listener is not told about them.
+   * Set the listener before the bank is shared between threads.
+   *
+   * @param listener the listener (cannot be null)
+   * @throws IllegalArgumentException if listener is null
+   */
+  public void setPostingListener(PostingListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Posting listener cannot be null");
+    }
+    this.postingListener = listener;
+    for (BankAccount account : accounts.values()) {
+      account.attach(listener);
+    }
   }
 
   /**
    * Retrieves an account by its account number.
+   * Lookups are counted and timed in {@link LedgerMetrics}; a miss counts as refused.
    *
    * @param accountNumber the account number to search for (cannot be null or empty)
    * @return the BankAccount with the specified number, or null if not found
    * @throws IllegalArgumentException if accountNumber is null or empty
    */
   public BankAccount getAccount(String accountNumber) {
-    return accounts.get(accountNumber);
+    long start = LOOKUP_METRICS.start();
+    try {
+      if (accountNumber == null || accountNumber.isEmpty()) {
+        throw new IllegalArgumentException("Account number cannot be null or empty");
+      }
+      BankAccount account = accounts.get(accountNumber);
+      if (account == null) {
+        LOOKUP_METRICS.refused();
+      }
+      return account;
+    } catch (RuntimeException e) {
+      LOOKUP_METRICS.rejected(e);
+      throw e;
+    } finally {
+      LOOKUP_METRICS.end(start);
+    }
+  }
+
+  /**
+   * Finds every account held under a name. Names match regardless of case and of surrounding
+   * or repeated whitespace.
+   *
+   * @param accountHolder the holder's name (cannot be null)
+   * @return the holder's accounts in registration order, empty if none (never null)
+   * @throws IllegalArgumentException if accountHolder is null
+   */
+  public List<BankAccount> findAccountsByHolder(String accountHolder) {
+    if (accountHolder == null) {
+      throw new IllegalArgumentException("Account holder cannot be null");
+    }
+    return holders.find(accountHolder);
+  }
+
+  /**
+   * Finds accounts whose holder's name starts with a prefix, ordered by name. Names match
+   * regardless of case and of surrounding or repeated whitespace. The cost is a seek in the
+   * name index plus one step per account returned, whatever the number of accounts.
+   *
+   * @param prefix the start of the holder's name (cannot be null)
+   * @param limit the maximum number of accounts to return (must be >= 0)
+   * @return up to limit matching accounts (never null)
+   * @throws IllegalArgumentException if prefix is null or limit is negative
+   */
+  public List<BankAccount> searchAccountsByHolder(String prefix, int limit) {
+    if (prefix == null) {
+      throw new IllegalArgumentException("Prefix cannot be null");
+    }
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit must not be negative");
+    }
+    return holders.search(prefix, limit);
+  }
+
+  /**
+   * Transfers money from one account to another atomically: either both the debit and the
+   * credit are applied, or neither is. The debit follows the source account's withdrawal
+   * rules, and each account records one side of the transfer.
+   *
+   * @param fromAccountNumber the account to debit
+   * @param toAccountNumber the account to credit
+   * @param amount the amount to transfer in pesewas (must be positive)
+   * @return true if the transfer succeeded, false if the source account's rules refused it
+   * @throws InvalidWithdrawalAmountException if amount is zero or negative
+   * @throws IllegalArgumentException if either account does not exist or both are the same
+   */
+  public boolean transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+    if (amount <= 0) {
+      throw new InvalidWithdrawalAmountException("Invalid transfer amount. Received: " + Money.format(amount));
+    }
+    BankAccount from = getAccount(fromAccountNumber);
+    BankAccount to = getAccount(toAccountNumber);
+    if (from == null || to == null) {
+      throw new IllegalArgumentException("Account not found: " + (from == null ? fromAccountNumber : toAccountNumber));
+    }
+    if (from == to) {
+      throw new IllegalArgumentException("Cannot transfer to the same account: " + fromAccountNumber);
+    }
+    return BankAccount.transfer(from, to, amount);
+  }
+
+  /**
+   * Gets a read-only view of the accounts in the bank, in no particular order. Nothing is
+   * copied: the view is backed by the registry, and iterating it is weakly consistent. It never
+   * throws {@link java.util.ConcurrentModificationException}, visits each account at most once,
+   * and reflects every account registered before the iteration began and possibly some
+   * registered during it. Its spliterator splits across the registry's hash table, so parallel
+   * streams and fork/join jobs divide the accounts evenly.
+   *
+   * @return the view (never null)
+   */
+  public Collection<BankAccount> getAccounts() {
+    return accountsView;
+  }
+
+  /**
+   * Streams the accounts in the bank without copying them, weakly consistent as
+   * {@link #getAccounts()} describes. The stream may be made parallel.
+   *
+   * @return a stream of the accounts
+   */
+  public Stream<BankAccount> streamAccounts() {
+    return accountsView.stream();
+  }
+
+  /**
+   * Streams the accounts of one type without copying them, weakly consistent as
+   * {@link #getAccounts()} describes.
+   *
+   * @param type the account class, for example {@code SavingsAccount.class} (cannot be null)
+   * @param <T> the account type
+   * @return a stream of the accounts that are instances of type
+   * @throws IllegalArgumentException if type is null
+   */
+  public <T extends BankAccount> Stream<T> streamAccounts(Class<T> type) {
+    if (type == null) {
+      throw new IllegalArgumentException("Account type cannot be null");
+    }
+    return accountsView.stream().filter(type::isInstance).map(type::cast);
   }
 
   /**
    * Gets a list of all accounts in the bank.
+   * The list is a copy of the whole registry; to visit every account, use
+   * {@link #getAccounts()} or {@link #streamAccounts()}, which copy nothing.
    *
    * @return a new List containing all accounts (never null)
    */
@@ -54,6 +341,15 @@ public class Bank {
     return new ArrayList<>(accounts.values());
   }
 
+  /**
+   * Gets the number of accounts registered with the bank.
+   *
+   * @return the account count
+   */
+  public int getAccountCount() {
+    return accounts.size();
+  }
+
   /**
    * Gets the name of the bank.
    *
@@ -62,4 +358,4 @@ public class Bank {
   public String getName() {
     return name;
   }
-}
\ No newline at end of file
+}
@@ -1,9 +1,14 @@
 package gtpbms.bms.model;
 
 import gtpbms.bms.exception.InvalidDepositAmountException;
+import gtpbms.bms.exception.InvalidInitialBalanceException;
+import gtpbms.bms.exception.InvalidWithdrawalAmountException;
+import gtpbms.bms.metrics.LedgerMetrics;
+import gtpbms.bms.metrics.OperationMetrics;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.temporal.ChronoField;
 import java.util.List;
 
 /**
@@ -17,52 +22,428 @@ import java.util.List;
  *   <li>Current balance</li>
  *   <li>Transaction history (most recent first)</li>
  * </ul>
+ *
+ * <p>Every balance change is guarded by the account's own monitor. The rule checks of a
+ * subclass, the balance update and the transaction record are made in one critical section
+ * through {@link #post(TransactionType, long)}, so concurrent operations on the same account can
+ * neither lose an update nor record a balance the account never had. Operations on
+ * different accounts never contend.
+ *
+ * <p>The rules an account is held to, such as its minimum balance or interest rate, belong to
+ * its {@link Product}. The account keeps only the product's id and looks the rules up in the
+ * {@link ProductCatalogue} in use whenever it applies them, so a reloaded catalogue takes
+ * effect without touching the accounts.
+ *
+ * <p>Amounts are held as {@code long} pesewas (see {@link Money}), so balances are exact.
+ * History is kept in a columnar {@link TransactionJournal} rather than as a list of objects.
+ * Once the account is registered with a {@link Bank}, each posting is first handed to the
+ * bank's {@link PostingListener}.
+ *
+ * <p>Deposits and withdrawals come in two forms. {@link #tryDeposit(long)} and
+ * {@link #tryWithdraw(long)} report a decline as a {@link PostingResult} and never allocate
+ * for one, which suits callers that see many declines, such as card authorisations.
+ * {@link #deposit(long)} and {@link #withdraw(long)} turn declines into exceptions for
+ * callers that prefer them. Both forms are counted and timed per account type in
+ * {@link LedgerMetrics}, as are interest calculations.
  */
 public abstract class BankAccount implements Account {
+  private static final int NO_ACCRUAL = Integer.MIN_VALUE;
+  private static final ClassValue<OperationMetrics> DEPOSIT_METRICS = LedgerMetrics.byAccountType("deposit");
+  private static final ClassValue<OperationMetrics> WITHDRAW_METRICS = LedgerMetrics.byAccountType("withdraw");
+
+  /** The id of the account's {@link Product}, whose rules are looked up on every posting. */
+  protected final int productId;
   protected String accountHolder;
   protected String accountNumber;
-  protected double balance;
-  protected LinkedList<Transaction> transactionHistory;
+  protected volatile long balance;
+  protected final TransactionJournal transactionHistory;
+  private volatile PostingListener postingListener = PostingListener.NONE;
+  private int lastAccruedMonth = NO_ACCRUAL; // proleptic month, guarded by this
 
   /**
-   * Constructs a new BankAccount with the specified details.
+   * Constructs a new BankAccount of a product with the specified details.
    *
+   * @param product the account's product
    * @param accountHolder the name of the account holder (cannot be null or empty)
    * @param accountNumber the unique account number (cannot be null or empty)
-   * @param initialBalance the initial balance (must be >= 0)
+   * @param initialBalance the initial balance in pesewas (must be at least the product's minimum opening balance)
+   * @throws InvalidInitialBalanceException if initialBalance is below the product's minimum opening balance
    * @throws IllegalArgumentException if any argument is invalid
    */
-  public BankAccount(String accountHolder, String accountNumber, double initialBalance) {
+  protected BankAccount(Product product, String accountHolder, String accountNumber, long initialBalance) {
+    if (initialBalance < product.getMinimumOpeningBalance()) {
+      throw new InvalidInitialBalanceException(
+              "Initial balance must be at least " + Money.format(product.getMinimumOpeningBalance()));
+    }
+    this.productId = product.getId();
     this.accountHolder = accountHolder;
     this.accountNumber = accountNumber;
     this.balance = initialBalance;
-    this.transactionHistory = new LinkedList<>();
-    this.addTransaction(new Transaction("Account opened", initialBalance, initialBalance));
+    this.transactionHistory = new TransactionJournal();
+    this.transactionHistory.append(TransactionType.ACCOUNT_OPENED, initialBalance,
+            TransactionJournal.currentTimeMicros());
+  }
+
+  /**
+   * Constructs an account with a zero balance and no history, to be rebuilt from storage
+   * with {@link #replay(TransactionType, long, long)}.
+   *
+   * @param productId the id of the account's product
+   * @param accountHolder the name of the account holder
+   * @param accountNumber the unique account number
+   */
+  protected BankAccount(int productId, String accountHolder, String accountNumber) {
+    this.productId = productId;
+    this.accountHolder = accountHolder;
+    this.accountNumber = accountNumber;
+    this.transactionHistory = new TransactionJournal();
   }
 
   /**
    * Deposits the specified amount into the account.
    *
-   * @param amount the amount to deposit (must be > 0)
+   * @param amount the amount to deposit in pesewas (must be > 0)
    * @throws InvalidDepositAmountException if amount is <= 0
    */
   @Override
-  public void deposit(double amount) {
-    if (amount <= 0) {
-      throw new InvalidDepositAmountException("Deposit amount must be positive. Received: " + amount);
+  public void deposit(long amount) {
+    if (!tryDeposit(amount).isApproved()) {
+      throw rejected(DEPOSIT_METRICS, new InvalidDepositAmountException(
+              "Deposit amount must be positive. Received: " + Money.format(amount)));
+    }
+  }
+
+  /**
+   * Deposits the specified amount into the account, or reports why not.
+   *
+   * @param amount the amount to deposit in pesewas
+   * @return {@link PostingResult#APPROVED}, or {@link PostingResult#INVALID_AMOUNT} if amount is <= 0
+   * @throws ArithmeticException if the balance would overflow
+   */
+  @Override
+  public final PostingResult tryDeposit(long amount) {
+    OperationMetrics metrics = DEPOSIT_METRICS.get(getClass());
+    long start = metrics.start();
+    try {
+      if (amount <= 0) {
+        metrics.declined(PostingResult.INVALID_AMOUNT);
+        return PostingResult.INVALID_AMOUNT;
+      }
+
+      synchronized (this) {
+        post(TransactionType.DEPOSIT, amount);
+      }
+      return PostingResult.APPROVED;
+    } catch (RuntimeException e) {
+      metrics.rejected(e);
+      throw e;
+    } finally {
+      metrics.end(start);
+    }
+  }
+
+  /**
+   * Withdraws the specified amount from the account. A decline is reported by returning false
+   * or by throwing, as {@link #withdrawalException(PostingResult, long)} decides for the
+   * account type. Callers that expect declines should prefer {@link #tryWithdraw(long)}.
+   *
+   * @param amount the amount to withdraw in pesewas (must be > 0)
+   * @return true if withdrawn, false if the account's rules quietly refused it
+   * @throws InvalidWithdrawalAmountException if amount is <= 0
+   */
+  @Override
+  public boolean withdraw(long amount) {
+    PostingResult result = tryWithdraw(amount);
+    if (result.isApproved()) {
+      return true;
+    }
+    RuntimeException exception = withdrawalException(result, amount);
+    if (exception == null) {
+      return false;
+    }
+    throw rejected(WITHDRAW_METRICS, exception);
+  }
+
+  /**
+   * Withdraws the specified amount from the account, or reports which rule declined it. The
+   * rules are checked and the balance changed in one critical section.
+   *
+   * @param amount the amount to withdraw in pesewas
+   * @return {@link PostingResult#APPROVED}, or why the withdrawal was declined
+   * @throws ArithmeticException if the balance would overflow
+   */
+  @Override
+  public final PostingResult tryWithdraw(long amount) {
+    OperationMetrics metrics = WITHDRAW_METRICS.get(getClass());
+    long start = metrics.start();
+    try {
+      PostingResult result = PostingResult.INVALID_AMOUNT;
+      if (amount > 0) {
+        synchronized (this) {
+          result = checkDebit(amount);
+          if (result.isApproved()) {
+            post(TransactionType.WITHDRAWAL, -amount);
+          }
+        }
+      }
+      if (!result.isApproved()) {
+        metrics.declined(result);
+      }
+      return result;
+    } catch (RuntimeException e) {
+      metrics.rejected(e);
+      throw e;
+    } finally {
+      metrics.end(start);
+    }
+  }
+
+  /**
+   * Creates the exception {@link #withdraw(long)} throws for a declined withdrawal. Only
+   * this layer builds messages and exceptions; {@link #tryWithdraw(long)} never does.
+   * Subclasses add the declines their own rules produce.
+   *
+   * @param result the decline
+   * @param amount the amount that was declined, in pesewas
+   * @return the exception, or null if the decline is reported by returning false
+   */
+  protected RuntimeException withdrawalException(PostingResult result, long amount) {
+    if (result == PostingResult.INVALID_AMOUNT) {
+      return new InvalidWithdrawalAmountException("Invalid withdrawal amount. Received: " + Money.format(amount));
+    }
+    return null;
+  }
+
+  private RuntimeException rejected(ClassValue<OperationMetrics> metrics, RuntimeException exception) {
+    metrics.get(getClass()).rejected(exception);
+    return exception;
+  }
+
+  /**
+   * Applies a balance change and records the matching transaction.
+   * Callers must hold this account's monitor, and must have checked their own
+   * rules (minimum balance, overdraft, maturity) inside the same critical section.
+   *
+   * @param type the transaction type
+   * @param amount the signed amount in pesewas (positive for credits, negative for debits)
+   * @return the balance after the change
+   * @throws ArithmeticException if the balance would overflow
+   */
+  protected final long post(TransactionType type, long amount) {
+    assert Thread.holdsLock(this);
+    long newBalance = Money.add(balance, amount);
+    long timestampMicros = TransactionJournal.currentTimeMicros();
+    postingListener.posted(this, type, amount, newBalance, timestampMicros);
+    balance = newBalance;
+    transactionHistory.append(type, newBalance, timestampMicros);
+    return newBalance;
+  }
+
+  /**
+   * Credits one period's interest unless this account has already been credited for that
+   * period or a later one. The period is recorded together with the posting, so the check
+   * holds across restarts. Callers must hold this account's monitor.
+   *
+   * @param period the period the interest is for
+   * @param interest the interest in pesewas
+   * @return the interest credited, or 0 if the period was already credited or the interest is not positive
+   * @throws ArithmeticException if the balance would overflow
+   */
+  protected final long accrue(YearMonth period, long interest) {
+    assert Thread.holdsLock(this);
+    int month = Math.toIntExact(period.getLong(ChronoField.PROLEPTIC_MONTH));
+    if (month <= lastAccruedMonth || interest <= 0) {
+      return 0;
+    }
+    long newBalance = Money.add(balance, interest);
+    long timestampMicros = TransactionJournal.currentTimeMicros();
+    postingListener.interestAccrued(this, period, interest, newBalance, timestampMicros);
+    lastAccruedMonth = month;
+    balance = newBalance;
+    transactionHistory.append(TransactionType.INTEREST_CREDIT, newBalance, timestampMicros);
+    return interest;
+  }
+
+  /**
+   * Credits interest computed outside the account by {@link InterestBatch}, provided the
+   * balance is still the one it was computed from. Otherwise the account's own
+   * {@link InterestBearing#accrueInterest(YearMonth)} recomputes it.
+   *
+   * @param period the period the interest is for
+   * @param balanceSeen the balance the interest was computed from
+   * @param interest the interest on that balance
+   * @return the interest credited, or 0 if none was credited
+   */
+  final long accrueComputed(YearMonth period, long balanceSeen, long interest) {
+    synchronized (this) {
+      if (balance != balanceSeen) {
+        return ((InterestBearing) this).accrueInterest(period);
+      }
+      return accrue(period, interest);
+    }
+  }
+
+  /**
+   * Gets the latest period this account has been credited interest for by
+   * {@link #accrue(YearMonth, long)}.
+   *
+   * @return the period, or null if interest has never been accrued by period
+   */
+  public synchronized YearMonth getLastAccruedPeriod() {
+    return lastAccruedMonth == NO_ACCRUAL
+            ? null : YearMonth.of(Math.floorDiv(lastAccruedMonth, 12), Math.floorMod(lastAccruedMonth, 12) + 1);
+  }
+
+  /**
+   * Restores the latest accrued period read back from storage. Like
+   * {@link #replay(TransactionType, long, long)}, only for rebuilding an account.
+   *
+   * @param period the period, or null for none
+   * @throws IllegalStateException if the account is attached to a posting listener
+   */
+  public synchronized void restoreLastAccruedPeriod(YearMonth period) {
+    checkRebuildable();
+    lastAccruedMonth = period == null
+            ? NO_ACCRUAL : Math.toIntExact(period.getLong(ChronoField.PROLEPTIC_MONTH));
+  }
+
+  /**
+   * Applies this account type's withdrawal rules to a debit of the given amount, without
+   * changing anything, throwing or allocating. Callers must hold this account's monitor and
+   * must have checked that the amount is positive.
+   *
+   * @param amount the amount to debit in pesewas
+   * @return {@link PostingResult#APPROVED} if the debit is allowed, otherwise the rule that declines it
+   */
+  protected abstract PostingResult checkDebit(long amount);
+
+  /**
+   * Moves money between two accounts in one step. Both monitors are taken in account-number
+   * order, so concurrent transfers in opposite directions cannot deadlock. The debit is
+   * checked against the source account's withdrawal rules, the posting listener is told about
+   * both sides at once, and then a {@link TransactionType#TRANSFER_OUT} and a
+   * {@link TransactionType#TRANSFER_IN} with the same timestamp are recorded.
+   *
+   * @param from the account to debit
+   * @param to the account to credit (a different account)
+   * @param amount the positive amount in pesewas
+   * @return true if transferred, false if the source account's rules quietly refused the debit
+   * @throws ArithmeticException if a balance would overflow
+   * @throws RuntimeException the exception {@link #withdraw(long)} throws for the same decline
+   */
+  static boolean transfer(BankAccount from, BankAccount to, long amount) {
+    BankAccount first = from.accountNumber.compareTo(to.accountNumber) < 0 ? from : to;
+    BankAccount second = first == from ? to : from;
+    synchronized (first) {
+      synchronized (second) {
+        PostingResult result = from.checkDebit(amount);
+        if (!result.isApproved()) {
+          RuntimeException exception = from.withdrawalException(result, amount);
+          if (exception != null) {
+            throw exception;
+          }
+          return false;
+        }
+        long fromBalance = Money.subtract(from.balance, amount);
+        long toBalance = Money.add(to.balance, amount);
+        long timestampMicros = TransactionJournal.currentTimeMicros();
+        from.postingListener.transferred(from, to, amount, fromBalance, toBalance, timestampMicros);
+        from.balance = fromBalance;
+        from.transactionHistory.append(TransactionType.TRANSFER_OUT, fromBalance, timestampMicros);
+        to.balance = toBalance;
+        to.transactionHistory.append(TransactionType.TRANSFER_IN, toBalance, timestampMicros);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Re-applies a posting read back from storage. The balance is set and the journal appended
+   * exactly as recorded, without rule checks and without notifying the posting listener.
+   * Only for rebuilding an account from storage, which is refused once the account is
+   * attached to a posting listener, such as a write-ahead log, that records its postings.
+   *
+   * @param type the transaction type
+   * @param balanceAfter the recorded balance after the posting, in pesewas
+   * @param timestampMicros the recorded time of the posting, in microseconds since the epoch
+   * @throws IllegalStateException if the account is attached to a posting listener
+   */
+  public synchronized void replay(TransactionType type, long balanceAfter, long timestampMicros) {
+    checkRebuildable();
+    balance = balanceAfter;
+    transactionHistory.append(type, balanceAfter, timestampMicros);
+  }
+
+  /**
+   * Re-applies an account's whole history read back from storage in one step, taking the
+   * arrays as the journal's columns; slots past the count are kept for later postings. The
+   * balance is set to the last entry's. Like
+   * {@link #replay(TransactionType, long, long)}, this skips rule checks and the posting
+   * listener, and is refused once the account is attached to a posting listener.
+   *
+   * @param balancesAfter the recorded balance after each posting, oldest first, in pesewas
+   * @param timestampsMicros the recorded time of each posting, in microseconds since the epoch
+   * @param typeCodes the {@link TransactionType#code()} of each posting
+   * @param count the number of postings
+   * @throws IllegalStateException if the account already has postings or is attached to a posting listener
+   * @throws IllegalArgumentException if an array is shorter than count or a type code is unknown
+   */
+  public synchronized void replayAll(long[] balancesAfter, long[] timestampsMicros, byte[] typeCodes, int count) {
+    checkRebuildable();
+    transactionHistory.restore(balancesAfter, timestampsMicros, typeCodes, count);
+    if (count > 0) {
+      balance = balancesAfter[count - 1];
     }
+  }
 
-    balance += amount;
-    this.addTransaction(new Transaction("Deposit", amount, balance));
+  /**
+   * Restores an account whose history is held in a {@link JournalArchive}, reading none of it:
+   * the balance is set from the recorded value and the journal loads its entries from the
+   * archive when they are first read. Like {@link #replayAll(long[], long[], byte[], int)},
+   * this skips rule checks and the posting listener, and is refused once the account is
+   * attached to a posting listener.
+   *
+   * @param archive the archive holding the history
+   * @param reference the archive's reference for the history
+   * @param count the number of postings in the history
+   * @param balance the recorded balance, in pesewas, which must be the last posting's
+   * @throws IllegalStateException if the account already has postings or is attached to a posting listener
+   * @throws IllegalArgumentException if count is negative
+   */
+  public synchronized void restoreArchived(JournalArchive archive, long reference, int count, long balance) {
+    checkRebuildable();
+    transactionHistory.restoreArchived(archive, reference, count);
+    if (count > 0) {
+      this.balance = balance;
+    }
+  }
+
+  /**
+   * Refuses to rebuild an account whose postings a listener records, since the listener would
+   * never hear of the rebuilt entries and its record would no longer match the journal.
+   */
+  private void checkRebuildable() {
+    if (postingListener != PostingListener.NONE) {
+      throw new IllegalStateException("Account " + accountNumber + " is attached to a posting listener");
+    }
+  }
+
+  /**
+   * Routes this account's future postings to a listener.
+   *
+   * @param listener the listener (never null)
+   */
+  void attach(PostingListener listener) {
+    this.postingListener = listener;
   }
 
   /**
    * Gets the current account balance.
    *
-   * @return the current balance
+   * @return the current balance in pesewas
    */
   @Override
-  public double getBalance() {
+  public long getBalance() {
     return balance;
   }
 
@@ -77,25 +458,100 @@ public abstract class BankAccount implements Account {
   }
 
   /**
-   * Adds a transaction to the account's transaction history.
-   * Transactions are stored in reverse chronological order (most recent first).
+   * Posts a transaction built by the caller, through the same path as every other posting:
+   * the posting listener is told first, then the balance moves by the transaction's amount
+   * and the journal records it at the current time. The account's rules are not checked, and
+   * the transaction's own timestamp is not used.
    *
-   * @param transaction the transaction to add (cannot be null)
-   * @throws IllegalArgumentException if transaction is null
+   * @param transaction the transaction to post (cannot be null)
+   * @throws IllegalArgumentException if transaction is null, or its balance after is not the
+   *         current balance plus its amount
+   * @throws ArithmeticException if the balance would overflow
    */
   @Override
-  public void addTransaction(Transaction transaction) {
-    transactionHistory.addFirst(transaction);
+  public synchronized void addTransaction(Transaction transaction) {
+    if (transaction == null) {
+      throw new IllegalArgumentException("Transaction cannot be null");
+    }
+    if (transaction.getBalanceAfter() != Money.add(balance, transaction.getAmount())) {
+      throw new IllegalArgumentException("Transaction does not follow the balance of " + Money.format(balance)
+              + ": " + transaction);
+    }
+    post(transaction.getType(), transaction.getAmount());
   }
 
   /**
-   * Gets a copy of the transaction history.
+   * Gets a read-only view of the transaction history.
+   * The view covers the transactions present when it was taken and copies nothing.
    *
-   * @return a new List containing all transactions in chronological order (most recent first)
+   * @return a List of all transactions in reverse chronological order (most recent first)
    */
   @Override
   public List<Transaction> getTransactionHistory() {
-    return new ArrayList<>(transactionHistory);
+    return getTransactions(0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the number of transactions recorded on the account.
+   *
+   * @return the transaction count
+   */
+  @Override
+  public int getTransactionCount() {
+    return transactionHistory.size();
+  }
+
+  /**
+   * Gets one page of the transaction history, most recent first, without copying.
+   *
+   * @param offset the number of most recent transactions to skip (must be >= 0)
+   * @param limit the maximum number of transactions to return (must be >= 0)
+   * @return a read-only view of the page
+   * @throws IllegalArgumentException if offset or limit is negative
+   */
+  @Override
+  public List<Transaction> getTransactions(int offset, int limit) {
+    return transactionHistory.newestFirst(offset, limit);
+  }
+
+  /**
+   * Gets the transactions recorded in {@code [from, to)}, most recent first, without copying.
+   *
+   * @param from the start of the range (inclusive)
+   * @param to the end of the range (exclusive)
+   * @return a read-only view of the transactions in the range
+   * @throws IllegalArgumentException if from or to is null
+   */
+  @Override
+  public List<Transaction> getTransactions(Instant from, Instant to) {
+    if (from == null || to == null) {
+      throw new IllegalArgumentException("Range bounds cannot be null");
+    }
+    return transactionHistory.between(TransactionJournal.toMicros(from), TransactionJournal.toMicros(to));
+  }
+
+  /**
+   * Gets the balance as it stood at a given time, without replaying the history.
+   *
+   * @param instant the time
+   * @return the balance in pesewas, or 0 if the account had no transactions by then
+   * @throws IllegalArgumentException if instant is null
+   */
+  @Override
+  public long getBalanceAt(Instant instant) {
+    if (instant == null) {
+      throw new IllegalArgumentException("Instant cannot be null");
+    }
+    return transactionHistory.balanceAt(TransactionJournal.toMicros(instant));
+  }
+
+  /**
+   * Gets the underlying transaction journal, for readers that work on its columns directly.
+   *
+   * @return the journal
+   */
+  public TransactionJournal getJournal() {
+    return transactionHistory;
   }
 
   /**
@@ -106,4 +562,32 @@ public abstract class BankAccount implements Account {
   public String getAccountHolder() {
     return accountHolder;
   }
+
+  /**
+   * Gets the id of the account's product.
+   *
+   * @return the product id
+   */
+  public int getProductId() {
+    return productId;
+  }
+
+  /**
+   * Gets the account's product, as defined in the catalogue in use.
+   *
+   * @return the product
+   */
+  public Product getProduct() {
+    return ProductCatalogue.rules(productId);
+  }
+
+  /**
+   * Gets the name of the account's product.
+   *
+   * @return the product name, such as "Savings Account"
+   */
+  @Override
+  public String getAccountType() {
+    return getProduct().getName();
+  }
 }
\ No newline at end of file
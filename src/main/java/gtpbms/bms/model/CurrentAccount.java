@@ -1,93 +1,66 @@
 package gtpbms.bms.model;
 
 import gtpbms.bms.exception.InvalidInitialBalanceException;
-import gtpbms.bms.exception.InvalidWithdrawalAmountException;
 
 /**
  * Represents a current/checking bank account that allows overdrafts up to a specified limit.
- * This account type requires a minimum balance and provides overdraft facilities.
+ * This account type requires a minimum opening balance and provides overdraft facilities.
  *
  * <p>Key features:
  * <ul>
- *   <li>Minimum balance requirement: {@value #MINIMUM_BALANCE}</li>
- *   <li>Overdraft limit: {@value #OVERDRAFT_LIMIT}</li>
+ *   <li>Minimum opening balance and overdraft limit from the account's {@link Product}:
+ *       GH₵200.00 and GH₵1000.00 for the standard current account ({@link Product#CURRENT})</li>
  *   <li>Standard withdrawal operations with overdraft protection</li>
  * </ul>
  *
  * @see BankAccount
  */
 public class CurrentAccount extends BankAccount {
-  public static final double MINIMUM_BALANCE = 200.0;
-  private static final double OVERDRAFT_LIMIT = 1000.0;
 
   /**
-   * Constructs a new CurrentAccount with the specified details.
+   * Constructs a new CurrentAccount of the standard current account product.
    *
    * @param accountHolder the name of the account holder (cannot be null or empty)
    * @param accountNumber the unique account number (cannot be null or empty)
-   * @param initialBalance the initial balance (must be >= MINIMUM_BALANCE)
-   * @throws InvalidInitialBalanceException if initialBalance is less than MINIMUM_BALANCE
+   * @param initialBalance the initial balance in pesewas (must be >= the product's minimum opening balance)
+   * @throws InvalidInitialBalanceException if initialBalance is less than the minimum opening balance
    * @throws IllegalArgumentException if accountHolder or accountNumber are invalid
    */
-  public CurrentAccount(String accountHolder, String accountNumber, double initialBalance) {
-    super(accountHolder, accountNumber, initialBalance);
-
-    if (initialBalance < MINIMUM_BALANCE) {
-      throw new InvalidInitialBalanceException(
-              String.format("Initial balance must be at least %.2f", MINIMUM_BALANCE));
-    }
+  public CurrentAccount(String accountHolder, String accountNumber, long initialBalance) {
+    this(ProductCatalogue.product(Product.CURRENT), accountHolder, accountNumber, initialBalance);
   }
 
-  /**
-   * Withdraws the specified amount from the account.
-   * The withdrawal may be permitted even if it causes a negative balance,
-   * as long as it doesn't exceed the overdraft limit.
-   *
-   * @param amount the amount to withdraw (must be > 0)
-   * @return true if withdrawal was successful, false if it would exceed overdraft limit
-   * @throws InvalidWithdrawalAmountException if amount is <= 0
-   */
-  @Override
-  public boolean withdraw(double amount) {
-    if (amount <= 0) {
-      throw new InvalidWithdrawalAmountException(
-              String.format("Invalid withdrawal amount. Received: %.2f", amount));
-    }
-
-    if (balance - amount < -OVERDRAFT_LIMIT) {
-      return false;
-    }
-
-    balance -= amount;
-    addTransaction(new Transaction("Withdrawal", -amount, balance));
-    return true;
+  CurrentAccount(Product product, String accountHolder, String accountNumber, long initialBalance) {
+    super(product, accountHolder, accountNumber, initialBalance);
   }
 
-  /**
-   * Gets the type of this account.
-   *
-   * @return the account type as "Current Account"
-   */
-  @Override
-  public String getAccountType() {
-    return "Current Account";
+  CurrentAccount(int productId, String accountHolder, String accountNumber) {
+    super(productId, accountHolder, accountNumber);
   }
 
   /**
-   * Gets the minimum balance requirement for this account type.
+   * Creates an empty CurrentAccount of the standard current account product to be rebuilt
+   * from storage with {@link #replay(TransactionType, long, long)}. No opening rules are checked.
    *
-   * @return the minimum balance required
+   * @param accountHolder the name of the account holder
+   * @param accountNumber the unique account number
+   * @return the empty account
+   * @see Product#restore(String, String, java.time.LocalDate)
    */
-  public static double getMinimumBalance() {
-    return MINIMUM_BALANCE;
+  public static CurrentAccount restore(String accountHolder, String accountNumber) {
+    return new CurrentAccount(Product.CURRENT, accountHolder, accountNumber);
   }
 
   /**
-   * Gets the overdraft limit for this account type.
+   * Applies the withdrawal rules to a debit: the balance may go negative, but not beyond
+   * the product's overdraft limit. A declined withdrawal returns false from {@link #withdraw(long)}.
    *
-   * @return the maximum allowed overdraft amount
+   * @param amount the amount to debit in pesewas (must be > 0)
+   * @return APPROVED, or OVERDRAFT_LIMIT if it would exceed the overdraft limit
    */
-  public static double getOverdraftLimit() {
-    return OVERDRAFT_LIMIT;
+  @Override
+  protected PostingResult checkDebit(long amount) {
+    long overdraftLimit = ProductCatalogue.rules(productId).getOverdraftLimit();
+    return balance - amount >= -overdraftLimit ? PostingResult.APPROVED : PostingResult.OVERDRAFT_LIMIT;
   }
 }
\ No newline at end of file
@@ -1,18 +1,23 @@
 package gtpbms.bms.model;
 
-import gtpbms.bms.exception.InvalidWithdrawalAmountException;
 import gtpbms.bms.exception.PrematureWithdrawalException;
+import gtpbms.bms.metrics.LedgerMetrics;
+import gtpbms.bms.metrics.OperationMetrics;
 
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.YearMonth;
 
 /**
  * Represents a fixed deposit bank account that earns interest and has a maturity date.
  * Withdrawals are only permitted after the maturity date, and the account earns
- * a fixed interest rate of {@value #INTEREST_RATE} per annum.
+ * its product's interest rate.
  *
  * <p>Key features:
  * <ul>
- *   <li>Fixed interest rate: {@value #INTEREST_RATE} (12%) per annum</li>
+ *   <li>Interest rate from the account's {@link Product}: 12% per annum for the standard
+ *       fixed deposit ({@link Product#FIXED_DEPOSIT})</li>
  *   <li>Withdrawals restricted until maturity date</li>
  *   <li>Monthly interest calculation and compounding</li>
  * </ul>
@@ -22,79 +27,129 @@ import java.time.LocalDate;
  */
 public class FixedDepositAccount extends BankAccount implements InterestBearing {
 
-  /**
-   * The annual interest rate for fixed deposit accounts (12%)
-   */
-  private static final double INTEREST_RATE = 0.12;
+  private static final OperationMetrics INTEREST_METRICS =
+          LedgerMetrics.operation("calculateInterest", FixedDepositAccount.class);
 
   /**
    * The date when the fixed deposit matures and withdrawals are permitted
    */
   private final LocalDate maturityDate;
 
+  /** The start of the maturity date in the system time zone, in milliseconds since the epoch */
+  private final long maturesAtMillis;
+
   /**
-   * Constructs a new FixedDepositAccount with the specified details.
+   * Constructs a new FixedDepositAccount of the standard fixed deposit product.
    *
    * @param accountHolder the name of the account holder (cannot be null or empty)
    * @param accountNumber the unique account number (cannot be null or empty)
-   * @param initialBalance the initial deposit amount (must be positive)
+   * @param initialBalance the initial deposit amount in pesewas (must be positive)
    * @param maturityDate the date when the deposit matures (cannot be null or in the past)
    * @throws IllegalArgumentException if any parameter is invalid
    */
-  public FixedDepositAccount(String accountHolder, String accountNumber, double initialBalance,
+  public FixedDepositAccount(String accountHolder, String accountNumber, long initialBalance,
                              LocalDate maturityDate) {
-    super(accountHolder, accountNumber, initialBalance);
+    this(ProductCatalogue.product(Product.FIXED_DEPOSIT), accountHolder, accountNumber, initialBalance,
+            maturityDate);
+  }
+
+  FixedDepositAccount(Product product, String accountHolder, String accountNumber, long initialBalance,
+                      LocalDate maturityDate) {
+    super(product, accountHolder, accountNumber, initialBalance);
+    this.maturityDate = maturityDate;
+    this.maturesAtMillis = startOfDayMillis(maturityDate);
+  }
+
+  FixedDepositAccount(int productId, String accountHolder, String accountNumber, LocalDate maturityDate) {
+    super(productId, accountHolder, accountNumber);
     this.maturityDate = maturityDate;
+    this.maturesAtMillis = startOfDayMillis(maturityDate);
+  }
+
+  private static long startOfDayMillis(LocalDate date) {
+    return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
   }
 
   /**
-   * Attempts to withdraw the specified amount from the account.
-   * Withdrawals are only permitted after the maturity date.
+   * Creates an empty FixedDepositAccount of the standard fixed deposit product to be rebuilt
+   * from storage with {@link #replay(TransactionType, long, long)}. No opening rules are checked.
    *
-   * @param amount the amount to withdraw (must be positive)
-   * @return true if withdrawal was successful, false if insufficient funds
-   * @throws PrematureWithdrawalException if current date is before maturity date
-   * @throws InvalidWithdrawalAmountException if amount is zero or negative
+   * @param accountHolder the name of the account holder
+   * @param accountNumber the unique account number
+   * @param maturityDate the date when the deposit matures
+   * @return the empty account
+   * @see Product#restore(String, String, LocalDate)
    */
-  @Override
-  public boolean withdraw(double amount) {
-    if (LocalDate.now().isBefore(maturityDate)) {
-      throw new PrematureWithdrawalException(LocalDate.now(), maturityDate);
-    }
+  public static FixedDepositAccount restore(String accountHolder, String accountNumber, LocalDate maturityDate) {
+    return new FixedDepositAccount(Product.FIXED_DEPOSIT, accountHolder, accountNumber, maturityDate);
+  }
 
-    if (amount <= 0) {
-      throw new InvalidWithdrawalAmountException(
-              String.format("Invalid withdrawal amount: %.2f", amount));
+  /**
+   * Applies the withdrawal rules to a debit: the deposit must have matured and the balance
+   * must cover the amount. Maturity is compared against the clock, so no date is created.
+   *
+   * @param amount the amount to debit in pesewas (must be positive)
+   * @return APPROVED, NOT_MATURED before the maturity date, or INSUFFICIENT_FUNDS
+   */
+  @Override
+  protected PostingResult checkDebit(long amount) {
+    if (System.currentTimeMillis() < maturesAtMillis) {
+      return PostingResult.NOT_MATURED;
     }
+    return amount <= balance ? PostingResult.APPROVED : PostingResult.INSUFFICIENT_FUNDS;
+  }
 
-    if (amount > balance) {
-      return false;
+  /**
+   * Throws for a withdrawal before maturity; one beyond the balance returns false.
+   *
+   * @param result the decline
+   * @param amount the amount that was declined, in pesewas
+   * @return the exception, or null to return false
+   */
+  @Override
+  protected RuntimeException withdrawalException(PostingResult result, long amount) {
+    if (result == PostingResult.NOT_MATURED) {
+      return new PrematureWithdrawalException(LocalDate.now(), maturityDate);
     }
-
-    balance -= amount;
-    addTransaction(new Transaction("Withdrawal", -amount, balance));
-    return true;
+    return super.withdrawalException(result, amount);
   }
 
   /**
    * Calculates and deposits monthly interest to the account.
-   * The interest is calculated as (balance * annual rate / 12).
+   * The interest is calculated as (balance * the product's annual rate / 12), rounded half-even to the pesewa.
    */
   @Override
   public void calculateInterest() {
-    double interest = balance * INTEREST_RATE / 12;
-    deposit(interest);
-    addTransaction(new Transaction("Interest Credit", interest, balance));
+    long start = INTEREST_METRICS.start();
+    try {
+      synchronized (this) {
+        long interest = monthlyInterest();
+        if (interest <= 0) {
+          return;
+        }
+        post(TransactionType.INTEREST_CREDIT, interest);
+      }
+    } catch (RuntimeException e) {
+      INTEREST_METRICS.rejected(e);
+      throw e;
+    } finally {
+      INTEREST_METRICS.end(start);
+    }
   }
 
   /**
-   * Gets the type of this account.
+   * Credits one month's interest for a period unless it has already been credited.
    *
-   * @return the account type as "Fixed Deposit Account"
+   * @param period the period to credit interest for
+   * @return the interest credited in pesewas, or 0 if none was credited
    */
   @Override
-  public String getAccountType() {
-    return "Fixed Deposit Account";
+  public synchronized long accrueInterest(YearMonth period) {
+    return accrue(period, monthlyInterest());
+  }
+
+  private long monthlyInterest() {
+    return Money.applyRate(balance, ProductCatalogue.rules(productId).getInterestRateBps(), 12, RoundingMode.HALF_EVEN);
   }
 
   /**
@@ -105,13 +160,4 @@ public class FixedDepositAccount extends BankAccount implements InterestBearing
   public LocalDate getMaturityDate() {
     return maturityDate;
   }
-
-  /**
-   * Gets the annual interest rate for this account type.
-   *
-   * @return the fixed interest rate
-   */
-  public static double getInterestRate() {
-    return INTEREST_RATE;
-  }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package gtpbms.bms.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A secondary index of accounts by account holder name, kept in name order so that both exact
+ * and prefix lookups are a logarithmic seek followed by a walk over the matches.
+ *
+ * <p>Names are {@linkplain #normalize(String) normalized} before they are compared. Each name
+ * maps to a queue of its accounts in registration order, so adding an account costs the same
+ * however many the holder already has. The map is a {@link ConcurrentSkipListMap} and the
+ * queues are {@link ConcurrentLinkedQueue}s, so any number of threads may add and search at
+ * the same time without locking.
+ */
+final class HolderIndex {
+  private final ConcurrentSkipListMap<String, Queue<BankAccount>> byName = new ConcurrentSkipListMap<>();
+
+  /**
+   * Gets the key an account is indexed under, so that it can be checked before the account
+   * is registered anywhere.
+   *
+   * @param account the account
+   * @return the normalized holder name
+   * @throws IllegalArgumentException if the account has no holder name
+   */
+  static String keyOf(BankAccount account) {
+    String holder = account.getAccountHolder();
+    if (holder == null || holder.isBlank()) {
+      throw new IllegalArgumentException("Account holder cannot be null or empty: " + account.getAccountNumber());
+    }
+    return normalize(holder);
+  }
+
+  /**
+   * Adds an account under a key from {@link #keyOf(BankAccount)}.
+   *
+   * @param account the account
+   * @param key the account's key
+   */
+  void add(BankAccount account, String key) {
+    // One search of the skip list rather than computeIfAbsent's two, since most names are new
+    Queue<BankAccount> added = new ConcurrentLinkedQueue<>();
+    Queue<BankAccount> existing = byName.putIfAbsent(key, added);
+    (existing != null ? existing : added).add(account);
+  }
+
+  /**
+   * Finds the accounts held under a name.
+   *
+   * @param name the holder's name, compared after normalization
+   * @return the accounts in registration order, empty if none
+   */
+  List<BankAccount> find(String name) {
+    Queue<BankAccount> accounts = byName.get(normalize(name));
+    return accounts == null ? List.of() : List.copyOf(accounts);
+  }
+
+  /**
+   * Finds the accounts whose holder's name starts with a prefix, in name order.
+   *
+   * @param prefix the start of the name, compared after normalization
+   * @param limit the maximum number of accounts to return
+   * @return up to limit accounts
+   */
+  List<BankAccount> search(String prefix, int limit) {
+    String key = normalize(prefix);
+    ConcurrentNavigableMap<String, Queue<BankAccount>> tail = byName.tailMap(key, true);
+    List<BankAccount> matches = new ArrayList<>(Math.min(limit, 64));
+    for (Map.Entry<String, Queue<BankAccount>> entry : tail.entrySet()) {
+      if (matches.size() >= limit || !entry.getKey().startsWith(key)) {
+        break;
+      }
+      for (BankAccount account : entry.getValue()) {
+        if (matches.size() >= limit) {
+          break;
+        }
+        matches.add(account);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Normalizes a name for comparison: surrounding whitespace is dropped, runs of whitespace
+   * inside become one space, and letters are lower-cased without regard to locale.
+   *
+   * @param name the name
+   * @return the normalized name
+   */
+  static String normalize(String name) {
+    StringBuilder normalized = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        normalized.append(Character.toLowerCase(c));
+      } else if (!normalized.isEmpty() && normalized.charAt(normalized.length() - 1) != ' ') {
+        normalized.append(' ');
+      }
+    }
+    int length = normalized.length();
+    if (length > 0 && normalized.charAt(length - 1) == ' ') {
+      normalized.setLength(length - 1);
+    }
+    // Keep the holder's own string when it is already normal, rather than a copy per account
+    return normalized.length() == name.length() && name.contentEquals(normalized) ? name : normalized.toString();
+  }
+}
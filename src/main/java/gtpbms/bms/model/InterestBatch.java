@@ -0,0 +1,123 @@
+package gtpbms.bms.model;
+
+import java.math.RoundingMode;
+import java.time.YearMonth;
+
+/**
+ * A struct-of-arrays batch of accounts of one interest-bearing product, for month-end accrual.
+ *
+ * <p>Balances are gathered into a primitive column, interest for the whole column is computed
+ * in one pass, and the results are then posted back account by account. The pass uses SIMD
+ * lanes through {@link VectorInterestKernel} when the {@code jdk.incubator.vector} module is
+ * present (run with {@code --add-modules jdk.incubator.vector}) and a scalar loop otherwise;
+ * setting {@code bms.interest.vector=false} forces the scalar loop. Both give exactly the
+ * amounts the accounts' own {@link InterestBearing#accrueInterest(YearMonth)} would.
+ *
+ * <p>A batch is filled and used by one thread. If an account's balance changes between being
+ * gathered and being posted, its interest is recomputed under its monitor.
+ */
+public final class InterestBatch {
+  private static final boolean VECTORIZED =
+          ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                  && Boolean.parseBoolean(System.getProperty("bms.interest.vector", "true"));
+
+  private final int productId;
+  private final long rateBasisPoints;
+  private final long maxBalance;
+  private final BankAccount[] accounts;
+  private final double[] balances;
+  private final double[] interest;
+  private int size;
+
+  private InterestBatch(Product product, int capacity) {
+    this.productId = product.getId();
+    this.rateBasisPoints = product.getInterestRateBps();
+    this.maxBalance = rateBasisPoints == 0 ? Long.MAX_VALUE : (1L << 52) / rateBasisPoints;
+    this.accounts = new BankAccount[capacity];
+    this.balances = new double[capacity];
+    this.interest = new double[capacity];
+  }
+
+  /**
+   * Creates an empty batch for the accounts of an interest-bearing product, at the product's
+   * current rate.
+   *
+   * @param product the product
+   * @param capacity the maximum number of accounts
+   * @return the batch
+   * @throws IllegalArgumentException if the product's accounts do not earn interest
+   */
+  public static InterestBatch forProduct(Product product, int capacity) {
+    if (product.getFamily() == Product.Family.CURRENT) {
+      throw new IllegalArgumentException("Product " + product.getCode() + " does not earn interest");
+    }
+    return new InterestBatch(product, capacity);
+  }
+
+  /**
+   * Tells whether interest is computed with SIMD lanes in this JVM.
+   *
+   * @return true if the Vector API kernel is in use
+   */
+  public static boolean isVectorized() {
+    return VECTORIZED;
+  }
+
+  /**
+   * Adds an account if it is of this batch's product and its balance is in range.
+   *
+   * @param account the account
+   * @return true if added; false if the account belongs elsewhere or the batch is full
+   */
+  public boolean add(BankAccount account) {
+    if (account.getProductId() != productId || size == accounts.length) {
+      return false;
+    }
+    long balance = account.getBalance();
+    if (Math.abs(balance) > maxBalance) {
+      return false;
+    }
+    accounts[size] = account;
+    balances[size] = balance;
+    size++;
+    return true;
+  }
+
+  /**
+   * Gets the number of accounts in the batch.
+   *
+   * @return the account count
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Computes one month's interest on every gathered balance.
+   */
+  public void computeInterest() {
+    if (VECTORIZED) {
+      VectorInterestKernel.monthlyInterest(balances, interest, size, rateBasisPoints);
+    } else {
+      for (int i = 0; i < size; i++) {
+        interest[i] = Money.applyRate((long) balances[i], rateBasisPoints, 12, RoundingMode.HALF_EVEN);
+      }
+    }
+  }
+
+  /**
+   * Credits the computed interest to one account of the batch for a period, with the same
+   * once-per-period rule as {@link InterestBearing#accrueInterest(YearMonth)}.
+   *
+   * @param index the position of the account in the batch
+   * @param period the period to credit interest for
+   * @return the interest credited in pesewas, or 0 if none was credited
+   * @throws IndexOutOfBoundsException if the index is not below {@link #size()}
+   */
+  public long accrue(int index, YearMonth period) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for batch of " + size);
+    }
+    return accounts[index].accrueComputed(period, (long) balances[index], (long) interest[index]);
+  }
+}
@@ -1,10 +1,11 @@
 package gtpbms.bms.model;
 
+import java.time.YearMonth;
+
 /**
  * Defines the contract for accounts that can accrue interest.
  *
  * Implementing classes must define how interest is calculated.
- * This is a functional interface representing the single operation of interest calculation.
  *
  * @see SavingsAccount
  * @see FixedDepositAccount
@@ -23,4 +24,14 @@ public interface InterestBearing {
    * frequency (daily/monthly/annually) are implementation details.
    */
   void calculateInterest();
+
+  /**
+   * Credits one month's interest for a period, unless interest has already been credited
+   * for that period or a later one. Running the same period again is therefore harmless,
+   * which lets an interrupted month-end run be restarted from the beginning.
+   *
+   * @param period the period to credit interest for
+   * @return the interest credited in pesewas, or 0 if none was credited
+   */
+  long accrueInterest(YearMonth period);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package gtpbms.bms.model;
+
+/**
+ * Storage outside the heap that holds the older entries of {@link TransactionJournal}s, so
+ * that a journal restored from it reads its entries only when they are first needed.
+ *
+ * <p>Entries are archived in runs, and the archive gives each run a reference through which
+ * the journal's entries up to the end of that run can be read back.
+ *
+ * @see TransactionJournal#archived(JournalArchive, long, int)
+ * @see BankAccount#restoreArchived(JournalArchive, long, int, long)
+ */
+public interface JournalArchive {
+
+  /**
+   * Reads the first entries of a journal back into columns, oldest first.
+   *
+   * @param reference the reference of the archived run holding the journal's newest entry
+   * @param count the number of entries to read, the journal's archived entry count
+   * @param balances receives the balance after each entry, from index 0
+   * @param timestamps receives the time of each entry, in microseconds since the epoch
+   * @param types receives the {@link TransactionType} code of each entry
+   * @throws java.io.UncheckedIOException if the archive cannot be read
+   * @throws IllegalStateException if the archive does not hold that many entries under the reference
+   */
+  void read(long reference, int count, long[] balances, long[] timestamps, byte[] types);
+}
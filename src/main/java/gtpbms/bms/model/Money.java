@@ -0,0 +1,199 @@
+package gtpbms.bms.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic for Ghana cedi amounts held as a primitive {@code long} of
+ * minor units (pesewas), where {@code 100} pesewas make one cedi.
+ *
+ * <p>All amounts in {@code gtpbms.bms.model} use this representation. Addition and
+ * subtraction are exact and overflow-checked, and rate calculations round with an explicit
+ * {@link RoundingMode}. None of the operations on the deposit/withdraw path allocate.
+ * Conversion from user input ({@link #parse(String)}) and formatting for display
+ * ({@link #format(long)}) are the only places where text is involved.
+ */
+public final class Money {
+
+  /** Number of minor units (pesewas) in one cedi. */
+  public static final long MINOR_UNITS_PER_CEDI = 100;
+
+  /** Number of basis points in a whole (100%). */
+  public static final long BASIS_POINTS = 10_000;
+
+  /** Currency symbol used when rendering amounts. */
+  public static final String CURRENCY_SYMBOL = "GH₵";
+
+  private Money() {
+    throw new AssertionError("Cannot instantiate Money");
+  }
+
+  /**
+   * Converts a whole number of cedis to minor units.
+   *
+   * @param cedis the amount in whole cedis
+   * @return the amount in pesewas
+   * @throws ArithmeticException if the result overflows a long
+   */
+  public static long ofCedis(long cedis) {
+    return Math.multiplyExact(cedis, MINOR_UNITS_PER_CEDI);
+  }
+
+  /**
+   * Converts a decimal cedi amount to minor units, rounding half-up to the nearest pesewa.
+   * Intended for constants and test fixtures; user input should go through {@link #parse(String)}.
+   *
+   * @param cedis the amount in cedis
+   * @return the amount in pesewas
+   * @throws ArithmeticException if the amount is not finite or does not fit in a long
+   */
+  public static long ofCedis(double cedis) {
+    double minor = cedis * MINOR_UNITS_PER_CEDI;
+    if (!Double.isFinite(minor) || Math.abs(minor) >= Long.MAX_VALUE) {
+      throw new ArithmeticException("Amount out of range: " + cedis);
+    }
+    return Math.round(minor);
+  }
+
+  /**
+   * Converts an amount in minor units to cedis for display or interoperability.
+   *
+   * @param amount the amount in pesewas
+   * @return the amount in cedis
+   */
+  public static double toCedis(long amount) {
+    return (double) amount / MINOR_UNITS_PER_CEDI;
+  }
+
+  /**
+   * Parses a cedi amount such as {@code "150"}, {@code "150.5"} or {@code "150.25"}.
+   *
+   * @param text the text to parse
+   * @return the amount in pesewas
+   * @throws NumberFormatException if the text is not a number, has more than two decimal
+   *         places, or does not fit in a long
+   */
+  public static long parse(String text) {
+    if (text == null) {
+      throw new NumberFormatException("Amount cannot be null");
+    }
+
+    try {
+      return new BigDecimal(text.trim())
+              .setScale(2, RoundingMode.UNNECESSARY)
+              .movePointRight(2)
+              .longValueExact();
+    } catch (ArithmeticException e) {
+      throw new NumberFormatException("Invalid amount: " + text);
+    }
+  }
+
+  /**
+   * Formats an amount as Ghana cedis with two decimal places, e.g. {@code "GH₵1500.25"}.
+   *
+   * @param amount the amount in pesewas
+   * @return the formatted amount
+   */
+  public static String format(long amount) {
+    StringBuilder out = new StringBuilder(CURRENCY_SYMBOL.length() + 24);
+    out.append(CURRENCY_SYMBOL);
+    appendPlain(out, amount);
+    return out.toString();
+  }
+
+  /**
+   * Appends an amount with two decimal places and no currency symbol, e.g. {@code "-12.05"}.
+   *
+   * @param out the builder to append to
+   * @param amount the amount in pesewas
+   * @return the same builder
+   */
+  public static StringBuilder appendPlain(StringBuilder out, long amount) {
+    long whole = amount / MINOR_UNITS_PER_CEDI;
+    long fraction = Math.abs(amount % MINOR_UNITS_PER_CEDI);
+    if (amount < 0 && whole == 0) {
+      out.append('-');
+    }
+    out.append(whole).append('.');
+    if (fraction < 10) {
+      out.append('0');
+    }
+    return out.append(fraction);
+  }
+
+  /**
+   * Adds two amounts.
+   *
+   * @param a the first amount in pesewas
+   * @param b the second amount in pesewas
+   * @return the sum
+   * @throws ArithmeticException if the result overflows a long
+   */
+  public static long add(long a, long b) {
+    return Math.addExact(a, b);
+  }
+
+  /**
+   * Subtracts one amount from another.
+   *
+   * @param a the amount to subtract from, in pesewas
+   * @param b the amount to subtract, in pesewas
+   * @return the difference
+   * @throws ArithmeticException if the result overflows a long
+   */
+  public static long subtract(long a, long b) {
+    return Math.subtractExact(a, b);
+  }
+
+  /**
+   * Applies an annual rate for one period, e.g. a month's interest with {@code periodsPerYear = 12}.
+   * Computes {@code amount * rateBasisPoints / (10000 * periodsPerYear)} exactly and rounds once.
+   *
+   * @param amount the principal in pesewas
+   * @param rateBasisPoints the annual rate in basis points (200 = 2%)
+   * @param periodsPerYear the number of periods the annual rate is spread over
+   * @param rounding how to round the result to a whole pesewa
+   * @return the rate applied to the amount, in pesewas
+   * @throws ArithmeticException if the intermediate product overflows a long, or rounding is
+   *         {@link RoundingMode#UNNECESSARY} and the result is inexact
+   */
+  public static long applyRate(long amount, long rateBasisPoints, int periodsPerYear, RoundingMode rounding) {
+    return divide(Math.multiplyExact(amount, rateBasisPoints), BASIS_POINTS * periodsPerYear, rounding);
+  }
+
+  /**
+   * Divides two longs, rounding the quotient with the given mode.
+   *
+   * @param dividend the dividend
+   * @param divisor the divisor (must be positive)
+   * @param rounding how to round an inexact quotient
+   * @return the rounded quotient
+   * @throws ArithmeticException if divisor is not positive, or rounding is
+   *         {@link RoundingMode#UNNECESSARY} and the quotient is inexact
+   */
+  public static long divide(long dividend, long divisor, RoundingMode rounding) {
+    if (divisor <= 0) {
+      throw new ArithmeticException("Divisor must be positive: " + divisor);
+    }
+
+    long quotient = Math.floorDiv(dividend, divisor);
+    long remainder = Math.floorMod(dividend, divisor);
+    if (remainder == 0) {
+      return quotient;
+    }
+
+    // quotient is the floor; decide whether to step up to the ceiling
+    long twice = remainder * 2;
+    boolean roundUp = switch (rounding) {
+      case FLOOR -> false;
+      case CEILING -> true;
+      case DOWN -> dividend < 0;
+      case UP -> dividend > 0;
+      case HALF_UP -> twice > divisor || (twice == divisor && dividend > 0);
+      case HALF_DOWN -> twice > divisor || (twice == divisor && dividend < 0);
+      case HALF_EVEN -> twice > divisor || (twice == divisor && (quotient & 1) != 0);
+      case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+    };
+    return roundUp ? quotient + 1 : quotient;
+  }
+}
@@ -0,0 +1,96 @@
+package gtpbms.bms.model;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Receives every change to the accounts of a {@link Bank}, for example to make them durable.
+ *
+ * <p>All callbacks run while the account's monitor is held, before the change is applied
+ * in memory. Callbacks for one account therefore arrive in the order the changes are made.
+ * A callback may block, for instance until its record is on disk. If it throws, the change
+ * is not applied and the exception propagates to the caller of the operation.
+ *
+ * @see Bank#setPostingListener(PostingListener)
+ */
+public interface PostingListener {
+
+  /** A listener that ignores every change. */
+  PostingListener NONE = new PostingListener() {
+    @Override
+    public void accountOpened(BankAccount account) {
+    }
+
+    @Override
+    public void posted(BankAccount account, TransactionType type, long amount, long balanceAfter,
+                       long timestampMicros) {
+    }
+  };
+
+  /**
+   * Called when an account is registered with the bank.
+   *
+   * @param account the account, with its current balance and history
+   */
+  void accountOpened(BankAccount account);
+
+  /**
+   * Called when a batch of new accounts is about to be registered with the bank, before any
+   * of them can be found or posted to. If this throws, none of the batch is registered, so a
+   * listener that makes changes durable must then have recorded none of it. The default
+   * reports each account in turn; a durable listener should record the whole batch at once.
+   *
+   * @param accounts the accounts, with their current balances and histories
+   */
+  default void accountsOpened(List<BankAccount> accounts) {
+    for (BankAccount account : accounts) {
+      accountOpened(account);
+    }
+  }
+
+  /**
+   * Called when a posting is about to be applied to an account.
+   *
+   * @param account the account
+   * @param type the transaction type
+   * @param amount the signed amount in pesewas
+   * @param balanceAfter the balance after the posting, in pesewas
+   * @param timestampMicros the time of the posting, in microseconds since the epoch
+   */
+  void posted(BankAccount account, TransactionType type, long amount, long balanceAfter, long timestampMicros);
+
+  /**
+   * Called when one period's interest is about to be credited to an account. The default
+   * treats it as an ordinary {@link TransactionType#INTEREST_CREDIT} posting; a listener that
+   * makes changes durable should also record the period, so that accrual stays idempotent
+   * after a restart.
+   *
+   * @param account the account
+   * @param period the period the interest is for
+   * @param amount the interest in pesewas
+   * @param balanceAfter the balance after the posting, in pesewas
+   * @param timestampMicros the time of the posting, in microseconds since the epoch
+   */
+  default void interestAccrued(BankAccount account, YearMonth period, long amount, long balanceAfter,
+                               long timestampMicros) {
+    posted(account, TransactionType.INTEREST_CREDIT, amount, balanceAfter, timestampMicros);
+  }
+
+  /**
+   * Called when a transfer is about to be applied, with both accounts' monitors held. The
+   * default reports it as two postings; a listener that makes changes durable should record
+   * both sides as one unit, so that a crash cannot keep one side without the other.
+   *
+   * @param from the account debited
+   * @param to the account credited
+   * @param amount the amount transferred in pesewas
+   * @param fromBalanceAfter the debited account's balance afterwards, in pesewas
+   * @param toBalanceAfter the credited account's balance afterwards, in pesewas
+   * @param timestampMicros the time of the transfer, in microseconds since the epoch
+   */
+  default void transferred(BankAccount from, BankAccount to, long amount, long fromBalanceAfter,
+                           long toBalanceAfter, long timestampMicros) {
+    posted(from, TransactionType.TRANSFER_OUT, -amount, fromBalanceAfter, timestampMicros);
+    posted(to, TransactionType.TRANSFER_IN, amount, toBalanceAfter, timestampMicros);
+  }
+}
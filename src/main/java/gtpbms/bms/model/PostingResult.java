@@ -0,0 +1,39 @@
+package gtpbms.bms.model;
+
+/**
+ * The outcome of {@link Account#tryDeposit(long)} or {@link Account#tryWithdraw(long)}: either
+ * {@link #APPROVED} or the reason the posting was declined. Results are constants, so
+ * reporting a decline allocates nothing.
+ */
+public enum PostingResult {
+  APPROVED("Approved"),
+  INVALID_AMOUNT("Amount must be positive"),
+  INSUFFICIENT_FUNDS("Insufficient funds"),
+  MINIMUM_BALANCE("Would fall below the minimum balance"),
+  OVERDRAFT_LIMIT("Would exceed the overdraft limit"),
+  NOT_MATURED("Fixed deposit has not matured");
+
+  private final String description;
+
+  PostingResult(String description) {
+    this.description = description;
+  }
+
+  /**
+   * Tells whether the posting was made.
+   *
+   * @return true for {@link #APPROVED}
+   */
+  public boolean isApproved() {
+    return this == APPROVED;
+  }
+
+  /**
+   * Gets the human-readable description shown to users.
+   *
+   * @return the description
+   */
+  public String getDescription() {
+    return description;
+  }
+}
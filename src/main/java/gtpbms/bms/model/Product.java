@@ -0,0 +1,214 @@
+package gtpbms.bms.model;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * The rules of one account product, such as "Savings Account": its opening and minimum
+ * balances, overdraft limit, interest rate and term. Products are defined in a
+ * {@link ProductCatalogue} and are immutable; a changed product is a new object in a new
+ * catalogue.
+ *
+ * <p>Each product belongs to a {@link Family}, which decides how its rules are applied and
+ * which account class holds its accounts. Accounts keep the product's int id and look their
+ * rules up by it on every posting, so a reloaded catalogue applies to existing accounts at
+ * once. The id is also the account kind stored by the persistence formats, so it must stay
+ * within {@code 1..}{@value #MAX_ID} and must never be reused for another family.
+ */
+public final class Product {
+  /** The id of the standard savings product. */
+  public static final int SAVINGS = 1;
+
+  /** The id of the standard current account product. */
+  public static final int CURRENT = 2;
+
+  /** The id of the standard fixed deposit product. */
+  public static final int FIXED_DEPOSIT = 3;
+
+  /** The largest product id, so that ids fit the stored one-byte account kind. */
+  public static final int MAX_ID = Byte.MAX_VALUE;
+
+  /** How a product's rules are applied. */
+  public enum Family {
+    /** Earns interest; withdrawals may not take the balance below the minimum balance. See {@link SavingsAccount}. */
+    SAVINGS,
+
+    /** Earns no interest; withdrawals may overdraw the balance up to the overdraft limit. See {@link CurrentAccount}. */
+    CURRENT,
+
+    /** Earns interest; nothing may be withdrawn before the maturity date. See {@link FixedDepositAccount}. */
+    FIXED_DEPOSIT
+  }
+
+  private final int id;
+  private final String code;
+  private final String name;
+  private final Family family;
+  private final long minimumOpeningBalance;
+  private final long minimumBalance;
+  private final long overdraftLimit;
+  private final long interestRateBps;
+  private final Period term;
+  private final String belowMinimumOpening;
+
+  Product(int id, String code, String name, Family family, long minimumOpeningBalance, long minimumBalance,
+          long overdraftLimit, long interestRateBps, Period term) {
+    this.id = id;
+    this.code = code;
+    this.name = name;
+    this.family = family;
+    this.minimumOpeningBalance = minimumOpeningBalance;
+    this.minimumBalance = minimumBalance;
+    this.overdraftLimit = overdraftLimit;
+    this.interestRateBps = interestRateBps;
+    this.term = term;
+    this.belowMinimumOpening = "Initial deposit for a " + name + " must be at least "
+            + Money.format(minimumOpeningBalance);
+  }
+
+  /**
+   * Opens a new account of this product.
+   *
+   * @param accountHolder the name of the account holder
+   * @param accountNumber the unique account number
+   * @param initialBalance the opening balance in pesewas
+   * @param maturityDate the maturity date of a fixed deposit, or null for {@link #getTerm()}
+   *                     from today; ignored by other families
+   * @return the account
+   * @throws gtpbms.bms.exception.InvalidInitialBalanceException if initialBalance is below the minimum opening balance
+   */
+  public BankAccount open(String accountHolder, String accountNumber, long initialBalance, LocalDate maturityDate) {
+    return switch (family) {
+      case SAVINGS -> new SavingsAccount(this, accountHolder, accountNumber, initialBalance);
+      case CURRENT -> new CurrentAccount(this, accountHolder, accountNumber, initialBalance);
+      case FIXED_DEPOSIT -> new FixedDepositAccount(this, accountHolder, accountNumber, initialBalance,
+              maturityDate != null ? maturityDate : LocalDate.now().plus(term));
+    };
+  }
+
+  /**
+   * Creates an empty account of this product to be rebuilt from storage with
+   * {@link BankAccount#replay(TransactionType, long, long)}. No opening rules are checked.
+   *
+   * @param accountHolder the name of the account holder
+   * @param accountNumber the unique account number
+   * @param maturityDate the maturity date of a fixed deposit; ignored by other families
+   * @return the empty account
+   */
+  public BankAccount restore(String accountHolder, String accountNumber, LocalDate maturityDate) {
+    return switch (family) {
+      case SAVINGS -> new SavingsAccount(id, accountHolder, accountNumber);
+      case CURRENT -> new CurrentAccount(id, accountHolder, accountNumber);
+      case FIXED_DEPOSIT -> new FixedDepositAccount(id, accountHolder, accountNumber, maturityDate);
+    };
+  }
+
+  /**
+   * Gets the product's id, which accounts and stored records refer to it by.
+   *
+   * @return the id, from 1 to {@value #MAX_ID}
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Gets the product's code, which data files refer to it by, such as {@code SAVINGS}.
+   *
+   * @return the code
+   */
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Gets the name shown to users, as {@link BankAccount#getAccountType()} returns it.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the family whose rules the product follows.
+   *
+   * @return the family
+   */
+  public Family getFamily() {
+    return family;
+  }
+
+  /**
+   * Gets the smallest initial deposit an account of this product may be opened with.
+   *
+   * @return the minimum in pesewas
+   */
+  public long getMinimumOpeningBalance() {
+    return minimumOpeningBalance;
+  }
+
+  /**
+   * Gets the balance a withdrawal may not go below, for savings products.
+   *
+   * @return the minimum balance in pesewas, or 0
+   */
+  public long getMinimumBalance() {
+    return minimumBalance;
+  }
+
+  /**
+   * Gets how far a withdrawal may overdraw the balance, for current account products.
+   *
+   * @return the overdraft limit in pesewas, or 0
+   */
+  public long getOverdraftLimit() {
+    return overdraftLimit;
+  }
+
+  /**
+   * Gets the annual interest rate, for savings and fixed deposit products.
+   *
+   * @return the rate in basis points, or 0
+   */
+  public long getInterestRateBps() {
+    return interestRateBps;
+  }
+
+  /**
+   * Gets the annual interest rate as a fraction.
+   *
+   * @return the rate, for example 0.02 for 2%
+   */
+  public double getInterestRate() {
+    return (double) interestRateBps / Money.BASIS_POINTS;
+  }
+
+  /**
+   * Gets the term of a fixed deposit opened without a maturity date.
+   *
+   * @return the term, or null for products that are not fixed deposits
+   */
+  public Period getTerm() {
+    return term;
+  }
+
+  /**
+   * Gets the message for an opening below {@link #getMinimumOpeningBalance()}, built once.
+   *
+   * @return the message
+   */
+  public String getBelowMinimumOpeningMessage() {
+    return belowMinimumOpening;
+  }
+
+  /**
+   * Returns the product's name, so products can be listed directly to users.
+   *
+   * @return the name
+   */
+  @Override
+  public String toString() {
+    return name;
+  }
+}
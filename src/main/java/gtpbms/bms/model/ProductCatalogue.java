@@ -0,0 +1,431 @@
+package gtpbms.bms.model;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The account products on offer, loaded from a properties file and compiled into immutable
+ * {@link Product} rule objects. Each product is a group of {@code product.<id>.<attribute>}
+ * entries:
+ * <pre>
+ *   product.1.code=SAVINGS
+ *   product.1.name=Savings Account
+ *   product.1.family=SAVINGS
+ *   product.1.minimumOpeningBalance=100.00
+ *   product.1.minimumBalance=100.00
+ *   product.1.interestRateBps=200
+ * </pre>
+ * Amounts are in cedis. {@code family} is one of {@link Product.Family}, and decides which of
+ * {@code minimumBalance} (savings), {@code overdraftLimit} (current), {@code interestRateBps}
+ * (savings and fixed deposits) and {@code term} (fixed deposits, an ISO period such as
+ * {@code P1Y}) apply. An unknown or inapplicable attribute is an error.
+ *
+ * <p>The catalogue in use is read when this class is loaded, from the file named by
+ * {@value #FILE_PROPERTY} or else from the built-in {@value #DEFAULT_RESOURCE}. It can be
+ * replaced while the bank runs with {@link #reload()}, also offered over JMX once
+ * {@link #registerMBean()} has been called. Accounts look their product up by id in an array
+ * on every posting, so a new catalogue applies to them at once; it must therefore keep every
+ * product id of the old one, in the same family.
+ */
+public final class ProductCatalogue {
+  public static final String FILE_PROPERTY = "bms.products.file";
+
+  /** The catalogue used when {@value #FILE_PROPERTY} is not set, next to this class. */
+  public static final String DEFAULT_RESOURCE = "products.properties";
+
+  private static final String MBEAN_NAME = "gtpbms.bms:type=ProductCatalogue";
+
+  private static volatile ProductCatalogue current = loadConfigured();
+
+  private final String source;
+  private final Product[] byId;
+  private final List<Product> products;
+  private final Map<String, Product> byCode;
+
+  private ProductCatalogue(String source, List<Product> products) {
+    this.source = source;
+    this.byId = new Product[Product.MAX_ID + 1];
+    this.byCode = new HashMap<>();
+    for (Product product : products) {
+      byId[product.getId()] = product;
+      byCode.put(product.getCode(), product);
+    }
+    this.products = Collections.unmodifiableList(products);
+  }
+
+  /**
+   * Gets the catalogue in use.
+   *
+   * @return the catalogue
+   */
+  public static ProductCatalogue current() {
+    return current;
+  }
+
+  /**
+   * Gets the rules of a product in the catalogue in use. The posting paths call this on
+   * every operation, so it is one array load and compares no strings.
+   *
+   * @param id the id of a product that accounts exist for
+   * @return the product
+   */
+  static Product rules(int id) {
+    return current.byId[id];
+  }
+
+  /**
+   * Gets a product of the catalogue in use.
+   *
+   * @param id the product id
+   * @return the product
+   * @throws IllegalArgumentException if there is no such product
+   */
+  public static Product product(int id) {
+    return current.get(id);
+  }
+
+  /**
+   * Gets a product by id.
+   *
+   * @param id the product id
+   * @return the product
+   * @throws IllegalArgumentException if there is no such product
+   */
+  public Product get(int id) {
+    Product product = find(id);
+    if (product == null) {
+      throw new IllegalArgumentException("Unknown product id: " + id);
+    }
+    return product;
+  }
+
+  /**
+   * Finds a product by id.
+   *
+   * @param id the product id
+   * @return the product, or null if there is none
+   */
+  public Product find(int id) {
+    return id >= 0 && id < byId.length ? byId[id] : null;
+  }
+
+  /**
+   * Gets a product by code, as data files name it.
+   *
+   * @param code the code, such as {@code SAVINGS}
+   * @return the product
+   * @throws IllegalArgumentException if there is no such product
+   */
+  public Product forCode(String code) {
+    Product product = byCode.get(code);
+    if (product == null) {
+      throw new IllegalArgumentException("Unknown product code: " + code);
+    }
+    return product;
+  }
+
+  /**
+   * Gets every product, in id order.
+   *
+   * @return a read-only list of the products
+   */
+  public List<Product> getProducts() {
+    return products;
+  }
+
+  /**
+   * Gets where the catalogue was loaded from.
+   *
+   * @return a file path or resource name
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Loads the catalogue named by {@value #FILE_PROPERTY}, or the built-in one, and puts it
+   * in use.
+   *
+   * @return the new catalogue
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the catalogue is invalid or drops or changes the family of a product in use
+   */
+  public static ProductCatalogue reload() throws IOException {
+    ProductCatalogue catalogue = readConfigured();
+    install(catalogue);
+    return catalogue;
+  }
+
+  /**
+   * Puts a catalogue in use.
+   *
+   * @param catalogue the catalogue
+   * @throws IllegalArgumentException if it drops a product of the catalogue in use or changes its family
+   */
+  public static synchronized void install(ProductCatalogue catalogue) {
+    for (Product old : current.products) {
+      Product replacement = catalogue.find(old.getId());
+      if (replacement == null) {
+        throw new IllegalArgumentException("Product " + old.getId() + " (" + old.getCode() + ") cannot be removed");
+      }
+      if (replacement.getFamily() != old.getFamily()) {
+        throw new IllegalArgumentException("Product " + old.getId() + " cannot change family from "
+                + old.getFamily() + " to " + replacement.getFamily());
+      }
+    }
+    current = catalogue;
+  }
+
+  /**
+   * Loads a catalogue from a properties file, without putting it in use.
+   *
+   * @param file the file, in UTF-8
+   * @return the catalogue
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the catalogue is invalid
+   */
+  public static ProductCatalogue load(Path file) throws IOException {
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      Properties properties = new Properties();
+      properties.load(in);
+      return parse(properties, file.toString());
+    }
+  }
+
+  /**
+   * Compiles product definitions into a catalogue, without putting it in use.
+   *
+   * @param properties the {@code product.<id>.<attribute>} entries
+   * @param source where the entries came from, for messages
+   * @return the catalogue
+   * @throws IllegalArgumentException if a definition is invalid
+   */
+  public static ProductCatalogue parse(Properties properties, String source) {
+    Map<Integer, Map<String, String>> definitions = new TreeMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      String[] parts = key.split("\\.", 3);
+      if (parts.length != 3 || !parts[0].equals("product")) {
+        throw new IllegalArgumentException(source + ": unexpected entry " + key);
+      }
+      int id;
+      try {
+        id = Integer.parseInt(parts[1]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(source + ": invalid product id in " + key);
+      }
+      definitions.computeIfAbsent(id, i -> new HashMap<>()).put(parts[2], properties.getProperty(key).trim());
+    }
+    if (definitions.isEmpty()) {
+      throw new IllegalArgumentException(source + ": no products defined");
+    }
+
+    List<Product> products = new ArrayList<>(definitions.size());
+    Map<String, Integer> codes = new HashMap<>();
+    Map<String, Integer> names = new HashMap<>();
+    for (Map.Entry<Integer, Map<String, String>> definition : definitions.entrySet()) {
+      Product product = compile(source, definition.getKey(), definition.getValue());
+      Integer clash = codes.putIfAbsent(product.getCode(), product.getId());
+      if (clash != null) {
+        throw new IllegalArgumentException(source + ": products " + clash + " and " + product.getId()
+                + " have the same code " + product.getCode());
+      }
+      clash = names.putIfAbsent(product.getName(), product.getId());
+      if (clash != null) {
+        throw new IllegalArgumentException(source + ": products " + clash + " and " + product.getId()
+                + " have the same name " + product.getName());
+      }
+      products.add(product);
+    }
+    return new ProductCatalogue(source, products);
+  }
+
+  /**
+   * Publishes the catalogue on the platform MBean server as {@value #MBEAN_NAME}, with a
+   * {@code reload} operation. Calling it again does nothing.
+   *
+   * @throws IllegalStateException if the MBean cannot be registered
+   */
+  public static void registerMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new Admin(), new ObjectName(MBEAN_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      // already registered
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register MBean " + MBEAN_NAME, e);
+    }
+  }
+
+  private static Product compile(String source, int id, Map<String, String> attributes) {
+    String where = source + ": product " + id;
+    if (id < 1 || id > Product.MAX_ID) {
+      throw new IllegalArgumentException(where + ": id must be between 1 and " + Product.MAX_ID);
+    }
+    Map<String, String> remaining = new HashMap<>(attributes);
+    String code = required(where, remaining, "code");
+    String name = required(where, remaining, "name");
+    Product.Family family;
+    try {
+      family = Product.Family.valueOf(required(where, remaining, "family"));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(where + ": family must be one of SAVINGS, CURRENT or FIXED_DEPOSIT");
+    }
+
+    long minimumOpeningBalance = amount(where, remaining, "minimumOpeningBalance", 1);
+    long minimumBalance = 0;
+    long overdraftLimit = 0;
+    long interestRateBps = 0;
+    Period term = null;
+    switch (family) {
+      case SAVINGS -> {
+        minimumBalance = amount(where, remaining, "minimumBalance", 0);
+        interestRateBps = basisPoints(where, remaining);
+        if (minimumOpeningBalance < minimumBalance) {
+          throw new IllegalArgumentException(where + ": minimumOpeningBalance is below minimumBalance");
+        }
+      }
+      case CURRENT -> overdraftLimit = amount(where, remaining, "overdraftLimit", 0);
+      case FIXED_DEPOSIT -> {
+        interestRateBps = basisPoints(where, remaining);
+        term = term(where, remaining);
+      }
+    }
+    if (minimumOpeningBalance <= 0) {
+      throw new IllegalArgumentException(where + ": minimumOpeningBalance must be positive");
+    }
+    if (!remaining.isEmpty()) {
+      throw new IllegalArgumentException(where + ": unknown or inapplicable attributes " + remaining.keySet()
+              + " for family " + family);
+    }
+    return new Product(id, code, name, family, minimumOpeningBalance, minimumBalance, overdraftLimit,
+            interestRateBps, term);
+  }
+
+  private static String required(String where, Map<String, String> attributes, String attribute) {
+    String value = attributes.remove(attribute);
+    if (value == null || value.isEmpty()) {
+      throw new IllegalArgumentException(where + ": missing " + attribute);
+    }
+    return value;
+  }
+
+  private static long amount(String where, Map<String, String> attributes, String attribute, long defaultValue) {
+    String value = attributes.remove(attribute);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      long amount = Money.parse(value);
+      if (amount < 0) {
+        throw new IllegalArgumentException(where + ": " + attribute + " cannot be negative");
+      }
+      return amount;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(where + ": invalid " + attribute + " " + value);
+    }
+  }
+
+  private static long basisPoints(String where, Map<String, String> attributes) {
+    String value = attributes.remove("interestRateBps");
+    if (value == null) {
+      return 0;
+    }
+    try {
+      long rate = Long.parseLong(value);
+      if (rate < 0 || rate > Money.BASIS_POINTS) {
+        throw new IllegalArgumentException(where + ": interestRateBps must be between 0 and " + Money.BASIS_POINTS);
+      }
+      return rate;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(where + ": invalid interestRateBps " + value);
+    }
+  }
+
+  private static Period term(String where, Map<String, String> attributes) {
+    String value = attributes.remove("term");
+    if (value == null) {
+      return Period.ofYears(1);
+    }
+    try {
+      Period term = Period.parse(value);
+      if (term.isNegative() || term.isZero()) {
+        throw new IllegalArgumentException(where + ": term must be positive");
+      }
+      return term;
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException(where + ": invalid term " + value);
+    }
+  }
+
+  private static ProductCatalogue loadConfigured() {
+    try {
+      return readConfigured();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot load product catalogue", e);
+    }
+  }
+
+  private static ProductCatalogue readConfigured() throws IOException {
+    String file = System.getProperty(FILE_PROPERTY, "");
+    if (!file.isEmpty()) {
+      return load(Path.of(file));
+    }
+    try (InputStream in = ProductCatalogue.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+      if (in == null) {
+        throw new IOException("Missing built-in " + DEFAULT_RESOURCE);
+      }
+      Properties properties = new Properties();
+      properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+      return parse(properties, DEFAULT_RESOURCE);
+    }
+  }
+
+  /** The JMX view of the catalogue in use. */
+  private static final class Admin implements ProductCatalogueMXBean {
+    @Override
+    public String getSource() {
+      return current.source;
+    }
+
+    @Override
+    public List<String> getProducts() {
+      List<String> descriptions = new ArrayList<>();
+      for (Product product : current.products) {
+        descriptions.add(product.getId() + " " + product.getCode() + " \"" + product.getName() + "\" "
+                + product.getFamily() + ": opening " + Money.format(product.getMinimumOpeningBalance())
+                + ", minimum " + Money.format(product.getMinimumBalance())
+                + ", overdraft " + Money.format(product.getOverdraftLimit())
+                + ", rate " + product.getInterestRateBps() + " bps"
+                + (product.getTerm() != null ? ", term " + product.getTerm() : ""));
+      }
+      return descriptions;
+    }
+
+    @Override
+    public void reload() {
+      try {
+        ProductCatalogue.reload();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
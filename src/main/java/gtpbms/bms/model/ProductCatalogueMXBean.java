@@ -0,0 +1,31 @@
+package gtpbms.bms.model;
+
+import java.util.List;
+
+/**
+ * The JMX view of the {@link ProductCatalogue} in use.
+ */
+public interface ProductCatalogueMXBean {
+
+  /**
+   * Gets where the catalogue in use was loaded from.
+   *
+   * @return a file path or resource name
+   */
+  String getSource();
+
+  /**
+   * Describes each product of the catalogue in use, in id order.
+   *
+   * @return one line per product
+   */
+  List<String> getProducts();
+
+  /**
+   * Reloads the catalogue from its configured source and puts it in use, so that product
+   * changes apply without a restart.
+   *
+   * @throws IllegalArgumentException if the new catalogue is invalid or incompatible
+   */
+  void reload();
+}
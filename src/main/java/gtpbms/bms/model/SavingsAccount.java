@@ -2,104 +2,128 @@ package gtpbms.bms.model;
 
 import gtpbms.bms.exception.InsufficientFundsException;
 import gtpbms.bms.exception.InvalidInitialBalanceException;
-import gtpbms.bms.exception.InvalidWithdrawalAmountException;
+import gtpbms.bms.metrics.LedgerMetrics;
+import gtpbms.bms.metrics.OperationMetrics;
+
+import java.math.RoundingMode;
+import java.time.YearMonth;
 
 /**
  * Represents a savings bank account that earns interest and maintains a minimum balance.
  * Implements InterestBearing for monthly interest calculations.
  *
- * Minimum balance: 100.0
- * Interest rate: 2% per annum
+ * <p>The minimum balance and the interest rate come from the account's {@link Product}; the
+ * standard savings product ({@link Product#SAVINGS}) requires GH₵100.00 and pays 2% per annum.
+ * Interest is rounded half-even to the pesewa.
  *
  * @see BankAccount
  * @see InterestBearing
  */
 public class SavingsAccount extends BankAccount implements InterestBearing {
-  public static final double MINIMUM_BALANCE = 100.0;
-  public static final double INTEREST_RATE = 0.02;
+  private static final OperationMetrics INTEREST_METRICS =
+          LedgerMetrics.operation("calculateInterest", SavingsAccount.class);
 
   /**
-   * Creates a new SavingsAccount with specified details.
+   * Creates a new SavingsAccount of the standard savings product.
    *
    * @param accountHolder Name of account holder (not null or empty)
    * @param accountNumber Unique account number (not null or empty)
-   * @param initialBalance Opening balance (must be >= MINIMUM_BALANCE)
+   * @param initialBalance Opening balance in pesewas (must be >= the product's minimum opening balance)
    * @throws InvalidInitialBalanceException if initialBalance is insufficient
    * @throws IllegalArgumentException for invalid parameters
    */
-  public SavingsAccount(String accountHolder, String accountNumber, double initialBalance) {
-    super(accountHolder, accountNumber, initialBalance);
-    if (initialBalance < MINIMUM_BALANCE) {
-      throw new InvalidInitialBalanceException(
-              String.format("Initial balance must be at least %.2f", MINIMUM_BALANCE));
-    }
+  public SavingsAccount(String accountHolder, String accountNumber, long initialBalance) {
+    this(ProductCatalogue.product(Product.SAVINGS), accountHolder, accountNumber, initialBalance);
+  }
+
+  SavingsAccount(Product product, String accountHolder, String accountNumber, long initialBalance) {
+    super(product, accountHolder, accountNumber, initialBalance);
+  }
+
+  SavingsAccount(int productId, String accountHolder, String accountNumber) {
+    super(productId, accountHolder, accountNumber);
   }
 
   /**
-   * Withdraws specified amount if allowed by account rules.
+   * Creates an empty SavingsAccount of the standard savings product to be rebuilt from
+   * storage with {@link #replay(TransactionType, long, long)}. No opening rules are checked.
    *
-   * @param amount Positive amount to withdraw
-   * @return true if withdrawal succeeded, false if it would violate minimum balance
-   * @throws InvalidWithdrawalAmountException for non-positive amounts
-   * @throws InsufficientFundsException if balance would go negative
+   * @param accountHolder Name of account holder
+   * @param accountNumber Unique account number
+   * @return the empty account
+   * @see Product#restore(String, String, java.time.LocalDate)
    */
-  @Override
-  public boolean withdraw(double amount) {
-    if (amount <= 0) {
-      throw new InvalidWithdrawalAmountException(
-              String.format("Invalid withdrawal amount. Received: %.2f", amount));
-    }
-
-    if (amount > balance) {
-      throw new InsufficientFundsException(
-              String.format("Insufficient funds. Requested: %.2f, Available: %.2f", amount, balance));
-    }
-
-    if (balance - amount < MINIMUM_BALANCE) {
-      return false;
-    }
-
-    balance -= amount;
-    addTransaction(new Transaction("Withdrawal", -amount, balance));
-    return true;
+  public static SavingsAccount restore(String accountHolder, String accountNumber) {
+    return new SavingsAccount(Product.SAVINGS, accountHolder, accountNumber);
   }
 
   /**
-   * Calculates and deposits monthly interest (1/12 of annual rate).
-   * Uses current balance and fixed interest rate.
+   * Applies the withdrawal rules to a debit: the balance must cover the amount and stay at or
+   * above the product's minimum balance.
+   *
+   * @param amount Positive amount to debit, in pesewas
+   * @return APPROVED, INSUFFICIENT_FUNDS if balance would go negative, or MINIMUM_BALANCE
    */
   @Override
-  public void calculateInterest() {
-    double interest = balance * INTEREST_RATE / 12;
-    deposit(interest);
-    addTransaction(new Transaction("Interest Credit", interest, balance));
+  protected PostingResult checkDebit(long amount) {
+    if (amount > balance) {
+      return PostingResult.INSUFFICIENT_FUNDS;
+    }
+    long minimumBalance = ProductCatalogue.rules(productId).getMinimumBalance();
+    return balance - amount >= minimumBalance ? PostingResult.APPROVED : PostingResult.MINIMUM_BALANCE;
   }
 
   /**
-   * Returns the account type identifier.
+   * Throws for a withdrawal beyond the balance; one below the minimum balance returns false.
    *
-   * @return "Savings Account"
+   * @param result the decline
+   * @param amount the amount that was declined, in pesewas
+   * @return the exception, or null to return false
    */
   @Override
-  public String getAccountType() {
-    return "Savings Account";
+  protected RuntimeException withdrawalException(PostingResult result, long amount) {
+    if (result == PostingResult.INSUFFICIENT_FUNDS) {
+      return new InsufficientFundsException(
+              "Insufficient funds. Requested: " + Money.format(amount) + ", Available: " + Money.format(balance));
+    }
+    return super.withdrawalException(result, amount);
   }
 
   /**
-   * Gets the minimum balance requirement.
-   *
-   * @return The minimum balance amount
+   * Calculates and deposits monthly interest (1/12 of annual rate).
+   * Uses current balance and the product's interest rate, rounded half-even to the pesewa.
    */
-  public static double getMinimumBalance() {
-    return MINIMUM_BALANCE;
+  @Override
+  public void calculateInterest() {
+    long start = INTEREST_METRICS.start();
+    try {
+      synchronized (this) {
+        long interest = monthlyInterest();
+        if (interest <= 0) {
+          return;
+        }
+        post(TransactionType.INTEREST_CREDIT, interest);
+      }
+    } catch (RuntimeException e) {
+      INTEREST_METRICS.rejected(e);
+      throw e;
+    } finally {
+      INTEREST_METRICS.end(start);
+    }
   }
 
   /**
-   * Gets the annual interest rate.
+   * Credits one month's interest for a period unless it has already been credited.
    *
-   * @return The interest rate
+   * @param period the period to credit interest for
+   * @return the interest credited in pesewas, or 0 if none was credited
    */
-  public static double getInterestRate() {
-    return INTEREST_RATE;
+  @Override
+  public synchronized long accrueInterest(YearMonth period) {
+    return accrue(period, monthlyInterest());
+  }
+
+  private long monthlyInterest() {
+    return Money.applyRate(balance, ProductCatalogue.rules(productId).getInterestRateBps(), 12, RoundingMode.HALF_EVEN);
   }
 }
\ No newline at end of file
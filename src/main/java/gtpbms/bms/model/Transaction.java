@@ -1,32 +1,61 @@
 package gtpbms.bms.model;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 
 /**
  * Represents a financial transaction in the banking system.
- * Captures all relevant details including description, amount,
+ * Captures all relevant details including type, amount,
  * resulting balance, and timestamp.
+ *
+ * <p>Accounts store their history in a {@link TransactionJournal}. Transaction objects are
+ * materialized from it when read.
  */
 public class Transaction {
-  private final String description;
-  private final double amount;
-  private final double balanceAfter;
-  private final LocalDateTime timestamp;
+  private final TransactionType type;
+  private final long amount;
+  private final long balanceAfter;
+  private final long timestampMicros;
 
   /**
-   * Creates a new Transaction with the specified details.
+   * Creates a new Transaction with the specified details, timestamped now.
    *
-   * @param description A description of the transaction (not null or empty)
-   * @param amount The transaction amount (positive for deposits, negative for withdrawals)
-   * @param balanceAfter The account balance after this transaction
-   * @throws IllegalArgumentException if description is null or empty
+   * @param type The type of the transaction (not null)
+   * @param amount The transaction amount in pesewas (positive for deposits, negative for withdrawals)
+   * @param balanceAfter The account balance in pesewas after this transaction
+   * @throws IllegalArgumentException if type is null
    */
-  public Transaction(String description, double amount, double balanceAfter) {
-    this.description = description;
+  public Transaction(TransactionType type, long amount, long balanceAfter) {
+    this(type, amount, balanceAfter, TransactionJournal.currentTimeMicros());
+  }
+
+  /**
+   * Creates a new Transaction with the specified details and timestamp.
+   *
+   * @param type The type of the transaction (not null)
+   * @param amount The transaction amount in pesewas (positive for deposits, negative for withdrawals)
+   * @param balanceAfter The account balance in pesewas after this transaction
+   * @param timestampMicros The time of the transaction, in microseconds since the epoch
+   * @throws IllegalArgumentException if type is null
+   */
+  public Transaction(TransactionType type, long amount, long balanceAfter, long timestampMicros) {
+    if (type == null) {
+      throw new IllegalArgumentException("Transaction type cannot be null");
+    }
+    this.type = type;
     this.amount = amount;
     this.balanceAfter = balanceAfter;
-    this.timestamp = LocalDateTime.now();
+    this.timestampMicros = timestampMicros;
+  }
+
+  /**
+   * Gets the transaction type.
+   *
+   * @return The transaction type
+   */
+  public TransactionType getType() {
+    return type;
   }
 
   /**
@@ -35,61 +64,57 @@ public class Transaction {
    * @return The transaction description
    */
   public String getDescription() {
-    return description;
+    return type.getDescription();
   }
 
   /**
    * Gets the transaction amount.
    *
-   * @return The amount (positive for deposits, negative for withdrawals)
+   * @return The amount in pesewas (positive for deposits, negative for withdrawals)
    */
-  public double getAmount() {
+  public long getAmount() {
     return amount;
   }
 
   /**
    * Gets the balance after this transaction was applied.
    *
-   * @return The post-transaction balance
+   * @return The post-transaction balance in pesewas
    */
-  public double getBalanceAfter() {
+  public long getBalanceAfter() {
     return balanceAfter;
   }
 
   /**
-   * Gets the timestamp when the transaction occurred.
+   * Gets the timestamp when the transaction occurred, in the system time zone.
    *
    * @return The transaction timestamp
    */
   public LocalDateTime getTimestamp() {
-    return timestamp;
+    Instant instant = Instant.EPOCH.plusNanos(Math.multiplyExact(timestampMicros, 1_000L));
+    return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
   }
 
   /**
-   * Returns a formatted string representation of the transaction.
-   * Format: "[DD-MM-YYYY HH:MM:SS] Description: GHcX.XX | Balance: GHcX.XX"
+   * Gets the timestamp when the transaction occurred.
    *
-   * @return Formatted transaction string
+   * @return The timestamp in microseconds since the epoch
    */
-  @Override
-  public String toString() {
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-    String formattedTime = timestamp.format(formatter);
-
-    return String.format("[%s] %s: %s | Balance: %s",
-            formattedTime,
-            description,
-            formatCurrency(amount),
-            formatCurrency(balanceAfter));
+  public long getTimestampMicros() {
+    return timestampMicros;
   }
 
   /**
-   * Formats a monetary value as Ghanaian Cedi (GHc) with 2 decimal places.
+   * Returns a formatted string representation of the transaction.
+   * Format: "[DD-MM-YYYY HH:MM:SS] Description: GHcX.XX | Balance: GHcX.XX"
+   *
+   * <p>Callers rendering many transactions should append them to a reused builder with
+   * {@link TransactionFormatter} instead.
    *
-   * @param value The monetary value to format
-   * @return Formatted currency string (e.g., "GHc100.50")
+   * @return Formatted transaction string
    */
-  private String formatCurrency(double value) {
-    return String.format("GH₵%.2f", value);
+  @Override
+  public String toString() {
+    return TransactionFormatter.appendLine(new StringBuilder(64), this).toString();
   }
-}
\ No newline at end of file
+}
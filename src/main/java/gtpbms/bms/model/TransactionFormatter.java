@@ -0,0 +1,349 @@
+package gtpbms.bms.model;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Formats transactions for statements and the UI without allocating.
+ *
+ * <p>A line reads {@code [dd-MM-yyyy HH:mm:ss] Description: GH₵X.XX | Balance: GH₵X.XX}, with
+ * the time in the system time zone as it was when this class was first used. Lines are written
+ * into a caller-supplied {@link StringBuilder} or, encoded as UTF-8, a {@link ByteBuffer}, so
+ * a caller that reuses its buffer renders any number of lines with no garbage. Dates are
+ * converted by hand rather than through {@link java.time.format.DateTimeFormatter}, and the
+ * zone offset is cached for the span between two of the zone's transitions.
+ */
+public final class TransactionFormatter {
+  private static final long MICROS_PER_SECOND = 1_000_000L;
+  private static final int SECONDS_PER_DAY = 86_400;
+  private static final ZoneRules ZONE_RULES = ZoneId.systemDefault().getRules();
+
+  private static final byte[] CURRENCY_SYMBOL = Money.CURRENCY_SYMBOL.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] BALANCE = " | Balance: ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[][] DESCRIPTIONS = new byte[TransactionType.values().length][];
+
+  /**
+   * The most bytes {@link #putTimestamp(ByteBuffer, long)} writes: 19, plus up to two more
+   * year digits and a minus sign for the furthest times a microsecond timestamp can hold.
+   */
+  public static final int MAX_TIMESTAMP_BYTES = 22;
+
+  /** The most bytes an amount takes with its currency symbol, reached by {@link Long#MIN_VALUE}. */
+  private static final int MAX_AMOUNT_BYTES = CURRENCY_SYMBOL.length + "-92233720368547758.08".length();
+
+  /** The most bytes {@link #putLine(ByteBuffer, TransactionType, long, long, long)} writes. */
+  public static final int MAX_LINE_BYTES;
+
+  static {
+    int longestDescription = 0;
+    for (TransactionType type : TransactionType.values()) {
+      DESCRIPTIONS[type.ordinal()] = type.getDescription().getBytes(StandardCharsets.UTF_8);
+      longestDescription = Math.max(longestDescription, DESCRIPTIONS[type.ordinal()].length);
+    }
+    MAX_LINE_BYTES = 1 + MAX_TIMESTAMP_BYTES + 2 + longestDescription + 2 + MAX_AMOUNT_BYTES + BALANCE.length
+            + MAX_AMOUNT_BYTES;
+  }
+
+  /** The offset in force over {@code [from, to)}, in epoch seconds. */
+  private record OffsetWindow(long from, long to, int offsetSeconds) {
+  }
+
+  private static volatile OffsetWindow offsetWindow = new OffsetWindow(0, 0, 0);
+
+  private TransactionFormatter() {
+    throw new AssertionError("Cannot instantiate TransactionFormatter");
+  }
+
+  /**
+   * Appends a transaction as one statement line.
+   *
+   * @param out the builder to append to
+   * @param transaction the transaction
+   * @return the same builder
+   */
+  public static StringBuilder appendLine(StringBuilder out, Transaction transaction) {
+    return appendLine(out, transaction.getType(), transaction.getAmount(), transaction.getBalanceAfter(),
+            transaction.getTimestampMicros());
+  }
+
+  /**
+   * Appends one journal entry as a statement line, without materializing a {@link Transaction}.
+   *
+   * @param out the builder to append to
+   * @param journal the journal
+   * @param index the entry's position in the journal
+   * @return the same builder
+   * @throws IndexOutOfBoundsException if index is not below the journal's size
+   */
+  public static StringBuilder appendLine(StringBuilder out, TransactionJournal journal, int index) {
+    return appendLine(out, journal.typeAt(index), journal.amountAt(index), journal.balanceAfterAt(index),
+            journal.timestampMicrosAt(index));
+  }
+
+  /**
+   * Appends a statement line.
+   *
+   * @param out the builder to append to
+   * @param type the transaction type
+   * @param amount the amount in pesewas
+   * @param balanceAfter the balance after the transaction in pesewas
+   * @param timestampMicros the time of the transaction in microseconds since the epoch
+   * @return the same builder
+   */
+  public static StringBuilder appendLine(StringBuilder out, TransactionType type, long amount, long balanceAfter,
+                                         long timestampMicros) {
+    out.append('[');
+    appendTimestamp(out, timestampMicros);
+    out.append("] ").append(type.getDescription()).append(": ");
+    appendAmount(out, amount);
+    out.append(" | Balance: ");
+    return appendAmount(out, balanceAfter);
+  }
+
+  /**
+   * Appends a time as {@code dd-MM-yyyy HH:mm:ss} in the system time zone.
+   *
+   * @param out the builder to append to
+   * @param timestampMicros the time in microseconds since the epoch
+   * @return the same builder
+   */
+  public static StringBuilder appendTimestamp(StringBuilder out, long timestampMicros) {
+    long local = localEpochSecond(Math.floorDiv(timestampMicros, MICROS_PER_SECOND));
+    long date = civilDate(Math.floorDiv(local, SECONDS_PER_DAY));
+    int secondOfDay = Math.floorMod(local, SECONDS_PER_DAY);
+    appendTwoDigits(out, (int) (date & 0xFF));
+    out.append('-');
+    appendTwoDigits(out, (int) (date >>> 8 & 0xFF));
+    out.append('-');
+    appendYear(out, date >> 16);
+    out.append(' ');
+    appendTwoDigits(out, secondOfDay / 3600);
+    out.append(':');
+    appendTwoDigits(out, secondOfDay / 60 % 60);
+    out.append(':');
+    return appendTwoDigits(out, secondOfDay % 60);
+  }
+
+  /**
+   * Formats a time as {@code dd-MM-yyyy HH:mm:ss} in the system time zone.
+   *
+   * @param timestampMicros the time in microseconds since the epoch
+   * @return the formatted time
+   */
+  public static String formatTimestamp(long timestampMicros) {
+    return appendTimestamp(new StringBuilder(19), timestampMicros).toString();
+  }
+
+  /**
+   * Appends an amount with the currency symbol, as {@link Money#format(long)} returns it.
+   *
+   * @param out the builder to append to
+   * @param amount the amount in pesewas
+   * @return the same builder
+   */
+  public static StringBuilder appendAmount(StringBuilder out, long amount) {
+    return Money.appendPlain(out.append(Money.CURRENCY_SYMBOL), amount);
+  }
+
+  /**
+   * Writes one journal entry as a UTF-8 statement line, without a line terminator.
+   *
+   * @param out the buffer to write to
+   * @param journal the journal
+   * @param index the entry's position in the journal
+   * @return the same buffer
+   * @throws BufferOverflowException if the buffer has too little room; {@link #MAX_LINE_BYTES}
+   *         always suffice
+   */
+  public static ByteBuffer putLine(ByteBuffer out, TransactionJournal journal, int index) {
+    return putLine(out, journal.typeAt(index), journal.amountAt(index), journal.balanceAfterAt(index),
+            journal.timestampMicrosAt(index));
+  }
+
+  /**
+   * Writes a UTF-8 statement line, without a line terminator.
+   *
+   * @param out the buffer to write to
+   * @param type the transaction type
+   * @param amount the amount in pesewas
+   * @param balanceAfter the balance after the transaction in pesewas
+   * @param timestampMicros the time of the transaction in microseconds since the epoch
+   * @return the same buffer
+   * @throws BufferOverflowException if the buffer has too little room; {@link #MAX_LINE_BYTES}
+   *         always suffice
+   */
+  public static ByteBuffer putLine(ByteBuffer out, TransactionType type, long amount, long balanceAfter,
+                                   long timestampMicros) {
+    out.put((byte) '[');
+    putTimestamp(out, timestampMicros);
+    out.put((byte) ']').put((byte) ' ');
+    out.put(DESCRIPTIONS[type.ordinal()]);
+    out.put((byte) ':').put((byte) ' ');
+    putAmount(out, amount);
+    out.put(BALANCE);
+    return putAmount(out, balanceAfter);
+  }
+
+  /**
+   * Writes a time as {@code dd-MM-yyyy HH:mm:ss} in the system time zone.
+   *
+   * @param out the buffer to write to
+   * @param timestampMicros the time in microseconds since the epoch
+   * @return the same buffer
+   * @throws BufferOverflowException if the buffer has too little room; 19 bytes suffice for
+   *         years 0 to 9999 and {@link #MAX_TIMESTAMP_BYTES} for any time
+   */
+  public static ByteBuffer putTimestamp(ByteBuffer out, long timestampMicros) {
+    long local = localEpochSecond(Math.floorDiv(timestampMicros, MICROS_PER_SECOND));
+    long date = civilDate(Math.floorDiv(local, SECONDS_PER_DAY));
+    int secondOfDay = Math.floorMod(local, SECONDS_PER_DAY);
+    putTwoDigits(out, (int) (date & 0xFF));
+    out.put((byte) '-');
+    putTwoDigits(out, (int) (date >>> 8 & 0xFF));
+    out.put((byte) '-');
+    putLong(out, date >> 16, 4);
+    out.put((byte) ' ');
+    putTwoDigits(out, secondOfDay / 3600);
+    out.put((byte) ':');
+    putTwoDigits(out, secondOfDay / 60 % 60);
+    out.put((byte) ':');
+    return putTwoDigits(out, secondOfDay % 60);
+  }
+
+  /**
+   * Writes a transaction type's description in UTF-8.
+   *
+   * @param out the buffer to write to
+   * @param type the transaction type
+   * @return the same buffer
+   * @throws BufferOverflowException if the buffer has too little room
+   */
+  public static ByteBuffer putDescription(ByteBuffer out, TransactionType type) {
+    return out.put(DESCRIPTIONS[type.ordinal()]);
+  }
+
+  /**
+   * Writes an amount with the currency symbol in UTF-8, as {@link Money#format(long)} returns it.
+   *
+   * @param out the buffer to write to
+   * @param amount the amount in pesewas
+   * @return the same buffer
+   * @throws BufferOverflowException if the buffer has too little room; 28 bytes always suffice
+   */
+  public static ByteBuffer putAmount(ByteBuffer out, long amount) {
+    return putPlainAmount(out.put(CURRENCY_SYMBOL), amount);
+  }
+
+  /**
+   * Writes an amount with two decimal places and no currency symbol, as
+   * {@link Money#appendPlain(StringBuilder, long)} appends it.
+   *
+   * @param out the buffer to write to
+   * @param amount the amount in pesewas
+   * @return the same buffer
+   * @throws BufferOverflowException if the buffer has too little room; 24 bytes always suffice
+   */
+  public static ByteBuffer putPlainAmount(ByteBuffer out, long amount) {
+    long whole = amount / Money.MINOR_UNITS_PER_CEDI;
+    int fraction = (int) Math.abs(amount % Money.MINOR_UNITS_PER_CEDI);
+    if (amount < 0 && whole == 0) {
+      out.put((byte) '-');
+    }
+    putLong(out, whole, 1);
+    out.put((byte) '.');
+    return putTwoDigits(out, fraction);
+  }
+
+  /**
+   * Writes a whole number in decimal, zero-padded to at least minDigits digits.
+   */
+  private static ByteBuffer putLong(ByteBuffer out, long value, int minDigits) {
+    if (value < 0) {
+      out.put((byte) '-');
+    } else {
+      value = -value; // work in negatives so that Long.MIN_VALUE needs no special case
+    }
+    int digits = 1;
+    for (long rest = value / 10; rest != 0; rest /= 10) {
+      digits++;
+    }
+    for (int i = digits; i < minDigits; i++) {
+      out.put((byte) '0');
+    }
+    if (out.remaining() < digits) {
+      throw new BufferOverflowException();
+    }
+    int end = out.position() + digits;
+    for (int i = end - 1; i >= end - digits; i--) {
+      out.put(i, (byte) ('0' - value % 10));
+      value /= 10;
+    }
+    return out.position(end);
+  }
+
+  private static ByteBuffer putTwoDigits(ByteBuffer out, int value) {
+    return out.put((byte) ('0' + value / 10)).put((byte) ('0' + value % 10));
+  }
+
+  private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+    return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+  }
+
+  private static void appendYear(StringBuilder out, long year) {
+    if (year >= 0 && year < 1000) {
+      out.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+    }
+    out.append(year);
+  }
+
+  /**
+   * Converts epoch seconds to local epoch seconds in the system time zone.
+   */
+  private static long localEpochSecond(long epochSecond) {
+    OffsetWindow window = offsetWindow;
+    if (epochSecond < window.from() || epochSecond >= window.to()) {
+      window = offsetWindowAt(epochSecond);
+      offsetWindow = window;
+    }
+    return epochSecond + window.offsetSeconds();
+  }
+
+  private static OffsetWindow offsetWindowAt(long epochSecond) {
+    Instant instant = Instant.ofEpochSecond(epochSecond);
+    int offset = ZONE_RULES.getOffset(instant).getTotalSeconds();
+    if (ZONE_RULES.isFixedOffset()) {
+      return new OffsetWindow(Long.MIN_VALUE, Long.MAX_VALUE, offset);
+    }
+    ZoneOffsetTransition previous = ZONE_RULES.previousTransition(instant);
+    ZoneOffsetTransition next = ZONE_RULES.nextTransition(instant);
+    long from = previous == null ? Long.MIN_VALUE : previous.toEpochSecond();
+    if (from != Long.MIN_VALUE && ZONE_RULES.getOffset(Instant.ofEpochSecond(from)).getTotalSeconds() != offset) {
+      from = epochSecond;
+    }
+    return new OffsetWindow(from, next == null ? Long.MAX_VALUE : next.toEpochSecond(), offset);
+  }
+
+  /**
+   * Converts days since the epoch to a proleptic Gregorian date (H. Hinnant's
+   * {@code civil_from_days}).
+   *
+   * @return the year in the high bits, then the month and the day in one byte each
+   */
+  private static long civilDate(long epochDay) {
+    long z = epochDay + 719_468;
+    long era = Math.floorDiv(z, 146_097);
+    long dayOfEra = z - era * 146_097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return year << 16 | month << 8 | day;
+  }
+}
@@ -0,0 +1,535 @@
+package gtpbms.bms.model;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact, columnar store for an account's transactions.
+ *
+ * <p>Each entry is stored in primitive arrays (columns), with no per-transaction object:
+ * <ul>
+ *   <li>the balance after the transaction, in pesewas ({@code long})</li>
+ *   <li>the timestamp, in microseconds since the epoch ({@code long})</li>
+ *   <li>the {@link TransactionType} code ({@code byte})</li>
+ * </ul>
+ * The signed amount is not stored. It is the difference between an entry's balance and the
+ * balance of the entry before it, and the first entry's amount is its balance. That is 17
+ * bytes per transaction, against roughly 136 for a {@code LinkedList} node holding a
+ * {@link Transaction} with a {@code LocalDateTime}.
+ *
+ * <p>Entries are indexed chronologically (0 is the oldest), and timestamps never decrease, so
+ * time lookups are binary searches. A bucket index narrows them first: the timeline is cut into
+ * buckets of 2<sup>41</sup> microseconds (about 25 days, roughly a month), and the index of the
+ * first entry in each bucket from the oldest entry's onwards is kept in an {@code int} column.
+ * A lookup then searches only the entries of one bucket.
+ * Only one thread may append at a time (the owning account's monitor guarantees this).
+ * Any number of threads may read without locking. The columns and the bucket index are held
+ * in a {@link Columns} object that is never changed except by writing entries past the
+ * count; growing the columns or extending the index publishes a new one through a volatile
+ * field. The entry count is published through a volatile write after the entry is complete.
+ * A reader reads the count first and then the columns, once per operation, so it sees every
+ * entry below the count it read, even in columns copied after it read the count.
+ *
+ * <p>The oldest entries of a journal may also be held in a {@link JournalArchive}. A journal
+ * restored from an archive with
+ * {@link #restoreArchived(JournalArchive, long, int)} knows only its entry count until an
+ * entry is read or appended; the archived entries are then loaded into columns once, by
+ * whichever thread gets there first.
+ */
+public final class TransactionJournal {
+  private static final int INITIAL_CAPACITY = 2;
+  private static final int BUCKET_SHIFT = 41;
+  private static final int MAX_BUCKETS = 1 << 16;
+
+  // Shared by empty journals until their first append, which never writes into it
+  private static final Columns EMPTY = new Columns(new long[0], new long[0], new byte[0], 0, new int[0], 0);
+
+  // The columns of a journal whose archived entries have not been loaded yet
+  private static final Columns UNLOADED = new Columns(new long[0], new long[0], new byte[0], 0, new int[0], 0);
+
+  private volatile Columns columns;
+  private volatile int size;
+
+  // Guarded by this
+  private JournalArchive archive;
+  private long archiveReference = -1;
+  private int archivedCount;
+
+  /**
+   * Creates an empty journal.
+   */
+  public TransactionJournal() {
+    columns = EMPTY;
+  }
+
+  /**
+   * Appends an entry. Callers must be the journal's single writer.
+   * A timestamp earlier than the last entry's is raised to it, keeping the column monotonic.
+   *
+   * @param type the transaction type
+   * @param balanceAfter the balance after the transaction, in pesewas
+   * @param timestampMicros the time of the transaction, in microseconds since the epoch
+   */
+  void append(TransactionType type, long balanceAfter, long timestampMicros) {
+    int n = size;
+    Columns c = columns();
+    if (n == c.balances.length) {
+      c = grow(c, n);
+    }
+    if (n > 0 && timestampMicros < c.timestamps[n - 1]) {
+      timestampMicros = c.timestamps[n - 1];
+    }
+
+    c.balances[n] = balanceAfter;
+    c.timestamps[n] = timestampMicros;
+    c.types[n] = type.code();
+    indexBucket(c, n, timestampMicros);
+    size = n + 1;
+  }
+
+  /**
+   * Records entry n as the first of its bucket and of any empty buckets before it, publishing
+   * new columns if the index grows.
+   */
+  private void indexBucket(Columns c, int n, long timestampMicros) {
+    long bucket = timestampMicros >> BUCKET_SHIFT;
+    long firstBucket = n == 0 ? bucket : c.firstBucket;
+    int count = c.bucketCount;
+    if (count < 0 || bucket - firstBucket < count) {
+      return;
+    }
+    if (bucket - firstBucket >= MAX_BUCKETS) {
+      columns = c.withBuckets(firstBucket, c.bucketStarts, -1);
+      return;
+    }
+    int newCount = (int) (bucket - firstBucket) + 1;
+    int[] starts = c.bucketStarts;
+    if (newCount > starts.length) {
+      starts = Arrays.copyOf(starts, Math.max(newCount, count + (count >> 1) + 1));
+    }
+    // Only slots at or past the published count are written, which no reader looks at yet
+    Arrays.fill(starts, count, newCount, n);
+    columns = c.withBuckets(firstBucket, starts, newCount);
+  }
+
+  /**
+   * Fills an empty journal with entries read back from storage, taking the arrays as its
+   * columns rather than appending entry by entry. Slots past the count are left for later
+   * appends. Timestamps earlier than the entry before are raised to it, as
+   * {@link #append(TransactionType, long, long)} does. Callers must be the journal's single
+   * writer and must not use the arrays afterwards.
+   *
+   * @param balances the balance after each entry, in pesewas
+   * @param timestamps the time of each entry, in microseconds since the epoch
+   * @param types the {@link TransactionType} code of each entry
+   * @param n the number of entries
+   * @throws IllegalStateException if the journal is not empty
+   * @throws IllegalArgumentException if an array is shorter than n or a type code is unknown
+   */
+  void restore(long[] balances, long[] timestamps, byte[] types, int n) {
+    if (size != 0) {
+      throw new IllegalStateException("Only an empty journal can be restored");
+    }
+    if (n < 0 || balances.length < n || timestamps.length < n || types.length < n) {
+      throw new IllegalArgumentException("Journal columns are shorter than " + n + " entries");
+    }
+    if (n == 0) {
+      return;
+    }
+    columns = indexed(balances, timestamps, types, n);
+    size = n;
+  }
+
+  /**
+   * Makes an empty journal stand for entries held in an archive, without reading them. They
+   * are loaded when an entry is first read or appended. Callers must be the journal's single
+   * writer.
+   *
+   * @param archive the archive holding the entries
+   * @param reference the archive's reference for the entries
+   * @param n the number of entries
+   * @throws IllegalStateException if the journal is not empty
+   * @throws IllegalArgumentException if n is negative
+   */
+  synchronized void restoreArchived(JournalArchive archive, long reference, int n) {
+    if (size != 0) {
+      throw new IllegalStateException("Only an empty journal can be restored");
+    }
+    if (n < 0) {
+      throw new IllegalArgumentException("Entry count must not be negative: " + n);
+    }
+    this.archive = archive;
+    this.archiveReference = reference;
+    this.archivedCount = n;
+    if (n > 0) {
+      columns = UNLOADED;
+      size = n;
+    }
+  }
+
+  /**
+   * Records that the first entries of this journal are now held in an archive, so that a
+   * later archive run need only add the entries after them.
+   *
+   * @param archive the archive holding the entries
+   * @param reference the archive's reference for the entries
+   * @param count the number of entries archived
+   * @throws IllegalArgumentException if count is below the count already archived or above the entry count
+   */
+  public synchronized void archived(JournalArchive archive, long reference, int count) {
+    if (count < archivedCount || count > size) {
+      throw new IllegalArgumentException("Cannot record " + count + " archived entries of " + size
+              + " with " + archivedCount + " archived already");
+    }
+    this.archive = archive;
+    this.archiveReference = reference;
+    this.archivedCount = count;
+  }
+
+  /**
+   * Gets the number of this journal's entries held in an archive.
+   *
+   * @return the archived entry count, 0 if none
+   */
+  public synchronized int archivedCount() {
+    return archivedCount;
+  }
+
+  /**
+   * Gets the archive's reference for this journal's archived entries.
+   *
+   * @return the reference, or -1 if no entries are archived
+   */
+  public synchronized long archiveReference() {
+    return archiveReference;
+  }
+
+  /**
+   * Gets the columns, first loading the archived entries if they have not been read yet.
+   */
+  private Columns columns() {
+    Columns c = columns;
+    return c != UNLOADED ? c : load();
+  }
+
+  private synchronized Columns load() {
+    Columns c = columns;
+    if (c != UNLOADED) {
+      return c;
+    }
+    int n = archivedCount;
+    // Room for the postings that usually follow, so the first of them does not copy the columns
+    int capacity = n + (n >> 3) + 2;
+    long[] balances = new long[capacity];
+    long[] timestamps = new long[capacity];
+    byte[] types = new byte[capacity];
+    archive.read(archiveReference, n, balances, timestamps, types);
+    Columns loaded = indexed(balances, timestamps, types, n);
+    columns = loaded;
+    return loaded;
+  }
+
+  /**
+   * Builds columns over entries read back from storage, indexing their buckets. Timestamps
+   * earlier than the entry before are raised to it.
+   *
+   * @throws IllegalArgumentException if a type code is unknown
+   */
+  private static Columns indexed(long[] balances, long[] timestamps, byte[] types, int n) {
+    long firstBucket = timestamps[0] >> BUCKET_SHIFT;
+    int[] starts = new int[INITIAL_CAPACITY];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      TransactionType.fromCode(types[i]);
+      if (i > 0 && timestamps[i] < timestamps[i - 1]) {
+        timestamps[i] = timestamps[i - 1];
+      }
+      long bucket = timestamps[i] >> BUCKET_SHIFT;
+      if (count < 0 || bucket - firstBucket < count) {
+        continue;
+      }
+      if (bucket - firstBucket >= MAX_BUCKETS) {
+        count = -1;
+        continue;
+      }
+      int newCount = (int) (bucket - firstBucket) + 1;
+      if (newCount > starts.length) {
+        starts = Arrays.copyOf(starts, Math.max(newCount, count + (count >> 1) + 1));
+      }
+      Arrays.fill(starts, count, newCount, i);
+      count = newCount;
+    }
+    return new Columns(balances, timestamps, types, firstBucket, starts, count);
+  }
+
+  private Columns grow(Columns c, int capacity) {
+    int newCapacity = Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1) + 1);
+    Columns grown = new Columns(Arrays.copyOf(c.balances, newCapacity), Arrays.copyOf(c.timestamps, newCapacity),
+            Arrays.copyOf(c.types, newCapacity), c.firstBucket, c.bucketStarts, c.bucketCount);
+    columns = grown;
+    return grown;
+  }
+
+  /**
+   * Gets the number of entries in the journal.
+   *
+   * @return the entry count
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the signed amount of an entry.
+   *
+   * @param index the chronological index (0 is the oldest)
+   * @return the amount in pesewas (positive for credits, negative for debits)
+   */
+  public long amountAt(int index) {
+    checkIndex(index);
+    long[] b = columns().balances;
+    return index == 0 ? b[0] : b[index] - b[index - 1];
+  }
+
+  /**
+   * Gets the balance after an entry.
+   *
+   * @param index the chronological index (0 is the oldest)
+   * @return the balance in pesewas
+   */
+  public long balanceAfterAt(int index) {
+    checkIndex(index);
+    return columns().balances[index];
+  }
+
+  /**
+   * Gets the timestamp of an entry.
+   *
+   * @param index the chronological index (0 is the oldest)
+   * @return the timestamp in microseconds since the epoch
+   */
+  public long timestampMicrosAt(int index) {
+    checkIndex(index);
+    return columns().timestamps[index];
+  }
+
+  /**
+   * Gets the type of an entry.
+   *
+   * @param index the chronological index (0 is the oldest)
+   * @return the transaction type
+   */
+  public TransactionType typeAt(int index) {
+    checkIndex(index);
+    return TransactionType.fromCode(columns().types[index]);
+  }
+
+  /**
+   * Materializes an entry as a {@link Transaction}.
+   *
+   * @param index the chronological index (0 is the oldest)
+   * @return the transaction
+   */
+  public Transaction get(int index) {
+    checkIndex(index);
+    Columns c = columns();
+    long[] b = c.balances;
+    return new Transaction(TransactionType.fromCode(c.types[index]), index == 0 ? b[0] : b[index] - b[index - 1],
+            b[index], c.timestamps[index]);
+  }
+
+  /**
+   * Returns a read-only, newest-first page of the entries present when the page was taken.
+   * Nothing is copied. Each element is materialized from the columns when it is read.
+   *
+   * @param offset the number of newest entries to skip (must be >= 0)
+   * @param limit the maximum number of entries in the page (must be >= 0)
+   * @return the page, which may be shorter than limit or empty
+   * @throws IllegalArgumentException if offset or limit is negative
+   */
+  public List<Transaction> newestFirst(int offset, int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new IllegalArgumentException("Offset and limit must not be negative");
+    }
+    int end = Math.max(size - offset, 0);
+    int start = Math.max(end - limit, 0);
+    return new NewestFirstView(this, start, end);
+  }
+
+  /**
+   * Returns a read-only, newest-first view of the entries with timestamps in
+   * {@code [fromMicros, toMicros)}. Timestamps are monotonic, so both ends are located by
+   * binary search and the view costs O(log n) to create. Nothing is copied.
+   *
+   * @param fromMicros the inclusive lower bound, in microseconds since the epoch
+   * @param toMicros the exclusive upper bound, in microseconds since the epoch
+   * @return the view, empty if no entry falls in the range
+   */
+  public List<Transaction> between(long fromMicros, long toMicros) {
+    int n = size;
+    Columns c = columns();
+    int start = firstIndexAtOrAfter(c, fromMicros, n);
+    int end = toMicros <= fromMicros ? start : firstIndexAtOrAfter(c, toMicros, n);
+    return new NewestFirstView(this, start, end);
+  }
+
+  /**
+   * Gets the balance as it stood at a given time: the balance after the last entry at or
+   * before it. Nothing is replayed.
+   *
+   * @param micros the time in microseconds since the epoch
+   * @return the balance in pesewas, or 0 if the time is before the first entry
+   */
+  public long balanceAt(long micros) {
+    int n = size;
+    Columns c = columns();
+    int index = micros == Long.MAX_VALUE ? n : firstIndexAtOrAfter(c, micros + 1, n);
+    return index == 0 ? 0 : c.balances[index - 1];
+  }
+
+  /**
+   * Finds the first entry whose timestamp is at or after the given time, among the entries
+   * present now. The bucket index picks the entry's bucket and a binary search finishes.
+   *
+   * @param micros the time in microseconds since the epoch
+   * @return the index of that entry, or the entry count if there is none
+   */
+  public int firstIndexAtOrAfter(long micros) {
+    int n = size;
+    return firstIndexAtOrAfter(columns(), micros, n);
+  }
+
+  /**
+   * Finds the first of the first n entries whose timestamp is at or after the given time.
+   * The columns must have been read after n.
+   */
+  private static int firstIndexAtOrAfter(Columns c, long micros, int n) {
+    long[] t = c.timestamps;
+    if (n == 0 || micros > t[n - 1]) {
+      return n;
+    }
+    if (c.bucketCount < 0) {
+      return firstIndexAtOrAfter(t, micros, 0, n);
+    }
+    long bucket = (micros >> BUCKET_SHIFT) - c.firstBucket;
+    if (bucket < 0) {
+      return 0;
+    }
+    // Only buckets up to the newest entry's were indexed before n was published.
+    long last = (t[n - 1] >> BUCKET_SHIFT) - c.firstBucket;
+    int[] starts = c.bucketStarts;
+    int low = starts[(int) bucket];
+    int high = bucket < last ? starts[(int) bucket + 1] : n;
+    return firstIndexAtOrAfter(t, micros, low, high);
+  }
+
+  /**
+   * Finds the first entry in {@code [low, high)} whose timestamp is at or after the given time.
+   *
+   * @param t the timestamp column
+   * @param micros the time in microseconds since the epoch
+   * @param low the first index to consider
+   * @param high one past the last index to consider
+   * @return the index of that entry, or {@code high} if there is none
+   */
+  private static int firstIndexAtOrAfter(long[] t, long micros, int low, int high) {
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (t[mid] < micros) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+  }
+
+  /**
+   * Gets the current time in microseconds since the epoch.
+   *
+   * @return the current time
+   */
+  public static long currentTimeMicros() {
+    Instant now = Instant.now();
+    return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+  }
+
+  /**
+   * Converts an instant to microseconds since the epoch, saturating at the long range.
+   *
+   * @param instant the instant
+   * @return the instant in microseconds since the epoch
+   */
+  static long toMicros(Instant instant) {
+    try {
+      return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    } catch (ArithmeticException e) {
+      return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * The columns and bucket index of a journal. Nothing in it changes once it is published,
+   * except column slots and bucket slots past the published entry count and bucket count, so
+   * readers may hold it without locking. The writer publishes a new one to grow a column or
+   * the index.
+   */
+  private static final class Columns {
+    final long[] balances;
+    final long[] timestamps;
+    final byte[] types;
+    final long firstBucket;
+    final int[] bucketStarts;
+    final int bucketCount; // -1 once the entries span too many buckets to index
+
+    Columns(long[] balances, long[] timestamps, byte[] types, long firstBucket, int[] bucketStarts, int bucketCount) {
+      this.balances = balances;
+      this.timestamps = timestamps;
+      this.types = types;
+      this.firstBucket = firstBucket;
+      this.bucketStarts = bucketStarts;
+      this.bucketCount = bucketCount;
+    }
+
+    Columns withBuckets(long firstBucket, int[] bucketStarts, int bucketCount) {
+      return new Columns(balances, timestamps, types, firstBucket, bucketStarts, bucketCount);
+    }
+  }
+
+  /**
+   * A fixed, newest-first view over the chronological entries {@code [start, end)} of a journal.
+   */
+  private static final class NewestFirstView extends AbstractList<Transaction> implements RandomAccess {
+    private final TransactionJournal journal;
+    private final int start;
+    private final int end;
+
+    NewestFirstView(TransactionJournal journal, int start, int end) {
+      this.journal = journal;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      if (index < 0 || index >= end - start) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (end - start));
+      }
+      return journal.get(end - 1 - index);
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package gtpbms.bms.model;
+
+/**
+ * The kinds of transaction an account can record.
+ * Each type has a stable one-byte code, which the transaction journal stores in place of a
+ * free-text description.
+ */
+public enum TransactionType {
+  ACCOUNT_OPENED("Account opened"),
+  DEPOSIT("Deposit"),
+  WITHDRAWAL("Withdrawal"),
+  INTEREST_CREDIT("Interest Credit"),
+  TRANSFER_IN("Transfer In"),
+  TRANSFER_OUT("Transfer Out");
+
+  private static final TransactionType[] BY_CODE = values();
+
+  private final String description;
+
+  TransactionType(String description) {
+    this.description = description;
+  }
+
+  /**
+   * Gets the human-readable description shown in statements and the UI.
+   *
+   * @return the description
+   */
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Gets the stable one-byte code stored in the transaction journal.
+   * New types must only ever be appended, so existing codes keep their meaning.
+   *
+   * @return the type code
+   */
+  public byte code() {
+    return (byte) ordinal();
+  }
+
+  /**
+   * Looks up a transaction type by its journal code.
+   *
+   * @param code the type code
+   * @return the matching type
+   * @throws IllegalArgumentException if no type has the given code
+   */
+  public static TransactionType fromCode(byte code) {
+    if (code < 0 || code >= BY_CODE.length) {
+      throw new IllegalArgumentException("Unknown transaction type code: " + code);
+    }
+    return BY_CODE[code];
+  }
+}
@@ -0,0 +1,61 @@
+package gtpbms.bms.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.math.RoundingMode;
+
+/**
+ * SIMD computation of one month's interest over a column of balances, using the incubating
+ * Vector API. Only loaded by {@link InterestBatch} when the {@code jdk.incubator.vector} module
+ * is present.
+ *
+ * <p>The lanes are doubles because plain AVX2 has no 64-bit integer multiply or long/double
+ * conversion, while double multiply, divide and compare are native. Balances and products are
+ * whole numbers below 2<sup>52</sup>, which doubles hold exactly. The quotient is rounded to
+ * the nearest whole number, its exact remainder recomputed, and the result corrected to
+ * half-even rounding, so the output equals
+ * {@link Money#applyRate(long, long, int, RoundingMode)} with {@link RoundingMode#HALF_EVEN}.
+ */
+final class VectorInterestKernel {
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  /** Adding and then subtracting 1.5 * 2^52 rounds any |x| < 2^51 to the nearest even whole number. */
+  private static final double ROUND = 0x1.8p52;
+
+  private VectorInterestKernel() {
+    throw new AssertionError("Cannot instantiate VectorInterestKernel");
+  }
+
+  /**
+   * Computes one month's interest for each balance.
+   *
+   * @param balances the balances in pesewas, each with |balance * rate| below 2^52
+   * @param interest receives the interest in pesewas
+   * @param size the number of balances
+   * @param rateBasisPoints the annual rate in basis points
+   */
+  static void monthlyInterest(double[] balances, double[] interest, int size, long rateBasisPoints) {
+    double rate = rateBasisPoints;
+    double divisor = Money.BASIS_POINTS * 12.0;
+    int i = 0;
+    for (int bound = SPECIES.loopBound(size); i < bound; i += SPECIES.length()) {
+      DoubleVector product = DoubleVector.fromArray(SPECIES, balances, i).mul(rate);
+      DoubleVector quotient = product.div(divisor).add(ROUND).sub(ROUND);
+      DoubleVector twiceRemainder = product.sub(quotient.mul(divisor)).mul(2.0);
+
+      VectorMask<Double> odd = quotient.compare(VectorOperators.NE,
+          quotient.mul(0.5).add(ROUND).sub(ROUND).mul(2.0));
+      VectorMask<Double> up = twiceRemainder.compare(VectorOperators.GT, divisor)
+          .or(twiceRemainder.compare(VectorOperators.EQ, divisor).and(odd));
+      VectorMask<Double> down = twiceRemainder.compare(VectorOperators.LT, -divisor)
+          .or(twiceRemainder.compare(VectorOperators.EQ, -divisor).and(odd));
+      quotient.add(1.0, up).sub(1.0, down).intoArray(interest, i);
+    }
+    for (; i < size; i++) {
+      interest[i] = Money.applyRate((long) balances[i], rateBasisPoints, 12, RoundingMode.HALF_EVEN);
+    }
+  }
+}
@@ -0,0 +1,497 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.TransactionJournal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32C;
+
+/**
+ * Takes periodic binary snapshots of a {@link Bank} and recovers from the latest one plus the
+ * tail of the {@link WriteAheadLog}.
+ *
+ * <p>A snapshot is taken while writers keep running. The checkpointer first forces the log,
+ * starts a new log segment and notes where it begins. It then visits each account, holding
+ * the account's monitor only long enough to read its journal length. Batch registrations wait
+ * from the rotation until the last account is visited ({@link Bank#registrationLock()}).
+ * Every posting logged before the noted position is in the snapshot; some later postings may
+ * be too. Log replay skips what the snapshot already holds, so recovery is the snapshot plus
+ * every log record from the noted position onward. Once a snapshot is written, the log
+ * segments wholly before the oldest snapshot kept are deleted, so the log on disk spans
+ * roughly the last two snapshot intervals rather than the bank's whole history.
+ *
+ * <p>A snapshot holds each account's metadata and balance but not its journal. Journal
+ * entries go to a {@link JournalHistory} under the snapshot directory, and each checkpoint
+ * appends only the entries an account gained since the one before, so a snapshot costs the
+ * number of accounts plus the new postings rather than every posting again. Loading a
+ * snapshot reads no journal entries at all: each account is restored over its archived
+ * history, which it reads back the first time its journal is read or posted to. Recovery time
+ * therefore follows the number of accounts, not the number of postings.
+ *
+ * <p>Snapshot file layout (all fields big-endian):
+ * <pre>
+ *   long   magic "BMSSNAP3"
+ *   long   log position covered by the snapshot
+ *   int    expected account count (for sizing the bank)
+ *   per account:
+ *     byte   1 (account follows)
+ *     string account number, string holder, byte kind, long maturity epoch day,
+ *     int    last accrued interest period (proleptic month, or Integer.MIN_VALUE for none)
+ *     long   balance, int journal entries,
+ *     long   history index of the newest entry (-1 if none)
+ *   byte   0 (end of accounts)
+ *   long   account count
+ *   int    CRC32C of everything before it
+ * </pre>
+ * Snapshots written before the history existed ("BMSSNAP2") hold, in place of the balance and
+ * history index, the journal entries themselves as (long balance, long timestamp, byte type)
+ * after the entry count. They are still loaded, and the next checkpoint moves their entries
+ * to the history.
+ *
+ * <p>The history is forced before the snapshot that refers to it. Snapshots are written to a
+ * temporary file, forced and then renamed, so a crash never leaves a partial snapshot under a
+ * final name. An unreadable snapshot is skipped in favour of an older one.
+ */
+public final class Checkpointer implements Closeable {
+    private static final long MAGIC = 0x424D53534E415033L; // "BMSSNAP3"
+    private static final long FULL_COPY_MAGIC = 0x424D53534E415032L; // "BMSSNAP2"
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int SNAPSHOTS_KEPT = 2;
+    private static final int BUFFER_BYTES = 8 << 20;
+
+    private final Bank bank;
+    private final WriteAheadLog log;
+    private final Path directory;
+    private JournalHistory history;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a checkpointer for a bank whose changes are recorded in a log.
+     *
+     * @param bank the bank to snapshot
+     * @param log the log attached to the bank
+     * @param directory the directory that holds the snapshots
+     */
+    public Checkpointer(Bank bank, WriteAheadLog log, Path directory) {
+        this.bank = bank;
+        this.log = log;
+        this.directory = directory;
+    }
+
+    /**
+     * Rebuilds a bank from the newest readable snapshot in a directory and the log records
+     * written after it. With no snapshot, the whole log is replayed.
+     *
+     * @param directory the snapshot directory (need not exist)
+     * @param bankName the name of the bank
+     * @param log the open, not yet replayed log
+     * @return the recovered bank
+     * @throws IOException if the log cannot be replayed
+     */
+    public static Bank recover(Path directory, String bankName, WriteAheadLog log) throws IOException {
+        List<Path> snapshots = listSnapshots(directory);
+        if (!snapshots.isEmpty()) {
+            // Closing leaves the history mapped, so restored journals can still load from it
+            try (JournalHistory history = JournalHistory.open(directory)) {
+                for (Path snapshot : snapshots) {
+                    Loaded loaded;
+                    try {
+                        loaded = load(snapshot, bankName, history);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Skipping unreadable snapshot " + snapshot + ": " + e.getMessage());
+                        continue;
+                    }
+                    log.replayFrom(loaded.bank(), loaded.logPosition());
+                    return loaded.bank();
+                }
+            }
+        }
+
+        Bank bank = new Bank(bankName);
+        log.replay(bank);
+        return bank;
+    }
+
+    /**
+     * Takes a snapshot now, deletes all but the newest {@value #SNAPSHOTS_KEPT} snapshots and
+     * deletes the log segments the oldest of them covers.
+     *
+     * @return the snapshot file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized Path checkpoint() throws IOException {
+        Files.createDirectories(directory);
+        if (history == null) {
+            history = JournalHistory.open(directory);
+        }
+        Path target;
+        Path temporary;
+        Lock registrations = bank.registrationLock();
+        // No batch of accounts may be half logged and registered across the position and the visit
+        registrations.lock();
+        try {
+            long position = log.rotate();
+            target = directory.resolve(String.format("%s%020d%s", PREFIX, position, SUFFIX));
+            temporary = directory.resolve(target.getFileName() + ".tmp");
+            writeSnapshot(temporary, position);
+        } finally {
+            registrations.unlock();
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> snapshots = listSnapshots(directory);
+        for (int i = SNAPSHOTS_KEPT; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        // Recovery may fall back to the oldest snapshot kept, so its log tail must stay
+        List<Path> kept = snapshots.subList(0, Math.min(SNAPSHOTS_KEPT, snapshots.size()));
+        log.deleteSegmentsBefore(positionOf(kept.get(kept.size() - 1)));
+        return target;
+    }
+
+    /**
+     * Writes and forces a snapshot of every account, archiving new journal entries first.
+     */
+    private void writeSnapshot(Path temporary, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotOutput out = new SnapshotOutput(channel);
+            out.buffer.putLong(MAGIC);
+            out.buffer.putLong(position);
+            out.buffer.putInt(bank.getAccountCount());
+
+            long accounts = 0;
+            for (BankAccount account : bank.getAccounts()) {
+                if (writeAccount(out, account)) {
+                    accounts++;
+                }
+            }
+            history.force();
+
+            out.ensure(1 + Long.BYTES);
+            out.buffer.put((byte) 0);
+            out.buffer.putLong(accounts);
+            out.finish();
+            channel.force(true);
+        }
+    }
+
+    private boolean writeAccount(SnapshotOutput out, BankAccount account) throws IOException {
+        int entries;
+        long balance;
+        int accruedPeriod;
+        synchronized (account) {
+            if (bank.getAccount(account.getAccountNumber()) != account) {
+                return false; // registration was rolled back
+            }
+            entries = account.getTransactionCount();
+            balance = account.getBalance();
+            accruedPeriod = RecordCodec.encodePeriod(account.getLastAccruedPeriod());
+        }
+
+        // Entries below the length read under the monitor never change, so they are archived
+        // unlocked. Only this checkpointer archives, so the archived count cannot move meanwhile.
+        TransactionJournal journal = account.getJournal();
+        int archived = journal.archivedCount();
+        long reference = journal.archiveReference();
+        if (entries > archived) {
+            reference = history.append(journal, archived, entries, reference);
+            journal.archived(history, reference, entries);
+        }
+
+        byte[] number = RecordCodec.utf8(account.getAccountNumber());
+        byte[] holder = RecordCodec.utf8(account.getAccountHolder());
+        out.ensure(1 + 2 + number.length + 2 + holder.length + 1 + Long.BYTES * 3 + Integer.BYTES * 2);
+        out.buffer.put((byte) 1);
+        RecordCodec.putString(out.buffer, number);
+        RecordCodec.putString(out.buffer, holder);
+        out.buffer.put(RecordCodec.kindOf(account));
+        out.buffer.putLong(RecordCodec.maturityOf(account));
+        out.buffer.putInt(accruedPeriod);
+        out.buffer.putLong(balance);
+        out.buffer.putInt(entries);
+        out.buffer.putLong(reference);
+        return true;
+    }
+
+    /**
+     * A bank loaded from a snapshot, and the log position the snapshot covers.
+     *
+     * @param bank the loaded bank
+     * @param logPosition the offset of the first log record not covered by the snapshot
+     */
+    record Loaded(Bank bank, long logPosition) {
+    }
+
+    /**
+     * Loads a snapshot into a new bank, restoring each account over its archived history.
+     *
+     * @param snapshot the snapshot file
+     * @param bankName the name of the bank
+     * @param history the history kept with the snapshot
+     * @return the loaded bank and the log position the snapshot covers
+     * @throws IOException if the file cannot be read or fails validation
+     */
+    static Loaded load(Path snapshot, String bankName, JournalHistory history) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            SnapshotInput in = new SnapshotInput(channel);
+            in.require(Long.BYTES * 2 + Integer.BYTES);
+            long magic = in.buffer.getLong();
+            if (magic != MAGIC && magic != FULL_COPY_MAGIC) {
+                throw new IOException("Not a snapshot file");
+            }
+            long position = in.buffer.getLong();
+            Bank bank = new Bank(bankName, in.buffer.getInt());
+
+            long accounts = 0;
+            while (true) {
+                in.require(1);
+                if (in.buffer.get() == 0) {
+                    break;
+                }
+                in.require(2);
+                in.require(2 + Short.toUnsignedInt(in.buffer.getShort(in.buffer.position())));
+                String accountNumber = RecordCodec.getString(in.buffer);
+                in.require(2);
+                in.require(2 + Short.toUnsignedInt(in.buffer.getShort(in.buffer.position())));
+                String accountHolder = RecordCodec.getString(in.buffer);
+                in.require(1 + Long.BYTES + Integer.BYTES);
+                byte kind = in.buffer.get();
+                long maturityEpochDay = in.buffer.getLong();
+                int accruedPeriod = in.buffer.getInt();
+
+                BankAccount account = RecordCodec.newAccount(kind, accountHolder, accountNumber, maturityEpochDay);
+                account.restoreLastAccruedPeriod(RecordCodec.decodePeriod(accruedPeriod));
+                if (magic == MAGIC) {
+                    in.require(Long.BYTES * 2 + Integer.BYTES);
+                    long balance = in.buffer.getLong();
+                    int entries = in.buffer.getInt();
+                    long reference = in.buffer.getLong();
+                    if (entries < 0 || entries > 0 && (reference < 0 || reference >= history.size())) {
+                        throw new IOException("Snapshot refers to history that is not on disk: " + accountNumber);
+                    }
+                    account.restoreArchived(history, reference, entries, balance);
+                } else {
+                    in.require(Integer.BYTES);
+                    readEntries(in, account, in.buffer.getInt());
+                }
+                bank.addAccount(account);
+                accounts++;
+            }
+
+            in.require(Long.BYTES);
+            long expected = in.buffer.getLong();
+            int computed = in.checksum();
+            in.require(Integer.BYTES);
+            if (in.buffer.getInt() != computed || expected != accounts) {
+                throw new IOException("Snapshot checksum or account count mismatch");
+            }
+            return new Loaded(bank, position);
+        }
+    }
+
+    /**
+     * Reads the journal entries a full-copy snapshot holds for an account, decoding them
+     * straight into columns the journal then takes over, with a little room to grow.
+     */
+    private static void readEntries(SnapshotInput in, BankAccount account, int entries) throws IOException {
+        int capacity = RecordCodec.restoredCapacity(entries);
+        long[] balances = new long[capacity];
+        long[] timestamps = new long[capacity];
+        byte[] types = new byte[capacity];
+        int read = 0;
+        while (read < entries) {
+            in.require(RecordCodec.ENTRY_BYTES);
+            int batch = Math.min(entries - read, in.buffer.remaining() / RecordCodec.ENTRY_BYTES);
+            RecordCodec.getEntries(in.buffer, balances, timestamps, types, read, batch);
+            read += batch;
+        }
+        account.replayAll(balances, timestamps, types, entries);
+    }
+
+    /**
+     * Lists the snapshots in a directory, newest (highest log position) first.
+     *
+     * @param directory the snapshot directory
+     * @return the snapshot files, empty if the directory does not exist
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> listSnapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        snapshots.sort(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Gets the log position a snapshot covers, from its file name.
+     *
+     * @param snapshot the snapshot file
+     * @return the offset of the first log record not covered by the snapshot
+     */
+    private static long positionOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Takes a snapshot on a fixed period in a background thread.
+     *
+     * @param periodMillis the time between snapshots
+     * @throws IllegalStateException if the checkpointer is already running
+     */
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Checkpointer already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops periodic snapshots and closes the history. A snapshot in progress is allowed to
+     * finish.
+     *
+     * @throws IOException if the history cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (history != null) {
+                history.close();
+                history = null;
+            }
+        }
+    }
+
+    /**
+     * Buffered, checksummed output to a snapshot file.
+     */
+    private static final class SnapshotOutput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+
+        SnapshotOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /** Makes room for at least {@code bytes} more bytes in the buffer. */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        /** Appends the checksum and writes everything out. */
+        void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Buffered, checksummed input from a snapshot file.
+     */
+    private static final class SnapshotInput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+        private int checkedUpTo;
+
+        SnapshotInput(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        /** Makes at least {@code bytes} unread bytes available in the buffer. */
+        void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            checksumConsumed();
+            buffer.compact();
+            checkedUpTo = 0;
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Snapshot is truncated");
+                }
+            }
+            buffer.flip();
+        }
+
+        /** Returns the checksum of every byte consumed so far. */
+        int checksum() {
+            checksumConsumed();
+            return (int) crc.getValue();
+        }
+
+        private void checksumConsumed() {
+            int consumed = buffer.position();
+            if (consumed > checkedUpTo) {
+                crc.update(buffer.duplicate().position(checkedUpTo).limit(consumed));
+                checkedUpTo = consumed;
+            }
+        }
+    }
+}
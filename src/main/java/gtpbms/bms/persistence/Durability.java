@@ -0,0 +1,27 @@
+package gtpbms.bms.persistence;
+
+/**
+ * How hard the {@link WriteAheadLog} works to make a record durable before the operation
+ * that produced it returns.
+ */
+public enum Durability {
+
+    /**
+     * Every operation waits until its record has been forced to disk. Concurrent operations
+     * share a single {@code fsync} (group commit), so throughput grows with concurrency.
+     */
+    PER_OPERATION,
+
+    /**
+     * Records are written and forced to disk on a fixed interval. An operation returns as soon
+     * as its record is buffered, so a crash can lose up to one interval of operations.
+     */
+    INTERVAL,
+
+    /**
+     * Records are written to the file as soon as possible but never forced. A crash of the
+     * process loses nothing already written; a crash of the machine can lose whatever the
+     * operating system had not yet flushed.
+     */
+    ASYNC
+}
@@ -0,0 +1,100 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.JournalArchive;
+import gtpbms.bms.model.TransactionJournal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The journal entries of snapshotted accounts, kept in {@link TransactionSegments} next to
+ * the snapshots so that a snapshot need only record each account's entry count and the
+ * segment index of its newest archived entry.
+ *
+ * <p>Each checkpoint appends only the entries an account gained since the last one, linked to
+ * the account's previous newest entry, so reading a history back walks the links from the
+ * newest entry to the oldest. Entries are never removed: a snapshot still on disk may refer
+ * to any of them. Entries appended by a checkpoint that failed before its snapshot was
+ * written are simply never referred to.
+ */
+final class JournalHistory implements JournalArchive, Closeable {
+    /** Directory under the snapshot directory that holds the segments. */
+    static final String DIRECTORY = "history";
+
+    private final TransactionSegments segments;
+
+    private JournalHistory(TransactionSegments segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the history kept under a snapshot directory, creating it if needed.
+     *
+     * @param snapshotDirectory the snapshot directory
+     * @return the open history
+     * @throws IOException if the segments cannot be opened
+     */
+    static JournalHistory open(Path snapshotDirectory) throws IOException {
+        return new JournalHistory(TransactionSegments.open(snapshotDirectory.resolve(DIRECTORY),
+                TransactionSegments.DEFAULT_ENTRIES_PER_SEGMENT));
+    }
+
+    /**
+     * Appends a run of a journal's entries. Callers must serialise appends.
+     *
+     * @param journal the journal
+     * @param from the index of the first entry to append
+     * @param to one past the index of the last entry to append
+     * @param previous the reference of the journal's newest entry already archived, or -1
+     * @return the reference of the newest entry appended, or {@code previous} if the run is empty
+     * @throws IOException if a new segment cannot be created
+     */
+    long append(TransactionJournal journal, int from, int to, long previous) throws IOException {
+        for (int i = from; i < to; i++) {
+            // Entries are reached through their links, so the account record number is unused
+            previous = segments.append(0, journal.typeAt(i), journal.amountAt(i), journal.balanceAfterAt(i),
+                    journal.timestampMicrosAt(i), previous);
+        }
+        return previous;
+    }
+
+    @Override
+    public void read(long reference, int count, long[] balances, long[] timestamps, byte[] types) {
+        long index = reference;
+        for (int i = count - 1; i >= 0; i--) {
+            if (index < 0 || index >= segments.size()) {
+                throw new IllegalStateException("Archived history " + reference + " ends before " + count + " entries");
+            }
+            balances[i] = segments.balanceAfterAt(index);
+            timestamps[i] = segments.timestampMicrosAt(index);
+            types[i] = segments.typeAt(index).code();
+            index = segments.previousAt(index);
+        }
+    }
+
+    /**
+     * Writes appended entries out to the segment files.
+     */
+    void force() {
+        segments.force();
+    }
+
+    /**
+     * Gets the number of entries held, across all accounts.
+     *
+     * @return the entry count
+     */
+    long size() {
+        return segments.size();
+    }
+
+    /**
+     * Closes the segment files. Mapped segments stay readable until they are garbage
+     * collected, so journals restored from this history can still load their entries.
+     */
+    @Override
+    public void close() throws IOException {
+        segments.close();
+    }
+}
@@ -0,0 +1,410 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.Product;
+import gtpbms.bms.model.ProductCatalogue;
+import gtpbms.bms.model.TransactionType;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts a {@link MappedLedger} to and from a pair of JSON files for exchange with other
+ * systems.
+ *
+ * <p>The accounts file is an array of objects:
+ * <pre>
+ *   {"accountNumber": "NONA1001", "accountHolder": "Ama Mensah", "accountType": "SAVINGS",
+ *    "maturityDate": null, "balance": 1500.00, "transactionCount": 2}
+ * </pre>
+ * where {@code accountType} is the code of a {@link Product}, such as {@code SAVINGS},
+ * {@code CURRENT} or {@code FIXED_DEPOSIT}, and
+ * {@code maturityDate} is an ISO date for fixed deposits. The transactions file is an array of
+ * objects in posting order:
+ * <pre>
+ *   {"accountNumber": "NONA1001", "type": "DEPOSIT", "amount": 250.00,
+ *    "balanceAfter": 1750.00, "timestamp": "2025-01-02T09:15:00Z"}
+ * </pre>
+ * where {@code type} is a {@link TransactionType} name. Amounts are cedis with at most two
+ * decimal places. Both files are read and written as streams, so neither is held in memory
+ * as a whole; on import the accounts file is read twice, first to count the accounts the
+ * ledger must hold.
+ */
+public final class JsonInterchange {
+    // Stand for a balance or transaction count an account row leaves out, which is not checked
+    private static final long UNSTATED_BALANCE = Long.MIN_VALUE;
+    private static final int UNSTATED_COUNT = -1;
+
+    private JsonInterchange() {
+        throw new AssertionError("Cannot instantiate JsonInterchange");
+    }
+
+    /**
+     * Writes a ledger out as JSON.
+     *
+     * @param ledger the ledger to export
+     * @param accountsJson the accounts file to write
+     * @param transactionsJson the transactions file to write
+     * @throws IOException if a file cannot be written
+     */
+    public static void exportJson(MappedLedger ledger, Path accountsJson, Path transactionsJson) throws IOException {
+        MappedAccountFile accounts = ledger.accounts();
+        StringBuilder line = new StringBuilder(256);
+        try (Writer out = Files.newBufferedWriter(accountsJson, StandardCharsets.UTF_8)) {
+            out.write('[');
+            for (int record = 0, count = accounts.size(); record < count; record++) {
+                line.setLength(0);
+                line.append(record == 0 ? "\n  " : ",\n  ");
+                line.append("{\"accountNumber\": ");
+                appendString(line, accounts.accountNumber(record));
+                line.append(", \"accountHolder\": ");
+                appendString(line, accounts.accountHolder(record));
+                line.append(", \"accountType\": \"").append(typeName(accounts.kind(record)));
+                LocalDate maturity = accounts.maturityDate(record);
+                line.append("\", \"maturityDate\": ").append(maturity == null ? "null" : "\"" + maturity + "\"");
+                line.append(", \"balance\": ");
+                Money.appendPlain(line, accounts.balance(record));
+                line.append(", \"transactionCount\": ").append(accounts.transactionCount(record)).append('}');
+                out.append(line);
+            }
+            out.write("\n]\n");
+        }
+
+        TransactionSegments transactions = ledger.transactions();
+        try (Writer out = Files.newBufferedWriter(transactionsJson, StandardCharsets.UTF_8)) {
+            out.write('[');
+            for (long entry = 0, count = transactions.size(); entry < count; entry++) {
+                line.setLength(0);
+                line.append(entry == 0 ? "\n  " : ",\n  ");
+                line.append("{\"accountNumber\": ");
+                appendString(line, accounts.accountNumber(transactions.accountAt(entry)));
+                line.append(", \"type\": \"").append(transactions.typeAt(entry).name());
+                line.append("\", \"amount\": ");
+                Money.appendPlain(line, transactions.amountAt(entry));
+                line.append(", \"balanceAfter\": ");
+                Money.appendPlain(line, transactions.balanceAfterAt(entry));
+                line.append(", \"timestamp\": \"")
+                        .append(Instant.EPOCH.plus(transactions.timestampMicrosAt(entry), ChronoUnit.MICROS))
+                        .append("\"}");
+                out.append(line);
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    /**
+     * Reads a pair of JSON files into a new ledger.
+     *
+     * <p>Every transaction must follow from the previous balance of its account, and each
+     * account's stated balance and transaction count must match its transactions.
+     *
+     * @param accountsJson the accounts file
+     * @param transactionsJson the transactions file
+     * @param directory the directory for the new ledger
+     * @return the open ledger
+     * @throws IOException if a file cannot be read, is malformed or is inconsistent
+     */
+    public static MappedLedger importJson(Path accountsJson, Path transactionsJson, Path directory)
+            throws IOException {
+        int accountCount = 0;
+        try (JsonReader in = new JsonReader(accountsJson)) {
+            in.beginArray();
+            while (in.nextElement()) {
+                in.skipObject();
+                accountCount++;
+            }
+        }
+
+        // The stated figures of each record, checked once every transaction has been posted
+        long[] expectedBalances = new long[accountCount];
+        int[] expectedCounts = new int[accountCount];
+        MappedLedger ledger = MappedLedger.create(directory, Math.max(1, accountCount));
+        try {
+            try (JsonReader in = new JsonReader(accountsJson)) {
+                in.beginArray();
+                for (int record = 0; in.nextElement(); record++) {
+                    if (record == accountCount) {
+                        throw new IOException("Accounts file changed while it was read: " + accountsJson);
+                    }
+                    Map<String, String> row = in.readObject();
+                    String accountNumber = required(row, "accountNumber");
+                    String maturity = row.get("maturityDate");
+                    String balance = row.get("balance");
+                    String transactionCount = row.get("transactionCount");
+                    try {
+                        ledger.openAccount(accountNumber, required(row, "accountHolder"),
+                                kindOf(required(row, "accountType")),
+                                maturity == null ? RecordCodec.NO_MATURITY : LocalDate.parse(maturity).toEpochDay());
+                        expectedBalances[record] = balance == null ? UNSTATED_BALANCE : Money.parse(balance);
+                        expectedCounts[record] = transactionCount == null
+                                ? UNSTATED_COUNT : Integer.parseInt(transactionCount);
+                    } catch (IllegalArgumentException | IllegalStateException | DateTimeException
+                             | ArithmeticException e) {
+                        throw new IOException("Invalid account " + accountNumber + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+
+            try (JsonReader in = new JsonReader(transactionsJson)) {
+                in.beginArray();
+                while (in.nextElement()) {
+                    Map<String, String> row = in.readObject();
+                    String accountNumber = required(row, "accountNumber");
+                    int record = ledger.find(accountNumber);
+                    if (record < 0) {
+                        throw new IOException("Transaction for unknown account " + accountNumber);
+                    }
+                    try {
+                        Instant timestamp = Instant.parse(required(row, "timestamp"));
+                        ledger.post(record, TransactionType.valueOf(required(row, "type")),
+                                Money.parse(required(row, "amount")), Money.parse(required(row, "balanceAfter")),
+                                ChronoUnit.MICROS.between(Instant.EPOCH, timestamp));
+                    } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+                        throw new IOException("Invalid transaction for account " + accountNumber + ": "
+                                + e.getMessage(), e);
+                    }
+                }
+            }
+
+            MappedAccountFile accounts = ledger.accounts();
+            for (int record = 0; record < accounts.size(); record++) {
+                if ((expectedBalances[record] != UNSTATED_BALANCE
+                                && expectedBalances[record] != accounts.balance(record))
+                        || (expectedCounts[record] != UNSTATED_COUNT
+                                && expectedCounts[record] != accounts.transactionCount(record))) {
+                    throw new IOException("Account " + accounts.accountNumber(record)
+                            + " does not match its transactions");
+                }
+            }
+            return ledger;
+        } catch (IOException | RuntimeException e) {
+            ledger.close();
+            throw e;
+        }
+    }
+
+    private static String required(Map<String, String> row, String key) throws IOException {
+        String value = row.get(key);
+        if (value == null) {
+            throw new IOException("Missing \"" + key + "\" in " + row);
+        }
+        return value;
+    }
+
+    private static String typeName(byte kind) {
+        return ProductCatalogue.product(kind).getCode();
+    }
+
+    private static byte kindOf(String typeName) {
+        return (byte) ProductCatalogue.current().forCode(typeName).getId();
+    }
+
+    /**
+     * Appends a value as a quoted JSON string, escaping quotes, backslashes and control
+     * characters. The export files and the HTTP server's responses are written with it.
+     *
+     * @param out the builder to append to
+     * @param value the string to quote
+     */
+    public static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Streaming reader for an array of flat JSON objects. Values are returned as text: strings
+     * unescaped, numbers and booleans as written, and null as {@code null}.
+     */
+    private static final class JsonReader implements AutoCloseable {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int next;
+        private long offset;
+        private boolean first = true;
+
+        JsonReader(Path file) throws IOException {
+            this.in = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8);
+            this.next = readChar();
+        }
+
+        void beginArray() throws IOException {
+            expect('[');
+        }
+
+        /** Moves to the next array element, returning false at the end of the array. */
+        boolean nextElement() throws IOException {
+            skipWhitespace();
+            if (next == ']') {
+                read();
+                return false;
+            }
+            if (!first) {
+                expect(',');
+            }
+            first = false;
+            return true;
+        }
+
+        Map<String, String> readObject() throws IOException {
+            Map<String, String> object = new HashMap<>();
+            readObject(object);
+            return object;
+        }
+
+        /** Reads past an object, checking that it is well formed but keeping none of it. */
+        void skipObject() throws IOException {
+            readObject(null);
+        }
+
+        private void readObject(Map<String, String> object) throws IOException {
+            expect('{');
+            skipWhitespace();
+            if (next == '}') {
+                read();
+                return;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = readString();
+                expect(':');
+                skipWhitespace();
+                String value = readValue();
+                if (object != null) {
+                    object.put(key, value);
+                }
+                skipWhitespace();
+                if (next != ',') {
+                    break;
+                }
+                read();
+            }
+            expect('}');
+        }
+
+        private String readValue() throws IOException {
+            if (next == '"') {
+                return readString();
+            }
+            StringBuilder literal = new StringBuilder();
+            while (next == '-' || next == '+' || next == '.' || Character.isLetterOrDigit(next)) {
+                literal.append((char) read());
+            }
+            String value = literal.toString();
+            if (value.isEmpty()) {
+                throw malformed("a value");
+            }
+            return value.equals("null") ? null : value;
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (next != '"') {
+                int c = read();
+                if (c < 0) {
+                    throw malformed("'\"'");
+                }
+                if (c == '\\') {
+                    int escape = read();
+                    switch (escape) {
+                        case 'n' -> value.append('\n');
+                        case 'r' -> value.append('\r');
+                        case 't' -> value.append('\t');
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case 'u' -> {
+                            char[] hex = new char[4];
+                            for (int i = 0; i < hex.length; i++) {
+                                hex[i] = (char) read();
+                            }
+                            try {
+                                value.append((char) Integer.parseInt(new String(hex), 16));
+                            } catch (NumberFormatException e) {
+                                throw malformed("a unicode escape");
+                            }
+                        }
+                        case '"', '\\', '/' -> value.append((char) escape);
+                        default -> throw malformed("an escape sequence");
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            }
+            read();
+            return value.toString();
+        }
+
+        private void expect(char c) throws IOException {
+            skipWhitespace();
+            if (next != c) {
+                throw malformed("'" + c + "'");
+            }
+            read();
+        }
+
+        private void skipWhitespace() throws IOException {
+            while (next == ' ' || next == '\n' || next == '\r' || next == '\t') {
+                read();
+            }
+        }
+
+        private int read() throws IOException {
+            int c = next;
+            next = readChar();
+            offset++;
+            return c;
+        }
+
+        // Buffered here rather than by a BufferedReader, whose read() locks on every character
+        private int readChar() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        private IOException malformed(String expected) {
+            return new IOException("Malformed JSON: expected " + expected + " at character " + offset);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
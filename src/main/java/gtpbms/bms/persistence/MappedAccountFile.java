@@ -0,0 +1,374 @@
+package gtpbms.bms.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A memory-mapped file of fixed-size account records with a hash index, so an account can be
+ * found by number and read in place without building any objects.
+ *
+ * <p>File layout (all fields big-endian):
+ * <pre>
+ *   header (64 bytes):
+ *     long magic "BMSACCT1", int index slots, int record capacity, int record count,
+ *     int padding, long transaction entries applied
+ *   index: one int per slot, 0 if empty or the record number + 1 (linear probing)
+ *   records (128 bytes each):
+ *     byte number length, 31 bytes ASCII account number
+ *     byte holder length, 63 bytes UTF-8 account holder
+ *     byte kind, 3 bytes padding, int transaction count
+ *     long maturity epoch day, long balance, long newest transaction entry (-1 if none)
+ * </pre>
+ * The capacity is fixed when the file is created. Writes must be serialised by the caller;
+ * reads may run alongside a writer.
+ */
+public final class MappedAccountFile implements Closeable {
+    /** Longest account number that fits in a record. */
+    public static final int MAX_NUMBER_LENGTH = 31;
+
+    /** Longest UTF-8 encoded account holder that fits in a record. */
+    public static final int MAX_HOLDER_BYTES = 63;
+
+    private static final long MAGIC = 0x424D534143435431L; // "BMSACCT1"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOTS_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int APPLIED_OFFSET = 24;
+
+    private static final int RECORD_BYTES = 128;
+    private static final int NUMBER = 0;
+    private static final int HOLDER = 32;
+    private static final int KIND = 96;
+    private static final int TRANSACTION_COUNT = 100;
+    private static final int MATURITY = 104;
+    private static final int BALANCE = 112;
+    private static final int NEWEST_ENTRY = 120;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int slotMask;
+    private final int capacity;
+    private final int recordsOffset;
+    private volatile int size;
+
+    private MappedAccountFile(FileChannel channel, MappedByteBuffer map) {
+        this.channel = channel;
+        this.map = map;
+        int slots = map.getInt(SLOTS_OFFSET);
+        this.slotMask = slots - 1;
+        this.capacity = map.getInt(CAPACITY_OFFSET);
+        this.recordsOffset = HEADER_BYTES + slots * Integer.BYTES;
+        this.size = map.getInt(COUNT_OFFSET);
+    }
+
+    /**
+     * Creates a new, empty account file.
+     *
+     * @param file the file to create
+     * @param capacity the number of accounts the file can hold
+     * @return the open file
+     * @throws IllegalArgumentException if the capacity is not positive or the file would exceed 2 GiB
+     * @throws IOException if the file exists or cannot be created
+     */
+    static MappedAccountFile create(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        // Keep the index at most three-quarters full
+        int slots = 2;
+        while (slots < capacity + capacity / 3 + 1) {
+            slots <<= 1;
+        }
+        long fileBytes = HEADER_BYTES + (long) slots * Integer.BYTES + (long) capacity * RECORD_BYTES;
+        if (fileBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many accounts for one file: " + capacity);
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            map.putLong(0, MAGIC);
+            map.putInt(SLOTS_OFFSET, slots);
+            map.putInt(CAPACITY_OFFSET, capacity);
+            map.putInt(COUNT_OFFSET, 0);
+            map.putLong(APPLIED_OFFSET, 0);
+            return new MappedAccountFile(channel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing account file.
+     *
+     * @param file the file
+     * @return the open file
+     * @throws IOException if the file cannot be read or is not an account file
+     */
+    static MappedAccountFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES || fileBytes > Integer.MAX_VALUE) {
+                throw new IOException("Not an account file: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            int slots = map.getInt(SLOTS_OFFSET);
+            int capacity = map.getInt(CAPACITY_OFFSET);
+            int count = map.getInt(COUNT_OFFSET);
+            if (map.getLong(0) != MAGIC || Integer.bitCount(slots) != 1 || capacity <= 0 || count < 0
+                    || count > capacity
+                    || fileBytes != HEADER_BYTES + (long) slots * Integer.BYTES + (long) capacity * RECORD_BYTES) {
+                throw new IOException("Not an account file or corrupt header: " + file);
+            }
+            return new MappedAccountFile(channel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds an account by number, reading the index and records in place.
+     *
+     * @param accountNumber the account number
+     * @return the record number, or -1 if there is no such account
+     */
+    public int find(String accountNumber) {
+        if (accountNumber.length() > MAX_NUMBER_LENGTH) {
+            return -1;
+        }
+        for (int slot = slotOf(accountNumber); ; slot = (slot + 1) & slotMask) {
+            int entry = map.getInt(HEADER_BYTES + slot * Integer.BYTES);
+            if (entry == 0) {
+                return -1;
+            }
+            VarHandle.acquireFence();
+            if (numberEquals(entry - 1, accountNumber)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds an account record.
+     *
+     * @param accountNumber the account number (ASCII, at most {@value #MAX_NUMBER_LENGTH} characters)
+     * @param accountHolder the account holder (at most {@value #MAX_HOLDER_BYTES} bytes of UTF-8)
+     * @param kind the account kind code
+     * @param maturityEpochDay the maturity date as an epoch day, or {@link RecordCodec#NO_MATURITY}
+     * @return the new record number
+     * @throws IllegalArgumentException if a field does not fit or the account number already exists
+     * @throws IllegalStateException if the file is full
+     */
+    int add(String accountNumber, String accountHolder, byte kind, long maturityEpochDay) {
+        if (accountNumber.isEmpty() || accountNumber.length() > MAX_NUMBER_LENGTH
+                || !StandardCharsets.US_ASCII.newEncoder().canEncode(accountNumber)) {
+            throw new IllegalArgumentException("Account number must be 1 to " + MAX_NUMBER_LENGTH
+                    + " ASCII characters: " + accountNumber);
+        }
+        byte[] holder = accountHolder.getBytes(StandardCharsets.UTF_8);
+        if (holder.length > MAX_HOLDER_BYTES) {
+            throw new IllegalArgumentException("Account holder too long to store: " + accountHolder);
+        }
+
+        int slot = slotOf(accountNumber);
+        for (int entry; (entry = map.getInt(HEADER_BYTES + slot * Integer.BYTES)) != 0; slot = (slot + 1) & slotMask) {
+            if (numberEquals(entry - 1, accountNumber)) {
+                throw new IllegalArgumentException("Account number already exists: " + accountNumber);
+            }
+        }
+        int record = size;
+        if (record == capacity) {
+            throw new IllegalStateException("Account file is full: " + capacity + " accounts");
+        }
+
+        int base = recordOffset(record);
+        map.put(base + NUMBER, (byte) accountNumber.length());
+        for (int i = 0; i < accountNumber.length(); i++) {
+            map.put(base + NUMBER + 1 + i, (byte) accountNumber.charAt(i));
+        }
+        map.put(base + HOLDER, (byte) holder.length);
+        map.put(base + HOLDER + 1, holder);
+        map.put(base + KIND, kind);
+        map.putInt(base + TRANSACTION_COUNT, 0);
+        map.putLong(base + MATURITY, maturityEpochDay);
+        map.putLong(base + BALANCE, 0);
+        map.putLong(base + NEWEST_ENTRY, -1);
+
+        // Publish the record and the count before the index slot that points to it, so a reader
+        // that finds the record can read it
+        map.putInt(COUNT_OFFSET, record + 1);
+        size = record + 1;
+        VarHandle.releaseFence();
+        map.putInt(HEADER_BYTES + slot * Integer.BYTES, record + 1);
+        return record;
+    }
+
+    /**
+     * Records a posting against an account.
+     *
+     * @param record the record number
+     * @param balance the balance after the posting
+     * @param entry the transaction entry of the posting
+     */
+    void applyPosting(int record, long balance, long entry) {
+        int base = recordOffset(Objects.checkIndex(record, size));
+        map.putLong(base + BALANCE, balance);
+        map.putInt(base + TRANSACTION_COUNT, map.getInt(base + TRANSACTION_COUNT) + 1);
+        map.putLong(base + NEWEST_ENTRY, entry);
+    }
+
+    /** Returns how many transaction entries have been applied to the records. */
+    long appliedEntries() {
+        return map.getLong(APPLIED_OFFSET);
+    }
+
+    /** Sets how many transaction entries have been applied to the records. */
+    void setAppliedEntries(long entries) {
+        map.putLong(APPLIED_OFFSET, entries);
+    }
+
+    /**
+     * Gets the number of accounts in the file.
+     *
+     * @return the record count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of accounts the file can hold.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the account number of a record.
+     *
+     * @param record the record number
+     * @return the account number
+     */
+    public String accountNumber(int record) {
+        int base = recordOffset(Objects.checkIndex(record, size));
+        byte[] bytes = new byte[map.get(base + NUMBER)];
+        map.get(base + NUMBER + 1, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets the account holder of a record.
+     *
+     * @param record the record number
+     * @return the account holder
+     */
+    public String accountHolder(int record) {
+        int base = recordOffset(Objects.checkIndex(record, size));
+        byte[] bytes = new byte[map.get(base + HOLDER)];
+        map.get(base + HOLDER + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Gets the account kind code of a record. */
+    byte kind(int record) {
+        return map.get(recordOffset(Objects.checkIndex(record, size)) + KIND);
+    }
+
+    /** Gets the maturity epoch day of a record, or {@link RecordCodec#NO_MATURITY}. */
+    long maturityEpochDay(int record) {
+        return map.getLong(recordOffset(Objects.checkIndex(record, size)) + MATURITY);
+    }
+
+    /**
+     * Gets the maturity date of a record.
+     *
+     * @param record the record number
+     * @return the maturity date, or null if the account does not have one
+     */
+    public LocalDate maturityDate(int record) {
+        long epochDay = maturityEpochDay(record);
+        return epochDay == RecordCodec.NO_MATURITY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Gets the balance of a record.
+     *
+     * @param record the record number
+     * @return the balance in pesewas
+     */
+    public long balance(int record) {
+        return map.getLong(recordOffset(Objects.checkIndex(record, size)) + BALANCE);
+    }
+
+    /**
+     * Gets the number of transactions posted to a record.
+     *
+     * @param record the record number
+     * @return the transaction count
+     */
+    public int transactionCount(int record) {
+        return map.getInt(recordOffset(Objects.checkIndex(record, size)) + TRANSACTION_COUNT);
+    }
+
+    /**
+     * Gets the newest transaction entry of a record. Older entries are reached through
+     * {@link TransactionSegments#previousAt(long)}.
+     *
+     * @param record the record number
+     * @return the entry index, or -1 if the account has no transactions
+     */
+    public long newestEntry(int record) {
+        return map.getLong(recordOffset(Objects.checkIndex(record, size)) + NEWEST_ENTRY);
+    }
+
+    /**
+     * Writes changes to the mapped pages out to the file.
+     */
+    public void force() {
+        map.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int slotOf(String accountNumber) {
+        // String caches its hash, so probing costs no pass over the characters
+        int hash = accountNumber.hashCode() * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & slotMask;
+    }
+
+    private int recordOffset(int record) {
+        return recordsOffset + record * RECORD_BYTES;
+    }
+
+    private boolean numberEquals(int record, String accountNumber) {
+        int base = recordOffset(record);
+        int length = accountNumber.length();
+        if (map.get(base + NUMBER) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (map.get(base + NUMBER + 1 + i) != accountNumber.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,227 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.TransactionJournal;
+import gtpbms.bms.model.TransactionType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Accounts and their transactions held in memory-mapped files: a {@link MappedAccountFile} of
+ * fixed-size account records and {@link TransactionSegments} with every posting.
+ *
+ * <p>Lookups and reads go straight to the mapped pages, so a large ledger can be queried
+ * without loading it into a {@link Bank}. The ledger is an export and lookup format; the
+ * {@link WriteAheadLog} remains the record of changes made by the running bank.
+ *
+ * <p>Directory layout: {@code accounts.dat} and {@code transactions/transactions-NNNNN.seg}.
+ */
+public final class MappedLedger implements Closeable {
+    private static final String ACCOUNTS_FILE = "accounts.dat";
+    private static final String TRANSACTIONS_DIRECTORY = "transactions";
+
+    private final MappedAccountFile accounts;
+    private final TransactionSegments transactions;
+
+    private MappedLedger(MappedAccountFile accounts, TransactionSegments transactions) {
+        this.accounts = accounts;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Creates an empty ledger in a new directory.
+     *
+     * @param directory the directory, which must not already hold a ledger
+     * @param accountCapacity the number of accounts the ledger can hold
+     * @return the open ledger
+     * @throws IOException if the files cannot be created
+     */
+    public static MappedLedger create(Path directory, int accountCapacity) throws IOException {
+        Files.createDirectories(directory);
+        MappedAccountFile accounts = MappedAccountFile.create(directory.resolve(ACCOUNTS_FILE), accountCapacity);
+        try {
+            return new MappedLedger(accounts, TransactionSegments.open(directory.resolve(TRANSACTIONS_DIRECTORY),
+                    TransactionSegments.DEFAULT_ENTRIES_PER_SEGMENT));
+        } catch (IOException | RuntimeException e) {
+            accounts.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing ledger. Transaction entries that reached the segments but not the
+     * account records before the ledger was last closed are applied to the records.
+     *
+     * @param directory the ledger directory
+     * @return the open ledger
+     * @throws IOException if the files cannot be read or are not a ledger
+     */
+    public static MappedLedger open(Path directory) throws IOException {
+        MappedAccountFile accounts = MappedAccountFile.open(directory.resolve(ACCOUNTS_FILE));
+        try {
+            TransactionSegments transactions = TransactionSegments.open(directory.resolve(TRANSACTIONS_DIRECTORY),
+                    TransactionSegments.DEFAULT_ENTRIES_PER_SEGMENT);
+            MappedLedger ledger = new MappedLedger(accounts, transactions);
+            for (long entry = accounts.appliedEntries(); entry < transactions.size(); entry++) {
+                int record = transactions.accountAt(entry);
+                if (accounts.newestEntry(record) < entry) {
+                    accounts.applyPosting(record, transactions.balanceAfterAt(entry), entry);
+                }
+            }
+            accounts.setAppliedEntries(transactions.size());
+            return ledger;
+        } catch (IOException | RuntimeException e) {
+            accounts.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the accounts of a bank and their full histories to a new ledger.
+     *
+     * <p>Each account is copied up to the journal length read under its monitor, so the export
+     * can run while the bank is in use. Entries are grouped by account rather than in global
+     * time order.
+     *
+     * @param bank the bank to export
+     * @param directory the directory for the new ledger
+     * @return the open ledger
+     * @throws IOException if the files cannot be written
+     */
+    public static MappedLedger export(Bank bank, Path directory) throws IOException {
+        MappedLedger ledger = create(directory, Math.max(1, bank.getAccountCount()));
+        try {
+            for (BankAccount account : bank.getAccounts()) {
+                int entries;
+                synchronized (account) {
+                    entries = account.getTransactionCount();
+                }
+                int record = ledger.openAccount(account.getAccountNumber(), account.getAccountHolder(),
+                        RecordCodec.kindOf(account), RecordCodec.maturityOf(account));
+                TransactionJournal journal = account.getJournal();
+                for (int i = 0; i < entries; i++) {
+                    ledger.post(record, journal.typeAt(i), journal.amountAt(i), journal.balanceAfterAt(i),
+                            journal.timestampMicrosAt(i));
+                }
+            }
+            return ledger;
+        } catch (IOException | RuntimeException e) {
+            ledger.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds an account by number without loading it.
+     *
+     * @param accountNumber the account number
+     * @return the record number, or -1 if there is no such account
+     */
+    public int find(String accountNumber) {
+        return accounts.find(accountNumber);
+    }
+
+    /**
+     * Gets the account records.
+     *
+     * @return the account file
+     */
+    public MappedAccountFile accounts() {
+        return accounts;
+    }
+
+    /**
+     * Gets the transaction entries.
+     *
+     * @return the transaction segments
+     */
+    public TransactionSegments transactions() {
+        return transactions;
+    }
+
+    /**
+     * Adds an account with no transactions.
+     *
+     * @param accountNumber the account number
+     * @param accountHolder the account holder
+     * @param kind the account kind code
+     * @param maturityEpochDay the maturity date as an epoch day, or {@link RecordCodec#NO_MATURITY}
+     * @return the record number
+     */
+    synchronized int openAccount(String accountNumber, String accountHolder, byte kind, long maturityEpochDay) {
+        return accounts.add(accountNumber, accountHolder, kind, maturityEpochDay);
+    }
+
+    /**
+     * Appends a posting to an account.
+     *
+     * @param record the account record number
+     * @param type the transaction type
+     * @param amount the signed amount
+     * @param balanceAfter the balance after the posting
+     * @param timestampMicros the timestamp in epoch microseconds
+     * @return the entry index
+     * @throws IllegalArgumentException if the balance after does not follow from the amount
+     * @throws IOException if a new segment cannot be created
+     */
+    synchronized long post(int record, TransactionType type, long amount, long balanceAfter, long timestampMicros)
+            throws IOException {
+        if (Money.add(accounts.balance(record), amount) != balanceAfter) {
+            throw new IllegalArgumentException("Balance " + Money.format(balanceAfter) + " does not follow from "
+                    + Money.format(accounts.balance(record)) + " and " + Money.format(amount)
+                    + " for account " + accounts.accountNumber(record));
+        }
+        long entry = transactions.append(record, type, amount, balanceAfter, timestampMicros,
+                accounts.newestEntry(record));
+        accounts.applyPosting(record, balanceAfter, entry);
+        accounts.setAppliedEntries(entry + 1);
+        return entry;
+    }
+
+    /**
+     * Loads every account and its history into a new bank.
+     *
+     * @param bankName the name of the bank
+     * @return the loaded bank
+     */
+    public Bank toBank(String bankName) {
+        int count = accounts.size();
+        BankAccount[] loaded = new BankAccount[count];
+        for (int record = 0; record < count; record++) {
+            loaded[record] = RecordCodec.newAccount(accounts.kind(record), accounts.accountHolder(record),
+                    accounts.accountNumber(record), accounts.maturityEpochDay(record));
+        }
+        for (long entry = 0, entries = transactions.size(); entry < entries; entry++) {
+            loaded[transactions.accountAt(entry)].replay(transactions.typeAt(entry),
+                    transactions.balanceAfterAt(entry), transactions.timestampMicrosAt(entry));
+        }
+
+        Bank bank = new Bank(bankName, count);
+        for (BankAccount account : loaded) {
+            bank.addAccount(account);
+        }
+        return bank;
+    }
+
+    /**
+     * Writes changes to the mapped pages out to the files, transactions first.
+     */
+    public void force() {
+        transactions.force();
+        accounts.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            transactions.close();
+        } finally {
+            accounts.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.FixedDepositAccount;
+import gtpbms.bms.model.ProductCatalogue;
+import gtpbms.bms.model.TransactionJournal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoField;
+
+/**
+ * Binary encodings shared by the persistence formats: account kinds, maturity dates,
+ * interest periods, journal entries and strings. An account's kind is the id of its
+ * {@link gtpbms.bms.model.Product}; the standard products keep the codes 1, 2 and 3 that
+ * savings, current and fixed deposit accounts were stored with before products were
+ * configurable.
+ */
+final class RecordCodec {
+
+    /** Stored in place of a maturity date for accounts that do not have one. */
+    static final long NO_MATURITY = Long.MIN_VALUE;
+
+    /** Stored in place of an interest period for accounts never credited by period. */
+    static final int NO_PERIOD = Integer.MIN_VALUE;
+
+    /** Encoded size of one journal entry: balance, timestamp and type code. */
+    static final int ENTRY_BYTES = Long.BYTES * 2 + 1;
+
+    private RecordCodec() {
+        throw new AssertionError("Cannot instantiate RecordCodec");
+    }
+
+    /**
+     * Gets the stored kind code of an account.
+     *
+     * @param account the account
+     * @return the kind code, the account's product id
+     */
+    static byte kindOf(BankAccount account) {
+        return (byte) account.getProductId();
+    }
+
+    /**
+     * Gets the stored maturity date of an account.
+     *
+     * @param account the account
+     * @return the maturity date as an epoch day, or {@link #NO_MATURITY}
+     */
+    static long maturityOf(BankAccount account) {
+        return account instanceof FixedDepositAccount fd ? fd.getMaturityDate().toEpochDay() : NO_MATURITY;
+    }
+
+    /**
+     * Creates an empty account of a stored kind, ready to be replayed.
+     *
+     * @param kind the kind code, a product id
+     * @param accountHolder the account holder
+     * @param accountNumber the account number
+     * @param maturityEpochDay the maturity date as an epoch day, or {@link #NO_MATURITY}
+     * @return the empty account
+     * @throws IllegalArgumentException if the catalogue in use has no such product
+     */
+    static BankAccount newAccount(byte kind, String accountHolder, String accountNumber, long maturityEpochDay) {
+        LocalDate maturityDate = maturityEpochDay == NO_MATURITY ? null : LocalDate.ofEpochDay(maturityEpochDay);
+        return ProductCatalogue.product(kind).restore(accountHolder, accountNumber, maturityDate);
+    }
+
+    /**
+     * Encodes an interest period as its proleptic month.
+     *
+     * @param period the period, or null
+     * @return the encoded period, or {@link #NO_PERIOD}
+     */
+    static int encodePeriod(YearMonth period) {
+        return period == null ? NO_PERIOD : Math.toIntExact(period.getLong(ChronoField.PROLEPTIC_MONTH));
+    }
+
+    /**
+     * Decodes an interest period written by {@link #encodePeriod(YearMonth)}.
+     *
+     * @param period the encoded period
+     * @return the period, or null for {@link #NO_PERIOD}
+     */
+    static YearMonth decodePeriod(int period) {
+        return period == NO_PERIOD ? null : YearMonth.of(Math.floorDiv(period, 12), Math.floorMod(period, 12) + 1);
+    }
+
+    /**
+     * Writes a run of a journal's entries as (balance, timestamp, type) triples.
+     *
+     * @param buffer the buffer to write to
+     * @param journal the journal
+     * @param from the index of the first entry to write
+     * @param count the number of entries to write
+     */
+    static void putEntries(ByteBuffer buffer, TransactionJournal journal, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            buffer.putLong(journal.balanceAfterAt(i));
+            buffer.putLong(journal.timestampMicrosAt(i));
+            buffer.put(journal.typeAt(i).code());
+        }
+    }
+
+    /**
+     * Reads entries written by {@link #putEntries(ByteBuffer, TransactionJournal, int, int)} and
+     * replays them onto an account that has no postings yet, as its whole history.
+     *
+     * @param buffer the buffer to read from
+     * @param account the account to rebuild
+     * @param count the number of entries to read
+     */
+    static void replayEntries(ByteBuffer buffer, BankAccount account, int count) {
+        int capacity = restoredCapacity(count);
+        long[] balances = new long[capacity];
+        long[] timestamps = new long[capacity];
+        byte[] types = new byte[capacity];
+        getEntries(buffer, balances, timestamps, types, 0, count);
+        account.replayAll(balances, timestamps, types, count);
+    }
+
+    /**
+     * Gets the column length to restore a journal of a given size into, leaving room for the
+     * postings that usually follow a restart so they do not copy the columns straight away.
+     *
+     * @param entries the number of entries restored
+     * @return the column length
+     */
+    static int restoredCapacity(int entries) {
+        return entries + (entries >> 3) + 2;
+    }
+
+    /**
+     * Reads entries written by {@link #putEntries(ByteBuffer, TransactionJournal, int, int)} into
+     * columns, for a history that arrives in more than one buffer.
+     *
+     * @param buffer the buffer to read from
+     * @param balances the balance column
+     * @param timestamps the timestamp column
+     * @param types the type code column
+     * @param from the index of the first entry to fill
+     * @param count the number of entries to read
+     */
+    static void getEntries(ByteBuffer buffer, long[] balances, long[] timestamps, byte[] types, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            balances[i] = buffer.getLong();
+            timestamps[i] = buffer.getLong();
+            types[i] = buffer.get();
+        }
+    }
+
+    /**
+     * Encodes a string as UTF-8, checking it fits a two-byte length prefix.
+     *
+     * @param value the string
+     * @return the encoded bytes
+     * @throws IllegalArgumentException if the encoding is longer than 65535 bytes
+     */
+    static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long to store: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes encoded string bytes with a two-byte length prefix.
+     *
+     * @param buffer the buffer to write to
+     * @param bytes the bytes from {@link #utf8(String)}
+     */
+    static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #putString(ByteBuffer, byte[])}.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,269 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.TransactionType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Append-only transaction entries held in fixed-size, memory-mapped segment files.
+ *
+ * <p>Entries are numbered from 0 across all segments. Each entry links to the previous entry
+ * of the same account, so an account's history can be walked newest first without touching
+ * any other account's entries.
+ *
+ * <p>Segment file {@code transactions-NNNNN.seg} layout (all fields big-endian):
+ * <pre>
+ *   header (64 bytes): long magic "BMSTXSG1", int entries per segment
+ *   entries (40 bytes each):
+ *     long amount, long balance after, long timestamp (epoch micros),
+ *     long previous entry of the same account (-1 if none), int account record,
+ *     byte type code + 1 (0 marks unused space), 3 bytes padding
+ * </pre>
+ * The type byte is written last, so the entries of the last segment are the prefix whose type
+ * bytes are set. Appends must be serialised by the caller; reads may run alongside them.
+ */
+public final class TransactionSegments implements Closeable {
+    /** Default number of entries in one segment file (40 MiB). */
+    static final int DEFAULT_ENTRIES_PER_SEGMENT = 1 << 20;
+
+    private static final long MAGIC = 0x424D535458534731L; // "BMSTXSG1"
+    private static final int HEADER_BYTES = 64;
+    private static final int ENTRIES_OFFSET = 8;
+
+    private static final int ENTRY_BYTES = 40;
+    private static final int AMOUNT = 0;
+    private static final int BALANCE_AFTER = 8;
+    private static final int TIMESTAMP = 16;
+    private static final int PREVIOUS = 24;
+    private static final int ACCOUNT = 32;
+    private static final int TYPE = 36;
+
+    private final Path directory;
+    private final int entriesPerSegment;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private volatile MappedByteBuffer[] segments;
+    private volatile long size;
+
+    private TransactionSegments(Path directory, int entriesPerSegment) {
+        this.directory = directory;
+        this.entriesPerSegment = entriesPerSegment;
+        this.segments = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Opens the segments in a directory, creating the directory if needed.
+     *
+     * @param directory the segment directory
+     * @param entriesPerSegment the segment size to use if the directory has no segments yet
+     * @return the open segments
+     * @throws IOException if a segment cannot be mapped or is not a segment file
+     */
+    static TransactionSegments open(Path directory, int entriesPerSegment) throws IOException {
+        Files.createDirectories(directory);
+        int existing = 0;
+        while (Files.exists(segmentFile(directory, existing))) {
+            existing++;
+        }
+        if (existing > 0) {
+            try (FileChannel first = FileChannel.open(segmentFile(directory, 0), StandardOpenOption.READ)) {
+                MappedByteBuffer header = first.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                if (header.getLong(0) != MAGIC) {
+                    throw new IOException("Not a transaction segment: " + segmentFile(directory, 0));
+                }
+                entriesPerSegment = header.getInt(ENTRIES_OFFSET);
+            }
+        }
+        if (entriesPerSegment <= 0 || entriesPerSegment > (Integer.MAX_VALUE - HEADER_BYTES) / ENTRY_BYTES) {
+            throw new IOException("Unsupported segment size: " + entriesPerSegment + " entries");
+        }
+
+        TransactionSegments segments = new TransactionSegments(directory, entriesPerSegment);
+        try {
+            for (int i = 0; i < existing; i++) {
+                segments.map(i, false);
+            }
+            long size = 0;
+            if (existing > 0) {
+                MappedByteBuffer last = segments.segments[existing - 1];
+                int count = 0;
+                while (count < entriesPerSegment && last.get(HEADER_BYTES + count * ENTRY_BYTES + TYPE) != 0) {
+                    count++;
+                }
+                size = (long) (existing - 1) * entriesPerSegment + count;
+            }
+            segments.size = size;
+            return segments;
+        } catch (IOException | RuntimeException e) {
+            segments.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @param account the account record number
+     * @param type the transaction type
+     * @param amount the signed amount
+     * @param balanceAfter the balance after the transaction
+     * @param timestampMicros the timestamp in epoch microseconds
+     * @param previous the previous entry of the same account, or -1
+     * @return the index of the new entry
+     * @throws IOException if a new segment cannot be created
+     */
+    long append(int account, TransactionType type, long amount, long balanceAfter, long timestampMicros,
+            long previous) throws IOException {
+        long index = size;
+        int segment = (int) (index / entriesPerSegment);
+        if (segment == segments.length) {
+            map(segment, true);
+        }
+        MappedByteBuffer buffer = segments[segment];
+        int base = HEADER_BYTES + (int) (index % entriesPerSegment) * ENTRY_BYTES;
+        buffer.putLong(base + AMOUNT, amount);
+        buffer.putLong(base + BALANCE_AFTER, balanceAfter);
+        buffer.putLong(base + TIMESTAMP, timestampMicros);
+        buffer.putLong(base + PREVIOUS, previous);
+        buffer.putInt(base + ACCOUNT, account);
+        buffer.put(base + TYPE, (byte) (type.code() + 1));
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the entry count
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the account record number of an entry.
+     *
+     * @param index the entry index
+     * @return the record number in the {@link MappedAccountFile}
+     */
+    public int accountAt(long index) {
+        return segmentOf(index).getInt(offsetOf(index) + ACCOUNT);
+    }
+
+    /**
+     * Gets the type of an entry.
+     *
+     * @param index the entry index
+     * @return the transaction type
+     */
+    public TransactionType typeAt(long index) {
+        return TransactionType.fromCode((byte) (segmentOf(index).get(offsetOf(index) + TYPE) - 1));
+    }
+
+    /**
+     * Gets the signed amount of an entry.
+     *
+     * @param index the entry index
+     * @return the amount in pesewas
+     */
+    public long amountAt(long index) {
+        return segmentOf(index).getLong(offsetOf(index) + AMOUNT);
+    }
+
+    /**
+     * Gets the balance after an entry.
+     *
+     * @param index the entry index
+     * @return the balance in pesewas
+     */
+    public long balanceAfterAt(long index) {
+        return segmentOf(index).getLong(offsetOf(index) + BALANCE_AFTER);
+    }
+
+    /**
+     * Gets the timestamp of an entry.
+     *
+     * @param index the entry index
+     * @return the timestamp in epoch microseconds
+     */
+    public long timestampMicrosAt(long index) {
+        return segmentOf(index).getLong(offsetOf(index) + TIMESTAMP);
+    }
+
+    /**
+     * Gets the previous entry of the same account.
+     *
+     * @param index the entry index
+     * @return the previous entry index, or -1 if this is the account's first entry
+     */
+    public long previousAt(long index) {
+        return segmentOf(index).getLong(offsetOf(index) + PREVIOUS);
+    }
+
+    /**
+     * Writes changes to the mapped pages out to the segment files.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private MappedByteBuffer segmentOf(long index) {
+        return segments[(int) (Objects.checkIndex(index, size) / entriesPerSegment)];
+    }
+
+    private int offsetOf(long index) {
+        return HEADER_BYTES + (int) (index % entriesPerSegment) * ENTRY_BYTES;
+    }
+
+    private void map(int segment, boolean create) throws IOException {
+        Path file = segmentFile(directory, segment);
+        long bytes = HEADER_BYTES + (long) entriesPerSegment * ENTRY_BYTES;
+        FileChannel channel = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channels.add(channel);
+        if (!create && channel.size() != bytes) {
+            throw new IOException("Transaction segment has the wrong size: " + file);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        if (create) {
+            buffer.putLong(0, MAGIC);
+            buffer.putInt(ENTRIES_OFFSET, entriesPerSegment);
+        } else if (buffer.getLong(0) != MAGIC || buffer.getInt(ENTRIES_OFFSET) != entriesPerSegment) {
+            throw new IOException("Not a transaction segment or mismatched size: " + file);
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(segments, segment + 1);
+        grown[segment] = buffer;
+        segments = grown;
+    }
+
+    private static Path segmentFile(Path directory, int segment) {
+        return directory.resolve(String.format("transactions-%05d.seg", segment));
+    }
+}
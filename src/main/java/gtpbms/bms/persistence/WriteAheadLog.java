@@ -0,0 +1,1090 @@
+package gtpbms.bms.persistence;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.PostingListener;
+import gtpbms.bms.model.TransactionJournal;
+import gtpbms.bms.model.TransactionType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only, binary write-ahead log of every account opening and posting in a {@link Bank}.
+ *
+ * <p>The log is a {@link PostingListener}: once attached with
+ * {@link Bank#setPostingListener(PostingListener)}, each change is encoded into an in-memory
+ * buffer before it is applied to the account. A single flusher thread swaps that buffer for an
+ * empty one, writes it to the file through a {@link FileChannel} and, depending on the
+ * {@link Durability}, forces it to disk. All records buffered while one {@code fsync} is in
+ * progress are committed by the next, so concurrent operations share the cost (group commit).
+ *
+ * <p>Each record is framed as:
+ * <pre>
+ *   int    length of type + body
+ *   byte   record type (1 = account opened, 2 = posting, 3 = interest accrual, 4 = transfer,
+ *          5 = opening history)
+ *   ...    body
+ *   int    CRC32C of type + body
+ * </pre>
+ * An opened record holds the account number, holder, kind, maturity date and the journal
+ * entries the account had when it was registered. A journal of more than
+ * {@value #ENTRIES_PER_RECORD} entries would not fit one record, so its older entries go
+ * first in opening history records, each holding the account number, the journal's total
+ * entry count, the index of its first entry, its entry count and the entries; the opened
+ * record then holds the rest. Replay collects the history records of an account until its
+ * opened record arrives, and ignores any whose opened record never does, as when a crash cuts
+ * an opening short. A posting record holds the account number,
+ * the journal index the posting takes, its transaction type, amount, balance after and
+ * timestamp. An interest accrual record is a posting record followed by the period the
+ * interest is for. A transfer record holds both sides in one record, so replay never sees one
+ * without the other: the source account number and journal index, the destination account
+ * number and journal index, the amount, both balances after and the timestamp.
+ * {@link #replay(Bank)} rebuilds a bank from the file and truncates a torn final
+ * record left by a crash.
+ *
+ * <p>The log is kept in segment files next to the configured path, each named after it with
+ * the log offset of its first record appended as twenty digits, such as
+ * {@code ledger.wal.00000000000001048576}. Offsets run on across segments, so a position in
+ * the log does not depend on which segments still exist. Records are appended to the newest
+ * segment; {@link #rotate()} seals it and starts another, and
+ * {@link #deleteSegmentsBefore(long)} removes the sealed segments wholly before a snapshot's
+ * position. A log written as a single file before segments were introduced is taken over as
+ * the segment at offset 0.
+ *
+ * <p>Replay is idempotent. An opened record for an account the bank already holds, and a
+ * posting whose journal index the account already has, are skipped. The tail of the log can
+ * therefore be replayed on top of a snapshot taken while writers were running; see
+ * {@link Checkpointer}.
+ */
+public final class WriteAheadLog implements PostingListener, Closeable {
+    static final byte RECORD_OPENED = 1;
+    static final byte RECORD_POSTING = 2;
+    static final byte RECORD_ACCRUAL = 3;
+    static final byte RECORD_TRANSFER = 4;
+    static final byte RECORD_HISTORY = 5;
+
+    private static final int FRAME_OVERHEAD = Integer.BYTES * 2;
+    private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+    // Well inside the buffer, so that an opened record never outgrows it
+    private static final int ENTRIES_PER_RECORD = 1 << 14;
+    private static final int SEGMENT_DIGITS = 20;
+
+    private final Path file;
+    private FileChannel channel; // the newest segment; only the flusher uses it once replayed
+    private long channelStart; // the log offset of the channel's first byte
+    private final Durability durability;
+    private final long intervalNanos;
+    private final int bufferBytes;
+    private final CRC32C crc = new CRC32C();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+
+    // Guarded by lock
+    private ByteBuffer active;
+    private ByteBuffer spare;
+    private long appendedBytes;
+    private long durableBytes;
+    private long forcedBytes;
+    private boolean flushRequested;
+    private boolean forceRequested;
+    private boolean rotateRequested;
+    private long segmentStart;
+    private boolean closed;
+    private IOException failure;
+    private boolean replayed;
+
+    private final Thread flusher;
+
+    private WriteAheadLog(Path file, FileChannel channel, long channelStart, Durability durability,
+                          long intervalMillis, int bufferBytes) {
+        this.file = file;
+        this.channel = channel;
+        this.channelStart = channelStart;
+        this.segmentStart = channelStart;
+        this.durability = durability;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.bufferBytes = bufferBytes;
+        this.active = ByteBuffer.allocateDirect(bufferBytes);
+        this.spare = ByteBuffer.allocateDirect(bufferBytes);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Opens (creating if needed) a write-ahead log. Call {@link #replay(Bank)} before
+     * attaching the log to a bank, so new records are appended after the existing ones.
+     *
+     * @param file the path the log's segment files are named after
+     * @param durability when records are forced to disk
+     * @param intervalMillis the flush interval for {@link Durability#INTERVAL} (ignored otherwise)
+     * @return the open log
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if intervalMillis is not positive in INTERVAL mode
+     */
+    public static WriteAheadLog open(Path file, Durability durability, long intervalMillis) throws IOException {
+        if (durability == Durability.INTERVAL && intervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + intervalMillis);
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long[] starts = segmentStarts(file);
+        if (Files.isRegularFile(file)) {
+            if (starts.length > 0) {
+                throw new IOException("Both a single-file log and log segments exist for " + file);
+            }
+            Files.move(file, segmentPath(file, 0));
+            starts = new long[] {0};
+        }
+        long start = starts.length == 0 ? 0 : starts[starts.length - 1];
+        FileChannel channel = FileChannel.open(segmentPath(file, start), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new WriteAheadLog(file, channel, start, durability, intervalMillis, DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * Deletes every segment of a log that is not open.
+     *
+     * @param file the path the log's segment files are named after
+     * @throws IOException if a segment cannot be deleted
+     */
+    public static void delete(Path file) throws IOException {
+        for (long start : segmentStarts(file)) {
+            Files.deleteIfExists(segmentPath(file, start));
+        }
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Gets the file of the segment that starts at a log offset.
+     *
+     * @param file the path the segments are named after
+     * @param start the log offset of the segment's first record
+     * @return the segment file
+     */
+    static Path segmentPath(Path file, long start) {
+        return file.resolveSibling(String.format("%s.%0" + SEGMENT_DIGITS + "d", file.getFileName(), start));
+    }
+
+    /**
+     * Lists the segments of a log by their starting offsets.
+     *
+     * @param file the path the segments are named after
+     * @return the offsets in ascending order, empty if there are no segments
+     * @throws IOException if the directory cannot be listed
+     */
+    static long[] segmentStarts(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        List<Long> starts = new ArrayList<>();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return new long[0];
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                path -> path.getFileName().toString().startsWith(prefix))) {
+            for (Path path : stream) {
+                String suffix = path.getFileName().toString().substring(prefix.length());
+                if (suffix.length() == SEGMENT_DIGITS && suffix.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    starts.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        return starts.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Rebuilds a bank from the log, then starts accepting new records at the end of the log.
+     * Must be called exactly once, before the log is attached to a bank. A record that is
+     * incomplete or fails its checksum ends the replay and is truncated.
+     *
+     * @param bank the bank to rebuild (should be empty)
+     * @return the number of records replayed
+     * @throws IOException if the log cannot be read, or refers to an account it never opened
+     * @throws IllegalStateException if the log has already been replayed
+     */
+    public long replay(Bank bank) throws IOException {
+        return replayFrom(bank, 0);
+    }
+
+    /**
+     * Rebuilds a bank from the records at or after a position in the log, then starts accepting
+     * new records at the end of the log. Used to apply the tail of the log on top of a snapshot.
+     *
+     * @param bank the bank to rebuild
+     * @param position the byte offset of the first record to apply
+     * @return the number of records replayed
+     * @throws IOException if the log cannot be read, or refers to an account it never opened
+     * @throws IllegalStateException if the log has already been replayed
+     */
+    long replayFrom(Bank bank, long position) throws IOException {
+        lock.lock();
+        try {
+            if (replayed) {
+                throw new IllegalStateException("Write-ahead log has already been replayed");
+            }
+            replayed = true;
+        } finally {
+            lock.unlock();
+        }
+
+        long[] starts = segmentStarts(file);
+        int first = starts.length - 1;
+        while (first > 0 && starts[first] > position) {
+            first--;
+        }
+        if (starts[first] > position) {
+            throw new IOException("Log segments before offset " + starts[first] + " are missing; cannot replay from "
+                    + position);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_BYTES);
+        Map<String, StagedHistory> staged = new HashMap<>();
+        long records = 0;
+        for (int i = first; i < starts.length - 1; i++) {
+            Path segment = segmentPath(file, starts[i]);
+            try (FileChannel sealed = FileChannel.open(segment, StandardOpenOption.READ)) {
+                Replayed applied = replaySegment(sealed, bank, Math.max(position - starts[i], 0), buffer, staged);
+                if (applied.end() != sealed.size() || starts[i] + applied.end() != starts[i + 1]) {
+                    throw new IOException("Log segment " + segment + " is corrupt or does not meet the next one at "
+                            + (starts[i] + applied.end()));
+                }
+                records += applied.records();
+            }
+        }
+
+        // Only the newest segment can end in a record torn by a crash
+        Replayed applied = replaySegment(channel, bank, Math.max(position - channelStart, 0), buffer, staged);
+        records += applied.records();
+        if (channel.size() > applied.end()) {
+            channel.truncate(applied.end());
+        }
+        channel.position(applied.end());
+        long validEnd = channelStart + applied.end();
+
+        lock.lock();
+        try {
+            appendedBytes = validEnd;
+            durableBytes = validEnd;
+            forcedBytes = validEnd;
+        } finally {
+            lock.unlock();
+        }
+        flusher.start();
+        return records;
+    }
+
+    /**
+     * The older journal entries of an account whose opening is still to be replayed, collected
+     * from its history records into columns sized for the whole journal.
+     */
+    private static final class StagedHistory {
+        final int total;
+        final long[] balances;
+        final long[] timestamps;
+        final byte[] types;
+        int count;
+
+        StagedHistory(int total) {
+            int capacity = RecordCodec.restoredCapacity(total);
+            this.total = total;
+            this.balances = new long[capacity];
+            this.timestamps = new long[capacity];
+            this.types = new byte[capacity];
+        }
+    }
+
+    /**
+     * The outcome of replaying one segment.
+     *
+     * @param end the offset in the segment just past the last intact record
+     * @param records the number of records applied
+     */
+    private record Replayed(long end, long records) {
+    }
+
+    /**
+     * Applies the records of one segment from an offset until its end or its first incomplete
+     * or corrupt record.
+     *
+     * @param segment the segment
+     * @param bank the bank to rebuild
+     * @param from the offset in the segment of the first record to apply
+     * @param buffer a buffer to read through
+     * @param staged the opening histories read so far, by account number
+     * @return where the intact records end and how many were applied
+     * @throws IOException if the segment cannot be read, or refers to an account it never opened
+     */
+    private static Replayed replaySegment(FileChannel segment, Bank bank, long from, ByteBuffer buffer,
+                                          Map<String, StagedHistory> staged) throws IOException {
+        CRC32C check = new CRC32C();
+        long records = 0;
+        long readPosition = from;
+        long validEnd = from;
+        buffer.clear();
+
+        while (true) {
+            int read = segment.read(buffer, readPosition);
+            if (read > 0) {
+                readPosition += read;
+            }
+            buffer.flip();
+
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > buffer.capacity() - FRAME_OVERHEAD) {
+                    read = -1; // corrupt length: treat as the end of the log
+                    buffer.position(buffer.limit());
+                    break;
+                }
+                if (buffer.remaining() < length + FRAME_OVERHEAD) {
+                    break;
+                }
+
+                ByteBuffer body = buffer.slice(buffer.position() + Integer.BYTES, length);
+                int storedCrc = buffer.getInt(buffer.position() + Integer.BYTES + length);
+                check.reset();
+                check.update(body.duplicate());
+                if ((int) check.getValue() != storedCrc) {
+                    read = -1; // torn or corrupt record: treat as the end of the log
+                    buffer.position(buffer.limit());
+                    break;
+                }
+
+                apply(bank, body, staged);
+                records++;
+                buffer.position(buffer.position() + length + FRAME_OVERHEAD);
+                validEnd += length + FRAME_OVERHEAD;
+            }
+
+            if (read <= 0) {
+                return new Replayed(validEnd, records);
+            }
+            buffer.compact();
+        }
+    }
+
+    private static void apply(Bank bank, ByteBuffer body, Map<String, StagedHistory> staged) throws IOException {
+        byte recordType = body.get();
+        String accountNumber = RecordCodec.getString(body);
+
+        if (recordType == RECORD_OPENED) {
+            String accountHolder = RecordCodec.getString(body);
+            byte kind = body.get();
+            long maturityEpochDay = body.getLong();
+            int entries = body.getInt();
+
+            StagedHistory history = staged.remove(accountNumber);
+            if (bank.getAccount(accountNumber) != null) {
+                return; // already restored from a snapshot
+            }
+            BankAccount account = RecordCodec.newAccount(kind, accountHolder, accountNumber, maturityEpochDay);
+            if (history == null) {
+                RecordCodec.replayEntries(body, account, entries);
+            } else {
+                if (history.count + entries != history.total) {
+                    throw new IOException("Log opens account " + accountNumber + " with " + history.count + " of "
+                            + history.total + " history entries before it");
+                }
+                RecordCodec.getEntries(body, history.balances, history.timestamps, history.types, history.count,
+                        entries);
+                account.replayAll(history.balances, history.timestamps, history.types, history.total);
+            }
+            bank.addAccount(account);
+        } else if (recordType == RECORD_HISTORY) {
+            int total = body.getInt();
+            int first = body.getInt();
+            int entries = body.getInt();
+
+            if (bank.getAccount(accountNumber) != null) {
+                return; // already restored from a snapshot
+            }
+            if (first < 0 || entries < 0 || entries > total - first) {
+                throw new IOException("Log history of account " + accountNumber + " has a bad entry range");
+            }
+            StagedHistory history = first == 0 ? new StagedHistory(total) : staged.get(accountNumber);
+            if (history == null || history.count != first || history.total != total) {
+                throw new IOException("Log history of account " + accountNumber + " does not continue at entry "
+                        + first);
+            }
+            RecordCodec.getEntries(body, history.balances, history.timestamps, history.types, first, entries);
+            history.count += entries;
+            staged.put(accountNumber, history);
+        } else if (recordType == RECORD_POSTING || recordType == RECORD_ACCRUAL) {
+            int index = body.getInt();
+            TransactionType type = TransactionType.fromCode(body.get());
+            body.getLong(); // amount: implied by the balance change
+            long balanceAfter = body.getLong();
+            long timestampMicros = body.getLong();
+            int period = recordType == RECORD_ACCRUAL ? body.getInt() : RecordCodec.NO_PERIOD;
+
+            BankAccount account = replayPosting(bank, accountNumber, index, type, balanceAfter, timestampMicros);
+            if (account != null && period != RecordCodec.NO_PERIOD) {
+                account.restoreLastAccruedPeriod(RecordCodec.decodePeriod(period));
+            }
+        } else if (recordType == RECORD_TRANSFER) {
+            int fromIndex = body.getInt();
+            String toAccountNumber = RecordCodec.getString(body);
+            int toIndex = body.getInt();
+            body.getLong(); // amount: implied by the balance changes
+            long fromBalanceAfter = body.getLong();
+            long toBalanceAfter = body.getLong();
+            long timestampMicros = body.getLong();
+
+            replayPosting(bank, accountNumber, fromIndex, TransactionType.TRANSFER_OUT, fromBalanceAfter,
+                    timestampMicros);
+            replayPosting(bank, toAccountNumber, toIndex, TransactionType.TRANSFER_IN, toBalanceAfter,
+                    timestampMicros);
+        } else {
+            throw new IOException("Unknown record type " + recordType);
+        }
+    }
+
+    /**
+     * Re-applies one posting unless the account's journal already holds it.
+     *
+     * @return the account if the posting was applied, or null if it was already there
+     */
+    private static BankAccount replayPosting(Bank bank, String accountNumber, int index, TransactionType type,
+                                             long balanceAfter, long timestampMicros) throws IOException {
+        BankAccount account = bank.getAccount(accountNumber);
+        if (account == null) {
+            throw new IOException("Log posts to unknown account " + accountNumber);
+        }
+        int size = account.getTransactionCount();
+        if (index < size) {
+            return null; // already restored from a snapshot
+        } else if (index > size) {
+            throw new IOException("Log skips from entry " + size + " to " + index + " of account " + accountNumber);
+        }
+        account.replay(type, balanceAfter, timestampMicros);
+        return account;
+    }
+
+    /**
+     * Logs an account opening. Blocks until durable in {@link Durability#PER_OPERATION} mode.
+     *
+     * @param account the account
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     * @throws IllegalArgumentException if the account number or holder is too long to encode
+     */
+    @Override
+    public void accountOpened(BankAccount account) {
+        accountsOpened(List.of(account));
+    }
+
+    /**
+     * Logs a batch of account openings, waiting for durability once for the whole batch in
+     * {@link Durability#PER_OPERATION} mode. The batch is encoded before the lock is taken and
+     * then appended in one step, so either all of it is logged or, if this throws before
+     * anything is appended, none of it.
+     *
+     * @param accounts the accounts
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     * @throws IllegalArgumentException if an account number or holder is too long to encode
+     */
+    @Override
+    public void accountsOpened(List<BankAccount> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        ByteBuffer frames = encodeOpenings(accounts);
+        long end;
+        lock.lock();
+        try {
+            end = appendFrames(frames);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(end);
+    }
+
+    /**
+     * Encodes the records that open a batch of accounts, framed and checksummed. A journal too
+     * long for one opened record has its older entries put in history records ahead of it.
+     *
+     * @return the records, ready to read
+     * @throws IllegalArgumentException if a string is too long to encode or the batch exceeds 2 GiB
+     */
+    private static ByteBuffer encodeOpenings(List<BankAccount> accounts) {
+        byte[][] numbers = new byte[accounts.size()][];
+        byte[][] holders = new byte[accounts.size()][];
+        long length = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            BankAccount account = accounts.get(i);
+            numbers[i] = RecordCodec.utf8(account.getAccountNumber());
+            holders[i] = RecordCodec.utf8(account.getAccountHolder());
+            int entries = account.getJournal().size();
+            int histories = (Math.max(entries, 1) - 1) / ENTRIES_PER_RECORD;
+            length += (long) histories * (FRAME_OVERHEAD + historyLength(numbers[i], 0))
+                    + (long) entries * RecordCodec.ENTRY_BYTES
+                    + FRAME_OVERHEAD + openedLength(numbers[i], holders[i], 0);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Account openings too large to log at once: " + length + " bytes");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) length);
+        CRC32C check = new CRC32C();
+        for (int i = 0; i < numbers.length; i++) {
+            BankAccount account = accounts.get(i);
+            TransactionJournal journal = account.getJournal();
+            int total = journal.size();
+
+            int first = 0;
+            while (total - first > ENTRIES_PER_RECORD) {
+                int bodyLength = historyLength(numbers[i], ENTRIES_PER_RECORD);
+                int start = out.position();
+                out.putInt(bodyLength);
+                out.put(RECORD_HISTORY);
+                RecordCodec.putString(out, numbers[i]);
+                out.putInt(total);
+                out.putInt(first);
+                out.putInt(ENTRIES_PER_RECORD);
+                RecordCodec.putEntries(out, journal, first, ENTRIES_PER_RECORD);
+                putChecksum(out, start, bodyLength, check);
+                first += ENTRIES_PER_RECORD;
+            }
+
+            int entries = total - first;
+            int bodyLength = openedLength(numbers[i], holders[i], entries);
+            int start = out.position();
+            out.putInt(bodyLength);
+            out.put(RECORD_OPENED);
+            RecordCodec.putString(out, numbers[i]);
+            RecordCodec.putString(out, holders[i]);
+            out.put(RecordCodec.kindOf(account));
+            out.putLong(RecordCodec.maturityOf(account));
+            out.putInt(entries);
+            RecordCodec.putEntries(out, journal, first, entries);
+            putChecksum(out, start, bodyLength, check);
+        }
+        return out.flip();
+    }
+
+    private static int historyLength(byte[] number, int entries) {
+        return 1 + 2 + number.length + Integer.BYTES * 3 + entries * RecordCodec.ENTRY_BYTES;
+    }
+
+    private static int openedLength(byte[] number, byte[] holder, int entries) {
+        return 1 + 2 + number.length + 2 + holder.length + 1 + Long.BYTES + Integer.BYTES
+                + entries * RecordCodec.ENTRY_BYTES;
+    }
+
+    private static void putChecksum(ByteBuffer out, int start, int bodyLength, CRC32C check) {
+        check.reset();
+        check.update(out.slice(start + Integer.BYTES, bodyLength));
+        out.putInt((int) check.getValue());
+    }
+
+    /**
+     * Logs a posting. Blocks until durable in {@link Durability#PER_OPERATION} mode.
+     *
+     * @param account the account
+     * @param type the transaction type
+     * @param amount the signed amount in pesewas
+     * @param balanceAfter the balance after the posting
+     * @param timestampMicros the posting time
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     */
+    @Override
+    public void posted(BankAccount account, TransactionType type, long amount, long balanceAfter,
+                       long timestampMicros) {
+        logPosting(account, type, amount, balanceAfter, timestampMicros, RecordCodec.NO_PERIOD);
+    }
+
+    /**
+     * Logs an interest credit together with its period. Blocks until durable in
+     * {@link Durability#PER_OPERATION} mode.
+     *
+     * @param account the account
+     * @param period the period the interest is for
+     * @param amount the interest in pesewas
+     * @param balanceAfter the balance after the posting
+     * @param timestampMicros the posting time
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     */
+    @Override
+    public void interestAccrued(BankAccount account, YearMonth period, long amount, long balanceAfter,
+                                long timestampMicros) {
+        logPosting(account, TransactionType.INTEREST_CREDIT, amount, balanceAfter, timestampMicros,
+                RecordCodec.encodePeriod(period));
+    }
+
+    /**
+     * Logs both sides of a transfer as one record. Blocks until durable in
+     * {@link Durability#PER_OPERATION} mode.
+     *
+     * @param from the account debited
+     * @param to the account credited
+     * @param amount the amount transferred in pesewas
+     * @param fromBalanceAfter the debited account's balance afterwards
+     * @param toBalanceAfter the credited account's balance afterwards
+     * @param timestampMicros the transfer time
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     */
+    @Override
+    public void transferred(BankAccount from, BankAccount to, long amount, long fromBalanceAfter,
+                            long toBalanceAfter, long timestampMicros) {
+        byte[] fromNumber = RecordCodec.utf8(from.getAccountNumber());
+        byte[] toNumber = RecordCodec.utf8(to.getAccountNumber());
+        int fromIndex = from.getTransactionCount();
+        int toIndex = to.getTransactionCount();
+
+        int bodyLength = 1 + 2 + fromNumber.length + Integer.BYTES + 2 + toNumber.length + Integer.BYTES
+                + Long.BYTES * 4;
+        long end;
+        lock.lock();
+        try {
+            ByteBuffer out = reserve(bodyLength);
+            int start = out.position();
+            out.putInt(bodyLength);
+            out.put(RECORD_TRANSFER);
+            RecordCodec.putString(out, fromNumber);
+            out.putInt(fromIndex);
+            RecordCodec.putString(out, toNumber);
+            out.putInt(toIndex);
+            out.putLong(amount);
+            out.putLong(fromBalanceAfter);
+            out.putLong(toBalanceAfter);
+            out.putLong(timestampMicros);
+            end = seal(out, start, bodyLength);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(end);
+    }
+
+    private void logPosting(BankAccount account, TransactionType type, long amount, long balanceAfter,
+                            long timestampMicros, int period) {
+        byte[] number = RecordCodec.utf8(account.getAccountNumber());
+        int index = account.getTransactionCount();
+        boolean accrual = period != RecordCodec.NO_PERIOD;
+
+        int bodyLength = 1 + 2 + number.length + Integer.BYTES + 1 + Long.BYTES * 3
+                + (accrual ? Integer.BYTES : 0);
+        long end;
+        lock.lock();
+        try {
+            ByteBuffer out = reserve(bodyLength);
+            int start = out.position();
+            out.putInt(bodyLength);
+            out.put(accrual ? RECORD_ACCRUAL : RECORD_POSTING);
+            RecordCodec.putString(out, number);
+            out.putInt(index);
+            out.put(type.code());
+            out.putLong(amount);
+            out.putLong(balanceAfter);
+            out.putLong(timestampMicros);
+            if (accrual) {
+                out.putInt(period);
+            }
+            end = seal(out, start, bodyLength);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(end);
+    }
+
+    /**
+     * Waits for room for a record in the active buffer. Caller holds the lock.
+     *
+     * @param bodyLength the length of the record's type and body
+     * @return the active buffer, with room for the record
+     */
+    private ByteBuffer reserve(int bodyLength) {
+        int frameLength = bodyLength + FRAME_OVERHEAD;
+        if (frameLength > active.capacity()) {
+            throw new IllegalArgumentException("Record too large for the log buffer: " + frameLength + " bytes");
+        }
+
+        while (true) {
+            checkWritable();
+            if (active.remaining() >= frameLength) {
+                return active;
+            }
+            flushRequested = true;
+            workAvailable.signal();
+            progress.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Appends records already framed and checksummed. Every check that can fail, and any wait
+     * for room, comes before the first byte is copied, so the records are appended together
+     * or not at all. Records too large for a buffer of the usual size are appended to a larger
+     * copy of the active buffer. Caller holds the lock.
+     *
+     * @param frames the records, ready to read
+     * @return the log offset just past the records
+     */
+    private long appendFrames(ByteBuffer frames) {
+        int length = frames.remaining();
+        while (true) {
+            checkWritable();
+            if (active.remaining() >= length) {
+                break;
+            }
+            if (length > bufferBytes) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(active.position() + length);
+                grown.put(active.flip());
+                active = grown;
+                break;
+            }
+            flushRequested = true;
+            workAvailable.signal();
+            progress.awaitUninterruptibly();
+        }
+        active.put(frames);
+
+        appendedBytes += length;
+        if (durability != Durability.INTERVAL) {
+            workAvailable.signal();
+        }
+        return appendedBytes;
+    }
+
+    /**
+     * Appends the checksum of a record just written and wakes the flusher. Caller holds the lock.
+     *
+     * @param out the active buffer
+     * @param start the position of the record's length prefix
+     * @param bodyLength the length of the record's type and body
+     * @return the log offset just past the record
+     */
+    private long seal(ByteBuffer out, int start, int bodyLength) {
+        crc.reset();
+        crc.update(out.slice(start + Integer.BYTES, bodyLength));
+        out.putInt((int) crc.getValue());
+
+        appendedBytes += bodyLength + FRAME_OVERHEAD;
+        if (durability != Durability.INTERVAL) {
+            workAvailable.signal();
+        }
+        return appendedBytes;
+    }
+
+    private void awaitDurable(long end) {
+        if (durability != Durability.PER_OPERATION) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            while (durableBytes < end) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                progress.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        if (!replayed) {
+            throw new IllegalStateException("Write-ahead log must be replayed before it is written");
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            boolean last;
+            boolean force;
+            boolean rotate;
+
+            lock.lock();
+            try {
+                waitForWork();
+                last = closed;
+                batch = active;
+                active = spare;
+                spare = null;
+                batchEnd = appendedBytes;
+                force = forceRequested;
+                rotate = rotateRequested;
+                flushRequested = false;
+                forceRequested = false;
+                rotateRequested = false;
+                progress.signalAll(); // writers waiting for room can use the fresh buffer
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                boolean empty = !batch.hasRemaining();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                force |= last || rotate || (durability != Durability.ASYNC && !empty);
+                if (force) {
+                    channel.force(false);
+                }
+                if (rotate && !last && batchEnd > channelStart) {
+                    startSegment(batchEnd);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+            // A buffer grown for an outsized batch of records is not kept
+            ByteBuffer returned = batch.capacity() > bufferBytes ? ByteBuffer.allocateDirect(bufferBytes) : batch;
+
+            lock.lock();
+            try {
+                spare = returned;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableBytes = batchEnd;
+                    if (force) {
+                        forcedBytes = batchEnd;
+                    }
+                    segmentStart = channelStart;
+                }
+                progress.signalAll();
+                if (last || failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Seals the newest segment, which the flusher has just forced, and starts appending to a
+     * new one. Called by the flusher only.
+     *
+     * @param start the log offset of the new segment's first record
+     * @throws IOException if the new segment cannot be created
+     */
+    private void startSegment(long start) throws IOException {
+        FileChannel next = FileChannel.open(segmentPath(file, start), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            forceDirectory(file.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            next.close();
+            throw e;
+        }
+        FileChannel sealed = channel;
+        channel = next;
+        channelStart = start;
+        sealed.close();
+    }
+
+    /**
+     * Forces a directory's entries to disk, so a new segment survives a crash. Platforms that
+     * cannot open a directory for reading do without.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel handle;
+        try {
+            handle = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (handle) {
+            handle.force(true);
+        }
+    }
+
+    /**
+     * Blocks the flusher until there is a batch to write. Caller holds the lock.
+     */
+    private void waitForWork() {
+        if (durability == Durability.INTERVAL) {
+            long remaining = intervalNanos;
+            while (!closed && !flushRequested && remaining > 0) {
+                try {
+                    remaining = workAvailable.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } else {
+            while (!closed && !flushRequested && active.position() == 0) {
+                workAvailable.awaitUninterruptibly();
+            }
+        }
+    }
+
+    /**
+     * Writes and forces every record buffered so far, whatever the durability mode.
+     *
+     * @return the log offset up to which the file is now durable
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     */
+    public long flush() {
+        lock.lock();
+        try {
+            checkWritable();
+            long target = appendedBytes;
+            flushRequested = true;
+            forceRequested = true;
+            workAvailable.signal();
+            while (forcedBytes < target) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                progress.awaitUninterruptibly();
+            }
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes and forces every record buffered so far, like {@link #flush()}, and starts a new
+     * segment for the records that follow, unless the newest segment is still empty.
+     *
+     * @return the log offset the newest segment starts at, at or past every record buffered
+     *         before the call
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed or has not been replayed
+     */
+    public long rotate() {
+        lock.lock();
+        try {
+            checkWritable();
+            long target = appendedBytes;
+            flushRequested = true;
+            forceRequested = true;
+            rotateRequested = true;
+            workAvailable.signal();
+            while (forcedBytes < target || segmentStart < target) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                checkWritable();
+                progress.awaitUninterruptibly();
+            }
+            return segmentStart;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the sealed segments whose records all lie before a log offset, typically the
+     * position of the oldest snapshot kept. The newest segment is never deleted.
+     *
+     * @param position the log offset before which records are no longer needed
+     * @return the number of segments deleted
+     * @throws IOException if a segment cannot be deleted
+     */
+    public int deleteSegmentsBefore(long position) throws IOException {
+        long[] starts = segmentStarts(file);
+        int deleted = 0;
+        for (int i = 0; i < starts.length - 1 && starts[i + 1] <= position; i++) {
+            Files.deleteIfExists(segmentPath(file, starts[i]));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Gets the log offset just past the last record buffered so far.
+     *
+     * @return the appended length of the log, in bytes
+     */
+    public long appendedBytes() {
+        lock.lock();
+        try {
+            return appendedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the durability mode of this log.
+     *
+     * @return the durability mode
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Gets the path the log's segment files are named after.
+     *
+     * @return the log path
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes and forces every buffered record, stops the flusher and closes the file.
+     * Operations attempted afterwards fail with {@link IllegalStateException}.
+     *
+     * @throws IOException if the final flush or the close fails
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
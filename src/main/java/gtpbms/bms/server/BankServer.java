@@ -0,0 +1,533 @@
+package gtpbms.bms.server;
+
+import gtpbms.bms.exception.InsufficientFundsException;
+import gtpbms.bms.exception.PrematureWithdrawalException;
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.PostingResult;
+import gtpbms.bms.model.TransactionJournal;
+import gtpbms.bms.persistence.JsonInterchange;
+import gtpbms.bms.service.BankManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A small HTTP/1.1 server that lets other channels drive a {@link Bank} without the UI.
+ *
+ * <p>Requests carry their arguments as query parameters and responses are JSON. Amounts are
+ * cedis with at most two decimal places:
+ * <pre>
+ *   GET  /accounts/{number}/balance
+ *   GET  /accounts/{number}/transactions?offset=0&amp;limit=10   (most recent first)
+ *   POST /accounts/{number}/deposit?amount=150.00
+ *   POST /accounts/{number}/withdraw?amount=150.00
+ *   POST /transfers?from={number}&amp;to={number}&amp;amount=150.00
+ * </pre>
+ * A malformed request or amount gets 400, an unknown account 404, and an operation the
+ * account's rules refuse (insufficient funds, overdraft limit, premature withdrawal) 409. A
+ * write-ahead log failure gets 503.
+ *
+ * <p>Each connection is served by its own virtual thread doing plain blocking socket I/O, so
+ * an idle connection costs a parked virtual thread rather than a platform thread, and hundreds
+ * of thousands of clients can stay connected. Connections are kept alive by default (HTTP/1.1)
+ * and requests may be pipelined: they are answered in order, and the responses to requests
+ * that arrived together are written back together.
+ */
+public final class BankServer implements Closeable {
+    /** System property naming the port {@link #main(String[])} listens on. */
+    public static final String PORT_PROPERTY = "bms.server.port";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 65_536;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int MAX_HEADERS = 100;
+    private static final int DEFAULT_HISTORY_LIMIT = 10;
+    private static final int MAX_HISTORY_LIMIT = 1000;
+
+    private final Bank bank;
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private BankServer(Bank bank, ServerSocket serverSocket) {
+        this.bank = bank;
+        this.serverSocket = serverSocket;
+        this.acceptor = Thread.ofPlatform().name("bms-server-acceptor").unstarted(this::acceptLoop);
+    }
+
+    /**
+     * Starts serving a bank on a port.
+     *
+     * @param bank the bank to serve
+     * @param port the port to listen on, or 0 for any free port
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static BankServer start(Bank bank, int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        BankServer server = new BankServer(bank, serverSocket);
+        server.acceptor.start();
+        return server;
+    }
+
+    /**
+     * Serves {@link BankManager#getBank()} on the port named by {@value #PORT_PROPERTY}
+     * (default 8080) until the process is stopped.
+     *
+     * @param args unused
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        BankServer server = start(BankManager.getBank(), Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT));
+        System.out.println("Serving " + BankManager.getBank().getName() + " on port " + server.getPort());
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of open client connections.
+     *
+     * @return the connection count
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops accepting connections and closes every open one.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread.ofVirtual().name("bms-connection").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests on one connection until the client closes it, asks for it to be closed,
+     * or sends something unparseable.
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+            Request request = new Request();
+            StringBuilder body = new StringBuilder(256);
+            try {
+                while (true) {
+                    int status;
+                    body.setLength(0);
+                    try {
+                        if (!request.read(in)) {
+                            break;
+                        }
+                        status = handle(request, body);
+                    } catch (BadRequestException e) {
+                        request.keepAlive = false;
+                        status = e.status;
+                        appendError(body, e.getMessage());
+                    }
+                    writeResponse(out, status, body, request.keepAlive);
+                    if (!request.keepAlive) {
+                        break;
+                    }
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+            } finally {
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // the client went away, or the server is closing
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Connection failed: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Routes one request and writes its JSON body.
+     *
+     * @return the HTTP status
+     */
+    private int handle(Request request, StringBuilder body) {
+        String[] path = request.path.split("/");
+        try {
+            if (path.length == 2 && path[1].equals("transfers")) {
+                requireMethod(request, "POST");
+                return transfer(request, body);
+            }
+            if (path.length != 4 || !path[0].isEmpty() || !path[1].equals("accounts")) {
+                appendError(body, "No such resource: " + request.path);
+                return 404;
+            }
+
+            BankAccount account = bank.getAccount(decode(path[2]));
+            if (account == null) {
+                appendError(body, "Account not found: " + decode(path[2]));
+                return 404;
+            }
+            switch (path[3]) {
+                case "balance" -> {
+                    requireMethod(request, "GET");
+                    appendBalance(body, account, account.getBalance());
+                    return 200;
+                }
+                case "transactions" -> {
+                    requireMethod(request, "GET");
+                    return history(request, account, body);
+                }
+                case "deposit" -> {
+                    requireMethod(request, "POST");
+                    return posted(account, account.tryDeposit(Money.parse(request.parameter("amount"))), body);
+                }
+                case "withdraw" -> {
+                    requireMethod(request, "POST");
+                    return posted(account, account.tryWithdraw(Money.parse(request.parameter("amount"))), body);
+                }
+                default -> {
+                    appendError(body, "No such resource: " + request.path);
+                    return 404;
+                }
+            }
+        } catch (MethodNotAllowedException e) {
+            appendError(body, e.getMessage());
+            return 405;
+        } catch (InsufficientFundsException | PrematureWithdrawalException e) {
+            appendError(body, e.getMessage());
+            return 409;
+        } catch (IllegalArgumentException e) {
+            // includes NumberFormatException and the invalid amount exceptions
+            appendError(body, e.getMessage());
+            return 400;
+        } catch (UncheckedIOException e) {
+            appendError(body, "Ledger unavailable: " + e.getMessage());
+            return 503;
+        } catch (RuntimeException e) {
+            appendError(body, "Internal error: " + e);
+            return 500;
+        }
+    }
+
+    /**
+     * Writes the outcome of a deposit or withdrawal. Declines arrive as result codes, so a
+     * burst of them costs no exceptions.
+     *
+     * @return the HTTP status
+     */
+    private static int posted(BankAccount account, PostingResult result, StringBuilder body) {
+        if (!result.isApproved()) {
+            appendError(body, result.getDescription());
+            return result == PostingResult.INVALID_AMOUNT ? 400 : 409;
+        }
+        appendBalance(body, account, account.getBalance());
+        return 200;
+    }
+
+    private int transfer(Request request, StringBuilder body) {
+        String from = request.parameter("from");
+        String to = request.parameter("to");
+        long amount = Money.parse(request.parameter("amount"));
+        BankAccount source = bank.getAccount(from);
+        BankAccount target = bank.getAccount(to);
+        if (source == null || target == null) {
+            appendError(body, "Account not found: " + (source == null ? from : to));
+            return 404;
+        }
+        if (!bank.transfer(from, to, amount)) {
+            appendError(body, "Transfer refused by account rules");
+            return 409;
+        }
+        body.append("{\"from\": ");
+        JsonInterchange.appendString(body, from);
+        body.append(", \"to\": ");
+        JsonInterchange.appendString(body, to);
+        body.append(", \"amount\": ");
+        Money.appendPlain(body, amount);
+        body.append('}');
+        return 200;
+    }
+
+    private int history(Request request, BankAccount account, StringBuilder body) {
+        int offset = request.intParameter("offset", 0);
+        int limit = Math.min(request.intParameter("limit", DEFAULT_HISTORY_LIMIT), MAX_HISTORY_LIMIT);
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+
+        TransactionJournal journal = account.getJournal();
+        int newest = journal.size() - 1 - offset;
+        int oldest = Math.max(newest - limit + 1, 0);
+        body.append("{\"accountNumber\": ");
+        JsonInterchange.appendString(body, account.getAccountNumber());
+        body.append(", \"transactions\": [");
+        for (int i = newest; i >= oldest; i--) {
+            body.append(i == newest ? "" : ", ");
+            body.append("{\"type\": \"").append(journal.typeAt(i).name()).append("\", \"amount\": ");
+            Money.appendPlain(body, journal.amountAt(i));
+            body.append(", \"balanceAfter\": ");
+            Money.appendPlain(body, journal.balanceAfterAt(i));
+            body.append(", \"timestamp\": \"")
+                    .append(Instant.EPOCH.plus(journal.timestampMicrosAt(i), ChronoUnit.MICROS))
+                    .append("\"}");
+        }
+        body.append("]}");
+        return 200;
+    }
+
+    private static void requireMethod(Request request, String method) {
+        if (!request.method.equals(method)) {
+            throw new MethodNotAllowedException(request.method + " not allowed on " + request.path);
+        }
+    }
+
+    private static void appendBalance(StringBuilder body, BankAccount account, long balance) {
+        body.append("{\"accountNumber\": ");
+        JsonInterchange.appendString(body, account.getAccountNumber());
+        body.append(", \"balance\": ");
+        Money.appendPlain(body, balance);
+        body.append('}');
+    }
+
+    private static void appendError(StringBuilder body, String message) {
+        body.append("{\"error\": ");
+        JsonInterchange.appendString(body, String.valueOf(message));
+        body.append('}');
+    }
+
+    private static void writeResponse(OutputStream out, int status, CharSequence body, boolean keepAlive)
+            throws IOException {
+        byte[] content = body.toString().getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + ' ' + reason(status) + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 200 -> "OK";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 411 -> "Length Required";
+            case 431 -> "Request Header Fields Too Large";
+            case 503 -> "Service Unavailable";
+            default -> "Internal Server Error";
+        };
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /** One parsed request, reused for every request on a connection. */
+    private static final class Request {
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+        private final Map<String, String> parameters = new HashMap<>();
+        String method;
+        String path;
+        boolean keepAlive;
+
+        /**
+         * Reads the next request, discarding its body.
+         *
+         * @return false if the client closed the connection between requests
+         * @throws BadRequestException if the request cannot be parsed
+         */
+        boolean read(InputStream in) throws IOException {
+            int length = readLine(in);
+            while (length == 0) {
+                length = readLine(in); // tolerate blank lines between requests
+            }
+            if (length < 0) {
+                return false;
+            }
+
+            String requestLine = new String(line, 0, length, StandardCharsets.US_ASCII);
+            int firstSpace = requestLine.indexOf(' ');
+            int secondSpace = requestLine.indexOf(' ', firstSpace + 1);
+            if (firstSpace <= 0 || secondSpace < 0) {
+                throw new BadRequestException(400, "Malformed request line");
+            }
+            method = requestLine.substring(0, firstSpace);
+            String target = requestLine.substring(firstSpace + 1, secondSpace);
+            String version = requestLine.substring(secondSpace + 1);
+            keepAlive = version.equals("HTTP/1.1");
+
+            parameters.clear();
+            int query = target.indexOf('?');
+            path = query < 0 ? target : target.substring(0, query);
+            if (query >= 0) {
+                try {
+                    for (String pair : target.substring(query + 1).split("&")) {
+                        int equals = pair.indexOf('=');
+                        if (equals > 0) {
+                            parameters.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new BadRequestException(400, "Malformed query string");
+                }
+            }
+
+            long contentLength = 0;
+            for (int headers = 0; ; headers++) {
+                length = readLine(in);
+                if (length == 0) {
+                    break;
+                } else if (length < 0) {
+                    throw new BadRequestException(400, "Connection closed in headers");
+                } else if (headers == MAX_HEADERS) {
+                    throw new BadRequestException(431, "Too many headers");
+                }
+                String header = new String(line, 0, length, StandardCharsets.US_ASCII);
+                int colon = header.indexOf(':');
+                if (colon <= 0) {
+                    throw new BadRequestException(400, "Malformed header");
+                }
+                String name = header.substring(0, colon).trim();
+                String value = header.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new BadRequestException(400, "Malformed Content-Length");
+                    }
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = value.equalsIgnoreCase("keep-alive")
+                            || (keepAlive && !value.equalsIgnoreCase("close"));
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    throw new BadRequestException(411, "Chunked bodies are not supported");
+                }
+            }
+            if (contentLength < 0) {
+                throw new BadRequestException(400, "Malformed Content-Length");
+            }
+            in.skipNBytes(contentLength);
+            return true;
+        }
+
+        /**
+         * Reads one CRLF- or LF-terminated line into {@link #line}.
+         *
+         * @return the line length without the terminator, or -1 at end of stream
+         */
+        private int readLine(InputStream in) throws IOException {
+            int length = 0;
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    if (length == 0) {
+                        return -1;
+                    }
+                    throw new BadRequestException(400, "Connection closed mid-line");
+                } else if (b == '\n') {
+                    return length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+                } else if (length == MAX_LINE_LENGTH) {
+                    throw new BadRequestException(431, "Line longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                line[length++] = (byte) b;
+            }
+        }
+
+        String parameter(String name) {
+            String value = parameters.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+            return value;
+        }
+
+        int intParameter(String name, int defaultValue) {
+            String value = parameters.get(name);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + name + ": " + value);
+            }
+        }
+    }
+
+    /** A request that cannot be answered in the normal way; the connection is closed after it. */
+    private static final class BadRequestException extends IOException {
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class MethodNotAllowedException extends RuntimeException {
+        MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+}
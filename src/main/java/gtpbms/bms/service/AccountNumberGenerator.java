@@ -0,0 +1,227 @@
+package gtpbms.bms.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique account numbers, from any number of threads, across restarts.
+ *
+ * <p>A number is {@value #PREFIX} followed by 14 digits: a two-digit node id, an 11-digit
+ * sequence and a Luhn check digit, for example {@code NONA00000000000422} (node 0, sequence 42). The node id lets
+ * several generators (one per server) share the number space without coordinating. Within a
+ * node the sequence is split into blocks at two levels, so that almost every number is handed
+ * out without contention or I/O:
+ * <ul>
+ *   <li>A lease of {@value #LEASE_SIZE} sequence numbers is reserved by writing the end of the
+ *       lease to the sequence file and forcing it to disk before any number in it is used. On
+ *       restart the generator starts after the last lease, so numbers are never reissued; the
+ *       unused rest of that lease is skipped.</li>
+ *   <li>Each thread takes a block of {@value #THREAD_BLOCK_SIZE} numbers from the lease with a
+ *       single atomic add and hands them out from a thread-local cursor.</li>
+ * </ul>
+ * Numbers from one thread increase; numbers from different threads interleave.
+ */
+public final class AccountNumberGenerator implements Closeable {
+    /** The prefix of every account number. */
+    public static final String PREFIX = "NONA";
+
+    /** The number of digits after the prefix. */
+    public static final int DIGITS = 14;
+
+    /** The largest node id. */
+    public static final int MAX_NODE = 99;
+
+    static final long LEASE_SIZE = 1 << 20;
+    static final int THREAD_BLOCK_SIZE = 1024;
+
+    private static final long SEQUENCE_LIMIT = 100_000_000_000L;
+
+    private final int node;
+    private final FileChannel sequenceFile;
+    private final ByteBuffer leaseBuffer = ByteBuffer.allocate(Long.BYTES);
+    private final AtomicLong nextBlock;
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+    private volatile long leaseEnd;
+
+    private AccountNumberGenerator(int node, FileChannel sequenceFile, long start) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE + ". Received: " + node);
+        }
+        this.node = node;
+        this.sequenceFile = sequenceFile;
+        this.nextBlock = new AtomicLong(start);
+        this.leaseEnd = start;
+    }
+
+    /**
+     * Opens a generator whose leases are recorded in a sequence file, creating the file if it
+     * does not exist.
+     *
+     * @param sequenceFile the file recording the end of the last lease
+     * @param node the node id, from 0 to {@value #MAX_NODE}
+     * @return the generator
+     * @throws IOException if the file cannot be read or created
+     * @throws IllegalArgumentException if node is out of range
+     */
+    public static AccountNumberGenerator open(Path sequenceFile, int node) throws IOException {
+        Path parent = sequenceFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(sequenceFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long start = 0;
+            if (channel.size() >= Long.BYTES) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                    continue;
+                }
+                start = buffer.getLong(0);
+            }
+            if (start < 0 || start > SEQUENCE_LIMIT) {
+                throw new IOException("Corrupt account number sequence file " + sequenceFile + ": " + start);
+            }
+            return new AccountNumberGenerator(node, channel, start);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a generator that keeps no record of its leases, for a bank that is not persisted.
+     * It starts from the beginning of the sequence every time.
+     *
+     * @param node the node id, from 0 to {@value #MAX_NODE}
+     * @return the generator
+     * @throws IllegalArgumentException if node is out of range
+     */
+    public static AccountNumberGenerator inMemory(int node) {
+        return new AccountNumberGenerator(node, null, 0);
+    }
+
+    /**
+     * Allocates the next account number.
+     *
+     * @return a number never handed out before by this node
+     * @throws UncheckedIOException if a new lease cannot be recorded
+     * @throws IllegalStateException if the node's sequence is used up
+     */
+    public String next() {
+        Block block = blocks.get();
+        if (block.next == block.end) {
+            long start = nextBlock.getAndAdd(THREAD_BLOCK_SIZE);
+            if (start + THREAD_BLOCK_SIZE > leaseEnd) {
+                extendLease(start + THREAD_BLOCK_SIZE);
+            }
+            block.next = start;
+            block.end = start + THREAD_BLOCK_SIZE;
+        }
+        return format(node, block.next++);
+    }
+
+    /**
+     * Checks that a string is a well-formed account number with a valid check digit.
+     *
+     * @param accountNumber the string to check
+     * @return true if it is the prefix, 14 digits and a correct check digit
+     */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != PREFIX.length() + DIGITS
+                || !accountNumber.startsWith(PREFIX)) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            char c = accountNumber.charAt(accountNumber.length() - 1 - i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            sum += luhnDigit(c - '0', i);
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Closes the sequence file. Numbers already leased are not reissued after a restart.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (sequenceFile != null) {
+            sequenceFile.close();
+        }
+    }
+
+    /**
+     * Reserves leases until the sequence below required is covered, recording each on disk
+     * before it is used.
+     */
+    private synchronized void extendLease(long required) {
+        long end = leaseEnd;
+        if (required <= end) {
+            return;
+        }
+        if (required > SEQUENCE_LIMIT) {
+            throw new IllegalStateException("Account number sequence exhausted for node " + node);
+        }
+        while (end < required) {
+            end = Math.min(end + LEASE_SIZE, SEQUENCE_LIMIT);
+        }
+        if (sequenceFile != null) {
+            try {
+                leaseBuffer.clear().putLong(end).flip();
+                while (leaseBuffer.hasRemaining()) {
+                    sequenceFile.write(leaseBuffer, leaseBuffer.position());
+                }
+                sequenceFile.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot record account number lease", e);
+            }
+        }
+        leaseEnd = end;
+    }
+
+    /** Formats node and sequence as prefix, 13 digits and the Luhn check digit. */
+    static String format(int node, long sequence) {
+        byte[] digits = new byte[PREFIX.length() + DIGITS];
+        for (int i = 0; i < PREFIX.length(); i++) {
+            digits[i] = (byte) PREFIX.charAt(i);
+        }
+        int sum = 0;
+        long value = node * SEQUENCE_LIMIT + sequence;
+        for (int i = digits.length - 2, position = 1; i >= PREFIX.length(); i--, position++) {
+            int digit = (int) (value % 10);
+            value /= 10;
+            digits[i] = (byte) ('0' + digit);
+            sum += luhnDigit(digit, position);
+        }
+        digits[digits.length - 1] = (byte) ('0' + (10 - sum % 10) % 10);
+        return new String(digits, StandardCharsets.US_ASCII);
+    }
+
+    /** A digit's contribution to the Luhn sum, position 0 being the check digit. */
+    private static int luhnDigit(int digit, int position) {
+        if ((position & 1) == 0) {
+            return digit;
+        }
+        int doubled = digit * 2;
+        return doubled > 9 ? doubled - 9 : doubled;
+    }
+
+    /** A thread's current block of sequence numbers, {@code [next, end)}. */
+    private static final class Block {
+        long next;
+        long end;
+    }
+}
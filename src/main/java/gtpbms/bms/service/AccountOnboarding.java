@@ -0,0 +1,313 @@
+package gtpbms.bms.service;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.Product;
+import gtpbms.bms.model.ProductCatalogue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Opens accounts in bulk, for example to migrate customers from another core banking system.
+ *
+ * <p>Requests are read from a stream into windows of at most {@code batchSize}. Each window is
+ * validated and its accounts created in parallel in a {@link ForkJoinPool}: a request is
+ * checked against {@link #validate(OpenRequest, LocalDate)} first, and only a valid request
+ * draws an account number and creates an account. The window's accounts are then registered
+ * with {@link Bank#addAccounts(List)}, so a durable posting listener records the whole window
+ * at once. Memory use depends on the window size, not on the number of requests.
+ *
+ * <p>An invalid request never stops the run. The {@link Listener} hears about every request,
+ * opened or rejected, in the order the stream supplied them, on the thread that called
+ * {@link #openAll(Stream, Listener)}.
+ */
+public final class AccountOnboarding {
+    /** The default number of requests processed together. */
+    public static final int DEFAULT_BATCH_SIZE = 65_536;
+
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * A request to open one account.
+     *
+     * @param accountHolder the account holder's name
+     * @param productId the id of the account's {@link Product}
+     * @param initialDeposit the opening balance in pesewas
+     * @param maturityDate the maturity date of a fixed deposit, or null for the product's
+     *                     {@link Product#getTerm() term} from the opening date; ignored for
+     *                     other products
+     */
+    public record OpenRequest(String accountHolder, int productId, long initialDeposit, LocalDate maturityDate) {
+    }
+
+    /** Hears the outcome of each request. */
+    public interface Listener {
+        /** A listener that ignores every outcome. */
+        Listener NONE = new Listener() {
+        };
+
+        /**
+         * Called when a request's account has been opened and registered.
+         *
+         * @param index the position of the request in the stream, from 0
+         * @param request the request
+         * @param account the new account
+         */
+        default void opened(long index, OpenRequest request, BankAccount account) {
+        }
+
+        /**
+         * Called when a request is rejected.
+         *
+         * @param index the position of the request in the stream, from 0
+         * @param request the request
+         * @param reason why it was rejected
+         */
+        default void rejected(long index, OpenRequest request, String reason) {
+        }
+    }
+
+    private final Bank bank;
+    private final AccountNumberGenerator accountNumbers;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    /**
+     * Creates an onboarding run that processes windows of {@link #DEFAULT_BATCH_SIZE} requests
+     * in the common fork/join pool.
+     *
+     * @param bank the bank to open the accounts in
+     * @param accountNumbers the source of the new accounts' numbers
+     */
+    public AccountOnboarding(Bank bank, AccountNumberGenerator accountNumbers) {
+        this(bank, accountNumbers, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an onboarding run with the given pool and window size.
+     *
+     * @param bank the bank to open the accounts in
+     * @param accountNumbers the source of the new accounts' numbers
+     * @param pool the pool to validate and create accounts in
+     * @param batchSize the number of requests processed together
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public AccountOnboarding(Bank bank, AccountNumberGenerator accountNumbers, ForkJoinPool pool, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive. Received: " + batchSize);
+        }
+        this.bank = bank;
+        this.accountNumbers = accountNumbers;
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Checks a request against the opening rules of its product in the catalogue in use,
+     * without allocating an account or a number.
+     *
+     * @param request the request
+     * @param today the opening date
+     * @return null if the request is valid, otherwise why it is not
+     */
+    public static String validate(OpenRequest request, LocalDate today) {
+        if (request == null) {
+            return "Missing request";
+        }
+        if (request.accountHolder() == null || request.accountHolder().isBlank()) {
+            return "Missing account holder";
+        }
+        Product product = ProductCatalogue.current().find(request.productId());
+        if (product == null) {
+            return "Unknown account type";
+        }
+        if (request.initialDeposit() <= 0) {
+            return "Initial deposit must be greater than 0";
+        }
+        if (request.initialDeposit() < product.getMinimumOpeningBalance()) {
+            return product.getBelowMinimumOpeningMessage();
+        }
+        if (product.getFamily() == Product.Family.FIXED_DEPOSIT && request.maturityDate() != null
+                && !request.maturityDate().isAfter(today)) {
+            return "Maturity date must be after the opening date";
+        }
+        return null;
+    }
+
+    /**
+     * Creates the account a valid request asks for. It is not registered with any bank.
+     *
+     * @param request the request, which must pass {@link #validate(OpenRequest, LocalDate)}
+     * @param accountNumber the new account's number
+     * @param today the opening date
+     * @return the account
+     * @throws IllegalArgumentException if the request breaks the account's opening rules
+     */
+    public static BankAccount create(OpenRequest request, String accountNumber, LocalDate today) {
+        Product product = ProductCatalogue.product(request.productId());
+        LocalDate maturityDate = request.maturityDate();
+        if (maturityDate == null && product.getTerm() != null) {
+            maturityDate = today.plus(product.getTerm());
+        }
+        return product.open(request.accountHolder(), accountNumber, request.initialDeposit(), maturityDate);
+    }
+
+    /**
+     * Opens an account for every valid request in a stream.
+     *
+     * @param requests the requests, read once in order
+     * @return the outcome of the run
+     */
+    public Result openAll(Stream<OpenRequest> requests) {
+        return openAll(requests, Listener.NONE);
+    }
+
+    /**
+     * Opens an account for every valid request in a stream, reporting each outcome.
+     *
+     * @param requests the requests, read once in order
+     * @param listener hears about each request once its window has been registered
+     * @return the outcome of the run
+     */
+    public Result openAll(Stream<OpenRequest> requests, Listener listener) {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        Window window = new Window(batchSize);
+        long read = 0;
+        long opened = 0;
+        Iterator<OpenRequest> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            window.requests[window.size++] = iterator.next();
+            read++;
+            if (window.size == batchSize || !iterator.hasNext()) {
+                opened += process(window, read - window.size, today, listener);
+                window.clear();
+            }
+        }
+        return new Result(read, opened, read - opened, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * The outcome of an onboarding run.
+     *
+     * @param requests the requests read
+     * @param opened the accounts opened
+     * @param rejected the requests rejected
+     * @param elapsed the wall-clock time of the run
+     */
+    public record Result(long requests, long opened, long rejected, Duration elapsed) {
+
+        /**
+         * Gets the rate at which accounts were opened.
+         *
+         * @return accounts opened per second
+         */
+        public double accountsPerSecond() {
+            return opened / Math.max(1e-9, elapsed.toNanos() / 1e9);
+        }
+    }
+
+    /**
+     * Validates, creates and registers one window, then reports its outcomes.
+     *
+     * @return the number of accounts opened
+     */
+    private long process(Window window, long firstIndex, LocalDate today, Listener listener) {
+        pool.invoke(new Prepare(window, 0, window.size, today));
+
+        List<BankAccount> batch = new ArrayList<>(window.size);
+        for (int i = 0; i < window.size; i++) {
+            if (window.accounts[i] != null) {
+                batch.add(window.accounts[i]);
+            }
+        }
+        List<BankAccount> rejected = bank.addAccounts(batch);
+        Set<BankAccount> taken = Collections.newSetFromMap(new IdentityHashMap<>(rejected.size()));
+        taken.addAll(rejected);
+        for (int i = 0; i < window.size && !taken.isEmpty(); i++) {
+            if (window.accounts[i] != null && taken.contains(window.accounts[i])) {
+                window.accounts[i] = null;
+                window.reasons[i] = "Account number already registered";
+            }
+        }
+
+        long opened = 0;
+        for (int i = 0; i < window.size; i++) {
+            if (window.accounts[i] != null) {
+                opened++;
+                listener.opened(firstIndex + i, window.requests[i], window.accounts[i]);
+            } else {
+                listener.rejected(firstIndex + i, window.requests[i], window.reasons[i]);
+            }
+        }
+        return opened;
+    }
+
+    /** The requests of one window and, once prepared, their accounts or rejection reasons. */
+    private static final class Window {
+        final OpenRequest[] requests;
+        final BankAccount[] accounts;
+        final String[] reasons;
+        int size;
+
+        Window(int capacity) {
+            requests = new OpenRequest[capacity];
+            accounts = new BankAccount[capacity];
+            reasons = new String[capacity];
+        }
+
+        void clear() {
+            Arrays.fill(requests, 0, size, null);
+            Arrays.fill(accounts, 0, size, null);
+            Arrays.fill(reasons, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /** Validates a range of a window and creates the accounts of its valid requests. */
+    private final class Prepare extends RecursiveAction {
+        private final Window window;
+        private final int from;
+        private final int to;
+        private final LocalDate today;
+
+        Prepare(Window window, int from, int to, LocalDate today) {
+            this.window = window;
+            this.from = from;
+            this.to = to;
+            this.today = today;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Prepare(window, from, middle, today), new Prepare(window, middle, to, today));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                OpenRequest request = window.requests[i];
+                String reason = validate(request, today);
+                if (reason == null) {
+                    try {
+                        window.accounts[i] = create(request, accountNumbers.next(), today);
+                    } catch (RuntimeException e) {
+                        reason = e.getMessage();
+                    }
+                }
+                window.reasons[i] = reason;
+            }
+        }
+    }
+}
@@ -1,16 +1,66 @@
 package gtpbms.bms.service;
 
+import gtpbms.bms.metrics.LedgerMetrics;
 import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.ProductCatalogue;
+import gtpbms.bms.persistence.Checkpointer;
+import gtpbms.bms.persistence.Durability;
+import gtpbms.bms.persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 /**
  * Provides centralized management of the bank instance in the application.
  * This class serves as a singleton manager for the bank object, ensuring
  * there's only one instance throughout the application.
  * The bank is initialised with the name "NONA BANK" when the class is loaded.
+ *
+ * <p>On startup the bank is rebuilt from its latest snapshot and the write-ahead log records
+ * written after it, and every later change is appended to the log. Snapshots are taken
+ * periodically and on shutdown. Persistence is configured with system properties:
+ * <ul>
+ *   <li>{@value #WAL_FILE_PROPERTY}: the path the log segments are named after (default {@value #DEFAULT_WAL_FILE}).
+ *       An empty value keeps the bank in memory only.</li>
+ *   <li>{@value #WAL_DURABILITY_PROPERTY}: {@code PER_OPERATION} (default), {@code INTERVAL}
+ *       or {@code ASYNC}; see {@link Durability}</li>
+ *   <li>{@value #WAL_INTERVAL_PROPERTY}: the flush interval in milliseconds for
+ *       {@code INTERVAL} (default {@value #DEFAULT_WAL_INTERVAL_MS})</li>
+ *   <li>{@value #SNAPSHOT_DIR_PROPERTY}: the snapshot directory (default {@value #DEFAULT_SNAPSHOT_DIR})</li>
+ *   <li>{@value #SNAPSHOT_INTERVAL_PROPERTY}: the time between snapshots in milliseconds
+ *       (default {@value #DEFAULT_SNAPSHOT_INTERVAL_MS}); 0 only snapshots on shutdown</li>
+ *   <li>{@value #ACCOUNT_SEQUENCE_FILE_PROPERTY}: the file recording the account numbers
+ *       already leased (default {@value #DEFAULT_ACCOUNT_SEQUENCE_FILE}); ignored when the
+ *       bank is kept in memory only</li>
+ *   <li>{@value #NODE_ID_PROPERTY}: this instance's node id in new account numbers (default 0)</li>
+ * </ul>
+ *
+ * <p>Ledger metrics are published as JMX MBeans when the bank is opened; see {@link LedgerMetrics}.
+ * So is the {@link ProductCatalogue}, which is read from {@value ProductCatalogue#FILE_PROPERTY}
+ * and can be reloaded over JMX to change products without a restart.
  */
 public class BankManager {
+    public static final String WAL_FILE_PROPERTY = "bms.wal.file";
+    public static final String WAL_DURABILITY_PROPERTY = "bms.wal.durability";
+    public static final String WAL_INTERVAL_PROPERTY = "bms.wal.interval.ms";
+    public static final String SNAPSHOT_DIR_PROPERTY = "bms.snapshot.dir";
+    public static final String SNAPSHOT_INTERVAL_PROPERTY = "bms.snapshot.interval.ms";
+    public static final String ACCOUNT_SEQUENCE_FILE_PROPERTY = "bms.accounts.sequence.file";
+    public static final String NODE_ID_PROPERTY = "bms.node.id";
+
+    private static final String BANK_NAME = "NONA BANK";
+    private static final String DEFAULT_WAL_FILE = "data/ledger.wal";
+    private static final long DEFAULT_WAL_INTERVAL_MS = 10;
+    private static final String DEFAULT_SNAPSHOT_DIR = "data/snapshots";
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_MS = 300_000;
+    private static final String DEFAULT_ACCOUNT_SEQUENCE_FILE = "data/account-numbers.seq";
+
     /** The single instance of the bank */
-    private static final Bank bank = new Bank("NONA BANK");
+    private static final Bank bank = openBank();
+
+    /** The source of new account numbers */
+    private static final AccountNumberGenerator accountNumbers = openAccountNumbers();
 
     /**
      * Gets the singleton instance of the bank.
@@ -21,6 +71,96 @@ public class BankManager {
         return bank;
     }
 
+    /**
+     * Gets the generator that allocates numbers for new accounts.
+     *
+     * @return the account number generator
+     */
+    public static AccountNumberGenerator getAccountNumberGenerator() {
+        return accountNumbers;
+    }
+
+    /**
+     * Recovers the bank from its snapshots and write-ahead log, attaches the log for new
+     * changes and starts periodic snapshots.
+     *
+     * @return the recovered bank
+     * @throws UncheckedIOException if the log cannot be opened or replayed
+     */
+    private static Bank openBank() {
+        LedgerMetrics.registerMBeans();
+        ProductCatalogue.registerMBean();
+        String walFile = System.getProperty(WAL_FILE_PROPERTY, DEFAULT_WAL_FILE);
+        if (walFile.isEmpty()) {
+            return new Bank(BANK_NAME);
+        }
+
+        Durability durability = Durability.valueOf(
+                System.getProperty(WAL_DURABILITY_PROPERTY, Durability.PER_OPERATION.name()));
+        long intervalMillis = Long.getLong(WAL_INTERVAL_PROPERTY, DEFAULT_WAL_INTERVAL_MS);
+        Path snapshotDir = Path.of(System.getProperty(SNAPSHOT_DIR_PROPERTY, DEFAULT_SNAPSHOT_DIR));
+        long snapshotMillis = Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, DEFAULT_SNAPSHOT_INTERVAL_MS);
+
+        try {
+            long start = System.nanoTime();
+            WriteAheadLog log = WriteAheadLog.open(Path.of(walFile), durability, intervalMillis);
+            Bank bank = Checkpointer.recover(snapshotDir, BANK_NAME, log);
+            bank.setPostingListener(log);
+            LedgerMetrics.recovered(bank.getAccountCount(), System.nanoTime() - start);
+
+            Checkpointer checkpointer = new Checkpointer(bank, log, snapshotDir);
+            if (snapshotMillis > 0) {
+                checkpointer.start(snapshotMillis);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(checkpointer, log), "bank-shutdown"));
+            return bank;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover bank from " + walFile, e);
+        }
+    }
+
+    /**
+     * Opens the account number generator, recording its leases next to the bank's log, or in
+     * memory if the bank is not persisted.
+     *
+     * @return the generator
+     * @throws UncheckedIOException if the sequence file cannot be opened
+     */
+    private static AccountNumberGenerator openAccountNumbers() {
+        int node = Integer.getInteger(NODE_ID_PROPERTY, 0);
+        if (System.getProperty(WAL_FILE_PROPERTY, DEFAULT_WAL_FILE).isEmpty()) {
+            return AccountNumberGenerator.inMemory(node);
+        }
+        String sequenceFile = System.getProperty(ACCOUNT_SEQUENCE_FILE_PROPERTY, DEFAULT_ACCOUNT_SEQUENCE_FILE);
+        try {
+            return AccountNumberGenerator.open(Path.of(sequenceFile), node);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open account number sequence " + sequenceFile, e);
+        }
+    }
+
+    /**
+     * Takes a final snapshot, so the next start replays as little of the log as possible,
+     * and closes the log.
+     *
+     * @param checkpointer the checkpointer to stop and use for the final snapshot
+     * @param log the log to close
+     */
+    private static void shutdown(Checkpointer checkpointer, WriteAheadLog log) {
+        try {
+            checkpointer.close();
+            checkpointer.checkpoint();
+            checkpointer.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error taking shutdown snapshot: " + e.getMessage());
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.println("Error closing write-ahead log: " + e.getMessage());
+        }
+    }
+
     /**
      * Private constructor to prevent instantiation.
      * This enforces the singleton pattern.
@@ -0,0 +1,496 @@
+package gtpbms.bms.service;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.Money;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Streams a bulk payment file (a payroll run, say) into a {@link Bank}, crediting every valid
+ * row and reporting every rejected one.
+ *
+ * <p>A {@link Format#CSV} file has one payment per line as {@code accountNumber,amount}; any
+ * further fields, such as a reference, are ignored, and a first line whose amount field reads
+ * {@code amount} is taken as a header. A {@link Format#FIXED_WIDTH} file holds the account
+ * number in columns 1-20 and the amount in columns 21-35, each padded with spaces; anything
+ * after column 35 is ignored. Amounts are cedis with at most two decimal places.
+ *
+ * <p>The file is read through a {@link FileChannel} in fixed-size chunks. Rows are validated
+ * as they are read and valid ones collected into a window of at most {@code batchRows} rows.
+ * A full window is grouped by account and applied in parallel in a {@link ForkJoinPool}: each
+ * account's monitor is taken once for all of its rows in the window, and each row becomes its
+ * own deposit in file order. Memory use therefore depends on the window size, not on the size
+ * of the file.
+ *
+ * <p>A bad row never stops the run. Rows that cannot be read, name an unknown account or carry
+ * an amount that is not positive are rejected as they are read; rows the account refuses when
+ * posted are rejected after their window is applied. Each rejection is written to the report
+ * as a CSV line {@code line,reason,record}, where the record is the row as read or, for rows
+ * refused when posted, the account number and amount.
+ */
+public final class BulkPaymentIngestor {
+    /** The default number of valid rows applied together. */
+    public static final int DEFAULT_BATCH_ROWS = 65_536;
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int CHUNK_SIZE = 1024;
+    private static final int ACCOUNT_NUMBER_END = 20;
+    private static final int AMOUNT_END = 35;
+    private static final long INVALID_AMOUNT = Long.MIN_VALUE;
+
+    /** The layout of a payment file. */
+    public enum Format {
+        /** Comma-separated {@code accountNumber,amount}, optionally followed by more fields. */
+        CSV,
+
+        /** Account number in columns 1-20 and amount in columns 21-35. */
+        FIXED_WIDTH
+    }
+
+    private final Bank bank;
+    private final ForkJoinPool pool;
+    private final int batchRows;
+
+    /**
+     * Creates an ingestor that applies windows of {@link #DEFAULT_BATCH_ROWS} rows in the common
+     * fork/join pool.
+     *
+     * @param bank the bank whose accounts are credited
+     */
+    public BulkPaymentIngestor(Bank bank) {
+        this(bank, ForkJoinPool.commonPool(), DEFAULT_BATCH_ROWS);
+    }
+
+    /**
+     * Creates an ingestor.
+     *
+     * @param bank the bank whose accounts are credited
+     * @param pool the pool windows are applied in
+     * @param batchRows the most valid rows held and applied together
+     * @throws IllegalArgumentException if batchRows is not positive
+     */
+    public BulkPaymentIngestor(Bank bank, ForkJoinPool pool, int batchRows) {
+        if (batchRows <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive. Received: " + batchRows);
+        }
+        this.bank = bank;
+        this.pool = pool;
+        this.batchRows = batchRows;
+    }
+
+    /**
+     * Credits every valid row of a payment file and writes the rejected rows to a report.
+     *
+     * @param paymentFile the file to read
+     * @param format the layout of the file
+     * @param rejectedReport the report to write, replacing any existing file
+     * @return the outcome of the run
+     * @throws IOException if the payment file cannot be read or the report cannot be written
+     */
+    public Result ingest(Path paymentFile, Format format, Path rejectedReport) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(paymentFile, StandardOpenOption.READ);
+             Writer report = Files.newBufferedWriter(rejectedReport, StandardCharsets.UTF_8)) {
+            report.write("line,reason,record\n");
+            Run run = new Run(format, report);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                run.consume(buffer.array(), buffer.limit());
+                buffer.clear();
+            }
+            run.finish();
+            return new Result(run.rowsRead, run.tally.applied, run.rejected + run.tally.rejected,
+                    run.tally.accounts, run.tally.amount, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * The outcome of an ingest run.
+     *
+     * @param rowsRead the payment rows in the file, not counting blank lines or a header
+     * @param rowsApplied the rows credited
+     * @param rowsRejected the rows written to the report
+     * @param accountsCredited the accounts credited, counted once per window they appear in
+     * @param amountCredited the total credited, in pesewas
+     * @param elapsed the wall-clock time of the run
+     */
+    public record Result(long rowsRead, long rowsApplied, long rowsRejected, long accountsCredited,
+                         long amountCredited, Duration elapsed) {
+
+        /**
+         * Gets the rate at which rows were processed.
+         *
+         * @return rows read per second
+         */
+        public double rowsPerSecond() {
+            return rowsRead / Math.max(1e-9, elapsed.toNanos() / 1e9);
+        }
+    }
+
+    /** The state of one ingest run: the line being assembled and the window of valid rows. */
+    private final class Run {
+        private final Format format;
+        private final Writer report;
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+        private int lineLength;
+        private boolean lineTooLong;
+        private long lineNumber;
+
+        private final BankAccount[] rowAccounts = new BankAccount[batchRows];
+        private final long[] rowAmounts = new long[batchRows];
+        private final long[] rowLines = new long[batchRows];
+        private final int[] rowSlots = new int[batchRows];
+        private final int[] order = new int[batchRows];
+        private final Map<BankAccount, Integer> slots = new HashMap<>();
+        private BankAccount[] accounts = new BankAccount[1024];
+        private int[] slotStarts = new int[1025];
+        private int rows;
+
+        private long rowsRead;
+        private long rejected;
+        private final Tally tally = new Tally();
+
+        Run(Format format, Writer report) {
+            this.format = format;
+            this.report = report;
+        }
+
+        void consume(byte[] bytes, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    endLine();
+                } else if (lineLength < MAX_LINE_LENGTH) {
+                    line[lineLength++] = b;
+                } else {
+                    lineTooLong = true;
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            if (lineLength > 0 || lineTooLong) {
+                endLine();
+            }
+            applyWindow();
+        }
+
+        private void endLine() throws IOException {
+            lineNumber++;
+            int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+            boolean tooLong = lineTooLong;
+            lineLength = 0;
+            lineTooLong = false;
+
+            if (tooLong) {
+                rowsRead++;
+                reject(lineNumber, "Line longer than " + MAX_LINE_LENGTH + " bytes", "");
+                return;
+            }
+            if (isBlank(line, 0, length)) {
+                return;
+            }
+
+            int accountStart;
+            int accountEnd;
+            int amountStart;
+            int amountEnd;
+            if (format == Format.CSV) {
+                int comma = indexOf(line, 0, length, (byte) ',');
+                if (comma < 0) {
+                    rowsRead++;
+                    reject(lineNumber, "Expected account number and amount", text(length));
+                    return;
+                }
+                int nextComma = indexOf(line, comma + 1, length, (byte) ',');
+                accountStart = 0;
+                accountEnd = comma;
+                amountStart = comma + 1;
+                amountEnd = nextComma < 0 ? length : nextComma;
+            } else {
+                if (length <= ACCOUNT_NUMBER_END) {
+                    rowsRead++;
+                    reject(lineNumber, "Line shorter than " + (ACCOUNT_NUMBER_END + 1) + " columns", text(length));
+                    return;
+                }
+                accountStart = 0;
+                accountEnd = ACCOUNT_NUMBER_END;
+                amountStart = ACCOUNT_NUMBER_END;
+                amountEnd = Math.min(length, AMOUNT_END);
+            }
+
+            while (accountStart < accountEnd && isSpaceOrQuote(line[accountStart])) {
+                accountStart++;
+            }
+            while (accountEnd > accountStart && isSpaceOrQuote(line[accountEnd - 1])) {
+                accountEnd--;
+            }
+            while (amountStart < amountEnd && isSpaceOrQuote(line[amountStart])) {
+                amountStart++;
+            }
+            while (amountEnd > amountStart && isSpaceOrQuote(line[amountEnd - 1])) {
+                amountEnd--;
+            }
+
+            if (lineNumber == 1 && format == Format.CSV && isHeader(line, amountStart, amountEnd)) {
+                return;
+            }
+            rowsRead++;
+            if (accountStart == accountEnd) {
+                reject(lineNumber, "Missing account number", text(length));
+                return;
+            }
+            long amount = parseAmount(line, amountStart, amountEnd);
+            if (amount == INVALID_AMOUNT) {
+                reject(lineNumber, "Invalid amount", text(length));
+                return;
+            }
+            if (amount <= 0) {
+                reject(lineNumber, "Amount must be positive", text(length));
+                return;
+            }
+            String accountNumber = new String(line, accountStart, accountEnd - accountStart, StandardCharsets.UTF_8);
+            BankAccount account = bank.getAccount(accountNumber);
+            if (account == null) {
+                reject(lineNumber, "Unknown account", text(length));
+                return;
+            }
+
+            rowAccounts[rows] = account;
+            rowAmounts[rows] = amount;
+            rowLines[rows] = lineNumber;
+            if (++rows == batchRows) {
+                applyWindow();
+            }
+        }
+
+        /**
+         * Groups the window by account, keeping file order within each account, and applies it.
+         */
+        private void applyWindow() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            slots.clear();
+            for (int row = 0; row < rows; row++) {
+                Integer slot = slots.get(rowAccounts[row]);
+                if (slot == null) {
+                    slot = slots.size();
+                    slots.put(rowAccounts[row], slot);
+                    if (slot == accounts.length) {
+                        accounts = Arrays.copyOf(accounts, slot * 2);
+                        slotStarts = Arrays.copyOf(slotStarts, slot * 2 + 1);
+                    }
+                    accounts[slot] = rowAccounts[row];
+                }
+                rowSlots[row] = slot;
+            }
+
+            int accountCount = slots.size();
+            Arrays.fill(slotStarts, 0, accountCount + 1, 0);
+            for (int row = 0; row < rows; row++) {
+                slotStarts[rowSlots[row] + 1]++;
+            }
+            for (int slot = 0; slot < accountCount; slot++) {
+                slotStarts[slot + 1] += slotStarts[slot];
+            }
+            int[] next = Arrays.copyOf(slotStarts, accountCount);
+            for (int row = 0; row < rows; row++) {
+                order[next[rowSlots[row]]++] = row;
+            }
+
+            Tally window = pool.invoke(new Apply(this, 0, accountCount));
+            for (Rejection rejection : window.rejections) {
+                reject(rejection.line(), rejection.reason(), rejection.record());
+            }
+            tally.merge(window);
+            Arrays.fill(rowAccounts, 0, rows, null);
+            Arrays.fill(accounts, 0, accountCount, null);
+            rows = 0;
+        }
+
+        private void reject(long line, String reason, String record) throws IOException {
+            rejected++;
+            StringBuilder out = new StringBuilder(reason.length() + record.length() + 32);
+            out.append(line).append(',');
+            appendQuoted(out, reason).append(',');
+            appendQuoted(out, record).append('\n');
+            report.append(out);
+        }
+
+        private String text(int length) {
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Applies the rows of a range of account slots, splitting the range across workers. */
+    private static final class Apply extends RecursiveTask<Tally> {
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        Apply(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                Apply right = new Apply(run, middle, to);
+                right.fork();
+                Tally left = new Apply(run, from, middle).compute();
+                return left.merge(right.join());
+            }
+
+            Tally tally = new Tally();
+            for (int slot = from; slot < to; slot++) {
+                BankAccount account = run.accounts[slot];
+                boolean credited = false;
+                synchronized (account) {
+                    for (int i = run.slotStarts[slot]; i < run.slotStarts[slot + 1]; i++) {
+                        int row = run.order[i];
+                        long amount = run.rowAmounts[row];
+                        try {
+                            account.deposit(amount);
+                            tally.applied++;
+                            tally.amount += amount;
+                            credited = true;
+                        } catch (RuntimeException e) {
+                            tally.rejected++;
+                            tally.rejections.add(new Rejection(run.rowLines[row], String.valueOf(e.getMessage()),
+                                    account.getAccountNumber() + "," + Money.appendPlain(new StringBuilder(), amount)));
+                        }
+                    }
+                }
+                if (credited) {
+                    tally.accounts++;
+                }
+            }
+            return tally;
+        }
+    }
+
+    /** Counts for one range of accounts, merged up the fork/join tree. */
+    private static final class Tally {
+        long applied;
+        long rejected;
+        long accounts;
+        long amount;
+        final List<Rejection> rejections = new ArrayList<>();
+
+        Tally merge(Tally other) {
+            applied += other.applied;
+            rejected += other.rejected;
+            accounts += other.accounts;
+            amount += other.amount;
+            rejections.addAll(other.rejections);
+            return this;
+        }
+    }
+
+    private record Rejection(long line, String reason, String record) {
+    }
+
+    /**
+     * Parses a cedi amount with at most two decimal places, as {@link Money#parse(String)}
+     * does, straight from the line's bytes.
+     *
+     * @return the amount in pesewas, or {@link #INVALID_AMOUNT} if the text is not an amount
+     */
+    private static long parseAmount(byte[] bytes, int from, int to) {
+        boolean negative = false;
+        if (from < to && (bytes[from] == '-' || bytes[from] == '+')) {
+            negative = bytes[from] == '-';
+            from++;
+        }
+        long value = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (decimals == 2 || value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                    return INVALID_AMOUNT;
+                }
+                digits++;
+                value = value * 10 + (b - '0');
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else {
+                return INVALID_AMOUNT;
+            }
+        }
+        if (digits == 0) {
+            return INVALID_AMOUNT;
+        }
+        for (int i = Math.max(decimals, 0); i < 2; i++) {
+            if (value > Long.MAX_VALUE / 10) {
+                return INVALID_AMOUNT;
+            }
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isHeader(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8).equalsIgnoreCase("amount");
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpaceOrQuote(byte b) {
+        return b == ' ' || b == '\t' || b == '"';
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+}
@@ -0,0 +1,202 @@
+package gtpbms.bms.service;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.InterestBatch;
+import gtpbms.bms.model.InterestBearing;
+import gtpbms.bms.model.Product;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Month-end interest accrual over every {@link InterestBearing} account in a {@link Bank}.
+ *
+ * <p>The bank's registry is walked in place, never copied: its spliterator is split into
+ * chunks that a {@link ForkJoinPool} processes in parallel, idle workers stealing chunks from
+ * busy ones. Accounts opened while the job runs may or may not be included. Within a chunk, interest-bearing accounts are
+ * gathered into an {@link InterestBatch} per product id, whose interest is computed at the
+ * product's rate in one (SIMD where available) pass and posted back; an account whose balance
+ * is out of the batch's range is credited through
+ * {@link InterestBearing#accrueInterest(YearMonth)}. Either way each account
+ * gets exactly one posting, and a period the account has already been credited for is
+ * refused. A run that stops part way, whether from a crash or a failed posting, is resumed by
+ * running the same period again: accounts already credited are skipped.
+ */
+public final class InterestAccrualJob {
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Bank bank;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a job that runs in the common fork/join pool.
+     *
+     * @param bank the bank whose accounts accrue interest
+     */
+    public InterestAccrualJob(Bank bank) {
+        this(bank, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a job that runs in the given pool.
+     *
+     * @param bank the bank whose accounts accrue interest
+     * @param pool the pool to run in
+     */
+    public InterestAccrualJob(Bank bank, ForkJoinPool pool) {
+        this.bank = bank;
+        this.pool = pool;
+    }
+
+    /**
+     * Credits one period's interest to every interest-bearing account not yet credited for it.
+     * A failure on one account is counted and the run carries on with the others.
+     *
+     * @param period the period to credit interest for
+     * @return the outcome of the run
+     */
+    public Result run(YearMonth period) {
+        long start = System.nanoTime();
+        Tally tally = pool.invoke(new Chunk(bank.getAccounts().spliterator(), period));
+        return new Result(period, tally.scanned, tally.credited, tally.skipped, tally.failed,
+                tally.interest, tally.firstFailure, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * The outcome of an accrual run.
+     *
+     * @param period the period interest was credited for
+     * @param accountsScanned the number of accounts visited
+     * @param accountsCredited the interest-bearing accounts credited by this run
+     * @param accountsSkipped the interest-bearing accounts already credited or with nothing to credit
+     * @param accountsFailed the interest-bearing accounts whose posting failed
+     * @param interestCredited the total interest credited, in pesewas
+     * @param firstFailure the first posting failure, or null if none failed
+     * @param elapsed the wall-clock time of the run
+     */
+    public record Result(YearMonth period, long accountsScanned, long accountsCredited, long accountsSkipped,
+                         long accountsFailed, long interestCredited, RuntimeException firstFailure,
+                         Duration elapsed) {
+
+        /**
+         * Gets the rate at which accounts were processed.
+         *
+         * @return accounts scanned per second
+         */
+        public double accountsPerSecond() {
+            return accountsScanned / Math.max(1e-9, elapsed.toNanos() / 1e9);
+        }
+    }
+
+    /** Counts for one chunk, merged up the fork/join tree. */
+    private static final class Tally {
+        long scanned;
+        long credited;
+        long skipped;
+        long failed;
+        long interest;
+        RuntimeException firstFailure;
+
+        void record(long credited) {
+            if (credited > 0) {
+                this.credited++;
+                interest += credited;
+            } else {
+                skipped++;
+            }
+        }
+
+        void fail(RuntimeException e) {
+            failed++;
+            if (firstFailure == null) {
+                firstFailure = e;
+            }
+        }
+
+        Tally merge(Tally other) {
+            scanned += other.scanned;
+            credited += other.credited;
+            skipped += other.skipped;
+            failed += other.failed;
+            interest += other.interest;
+            if (firstFailure == null) {
+                firstFailure = other.firstFailure;
+            }
+            return this;
+        }
+    }
+
+    private static final class Chunk extends RecursiveTask<Tally> {
+        private final Spliterator<BankAccount> accounts;
+        private final YearMonth period;
+
+        Chunk(Spliterator<BankAccount> accounts, YearMonth period) {
+            this.accounts = accounts;
+            this.period = period;
+        }
+
+        @Override
+        protected Tally compute() {
+            List<Chunk> forked = new ArrayList<>();
+            for (Spliterator<BankAccount> split; accounts.estimateSize() > CHUNK_SIZE
+                    && (split = accounts.trySplit()) != null; ) {
+                Chunk right = new Chunk(split, period);
+                right.fork();
+                forked.add(right);
+            }
+
+            List<BankAccount> chunk = new ArrayList<>((int) Math.min(accounts.estimateSize(), CHUNK_SIZE));
+            accounts.forEachRemaining(chunk::add);
+            Tally tally = new Tally();
+            for (int from = 0; from < chunk.size(); from += CHUNK_SIZE) {
+                accrue(chunk.subList(from, Math.min(from + CHUNK_SIZE, chunk.size())), tally);
+            }
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                tally.merge(forked.get(i).join());
+            }
+            return tally;
+        }
+
+        private void accrue(List<BankAccount> chunk, Tally tally) {
+            tally.scanned += chunk.size();
+            InterestBatch[] byProduct = new InterestBatch[Product.MAX_ID + 1];
+            List<InterestBatch> batches = new ArrayList<>();
+            for (BankAccount account : chunk) {
+                if (!(account instanceof InterestBearing interestBearing)) {
+                    continue;
+                }
+                InterestBatch batch = byProduct[account.getProductId()];
+                if (batch == null) {
+                    batch = InterestBatch.forProduct(account.getProduct(), chunk.size());
+                    byProduct[account.getProductId()] = batch;
+                    batches.add(batch);
+                }
+                if (batch.add(account)) {
+                    continue;
+                }
+                try {
+                    tally.record(interestBearing.accrueInterest(period));
+                } catch (RuntimeException e) {
+                    tally.fail(e);
+                }
+            }
+
+            for (InterestBatch batch : batches) {
+                batch.computeInterest();
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        tally.record(batch.accrue(i, period));
+                    } catch (RuntimeException e) {
+                        tally.fail(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package gtpbms.bms.service;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.InterestBearing;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An optional execution mode for a {@link Bank} in which each account is only ever changed by
+ * one thread.
+ *
+ * <p>Accounts are partitioned by a hash of their account number onto a fixed number of shards.
+ * Each shard owns a single worker thread fed by a bounded, lock-free ring buffer of commands:
+ * any number of threads may submit, and the worker executes the commands in the order they
+ * were published. Because no two threads ever work on the same account, the account monitors
+ * the model takes are never contended on the hot path, and every account sees its commands in
+ * one deterministic order.
+ *
+ * <p>Commands run through the ordinary model methods, so each account type's rules (minimum
+ * balance, overdraft limit, maturity) and the bank's {@link gtpbms.bms.model.PostingListener}
+ * apply exactly as they do without the engine. A transfer runs on the source account's shard.
+ * When the destination belongs to another shard, it briefly takes that account's monitor as
+ * well, in the bank's usual deadlock-free order. It is not split into separate debit and
+ * credit commands, because a crash between them would leave money in flight.
+ *
+ * <p>The engine is a separate API beside the bank's own, not a mode the bank switches into:
+ * {@link Bank#transfer(String, String, long)}, {@link BankAccount#deposit(long)} and the other
+ * model methods still change accounts directly on the calling thread. Those calls stay
+ * correct, because they take the same account monitors, but the single writer per account
+ * and the deterministic order only hold for changes made through the engine.
+ *
+ * <p>Results are delivered through {@link CompletableFuture}s, completed on the shard's worker
+ * thread. Submitting to a full ring waits until the worker has made room. Once the engine is
+ * closed, every submission completes exceptionally with an {@link IllegalStateException}.
+ */
+public final class ShardedEngine implements Closeable {
+    /** The default number of commands each shard's ring buffer holds. */
+    public static final int DEFAULT_RING_SIZE = 1 << 16;
+
+    private static final byte DEPOSIT = 1;
+    private static final byte WITHDRAW = 2;
+    private static final byte INTEREST = 3;
+    private static final byte TRANSFER = 4;
+    private static final byte SYNC = 5;
+
+    // The claimed sequence of a shard whose worker has stopped, which no producer can claim
+    private static final long CLOSED = -1;
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Bank bank;
+    private final Shard[] shards;
+
+    /**
+     * Starts an engine with one worker thread per shard.
+     *
+     * @param bank the bank whose accounts the engine changes
+     * @param shardCount the number of shards
+     * @param ringSize the number of commands each shard can queue, a power of two of at least 2
+     * @throws IllegalArgumentException if shardCount is not positive, or ringSize is not a power of two
+     *         of at least 2
+     */
+    public ShardedEngine(Bank bank, int shardCount, int ringSize) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive. Received: " + shardCount);
+        }
+        // With one slot, a published command's marker would equal the free marker of the next claim
+        if (ringSize < 2 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two of at least 2. Received: "
+                    + ringSize);
+        }
+        this.bank = bank;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(ringSize);
+            shards[i].worker = Thread.ofPlatform().name("bms-shard-" + i).start(shards[i]);
+        }
+    }
+
+    /**
+     * Starts an engine with {@link #DEFAULT_RING_SIZE} commands per shard.
+     *
+     * @param bank the bank whose accounts the engine changes
+     * @param shardCount the number of shards
+     */
+    public ShardedEngine(Bank bank, int shardCount) {
+        this(bank, shardCount, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Deposits into an account on its shard.
+     *
+     * @param accountNumber the account to credit
+     * @param amount the amount in pesewas
+     * @return completes with true once deposited, or exceptionally as
+     *         {@link BankAccount#deposit(long)} would throw
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    public CompletableFuture<Boolean> deposit(String accountNumber, long amount) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        submit(DEPOSIT, account(accountNumber), null, amount, null, result);
+        return result;
+    }
+
+    /**
+     * Withdraws from an account on its shard.
+     *
+     * @param accountNumber the account to debit
+     * @param amount the amount in pesewas
+     * @return completes with the result of {@link BankAccount#withdraw(long)}, or exceptionally
+     *         as it would throw
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    public CompletableFuture<Boolean> withdraw(String accountNumber, long amount) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        submit(WITHDRAW, account(accountNumber), null, amount, null, result);
+        return result;
+    }
+
+    /**
+     * Credits a period's interest to an account on its shard.
+     *
+     * @param accountNumber the account to credit
+     * @param period the period to credit interest for
+     * @return completes with the interest credited in pesewas, as
+     *         {@link InterestBearing#accrueInterest(YearMonth)} returns; 0 if the account does
+     *         not bear interest
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    public CompletableFuture<Long> accrueInterest(String accountNumber, YearMonth period) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        submit(INTEREST, account(accountNumber), null, 0, period, result);
+        return result;
+    }
+
+    /**
+     * Transfers between two accounts on the source account's shard.
+     *
+     * @param fromAccountNumber the account to debit
+     * @param toAccountNumber the account to credit
+     * @param amount the amount in pesewas
+     * @return completes with the result of {@link Bank#transfer(String, String, long)}, or
+     *         exceptionally as it would throw
+     * @throws IllegalArgumentException if either account does not exist
+     */
+    public CompletableFuture<Boolean> transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        submit(TRANSFER, account(fromAccountNumber), account(toAccountNumber), amount, null, result);
+        return result;
+    }
+
+    /**
+     * Waits behind every command submitted so far.
+     *
+     * @return completes once each shard has executed every command published before this call
+     */
+    public CompletableFuture<Void> sync() {
+        CompletableFuture<?>[] markers = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            CompletableFuture<Boolean> marker = new CompletableFuture<>();
+            shards[i].publish(SYNC, null, null, 0, null, marker);
+            markers[i] = marker;
+        }
+        return CompletableFuture.allOf(markers);
+    }
+
+    /**
+     * Executes the commands already submitted and stops the worker threads. Commands submitted
+     * after this call complete exceptionally with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.worker);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private BankAccount account(String accountNumber) {
+        BankAccount account = bank.getAccount(accountNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        }
+        return account;
+    }
+
+    private void submit(byte op, BankAccount account, BankAccount target, long amount, YearMonth period,
+                        CompletableFuture<?> result) {
+        int hash = account.getAccountNumber().hashCode();
+        shards[Math.floorMod(hash ^ hash >>> 16, shards.length)].publish(op, account, target, amount, period, result);
+    }
+
+    /**
+     * One shard: a multi-producer, single-consumer ring of command slots and the worker that
+     * drains it. Slot {@code i} is free for the producer claiming sequence {@code s} when its
+     * sequence word reads {@code s}, and ready for the worker when it reads {@code s + 1}. A
+     * stopping worker swaps the claimed sequence for {@link #CLOSED}, so a producer either
+     * claims a slot the worker will still drain or sees the shard closed.
+     */
+    private final class Shard implements Runnable {
+        private static final int SPINS = 100;
+
+        private final int mask;
+        private final long[] sequences;
+        private final byte[] ops;
+        private final BankAccount[] accounts;
+        private final BankAccount[] targets;
+        private final long[] amounts;
+        private final YearMonth[] periods;
+        private final CompletableFuture<?>[] results;
+        private final AtomicLong claimed = new AtomicLong();
+        private long next; // worker only
+        private volatile boolean sleeping;
+        private volatile boolean running = true;
+        Thread worker;
+
+        Shard(int size) {
+            this.mask = size - 1;
+            this.sequences = new long[size];
+            this.ops = new byte[size];
+            this.accounts = new BankAccount[size];
+            this.targets = new BankAccount[size];
+            this.amounts = new long[size];
+            this.periods = new YearMonth[size];
+            this.results = new CompletableFuture<?>[size];
+            for (int i = 0; i < size; i++) {
+                sequences[i] = i;
+            }
+        }
+
+        void publish(byte op, BankAccount account, BankAccount target, long amount, YearMonth period,
+                     CompletableFuture<?> result) {
+            long sequence;
+            int slot;
+            while (true) {
+                sequence = claimed.get();
+                if (sequence == CLOSED) {
+                    result.completeExceptionally(new IllegalStateException("Sharded engine is closed"));
+                    return;
+                }
+                slot = (int) sequence & mask;
+                long available = (long) SEQUENCE.getAcquire(sequences, slot);
+                if (available == sequence) {
+                    if (claimed.compareAndSet(sequence, sequence + 1)) {
+                        break;
+                    }
+                } else if (available < sequence) {
+                    Thread.yield(); // full: the worker has not freed this slot yet
+                }
+            }
+
+            ops[slot] = op;
+            accounts[slot] = account;
+            targets[slot] = target;
+            amounts[slot] = amount;
+            periods[slot] = period;
+            results[slot] = result;
+            SEQUENCE.setVolatile(sequences, slot, sequence + 1);
+            if (sleeping) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                int slot = (int) next & mask;
+                if ((long) SEQUENCE.getAcquire(sequences, slot) == next + 1) {
+                    execute(slot);
+                    next++;
+                    idle = 0;
+                } else if (!running) {
+                    // Stop only once no producer holds a claim it has not published yet
+                    if (claimed.compareAndSet(next, CLOSED)) {
+                        return;
+                    }
+                    Thread.onSpinWait();
+                } else if (++idle < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    if ((long) SEQUENCE.getVolatile(sequences, slot) != next + 1 && running) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                    sleeping = false;
+                    idle = 0;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void execute(int slot) {
+            BankAccount account = accounts[slot];
+            long amount = amounts[slot];
+            CompletableFuture<Object> result = (CompletableFuture<Object>) results[slot];
+            try {
+                switch (ops[slot]) {
+                    case DEPOSIT -> {
+                        account.deposit(amount);
+                        result.complete(Boolean.TRUE);
+                    }
+                    case WITHDRAW -> result.complete(account.withdraw(amount));
+                    case INTEREST -> result.complete(account instanceof InterestBearing interestBearing
+                            ? interestBearing.accrueInterest(periods[slot]) : 0L);
+                    case TRANSFER -> result.complete(
+                            bank.transfer(account.getAccountNumber(), targets[slot].getAccountNumber(), amount));
+                    default -> result.complete(Boolean.TRUE);
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                accounts[slot] = null;
+                targets[slot] = null;
+                periods[slot] = null;
+                results[slot] = null;
+                SEQUENCE.setRelease(sequences, slot, next + mask + 1);
+            }
+        }
+    }
+}
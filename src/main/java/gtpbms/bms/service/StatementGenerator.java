@@ -0,0 +1,417 @@
+package gtpbms.bms.service;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.TransactionFormatter;
+import gtpbms.bms.model.TransactionJournal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Writes account statements for a time range, streaming them from the account's journal.
+ *
+ * <p>A statement lists every transaction in {@code [from, to)} oldest first, with the opening
+ * balance (the balance just before the range), the closing balance, and the total credited and
+ * debited. Entries are read straight from the journal's columns and formatted into one
+ * reusable buffer that is written out whenever it fills, so memory use does not depend on the
+ * length of the history. Entries posted while a statement is being written are left out.
+ *
+ * <p>In {@link Format#CSV} the columns are {@code date,description,amount,balance} with amounts
+ * in cedis; the opening and closing balances and the totals are rows of their own, described
+ * {@code Opening Balance}, {@code Closing Balance}, {@code Total Credits} and
+ * {@code Total Debits}. {@link Format#TEXT} is a fixed-width printable statement.
+ *
+ * <p>A generator holds its buffer and is used by one thread at a time.
+ * {@link #writeMonthEnd(Bank, YearMonth, Format, Path)} writes a month's statement for every
+ * account in parallel, one generator per worker.
+ */
+public final class StatementGenerator {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final int CHUNK_SIZE = 1024;
+    private static final int DESCRIPTION_WIDTH = 20;
+    private static final int AMOUNT_WIDTH = 18;
+
+    private static final byte[] CSV_HEADER = "date,description,amount,balance\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_COLUMNS = String.format("%-21s%-" + (DESCRIPTION_WIDTH + 2) + "s%"
+            + AMOUNT_WIDTH + "s  %" + AMOUNT_WIDTH + "s\n", "Date", "Description", "Amount (GH₵)", "Balance (GH₵)")
+            .getBytes(StandardCharsets.UTF_8);
+
+    /** The layout of a statement. */
+    public enum Format {
+        /** Comma-separated values, one row per transaction. */
+        CSV("csv"),
+
+        /** Fixed-width text for printing. */
+        TEXT("txt");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Gets the file name extension for statements in this format.
+         *
+         * @return the extension, without a dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private WritableByteChannel out;
+    private long bytesWritten;
+
+    /**
+     * Writes one account's statement to a channel.
+     *
+     * @param account the account
+     * @param from the start of the statement period (inclusive)
+     * @param to the end of the statement period (exclusive)
+     * @param format the layout
+     * @param channel the channel to write to; it is not closed
+     * @return the statement's figures
+     * @throws IOException if the channel cannot be written
+     */
+    public Summary write(BankAccount account, Instant from, Instant to, Format format, WritableByteChannel channel)
+            throws IOException {
+        TransactionJournal journal = account.getJournal();
+        long fromMicros = toMicros(from);
+        long toMicros = toMicros(to);
+        int start = journal.firstIndexAtOrAfter(fromMicros);
+        int end = Math.max(start, journal.firstIndexAtOrAfter(toMicros));
+        long opening = start == 0 ? 0 : journal.balanceAfterAt(start - 1);
+
+        out = channel;
+        bytesWritten = 0;
+        buffer.clear();
+        if (format == Format.CSV) {
+            buffer.put(CSV_HEADER);
+            putCsvRow(fromMicros, "Opening Balance", null, opening);
+        } else {
+            putTextHeader(account, fromMicros, toMicros, opening);
+        }
+
+        long credits = 0;
+        long debits = 0;
+        int creditCount = 0;
+        int debitCount = 0;
+        for (int i = start; i < end; i++) {
+            long amount = journal.amountAt(i);
+            if (amount >= 0) {
+                credits += amount;
+                creditCount++;
+            } else {
+                debits -= amount;
+                debitCount++;
+            }
+            ensureRoom();
+            if (format == Format.CSV) {
+                TransactionFormatter.putTimestamp(buffer, journal.timestampMicrosAt(i)).put((byte) ',');
+                TransactionFormatter.putDescription(buffer, journal.typeAt(i)).put((byte) ',');
+                TransactionFormatter.putPlainAmount(buffer, amount).put((byte) ',');
+                TransactionFormatter.putPlainAmount(buffer, journal.balanceAfterAt(i)).put((byte) '\n');
+            } else {
+                TransactionFormatter.putTimestamp(buffer, journal.timestampMicrosAt(i)).put((byte) ' ').put((byte) ' ');
+                int descriptionStart = buffer.position();
+                TransactionFormatter.putDescription(buffer, journal.typeAt(i));
+                pad(descriptionStart, DESCRIPTION_WIDTH);
+                putRightAligned(amount);
+                buffer.put((byte) ' ').put((byte) ' ');
+                putRightAligned(journal.balanceAfterAt(i));
+                buffer.put((byte) '\n');
+            }
+        }
+
+        long closing = end == 0 ? 0 : journal.balanceAfterAt(end - 1);
+        if (format == Format.CSV) {
+            putCsvRow(toMicros, "Closing Balance", null, closing);
+            putCsvRow(toMicros, "Total Credits", credits, null);
+            putCsvRow(toMicros, "Total Debits", debits, null);
+        } else {
+            putText("\nClosing balance:  ");
+            TransactionFormatter.putAmount(buffer, closing);
+            putText("\nTotal credits:    ");
+            TransactionFormatter.putAmount(buffer, credits);
+            putText(" (" + creditCount + ")\nTotal debits:     ");
+            TransactionFormatter.putAmount(buffer, debits);
+            putText(" (" + debitCount + ")\n");
+        }
+        flush();
+        out = null;
+        return new Summary(account.getAccountNumber(), end - start, opening, closing, credits, debits, bytesWritten);
+    }
+
+    /**
+     * Writes one account's statement to a stream.
+     *
+     * @param account the account
+     * @param from the start of the statement period (inclusive)
+     * @param to the end of the statement period (exclusive)
+     * @param format the layout
+     * @param stream the stream to write to; it is flushed but not closed
+     * @return the statement's figures
+     * @throws IOException if the stream cannot be written
+     */
+    public Summary write(BankAccount account, Instant from, Instant to, Format format, OutputStream stream)
+            throws IOException {
+        Summary summary = write(account, from, to, format, Channels.newChannel(stream));
+        stream.flush();
+        return summary;
+    }
+
+    /**
+     * Writes a month's statement for every account in a bank, in parallel in the common
+     * fork/join pool. Each statement goes to {@code <accountNumber>-<yyyy-MM>.<extension>} in
+     * the directory, replacing any earlier file. The month runs from midnight on its first day
+     * to midnight on the first day of the next, in the system time zone.
+     *
+     * @param bank the bank
+     * @param period the month
+     * @param format the layout
+     * @param directory the directory to write to, created if missing
+     * @return the outcome of the run
+     * @throws IOException if the directory cannot be created
+     */
+    public static BatchResult writeMonthEnd(Bank bank, YearMonth period, Format format, Path directory)
+            throws IOException {
+        return writeMonthEnd(bank, period, format, directory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Writes a month's statement for every account in a bank, in parallel in the given pool.
+     *
+     * @param bank the bank
+     * @param period the month
+     * @param format the layout
+     * @param directory the directory to write to, created if missing
+     * @param pool the pool to run in
+     * @return the outcome of the run
+     * @throws IOException if the directory cannot be created
+     * @see #writeMonthEnd(Bank, YearMonth, Format, Path)
+     */
+    public static BatchResult writeMonthEnd(Bank bank, YearMonth period, Format format, Path directory,
+                                            ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        ZoneId zone = ZoneId.systemDefault();
+        Instant from = period.atDay(1).atStartOfDay(zone).toInstant();
+        Instant to = period.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant();
+        Batch batch = new Batch(bank.getAccounts().spliterator(), period, from, to, format, directory);
+        Tally tally = pool.invoke(batch);
+        return new BatchResult(period, tally.statements, tally.failed, tally.transactions, tally.bytes,
+                tally.firstFailure, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * The figures of one statement.
+     *
+     * @param accountNumber the account
+     * @param transactions the number of transactions listed
+     * @param openingBalance the balance before the period, in pesewas
+     * @param closingBalance the balance after the last transaction listed, in pesewas
+     * @param totalCredits the sum of the credits listed, in pesewas
+     * @param totalDebits the sum of the debits listed, as a positive amount in pesewas
+     * @param bytesWritten the size of the statement in bytes
+     */
+    public record Summary(String accountNumber, int transactions, long openingBalance, long closingBalance,
+                          long totalCredits, long totalDebits, long bytesWritten) {
+    }
+
+    /**
+     * The outcome of a month-end statement run.
+     *
+     * @param period the month
+     * @param statements the statements written
+     * @param failed the statements that could not be written
+     * @param transactions the transactions listed across all statements
+     * @param bytes the bytes written across all statements
+     * @param firstFailure the first failure, or null if none failed
+     * @param elapsed the wall-clock time of the run
+     */
+    public record BatchResult(YearMonth period, long statements, long failed, long transactions, long bytes,
+                              Exception firstFailure, Duration elapsed) {
+
+        /**
+         * Gets the rate at which statements were written.
+         *
+         * @return statements per second
+         */
+        public double statementsPerSecond() {
+            return statements / Math.max(1e-9, elapsed.toNanos() / 1e9);
+        }
+    }
+
+    private void putTextHeader(BankAccount account, long fromMicros, long toMicros, long opening) {
+        putText("Statement of Account\nAccount number:   " + account.getAccountNumber()
+                + "\nAccount holder:   " + account.getAccountHolder()
+                + "\nAccount type:     " + account.getAccountType()
+                + "\nPeriod:           ");
+        TransactionFormatter.putTimestamp(buffer, fromMicros);
+        putText(" to ");
+        TransactionFormatter.putTimestamp(buffer, toMicros);
+        putText("\nOpening balance:  ");
+        TransactionFormatter.putAmount(buffer, opening);
+        putText("\n\n");
+        buffer.put(TEXT_COLUMNS);
+    }
+
+    private void putCsvRow(long micros, String description, Long amount, Long balance) throws IOException {
+        ensureRoom();
+        TransactionFormatter.putTimestamp(buffer, micros).put((byte) ',');
+        buffer.put(description.getBytes(StandardCharsets.US_ASCII)).put((byte) ',');
+        if (amount != null) {
+            TransactionFormatter.putPlainAmount(buffer, amount);
+        }
+        buffer.put((byte) ',');
+        if (balance != null) {
+            TransactionFormatter.putPlainAmount(buffer, balance);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private void putText(String text) {
+        buffer.put(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Pads the field that began at start with spaces to the given width, plus a gap. */
+    private void pad(int start, int width) {
+        for (int i = buffer.position() - start; i < width + 2; i++) {
+            buffer.put((byte) ' ');
+        }
+    }
+
+    /** Writes an amount right-aligned in a column of {@link #AMOUNT_WIDTH}. */
+    private void putRightAligned(long amount) {
+        int start = buffer.position();
+        TransactionFormatter.putPlainAmount(buffer, amount);
+        int length = buffer.position() - start;
+        int shift = AMOUNT_WIDTH - length;
+        if (shift > 0) {
+            for (int i = length - 1; i >= 0; i--) {
+                buffer.put(start + shift + i, buffer.get(start + i));
+            }
+            for (int i = 0; i < shift; i++) {
+                buffer.put(start + i, (byte) ' ');
+            }
+            buffer.position(start + AMOUNT_WIDTH);
+        }
+    }
+
+    private void ensureRoom() throws IOException {
+        if (buffer.remaining() < MAX_LINE_LENGTH) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long toMicros(Instant instant) {
+        try {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+        } catch (ArithmeticException e) {
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /** Counts for one range of accounts, merged up the fork/join tree. */
+    private static final class Tally {
+        long statements;
+        long failed;
+        long transactions;
+        long bytes;
+        Exception firstFailure;
+
+        Tally merge(Tally other) {
+            statements += other.statements;
+            failed += other.failed;
+            transactions += other.transactions;
+            bytes += other.bytes;
+            if (firstFailure == null) {
+                firstFailure = other.firstFailure;
+            }
+            return this;
+        }
+    }
+
+    private static final class Batch extends RecursiveTask<Tally> {
+        private final Spliterator<BankAccount> accounts;
+        private final YearMonth period;
+        private final Instant periodStart;
+        private final Instant periodEnd;
+        private final Format format;
+        private final Path directory;
+
+        Batch(Spliterator<BankAccount> accounts, YearMonth period, Instant periodStart, Instant periodEnd,
+              Format format, Path directory) {
+            this.accounts = accounts;
+            this.period = period;
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.format = format;
+            this.directory = directory;
+        }
+
+        @Override
+        protected Tally compute() {
+            List<Batch> forked = new ArrayList<>();
+            for (Spliterator<BankAccount> split; accounts.estimateSize() > CHUNK_SIZE
+                    && (split = accounts.trySplit()) != null; ) {
+                Batch right = new Batch(split, period, periodStart, periodEnd, format, directory);
+                right.fork();
+                forked.add(right);
+            }
+
+            Tally tally = new Tally();
+            StatementGenerator generator = new StatementGenerator();
+            accounts.forEachRemaining(account -> write(generator, account, tally));
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                tally.merge(forked.get(i).join());
+            }
+            return tally;
+        }
+
+        private void write(StatementGenerator generator, BankAccount account, Tally tally) {
+            Path file = directory.resolve(account.getAccountNumber() + "-" + period + "." + format.getExtension());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                Summary summary = generator.write(account, periodStart, periodEnd, format, channel);
+                tally.statements++;
+                tally.transactions += summary.transactions();
+                tally.bytes += summary.bytesWritten();
+            } catch (IOException | RuntimeException e) {
+                tally.failed++;
+                if (tally.firstFailure == null) {
+                    tally.firstFailure = e;
+                }
+            }
+        }
+    }
+}
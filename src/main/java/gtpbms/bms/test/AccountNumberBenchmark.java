@@ -0,0 +1,104 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.service.AccountNumberGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures {@link AccountNumberGenerator} throughput across threads and checks that its numbers
+ * are unique, carry valid check digits, and are not reissued after a restart.
+ *
+ * <p>Each thread draws its share of numbers and keeps their digits. The digits of all threads
+ * are then sorted and must contain no duplicate. The generator is reopened on the same
+ * sequence file twice, and every number it hands out must be above all numbers issued before.
+ * A single changed digit must make a number invalid.
+ *
+ * <p>Usage: {@code AccountNumberBenchmark [threads] [numbersPerThread]} (default 8, 2000000)
+ */
+public class AccountNumberBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        Path directory = Files.createTempDirectory("account-numbers");
+        Path sequenceFile = directory.resolve("account-numbers.seq");
+        boolean passed = true;
+        long highest = -1;
+        try {
+            for (int run = 1; run <= 3; run++) {
+                long[][] issued = new long[threads][perThread];
+                boolean[] valid = new boolean[threads];
+                long elapsed;
+                try (AccountNumberGenerator generator = AccountNumberGenerator.open(sequenceFile, 7)) {
+                    List<Thread> workers = new ArrayList<>(threads);
+                    long start = System.nanoTime();
+                    for (int t = 0; t < threads; t++) {
+                        long[] numbers = issued[t];
+                        int thread = t;
+                        workers.add(Thread.ofPlatform().start(() -> {
+                            boolean allValid = true;
+                            for (int i = 0; i < perThread; i++) {
+                                String number = generator.next();
+                                allValid &= (i & 1023) != 0 || AccountNumberGenerator.isValid(number);
+                                numbers[i] = Long.parseLong(number, AccountNumberGenerator.PREFIX.length(),
+                                        number.length(), 10);
+                            }
+                            valid[thread] = allValid;
+                        }));
+                    }
+                    for (Thread worker : workers) {
+                        worker.join();
+                    }
+                    elapsed = System.nanoTime() - start;
+                }
+
+                long[] all = new long[threads * perThread];
+                for (int t = 0; t < threads; t++) {
+                    System.arraycopy(issued[t], 0, all, t * perThread, perThread);
+                    passed &= valid[t];
+                }
+                Arrays.sort(all);
+                long duplicates = 0;
+                for (int i = 1; i < all.length; i++) {
+                    if (all[i] == all[i - 1]) {
+                        duplicates++;
+                    }
+                }
+                boolean fresh = all[0] > highest;
+                highest = all[all.length - 1];
+                System.out.printf("Run %d: %,d numbers on %d threads in %d ms (%,.0f numbers/sec), "
+                                + "%,d duplicates, %s%n", run, all.length, threads, elapsed / 1_000_000,
+                        all.length / (elapsed / 1e9), duplicates,
+                        fresh ? "all above the previous run" : "OVERLAPS the previous run");
+                passed &= duplicates == 0 && fresh;
+            }
+
+            try (AccountNumberGenerator generator = AccountNumberGenerator.open(sequenceFile, 7)) {
+                String number = generator.next();
+                boolean detected = true;
+                for (int i = AccountNumberGenerator.PREFIX.length(); i < number.length(); i++) {
+                    char[] digits = number.toCharArray();
+                    digits[i] = (char) ('0' + (digits[i] - '0' + 1) % 10);
+                    detected &= !AccountNumberGenerator.isValid(new String(digits));
+                }
+                System.out.println("Sample " + number + ": single-digit errors "
+                        + (detected ? "all detected" : "NOT all detected"));
+                passed &= AccountNumberGenerator.isValid(number) && detected;
+            }
+        } finally {
+            Files.deleteIfExists(sequenceFile);
+            Files.deleteIfExists(directory);
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.SavingsAccount;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded stress test for the account registry in {@link Bank}.
+ *
+ * <p>Every thread registers its own block of unique accounts, all threads race to register
+ * the same set of shared account numbers, and readers look accounts up the whole time.
+ * The run fails if a unique account is lost or if a shared number is accepted more than once.
+ *
+ * <p>Usage: {@code BankStressTest [threads] [accountsPerThread]}
+ */
+public class BankStressTest {
+    private static final int SHARED_ACCOUNT_NUMBERS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int accountsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        Bank bank = new Bank("NONA BANK");
+        AtomicInteger duplicatesAccepted = new AtomicInteger();
+        AtomicInteger duplicatesRejected = new AtomicInteger();
+        AtomicInteger missingOnLookup = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int threadId = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < accountsPerThread; i++) {
+                        String number = "NONA-" + threadId + "-" + i;
+                        bank.addAccount(new SavingsAccount("Holder " + threadId, number, Money.ofCedis(500)));
+                        if (bank.getAccount(number) == null) {
+                            missingOnLookup.incrementAndGet();
+                        }
+
+                        if (i < SHARED_ACCOUNT_NUMBERS) {
+                            BankAccount shared = new CurrentAccount("Shared", "SHARED-" + i, Money.ofCedis(1000));
+                            try {
+                                bank.addAccount(shared);
+                                duplicatesAccepted.incrementAndGet();
+                            } catch (IllegalArgumentException e) {
+                                duplicatesRejected.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        int sharedNumbers = Math.min(SHARED_ACCOUNT_NUMBERS, accountsPerThread);
+        int expectedAccounts = threads * accountsPerThread + sharedNumbers;
+        boolean passed = bank.getAccountCount() == expectedAccounts
+                && duplicatesAccepted.get() == sharedNumbers
+                && duplicatesRejected.get() == sharedNumbers * (threads - 1)
+                && missingOnLookup.get() == 0;
+
+        long operations = (long) threads * accountsPerThread * 2 + (long) sharedNumbers * threads;
+        System.out.printf("Threads: %d, accounts per thread: %d%n", threads, accountsPerThread);
+        System.out.printf("Registered accounts: %d (expected %d)%n", bank.getAccountCount(), expectedAccounts);
+        System.out.printf("Shared numbers accepted: %d, rejected: %d%n",
+                duplicatesAccepted.get(), duplicatesRejected.get());
+        System.out.printf("Lookups that missed a registered account: %d%n", missingOnLookup.get());
+        System.out.printf("Throughput: %.0f registry ops/sec%n", operations / (elapsedNanos / 1e9));
+        System.out.println(passed ? "PASSED" : "FAILED");
+
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.FixedDepositAccount;
+import gtpbms.bms.model.SavingsAccount;
+import gtpbms.bms.service.BulkPaymentIngestor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Measures bulk payment ingestion and checks that every row is either credited or reported.
+ *
+ * <p>The benchmark writes a payroll file in both layouts, with one row in a hundred spoiled
+ * (unknown account, negative or malformed amount), and ingests it into a bank. Every good row
+ * must be credited, every spoiled row must be in the report, and the bank's total balance
+ * must grow by exactly the amount credited. Run with a small heap (e.g. {@code -Xmx256m}) to
+ * see that memory use does not grow with the file.
+ *
+ * <p>Usage: {@code BulkPaymentBenchmark [rows] [accounts]} (default 5000000, 100000)
+ */
+public class BulkPaymentBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        Path dir = Files.createTempDirectory("bms-payments");
+        boolean passed = true;
+        try {
+            for (BulkPaymentIngestor.Format format : BulkPaymentIngestor.Format.values()) {
+                passed &= run(dir, format, rows, accounts);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path path : files.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(Path dir, BulkPaymentIngestor.Format format, int rows, int accounts)
+            throws IOException {
+        Path file = dir.resolve("payments-" + format);
+        Path report = dir.resolve("rejected-" + format + ".csv");
+        long spoiled = writeFile(file, format, rows, accounts);
+
+        Bank bank = createBank(accounts);
+        long before = totalBalance(bank);
+        BulkPaymentIngestor.Result result = new BulkPaymentIngestor(bank).ingest(file, format, report);
+        long after = totalBalance(bank);
+
+        long reported;
+        try (var lines = Files.lines(report)) {
+            reported = lines.count() - 1;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%s: %,d rows (%,d MB) in %d ms (%,.0f rows/sec), %,d applied, %,d rejected, "
+                        + "heap used %,d MB of %,d MB%n",
+                format, result.rowsRead(), Files.size(file) >> 20, result.elapsed().toMillis(), result.rowsPerSecond(),
+                result.rowsApplied(), result.rowsRejected(),
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20, runtime.maxMemory() >> 20);
+
+        boolean passed = result.rowsRead() == rows
+                && result.rowsRejected() == spoiled
+                && reported == spoiled
+                && result.rowsApplied() + result.rowsRejected() == rows
+                && after - before == result.amountCredited();
+        if (!passed) {
+            System.out.printf("Expected %,d rejected, report has %,d; balance grew by %,d of %,d credited%n",
+                    spoiled, reported, after - before, result.amountCredited());
+        }
+        return passed;
+    }
+
+    /**
+     * Writes a payment file and returns the number of rows that should be rejected.
+     */
+    private static long writeFile(Path file, BulkPaymentIngestor.Format format, int rows, int accounts)
+            throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        long spoiled = 0;
+        StringBuilder line = new StringBuilder(64);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (format == BulkPaymentIngestor.Format.CSV) {
+                out.write("account,amount,reference\n");
+            }
+            for (int i = 0; i < rows; i++) {
+                String account = "NONA" + random.nextInt(accounts);
+                String amount = random.nextInt(5_000) + "." + (10 + random.nextInt(90));
+                if (i % 100 == 99) {
+                    spoiled++;
+                    switch ((i / 100) % 3) {
+                        case 0 -> account = "NONX" + i;
+                        case 1 -> amount = "-" + amount;
+                        default -> amount = amount + "x";
+                    }
+                }
+                line.setLength(0);
+                if (format == BulkPaymentIngestor.Format.CSV) {
+                    line.append(account).append(',').append(amount).append(",PAYROLL ").append(i);
+                } else {
+                    line.append(account).append(" ".repeat(20 - account.length()));
+                    line.append(" ".repeat(15 - amount.length())).append(amount).append("PAYROLL ").append(i);
+                }
+                out.append(line).append('\n');
+            }
+        }
+        return spoiled;
+    }
+
+    private static Bank createBank(int accounts) {
+        Bank bank = new Bank("NONA BANK", accounts);
+        LocalDate maturity = LocalDate.now().plusYears(1);
+        for (int i = 0; i < accounts; i++) {
+            String number = "NONA" + i;
+            bank.addAccount(switch (i % 3) {
+                case 0 -> new SavingsAccount("Holder " + i, number, 1_000_00L);
+                case 1 -> new CurrentAccount("Holder " + i, number, 1_000_00L);
+                default -> new FixedDepositAccount("Holder " + i, number, 1_000_00L, maturity);
+            });
+        }
+        return bank;
+    }
+
+    private static long totalBalance(Bank bank) {
+        long total = 0;
+        for (BankAccount account : bank.getAccounts()) {
+            total += account.getBalance();
+        }
+        return total;
+    }
+}
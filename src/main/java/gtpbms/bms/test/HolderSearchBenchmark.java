@@ -0,0 +1,148 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.PostingListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Measures customer search through the bank's holder-name index against scanning every account,
+ * and checks that the index stays complete while accounts are registered from many threads.
+ *
+ * <p>Accounts are opened concurrently under names drawn from pools of first and last names,
+ * so each full name holds several accounts. Exact-name and prefix lookups are then timed, and
+ * for a sample of names the index must return exactly the accounts a scan finds, also after
+ * a posting listener is attached. Finally, an account without a holder name must be refused
+ * without being registered, alone or in a batch.
+ *
+ * <p>Usage: {@code HolderSearchBenchmark [accounts] [threads] [queries]}
+ * (default 1000000, 4, 10000)
+ */
+public class HolderSearchBenchmark {
+    private static final String[] FIRST_NAMES = {
+        "Ama", "Kofi", "Kwame", "Akosua", "Yaw", "Efua", "Kwabena", "Abena", "Kojo", "Adwoa",
+        "Kwaku", "Yaa", "Kwesi", "Esi", "Fiifi", "Afua", "Nana", "Akua", "Ekow", "Araba"
+    };
+    private static final String[] LAST_NAMES = {
+        "Mensah", "Owusu", "Boateng", "Asante", "Osei", "Agyeman", "Appiah", "Addo", "Acheampong",
+        "Amoah", "Darko", "Frimpong", "Gyamfi", "Kyei", "Nkansah", "Ofori", "Quaye", "Sarpong",
+        "Tetteh", "Yeboah"
+    };
+    private static final int SCAN_QUERIES = 10;
+    private static final int PREFIX_LIMIT = 50;
+
+    public static void main(String[] args) throws InterruptedException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int suffixes = Math.max(1, accounts / (FIRST_NAMES.length * LAST_NAMES.length * 4));
+
+        Bank bank = new Bank("NONA BANK", accounts);
+        List<Thread> workers = new ArrayList<>(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers.add(Thread.ofPlatform().start(() -> {
+                SplittableRandom random = new SplittableRandom(first);
+                for (int i = first; i < accounts; i += threads) {
+                    bank.addAccount(new CurrentAccount(name(random, suffixes), "NONA" + i, 500_00L));
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("Opened %,d accounts from %d threads in %d ms%n",
+                accounts, threads, (System.nanoTime() - start) / 1_000_000);
+
+        SplittableRandom random = new SplittableRandom(99);
+        String[] names = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            names[i] = name(random, suffixes).toUpperCase(Locale.ROOT);
+        }
+
+        long found = 0;
+        start = System.nanoTime();
+        for (String name : names) {
+            found += bank.findAccountsByHolder(name).size();
+        }
+        double exact = (System.nanoTime() - start) / 1e3 / queries;
+
+        long prefixed = 0;
+        start = System.nanoTime();
+        for (String name : names) {
+            prefixed += bank.searchAccountsByHolder(name.substring(0, name.indexOf(' ') + 3), PREFIX_LIMIT).size();
+        }
+        double prefix = (System.nanoTime() - start) / 1e3 / queries;
+
+        boolean consistent = true;
+        start = System.nanoTime();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            Set<BankAccount> scanned = new HashSet<>();
+            for (BankAccount account : bank.getAccounts()) {
+                if (account.getAccountHolder().equalsIgnoreCase(names[i])) {
+                    scanned.add(account);
+                }
+            }
+            List<BankAccount> indexed = bank.findAccountsByHolder(names[i]);
+            consistent &= scanned.size() == indexed.size() && scanned.containsAll(indexed);
+        }
+        double scan = (System.nanoTime() - start) / 1e3 / SCAN_QUERIES;
+
+        List<Integer> before = new ArrayList<>();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            before.add(bank.findAccountsByHolder(names[i]).size());
+        }
+        bank.setPostingListener(PostingListener.NONE);
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            consistent &= bank.findAccountsByHolder(names[i]).size() == before.get(i);
+        }
+        boolean refused = refusesMissingHolder();
+
+        System.out.printf("Exact name:   %,10.2f us/query (%,.1f accounts each)%n", exact, (double) found / queries);
+        System.out.printf("Name prefix:  %,10.2f us/query (%,.1f accounts each, limit %d)%n",
+                prefix, (double) prefixed / queries, PREFIX_LIMIT);
+        System.out.printf("Scan:         %,10.2f us/query%n", scan);
+        System.out.println("Index " + (consistent ? "matches" : "DOES NOT match") + " the scan");
+        System.out.println("Account without a holder " + (refused ? "refused" : "NOT refused cleanly"));
+        System.out.println(consistent && refused ? "PASSED" : "FAILED");
+        if (!consistent || !refused) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Tells whether the bank refuses an account with a null holder, alone and in a batch,
+     * before registering anything.
+     */
+    private static boolean refusesMissingHolder() {
+        Bank bank = new Bank("NONA BANK");
+        boolean refused = true;
+        try {
+            bank.addAccount(CurrentAccount.restore(null, "NONA-NULL-1"));
+            refused = false;
+        } catch (IllegalArgumentException expected) {
+            // refused
+        }
+        try {
+            bank.addAccounts(List.of(new CurrentAccount("Ama Mensah", "NONA-NULL-2", 500_00L),
+                    CurrentAccount.restore(null, "NONA-NULL-3")));
+            refused = false;
+        } catch (IllegalArgumentException expected) {
+            // refused
+        }
+        return refused && bank.getAccountCount() == 0 && bank.findAccountsByHolder("ama mensah").isEmpty();
+    }
+
+    private static String name(SplittableRandom random, int suffixes) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + "-" + random.nextInt(suffixes);
+    }
+}
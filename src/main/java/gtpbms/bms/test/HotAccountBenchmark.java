@@ -0,0 +1,104 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.Transaction;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contention benchmark for a single hot account, such as a merchant collection account.
+ *
+ * <p>Half the threads deposit and half withdraw against one {@link CurrentAccount}. When the run
+ * ends, the final balance must equal the opening balance plus every successful deposit minus
+ * every successful withdrawal. Every recorded transaction must also chain onto the balance
+ * of the one before it. The benchmark prints the sustained throughput.
+ *
+ * <p>Usage: {@code HotAccountBenchmark [threads] [operationsPerThread]}
+ */
+public class HotAccountBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int operationsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        CurrentAccount merchant = new CurrentAccount("Merchant", "NONA-HOT-1", Money.ofCedis(1000));
+        AtomicLong deposited = new AtomicLong();
+        AtomicLong withdrawn = new AtomicLong();
+        AtomicLong declined = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final boolean depositor = t % 2 == 0;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        if (depositor) {
+                            merchant.deposit(Money.ofCedis(1));
+                            deposited.incrementAndGet();
+                        } else if (merchant.withdraw(Money.ofCedis(2))) {
+                            withdrawn.incrementAndGet();
+                        } else {
+                            declined.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        long expectedBalance = Money.ofCedis(1000 + deposited.get() - withdrawn.get() * 2);
+        boolean balanceMatches = merchant.getBalance() == expectedBalance;
+        boolean journalConsistent = isJournalConsistent(merchant.getTransactionHistory());
+        boolean overdraftRespected = merchant.getBalance() >= -merchant.getProduct().getOverdraftLimit();
+
+        long operations = (long) threads * operationsPerThread;
+        System.out.printf("Threads: %d, operations: %d (deposits %d, withdrawals %d, declined %d)%n",
+                threads, operations, deposited.get(), withdrawn.get(), declined.get());
+        System.out.printf("Final balance: %s (expected %s)%n",
+                Money.format(merchant.getBalance()), Money.format(expectedBalance));
+        System.out.printf("Throughput: %.0f ops/sec on one account%n", operations / (elapsedNanos / 1e9));
+
+        boolean passed = balanceMatches && journalConsistent && overdraftRespected;
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Checks that each transaction's balance equals the previous balance plus its amount.
+     *
+     * @param history the transaction history, most recent first
+     * @return true if the journal forms an unbroken chain
+     */
+    private static boolean isJournalConsistent(List<Transaction> history) {
+        for (int i = 0; i < history.size() - 1; i++) {
+            Transaction newer = history.get(i);
+            Transaction older = history.get(i + 1);
+            if (older.getBalanceAfter() + newer.getAmount() != newer.getBalanceAfter()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
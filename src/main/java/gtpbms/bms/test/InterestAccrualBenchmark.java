@@ -0,0 +1,106 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.FixedDepositAccount;
+import gtpbms.bms.model.InterestBearing;
+import gtpbms.bms.model.PostingListener;
+import gtpbms.bms.model.SavingsAccount;
+import gtpbms.bms.model.TransactionType;
+import gtpbms.bms.service.InterestAccrualJob;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures month-end interest accrual and checks that it is idempotent and resumable.
+ *
+ * <p>A small bank is first run with a posting listener that fails part way through, standing
+ * in for a crash. Running the period again must credit exactly the accounts that were missed.
+ * Then a large bank (half savings, a quarter fixed deposits, a quarter current accounts) is
+ * accrued once for throughput and a second time to confirm that nothing is credited twice.
+ *
+ * <p>Usage: {@code InterestAccrualBenchmark [accounts]} (default 10000000)
+ */
+public class InterestAccrualBenchmark {
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        YearMonth period = YearMonth.of(2025, 1);
+        boolean passed = checkResume(period);
+
+        Bank bank = createBank(accounts);
+        InterestAccrualJob job = new InterestAccrualJob(bank);
+        for (int round = 0; round < 2; round++) {
+            InterestAccrualJob.Result result = job.run(period);
+            System.out.printf("Run %d: %,d accounts in %d ms (%,.0f accounts/sec), %,d credited, %,d skipped, %d failed%n",
+                    round + 1, result.accountsScanned(), result.elapsed().toMillis(), result.accountsPerSecond(),
+                    result.accountsCredited(), result.accountsSkipped(), result.accountsFailed());
+            long expected = round == 0 ? accounts - accounts / 4 : 0;
+            passed &= result.accountsCredited() == expected && result.accountsFailed() == 0;
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean checkResume(YearMonth period) {
+        int accounts = 100_000;
+        Bank bank = createBank(accounts);
+        AtomicLong accruals = new AtomicLong();
+        bank.setPostingListener(new PostingListener() {
+            @Override
+            public void accountOpened(BankAccount account) {
+            }
+
+            @Override
+            public void posted(BankAccount account, TransactionType type, long amount, long balanceAfter,
+                               long timestampMicros) {
+                if (accruals.incrementAndGet() > accounts / 3) {
+                    throw new IllegalStateException("Simulated crash");
+                }
+            }
+        });
+
+        InterestAccrualJob job = new InterestAccrualJob(bank);
+        InterestAccrualJob.Result interrupted = job.run(period);
+        bank.setPostingListener(PostingListener.NONE);
+        InterestAccrualJob.Result resumed = job.run(period);
+        System.out.printf("Interrupted run credited %,d (%,d failed); resumed run credited %,d%n",
+                interrupted.accountsCredited(), interrupted.accountsFailed(), resumed.accountsCredited());
+
+        for (BankAccount account : bank.getAccounts()) {
+            int credits = 0;
+            for (int i = 0; i < account.getTransactionCount(); i++) {
+                if (account.getJournal().typeAt(i) == TransactionType.INTEREST_CREDIT) {
+                    credits++;
+                }
+            }
+            if (credits != (account instanceof InterestBearing ? 1 : 0)) {
+                System.out.println("Account " + account.getAccountNumber() + " was credited " + credits + " times");
+                return false;
+            }
+        }
+        return interrupted.accountsFailed() > 0
+                && interrupted.accountsCredited() + resumed.accountsCredited() == accounts - accounts / 4;
+    }
+
+    private static Bank createBank(int accounts) {
+        Bank bank = new Bank("NONA BANK", accounts);
+        LocalDate maturity = LocalDate.now().plusYears(1);
+        for (int i = 0; i < accounts; i++) {
+            String number = "NONA" + i;
+            long opening = 1_000_00L + i % 100_000;
+            bank.addAccount(switch (i % 4) {
+                case 0, 1 -> new SavingsAccount("Holder " + i, number, opening);
+                case 2 -> new FixedDepositAccount("Holder " + i, number, opening, maturity);
+                default -> new CurrentAccount("Holder " + i, number, opening);
+            });
+        }
+        return bank;
+    }
+}
@@ -0,0 +1,39 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.InterestBatch;
+import gtpbms.bms.model.Product;
+import gtpbms.bms.model.ProductCatalogue;
+import gtpbms.bms.model.SavingsAccount;
+
+/**
+ * Measures the interest pass of an {@link InterestBatch} over one accrual chunk of savings
+ * balances.
+ *
+ * <p>Run once with {@code --add-modules jdk.incubator.vector} for the SIMD kernel and once
+ * with {@code -Dbms.interest.vector=false} (or without the module) for the scalar loop.
+ *
+ * <p>Usage: {@code InterestKernelBenchmark [batchSize] [rounds]} (default 4096, 200000)
+ */
+public class InterestKernelBenchmark {
+
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        InterestBatch batch = InterestBatch.forProduct(ProductCatalogue.product(Product.SAVINGS), batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new SavingsAccount("Holder " + i, "NONA" + i, 100_00L + i * 7_919L));
+        }
+
+        System.out.println("Kernel: " + (InterestBatch.isVectorized() ? "Vector API" : "scalar"));
+        for (int trial = 0; trial < 5; trial++) {
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                batch.computeInterest();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Trial %d: %.2f ns/account (%,.0f accounts/sec)%n", trial + 1,
+                    (double) elapsed / rounds / batchSize, (double) rounds * batchSize / (elapsed / 1e9));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.SavingsAccount;
+
+import java.time.LocalDateTime;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Heap benchmark for transaction history storage.
+ *
+ * <p>Posts the same workload into two stores and measures retained heap per transaction.
+ * The first store is the previous layout, a {@code LinkedList} of objects shaped like the old
+ * {@code Transaction} (description, two amounts, {@code LocalDateTime}). The second is the
+ * columnar journal inside real {@link SavingsAccount}s.
+ *
+ * <p>Usage: {@code JournalHeapBenchmark [accounts] [transactionsPerAccount]}
+ */
+public class JournalHeapBenchmark {
+
+    /** The shape of the transaction record before the columnar journal. */
+    private record LegacyTransaction(String description, double amount, double balanceAfter,
+                                     LocalDateTime timestamp) {
+    }
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int transactionsPerAccount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long transactions = (long) accounts * transactionsPerAccount;
+
+        long before = usedHeap();
+        List<List<LegacyTransaction>> legacy = new LinkedList<>();
+        for (int a = 0; a < accounts; a++) {
+            LinkedList<LegacyTransaction> history = new LinkedList<>();
+            double balance = 500.00;
+            for (int t = 0; t < transactionsPerAccount; t++) {
+                balance += 1.25;
+                history.addFirst(new LegacyTransaction("Deposit", 1.25, balance, LocalDateTime.now()));
+            }
+            legacy.add(history);
+        }
+        long legacyBytes = usedHeap() - before;
+        System.out.printf("LinkedList<Transaction>: %.1f bytes/transaction (%d retained)%n",
+                (double) legacyBytes / transactions, legacy.size());
+        legacy = null;
+
+        before = usedHeap();
+        SavingsAccount[] columnar = new SavingsAccount[accounts];
+        for (int a = 0; a < accounts; a++) {
+            SavingsAccount account = new SavingsAccount("Holder", "NONA-" + a, 500_00L);
+            for (int t = 1; t < transactionsPerAccount; t++) {
+                account.deposit(1_25L);
+            }
+            columnar[a] = account;
+        }
+        long columnarBytes = usedHeap() - before;
+        System.out.printf("TransactionJournal:      %.1f bytes/transaction (%d retained, incl. account objects)%n",
+                (double) columnarBytes / transactions, columnar.length);
+        System.out.printf("Reduction: %.1fx%n", (double) legacyBytes / columnarBytes);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
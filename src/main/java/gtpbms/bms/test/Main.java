@@ -12,12 +12,12 @@ public class Main {
 
         Bank bank = new Bank("NONA BANK");
 
-        SavingsAccount savings = new SavingsAccount("Patrick", "NONA1234", 500.00);
-        CurrentAccount current = new CurrentAccount("Nancy", "NONA9999", 1000);
+        SavingsAccount savings = new SavingsAccount("Patrick", "NONA1234", Money.ofCedis(500.00));
+        CurrentAccount current = new CurrentAccount("Nancy", "NONA9999", Money.ofCedis(1000));
         FixedDepositAccount fixedDeposit = new FixedDepositAccount(
                 "FIX001",
                 "Alice Johnson",
-                5000.00,
+                Money.ofCedis(5000.00),
                 LocalDate.now().plusYears(1)
         );
 
@@ -35,24 +35,24 @@ public class Main {
     private static void testAccountOperations(BankAccount account) {
         System.out.printf("\nTesting %s: %s\n", account.getAccountType(), account.getAccountNumber());
 
-        System.out.printf("Initial balance: %.2f\n", account.getBalance());
+        System.out.printf("Initial balance: %s\n", Money.format(account.getBalance()));
 
-        account.deposit(200);
-        System.out.println("After depositing GHc200.00: $" + account.getBalance());
+        account.deposit(Money.ofCedis(200));
+        System.out.println("After depositing GHc200.00: " + Money.format(account.getBalance()));
 
-        boolean withdrawSuccess = account.withdraw(100.00);
+        boolean withdrawSuccess = account.withdraw(Money.ofCedis(100.00));
         System.out.println("Withdrawal of $100.00 " +
                 (withdrawSuccess ? "succeeded" : "failed") +
-                ". New balance: $" + account.getBalance());
+                ". New balance: " + Money.format(account.getBalance()));
 
-        boolean largeWithdrawSuccess = account.withdraw(.00);
+        boolean largeWithdrawSuccess = account.withdraw(Money.ofCedis(.00));
         System.out.println("Large withdrawal of GHc1000.00 " +
                 (largeWithdrawSuccess ? "succeeded" : "failed") +
-                ". New balance: $" + account.getBalance());
+                ". New balance: " + Money.format(account.getBalance()));
 
         if (account instanceof InterestBearing) {
             ((InterestBearing) account).calculateInterest();
-            System.out.println("After interest calculation: GH₵" + account.getBalance());
+            System.out.println("After interest calculation: " + Money.format(account.getBalance()));
         }
     }
 }
@@ -0,0 +1,122 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.SavingsAccount;
+import gtpbms.bms.persistence.JsonInterchange;
+import gtpbms.bms.persistence.MappedAccountFile;
+import gtpbms.bms.persistence.MappedLedger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exports a bank to a {@link MappedLedger}, measures account lookups against the mapped files,
+ * and checks that a JSON round trip and a reload reproduce every account.
+ *
+ * <p>Usage: {@code MappedLedgerBenchmark [accounts] [postingsPerAccount] [sampleDataDir]}
+ * (default 1000000 accounts, 5 postings, {@code src/main/java/gtpbms/bms/data}). The sample
+ * {@code account.json} and {@code transaction.json} are imported first if present.
+ */
+public class MappedLedgerBenchmark {
+    private static final int LOOKUPS = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int postings = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path sampleData = Paths.get(args.length > 2 ? args[2] : "src/main/java/gtpbms/bms/data");
+        Path directory = Files.createTempDirectory("bms-mapped");
+        boolean passed = true;
+
+        Path sampleAccounts = sampleData.resolve("account.json");
+        Path sampleTransactions = sampleData.resolve("transaction.json");
+        if (Files.exists(sampleAccounts) && Files.exists(sampleTransactions)) {
+            try (MappedLedger sample = JsonInterchange.importJson(sampleAccounts, sampleTransactions,
+                    directory.resolve("sample"))) {
+                System.out.printf("Imported sample data: %d accounts, %d transactions%n",
+                        sample.accounts().size(), sample.transactions().size());
+            }
+        }
+
+        Bank bank = new Bank("NONA BANK", accounts);
+        for (int i = 0; i < accounts; i++) {
+            BankAccount account = i % 2 == 0
+                    ? new SavingsAccount("Holder " + i, "NONA" + i, 500_00L)
+                    : new CurrentAccount("Holder " + i, "NONA" + i, 500_00L);
+            bank.addAccount(account);
+            for (int p = 0; p < postings; p++) {
+                account.deposit(1_00L + p);
+            }
+        }
+        String[] numbers = new String[LOOKUPS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUPS; i++) {
+            numbers[i] = "NONA" + random.nextInt(accounts);
+        }
+
+        long start = System.nanoTime();
+        try (MappedLedger ledger = MappedLedger.export(bank, directory.resolve("ledger"))) {
+            ledger.force();
+            System.out.printf("Exported %,d accounts and %,d transactions in %.0f ms%n",
+                    accounts, ledger.transactions().size(), (System.nanoTime() - start) / 1e6);
+
+            MappedAccountFile file = ledger.accounts();
+            for (int round = 0; round < 3; round++) {
+                long checksum = 0;
+                start = System.nanoTime();
+                for (String number : numbers) {
+                    checksum += file.balance(ledger.find(number));
+                }
+                long mappedNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (String number : numbers) {
+                    checksum -= bank.getAccount(number).getBalance();
+                }
+                long heapNanos = System.nanoTime() - start;
+                System.out.printf("Lookup by number: mapped %.0f ns/op, in-memory bank %.0f ns/op%n",
+                        (double) mappedNanos / LOOKUPS, (double) heapNanos / LOOKUPS);
+                passed &= checksum == 0;
+            }
+
+            start = System.nanoTime();
+            Path accountsJson = directory.resolve("account.json");
+            Path transactionsJson = directory.resolve("transaction.json");
+            JsonInterchange.exportJson(ledger, accountsJson, transactionsJson);
+            System.out.printf("Exported JSON (%.1f MB) in %.0f ms%n",
+                    (Files.size(accountsJson) + Files.size(transactionsJson)) / 1e6, (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            try (MappedLedger imported = JsonInterchange.importJson(accountsJson, transactionsJson,
+                    directory.resolve("imported"))) {
+                System.out.printf("Imported JSON in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+                passed &= imported.transactions().size() == ledger.transactions().size();
+            }
+        }
+
+        start = System.nanoTime();
+        try (MappedLedger reopened = MappedLedger.open(directory.resolve("imported"))) {
+            Bank loaded = reopened.toBank("NONA BANK");
+            System.out.printf("Reopened and loaded into a bank in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+            for (int i = 0; i < accounts; i++) {
+                BankAccount original = bank.getAccount("NONA" + i);
+                BankAccount copy = loaded.getAccount("NONA" + i);
+                if (copy == null || copy.getBalance() != original.getBalance()
+                        || copy.getTransactionCount() != original.getTransactionCount()
+                        || !copy.getAccountType().equals(original.getAccountType())) {
+                    System.out.println("Mismatch for NONA" + i);
+                    passed = false;
+                    break;
+                }
+            }
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
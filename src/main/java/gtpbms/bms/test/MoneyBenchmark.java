@@ -0,0 +1,86 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.SavingsAccount;
+
+import java.math.RoundingMode;
+
+/**
+ * Compares the fixed-point {@link Money} arithmetic with the {@code double} arithmetic it replaced.
+ *
+ * <p>Both kernels run the same posting cycle: a deposit, a withdrawal guarded by the savings
+ * minimum balance, and a month of interest. The double kernel is a verbatim copy of the
+ * old model arithmetic. A third measurement runs the same cycle through a real
+ * {@link SavingsAccount}, so the cost of the kernel can be compared with a full posting.
+ *
+ * <p>Usage: {@code MoneyBenchmark [iterations]}
+ */
+public class MoneyBenchmark {
+    private static final int ROUNDS = 5;
+
+    /** Keeps the JIT from eliminating the kernels. */
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long doubleNanos = time(() -> sink = (long) doubleKernel(iterations));
+            long longNanos = time(() -> sink = longKernel(iterations));
+            long accountNanos = time(() -> sink = accountKernel(iterations / 10));
+
+            System.out.printf("Round %d: double %.2f ns/cycle, long %.2f ns/cycle, SavingsAccount %.2f ns/cycle%n",
+                    round,
+                    (double) doubleNanos / iterations,
+                    (double) longNanos / iterations,
+                    (double) accountNanos / (iterations / 10));
+        }
+    }
+
+    private static long time(Runnable kernel) {
+        long start = System.nanoTime();
+        kernel.run();
+        return System.nanoTime() - start;
+    }
+
+    private static double doubleKernel(int iterations) {
+        double balance = 500.00;
+        double interestTotal = 0;
+        for (int i = 0; i < iterations; i++) {
+            balance += 12.35;
+            if (balance - 10.10 >= 100.0) {
+                balance -= 10.10;
+            }
+            interestTotal += balance * 0.02 / 12;
+            if (balance > 1_000_000) {
+                balance = 500.00;
+            }
+        }
+        return balance + interestTotal;
+    }
+
+    private static long longKernel(int iterations) {
+        long balance = 500_00L;
+        long interestTotal = 0;
+        for (int i = 0; i < iterations; i++) {
+            balance = Money.add(balance, 12_35L);
+            if (balance - 10_10L >= 100_00L) {
+                balance = Money.subtract(balance, 10_10L);
+            }
+            interestTotal += Money.applyRate(balance, 200, 12, RoundingMode.HALF_EVEN);
+            if (balance > 1_000_000_00L) {
+                balance = 500_00L;
+            }
+        }
+        return balance + interestTotal;
+    }
+
+    private static long accountKernel(int iterations) {
+        SavingsAccount account = new SavingsAccount("Benchmark", "NONA-BENCH", 500_00L);
+        for (int i = 0; i < iterations; i++) {
+            account.deposit(12_35L);
+            account.withdraw(10_10L);
+        }
+        return account.getBalance();
+    }
+}
@@ -0,0 +1,156 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.Product;
+import gtpbms.bms.model.ProductCatalogue;
+import gtpbms.bms.model.SavingsAccount;
+import gtpbms.bms.persistence.Durability;
+import gtpbms.bms.persistence.WriteAheadLog;
+import gtpbms.bms.service.AccountNumberGenerator;
+import gtpbms.bms.service.AccountOnboarding;
+import gtpbms.bms.service.AccountOnboarding.OpenRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link AccountOnboarding} throughput and checks that every request is either opened
+ * or rejected, exactly once and in order.
+ *
+ * <p>Every {@code invalidEvery}-th request breaks one of the opening rules in turn. The run
+ * first opens all requests into an in-memory bank. It then opens a smaller set into a bank
+ * logged by a {@link WriteAheadLog} in {@link Durability#PER_OPERATION} mode, once one
+ * account at a time with {@link Bank#addAccount(BankAccount)} and once through onboarding,
+ * and replays the log to check every opened account was recorded.
+ *
+ * <p>Usage: {@code OnboardingBenchmark [requests] [invalidEvery] [loggedRequests]}
+ * (default 1000000, 50, 20000)
+ */
+public class OnboardingBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int invalidEvery = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int loggedRequests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        boolean passed = runInMemory(requests, invalidEvery);
+        passed &= runLogged(loggedRequests, invalidEvery);
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean runInMemory(int requests, int invalidEvery) {
+        Bank bank = new Bank("NONA BANK", requests);
+        AccountOnboarding onboarding = new AccountOnboarding(bank, AccountNumberGenerator.inMemory(0));
+        AtomicLong expectedIndex = new AtomicLong();
+        AtomicLong outOfOrder = new AtomicLong();
+        AtomicLong misjudged = new AtomicLong();
+        AccountOnboarding.Listener listener = new AccountOnboarding.Listener() {
+            @Override
+            public void opened(long index, OpenRequest request, BankAccount account) {
+                check(index, invalid(index, invalidEvery));
+            }
+
+            @Override
+            public void rejected(long index, OpenRequest request, String reason) {
+                check(index, !invalid(index, invalidEvery));
+            }
+
+            private void check(long index, boolean wrong) {
+                if (index != expectedIndex.getAndIncrement()) {
+                    outOfOrder.incrementAndGet();
+                }
+                if (wrong) {
+                    misjudged.incrementAndGet();
+                }
+            }
+        };
+
+        AccountOnboarding.Result result = onboarding.openAll(requests(requests, invalidEvery), listener);
+        long expectedRejected = (requests + invalidEvery - 1) / invalidEvery;
+        boolean passed = result.requests() == requests && result.rejected() == expectedRejected
+                && result.opened() == bank.getAccountCount() && expectedIndex.get() == requests
+                && outOfOrder.get() == 0 && misjudged.get() == 0;
+        System.out.printf("In memory: %,d requests, %,d opened, %,d rejected in %d ms (%,.0f accounts/sec), "
+                        + "%,d out of order, %,d misjudged%n", result.requests(), result.opened(),
+                result.rejected(), result.elapsed().toMillis(), result.accountsPerSecond(),
+                outOfOrder.get(), misjudged.get());
+        return passed;
+    }
+
+    private static boolean runLogged(int requests, int invalidEvery) throws IOException {
+        Path directory = Files.createTempDirectory("bms-onboarding");
+        Path single = directory.resolve("single.wal");
+        Path bulk = directory.resolve("bulk.wal");
+        try {
+            long start = System.nanoTime();
+            try (WriteAheadLog log = WriteAheadLog.open(single, Durability.PER_OPERATION, 5)) {
+                Bank bank = new Bank("NONA BANK");
+                log.replay(bank);
+                bank.setPostingListener(log);
+                for (int i = 0; i < requests; i++) {
+                    bank.addAccount(new SavingsAccount("Holder " + i, "NONA-" + i, 500_00L));
+                }
+            }
+            double singleRate = requests / ((System.nanoTime() - start) / 1e9);
+
+            AccountOnboarding.Result result;
+            try (WriteAheadLog log = WriteAheadLog.open(bulk, Durability.PER_OPERATION, 5)) {
+                Bank bank = new Bank("NONA BANK");
+                log.replay(bank);
+                bank.setPostingListener(log);
+                result = new AccountOnboarding(bank, AccountNumberGenerator.inMemory(0))
+                        .openAll(requests(requests, invalidEvery));
+            }
+
+            long recovered;
+            try (WriteAheadLog log = WriteAheadLog.open(bulk, Durability.PER_OPERATION, 5)) {
+                Bank bank = new Bank("NONA BANK");
+                log.replay(bank);
+                recovered = bank.getAccountCount();
+            }
+            System.out.printf("Logged: one at a time %,.0f accounts/sec, onboarding %,.0f accounts/sec; "
+                            + "%,d of %,d opened accounts recovered from the log%n", singleRate,
+                    result.accountsPerSecond(), recovered, result.opened());
+            return recovered == result.opened();
+        } finally {
+            WriteAheadLog.delete(single);
+            WriteAheadLog.delete(bulk);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /** Builds the requests lazily, breaking a different rule in each invalid one. */
+    private static Stream<OpenRequest> requests(int count, int invalidEvery) {
+        LocalDate today = LocalDate.now();
+        List<Product> products = ProductCatalogue.current().getProducts();
+        long currentMinimum = ProductCatalogue.product(Product.CURRENT).getMinimumOpeningBalance();
+        return LongStream.range(0, count).mapToObj(i -> {
+            Product product = products.get((int) (i % products.size()));
+            if (!invalid(i, invalidEvery)) {
+                return new OpenRequest("Customer " + i, product.getId(),
+                        product.getMinimumOpeningBalance() + i % 10_000, null);
+            }
+            return switch ((int) (i / invalidEvery % 4)) {
+                case 0 -> new OpenRequest(" ", product.getId(), 1_000_00L, null);
+                case 1 -> new OpenRequest("Customer " + i, 0, 1_000_00L, null);
+                case 2 -> new OpenRequest("Customer " + i, Product.CURRENT, currentMinimum - 1, null);
+                default -> new OpenRequest("Customer " + i, Product.FIXED_DEPOSIT, 1_000_00L, today);
+            };
+        });
+    }
+
+    private static boolean invalid(long index, int invalidEvery) {
+        return index % invalidEvery == 0;
+    }
+}
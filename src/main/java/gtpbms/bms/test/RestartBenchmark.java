@@ -0,0 +1,167 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.SavingsAccount;
+import gtpbms.bms.model.TransactionJournal;
+import gtpbms.bms.persistence.Checkpointer;
+import gtpbms.bms.persistence.Durability;
+import gtpbms.bms.persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Measures restart time against account count, comparing a full log replay with recovery from a
+ * snapshot plus the log tail.
+ *
+ * <p>For each size the benchmark opens that many accounts and posts a history of deposits to
+ * each. It takes a snapshot while a background thread keeps posting, then posts one more deposit
+ * per account as the log tail. Recovery must reproduce every balance and, for a sample of
+ * accounts, every journal entry, which also exercises loading histories from the archive after
+ * the timed recovery. The snapshot deletes the log segments it covers, so the full replay is
+ * timed on a copy of the log taken just before it. Recovery from the snapshot alone, with an
+ * empty log, is timed as well, since the tail's size depends on how much the background thread
+ * posted. The sizes of the snapshot, the journal history kept with it and the log left on disk
+ * afterwards are reported too.
+ *
+ * <p>Usage: {@code RestartBenchmark [postingsPerAccount] [accountCounts...]}
+ * (default 20 postings; 100000 500000 1000000 accounts)
+ */
+public class RestartBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int postings = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {100_000, 500_000, 1_000_000};
+
+        System.out.printf("%12s %16s %18s %18s %14s %14s %16s%n", "accounts", "full replay (ms)",
+                "snapshot+tail (ms)", "snapshot only (ms)", "snapshot (MB)", "history (MB)", "log kept (MB)");
+        boolean passed = true;
+        for (int accounts : sizes) {
+            passed &= run(accounts, postings);
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(int accounts, int postings) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("bms-restart");
+        Path walFile = directory.resolve("ledger.wal");
+        Path snapshots = directory.resolve("snapshots");
+
+        Bank bank = new Bank("NONA BANK", accounts);
+        WriteAheadLog log = WriteAheadLog.open(walFile, Durability.ASYNC, 0);
+        log.replay(bank);
+        bank.setPostingListener(log);
+        for (int i = 0; i < accounts; i++) {
+            BankAccount account = new SavingsAccount("Holder " + i, "NONA" + i, 500_00L);
+            bank.addAccount(account);
+            for (int p = 0; p < postings; p++) {
+                account.deposit(10_00L);
+            }
+        }
+
+        log.flush();
+        Path fullCopy = Files.createDirectories(directory.resolve("full"));
+        for (Path segment : segments(walFile)) {
+            Files.copy(segment, fullCopy.resolve(segment.getFileName()));
+        }
+
+        // Keep writing while the snapshot is taken
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            int i = 0;
+            while (writing.get()) {
+                bank.getAccount("NONA" + (i++ % accounts)).deposit(1L);
+            }
+        });
+        writer.start();
+        Checkpointer checkpointer = new Checkpointer(bank, log, snapshots);
+        Path snapshot = checkpointer.checkpoint();
+        writing.set(false);
+        writer.join();
+        checkpointer.close();
+
+        for (int i = 0; i < accounts; i++) {
+            bank.getAccount("NONA" + i).deposit(2_00L);
+        }
+        log.close();
+        long logKept = 0;
+        for (Path segment : segments(walFile)) {
+            logKept += Files.size(segment);
+        }
+
+        long fullStart = System.nanoTime();
+        Bank replayed = new Bank("NONA BANK", accounts);
+        try (WriteAheadLog full = WriteAheadLog.open(fullCopy.resolve(walFile.getFileName()), Durability.ASYNC, 0)) {
+            full.replay(replayed);
+        }
+        long fullNanos = System.nanoTime() - fullStart;
+        replayed = null;
+
+        long snapshotStart = System.nanoTime();
+        Bank recovered;
+        try (WriteAheadLog tail = WriteAheadLog.open(walFile, Durability.ASYNC, 0)) {
+            recovered = Checkpointer.recover(snapshots, "NONA BANK", tail);
+        }
+        long snapshotNanos = System.nanoTime() - snapshotStart;
+
+        // The same snapshot with an empty log, which leaves only the cost of loading it
+        long loadStart = System.nanoTime();
+        try (WriteAheadLog empty = WriteAheadLog.open(directory.resolve("empty.wal"), Durability.ASYNC, 0)) {
+            Checkpointer.recover(snapshots, "NONA BANK", empty);
+        }
+        long loadNanos = System.nanoTime() - loadStart;
+
+        long history = 0;
+        for (Path file : files(snapshots.resolve("history"))) {
+            history += Files.size(file);
+        }
+        System.out.printf("%12d %16.0f %18.0f %18.0f %14.1f %14.1f %16.1f%n", accounts, fullNanos / 1e6,
+                snapshotNanos / 1e6, loadNanos / 1e6, Files.size(snapshot) / 1e6, history / 1e6, logKept / 1e6);
+
+        for (int i = 0; i < accounts; i++) {
+            BankAccount original = bank.getAccount("NONA" + i);
+            BankAccount copy = recovered.getAccount("NONA" + i);
+            if (copy == null || copy.getBalance() != original.getBalance()
+                    || copy.getTransactionCount() != original.getTransactionCount()
+                    || i % 101 == 0 && !sameJournal(original.getJournal(), copy.getJournal())) {
+                System.out.println("Recovery mismatch for NONA" + i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameJournal(TransactionJournal original, TransactionJournal copy) {
+        for (int i = 0; i < original.size(); i++) {
+            if (copy.balanceAfterAt(i) != original.balanceAfterAt(i) || copy.typeAt(i) != original.typeAt(i)
+                    || copy.timestampMicrosAt(i) != original.timestampMicrosAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static List<Path> segments(Path walFile) throws IOException {
+        String prefix = walFile.getFileName() + ".";
+        try (Stream<Path> files = Files.list(walFile.getParent())) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).toList();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.server.BankServer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a {@link BankServer} over loopback and reports throughput and latency percentiles.
+ *
+ * <p>Each client is a virtual thread holding one keep-alive connection. It writes a pipeline
+ * of requests at once (balance enquiries, deposits, withdrawals and transfers between random
+ * accounts) and then reads the responses, timing each request from when its pipeline was sent
+ * to when its response arrived. At the end the bank's total balance must equal the opening
+ * total plus the deposits and minus the withdrawals the server accepted.
+ *
+ * <p>Usage: {@code ServerLoadGenerator [connections] [pipelineDepth] [seconds] [accounts]}
+ * (default 1000, 4, 20, 10000)
+ */
+public class ServerLoadGenerator {
+    private static final long OPENING_BALANCE = 1_000_000_00L;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        Bank bank = new Bank("NONA BANK", accounts);
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccount(new CurrentAccount("Holder " + i, "NONA" + i, OPENING_BALANCE));
+        }
+
+        AtomicLong deposited = new AtomicLong();
+        AtomicLong withdrawn = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        List<Client> clients = new ArrayList<>(connections);
+        try (BankServer server = BankServer.start(bank, 0)) {
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            List<Thread> threads = new ArrayList<>(connections);
+            for (int c = 0; c < connections; c++) {
+                Client client = new Client(server.getPort(), accounts, depth, c, deadline, deposited, withdrawn);
+                clients.add(client);
+                threads.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        client.run();
+                    } catch (IOException e) {
+                        if (failures.getAndIncrement() == 0) {
+                            System.out.println("Client failed: " + e);
+                        }
+                    }
+                }));
+            }
+            Thread.sleep(Math.min(1000, seconds * 500L));
+            System.out.printf("Open connections on server: %,d%n", server.getConnectionCount());
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        Histogram latency = new Histogram();
+        long requests = 0;
+        long errors = 0;
+        for (Client client : clients) {
+            latency.merge(client.latency);
+            requests += client.requests;
+            errors += client.errors;
+        }
+
+        long total = 0;
+        for (BankAccount account : bank.getAccounts()) {
+            total += account.getBalance();
+        }
+        long expected = OPENING_BALANCE * accounts + deposited.get() - withdrawn.get();
+
+        System.out.printf("%,d connections, pipeline depth %d: %,d requests in %d s (%,.0f requests/sec), "
+                        + "%,d error responses, %,d failed clients%n",
+                connections, depth, requests, seconds, (double) requests / seconds, errors, failures.get());
+        System.out.printf("Latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                latency.percentile(50) / 1e6, latency.percentile(90) / 1e6, latency.percentile(99) / 1e6,
+                latency.percentile(99.9) / 1e6, latency.max / 1e6);
+        boolean passed = total == expected && failures.get() == 0 && errors == 0;
+        System.out.println("Total balance " + (total == expected ? "matches" : "DOES NOT match")
+                + " accepted deposits and withdrawals");
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /** One keep-alive connection sending pipelines of requests until the deadline. */
+    private static final class Client {
+        private final int port;
+        private final int accounts;
+        private final int depth;
+        private final long deadline;
+        private final AtomicLong deposited;
+        private final AtomicLong withdrawn;
+        private final SplittableRandom random;
+        private final Histogram latency = new Histogram();
+        private final long[] amounts;
+        private final byte[] kinds;
+        private final byte[] line = new byte[1024];
+        long requests;
+        long errors;
+
+        Client(int port, int accounts, int depth, int seed, long deadline, AtomicLong deposited,
+               AtomicLong withdrawn) {
+            this.port = port;
+            this.accounts = accounts;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.deposited = deposited;
+            this.withdrawn = withdrawn;
+            this.random = new SplittableRandom(seed);
+            this.amounts = new long[depth];
+            this.kinds = new byte[depth];
+        }
+
+        void run() throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 8192);
+                StringBuilder request = new StringBuilder(128);
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < depth; i++) {
+                        request.setLength(0);
+                        int account = random.nextInt(accounts);
+                        long cedis = 1 + random.nextInt(100);
+                        amounts[i] = cedis * 100;
+                        int dice = random.nextInt(20);
+                        if (dice < 10) {
+                            kinds[i] = 'B';
+                            request.append("GET /accounts/NONA").append(account).append("/balance");
+                        } else if (dice < 15) {
+                            kinds[i] = 'D';
+                            request.append("POST /accounts/NONA").append(account).append("/deposit?amount=").append(cedis);
+                        } else if (dice < 19) {
+                            kinds[i] = 'W';
+                            request.append("POST /accounts/NONA").append(account).append("/withdraw?amount=").append(cedis);
+                        } else {
+                            kinds[i] = 'T';
+                            request.append("POST /transfers?from=NONA").append(account)
+                                    .append("&to=NONA").append((account + 1) % accounts).append("&amount=").append(cedis);
+                        }
+                        request.append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                        out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+                    }
+                    long sent = System.nanoTime();
+                    out.flush();
+
+                    for (int i = 0; i < depth; i++) {
+                        int status = readResponse(in);
+                        latency.record(System.nanoTime() - sent);
+                        requests++;
+                        if (status != 200) {
+                            errors++;
+                        } else if (kinds[i] == 'D') {
+                            deposited.addAndGet(amounts[i]);
+                        } else if (kinds[i] == 'W') {
+                            withdrawn.addAndGet(amounts[i]);
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Reads one response, skipping its body, and returns its status. */
+        private int readResponse(InputStream in) throws IOException {
+            int length = readLine(in);
+            String statusLine = new String(line, 0, length, StandardCharsets.US_ASCII);
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int contentLength = 0;
+            while ((length = readLine(in)) > 0) {
+                String header = new String(line, 0, length, StandardCharsets.US_ASCII);
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            in.skipNBytes(contentLength);
+            return status;
+        }
+
+        private int readLine(InputStream in) throws IOException {
+            int length = 0;
+            for (int b; (b = in.read()) != '\n'; ) {
+                if (b < 0) {
+                    throw new IOException("Server closed the connection");
+                }
+                line[length++] = (byte) b;
+            }
+            return length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+        }
+    }
+
+    /**
+     * A log-linear latency histogram: 32 buckets per power of two, so each bucket is within
+     * about 3% of the values it holds.
+     */
+    private static final class Histogram {
+        private static final int SUB_BUCKETS = 32;
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        long total;
+        long max;
+
+        void record(long nanos) {
+            counts[bucket(Math.max(nanos, 1))]++;
+            total++;
+            max = Math.max(max, nanos);
+        }
+
+        void merge(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        /** Gets the upper bound of the bucket holding the given percentile. */
+        double percentile(double percentile) {
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int bucket(long value) {
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent < 5) {
+                return (int) value;
+            }
+            int mantissa = (int) (value >>> (exponent - 5)) & (SUB_BUCKETS - 1);
+            return (exponent - 4) * SUB_BUCKETS + mantissa;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + 4;
+            long mantissa = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + mantissa + 1) << (exponent - 5)) - 1;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.service.ShardedEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures throughput of the {@link ShardedEngine} against shard count, with the plain
+ * lock-per-account path as a baseline, and checks that no money is created or lost.
+ *
+ * <p>Producer threads submit a mix of deposits, withdrawals and transfers between random
+ * accounts, with a quarter of the traffic aimed at a handful of hot accounts. Each run ends
+ * when every shard has executed everything submitted. The bank's total balance must then equal
+ * the opening total plus deposits minus withdrawals; balances are large enough that no
+ * withdrawal is refused.
+ *
+ * <p>Usage: {@code ShardedEngineBenchmark [producers] [opsPerProducer] [accounts] [shardCounts...]}
+ * (default 4, 1000000, 100000; 1 2 4 8 shards)
+ */
+public class ShardedEngineBenchmark {
+    private static final long OPENING_BALANCE = 1_000_000_000_00L;
+    private static final int HOT_ACCOUNTS = 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int opsPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int[] shardCounts = args.length > 3
+                ? Arrays.stream(args, 3, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1, 2, 4, 8};
+
+        System.out.printf("%d producers, %,d operations each, %,d accounts, %d cores%n",
+                producers, opsPerProducer, accounts, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%10s %14s %10s%n", "shards", "ops/sec", "balance");
+        boolean passed = run(0, producers, opsPerProducer, accounts);
+        for (int shards : shardCounts) {
+            passed &= run(shards, producers, opsPerProducer, accounts);
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs one configuration; zero shards calls the accounts directly from the producers.
+     */
+    private static boolean run(int shards, int producers, int opsPerProducer, int accounts)
+            throws InterruptedException {
+        Bank bank = new Bank("NONA BANK", accounts);
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccount(new CurrentAccount("Holder " + i, "NONA" + i, OPENING_BALANCE));
+        }
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = "NONA" + i;
+        }
+
+        ShardedEngine engine = shards > 0 ? new ShardedEngine(bank, shards) : null;
+        long[] net = new long[producers];
+        List<Thread> threads = new ArrayList<>(producers);
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                SplittableRandom random = new SplittableRandom(producer);
+                long change = 0;
+                for (int i = 0; i < opsPerProducer; i++) {
+                    int range = random.nextInt(4) == 0 ? HOT_ACCOUNTS : accounts;
+                    String account = numbers[random.nextInt(range)];
+                    long amount = 1 + random.nextInt(10_000);
+                    switch (random.nextInt(3)) {
+                        case 0 -> {
+                            change += amount;
+                            if (engine != null) {
+                                engine.deposit(account, amount);
+                            } else {
+                                bank.getAccount(account).deposit(amount);
+                            }
+                        }
+                        case 1 -> {
+                            change -= amount;
+                            if (engine != null) {
+                                engine.withdraw(account, amount);
+                            } else {
+                                bank.getAccount(account).withdraw(amount);
+                            }
+                        }
+                        default -> {
+                            String target = numbers[(random.nextInt(range - 1) + 1 + indexOf(account)) % range];
+                            if (engine != null) {
+                                engine.transfer(account, target, amount);
+                            } else {
+                                bank.transfer(account, target, amount);
+                            }
+                        }
+                    }
+                }
+                net[producer] = change;
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (engine != null) {
+            engine.sync().join();
+            engine.close();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (BankAccount account : bank.getAccounts()) {
+            total += account.getBalance();
+        }
+        long expected = OPENING_BALANCE * accounts + Arrays.stream(net).sum();
+        System.out.printf("%10s %,14.0f %10s%n", shards == 0 ? "locks" : shards,
+                (double) producers * opsPerProducer / (elapsed / 1e9), total == expected ? "conserved" : "WRONG");
+        return total == expected;
+    }
+
+    private static int indexOf(String accountNumber) {
+        return Integer.parseInt(accountNumber, 4, accountNumber.length(), 10);
+    }
+}
@@ -0,0 +1,138 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.TransactionType;
+import gtpbms.bms.service.StatementGenerator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Checks that {@link StatementGenerator} streams in constant memory and measures the month-end
+ * batch.
+ *
+ * <p>One account is given a long history spread over a year. Its statement for the middle
+ * month is written to a discarding channel in both formats, and the bytes the writing thread
+ * allocated are reported; they must not grow with the history. The statement's opening
+ * balance plus credits minus debits must equal its closing balance. Then a bank of accounts
+ * with a few months of history each gets a month-end run into a temporary directory, which is
+ * deleted afterwards.
+ *
+ * <p>Usage: {@code StatementBenchmark [historyLength] [accounts] [transactionsPerMonth]}
+ * (default 5000000, 100000, 10)
+ */
+public class StatementBenchmark {
+    private static final long ALLOCATION_LIMIT = 256 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        int historyLength = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int perMonth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        YearMonth month = YearMonth.of(2025, 6);
+        ZoneId zone = ZoneId.systemDefault();
+        Instant from = month.atDay(1).atStartOfDay(zone).toInstant();
+        Instant to = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant();
+        SplittableRandom random = new SplittableRandom(17);
+        boolean passed = true;
+
+        BankAccount longHistory = CurrentAccount.restore("Long History", "NONA0");
+        fill(longHistory, random, month.minusMonths(5), historyLength, 12);
+        StatementGenerator generator = new StatementGenerator();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (StatementGenerator.Format format : StatementGenerator.Format.values()) {
+            generator.write(longHistory, from, to, format, new Discard()); // warm up
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            StatementGenerator.Summary summary = generator.write(longHistory, from, to, format, new Discard());
+            long elapsed = System.nanoTime() - start;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            boolean balanced = summary.openingBalance() + summary.totalCredits() - summary.totalDebits()
+                    == summary.closingBalance();
+            System.out.printf("%-4s statement of %,d of %,d transactions: %,d bytes in %.1f ms "
+                            + "(%,.0f lines/sec), %,d bytes allocated, totals %s%n",
+                    format, summary.transactions(), historyLength, summary.bytesWritten(), elapsed / 1e6,
+                    summary.transactions() / (elapsed / 1e9), allocated, balanced ? "balance" : "DO NOT balance");
+            passed &= balanced && allocated < ALLOCATION_LIMIT;
+        }
+
+        Bank bank = new Bank("NONA BANK", accounts);
+        for (int i = 1; i <= accounts; i++) {
+            BankAccount account = CurrentAccount.restore("Holder " + i, "NONA" + i);
+            fill(account, random, month.minusMonths(1), perMonth * 3, 3);
+            bank.addAccount(account);
+        }
+        Path directory = Files.createTempDirectory("statements");
+        try {
+            for (StatementGenerator.Format format : StatementGenerator.Format.values()) {
+                StatementGenerator.BatchResult result =
+                        StatementGenerator.writeMonthEnd(bank, month, format, directory);
+                System.out.printf("%-4s month-end for %,d accounts: %,d statements, %,d failed, "
+                                + "%,d transactions, %,d bytes in %d ms (%,.0f statements/sec)%n",
+                        format, accounts, result.statements(), result.failed(), result.transactions(),
+                        result.bytes(), result.elapsed().toMillis(), result.statementsPerSecond());
+                passed &= result.statements() == accounts && result.failed() == 0;
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays an opening entry and random deposits and withdrawals spread evenly over the given
+     * number of months from the start of the first.
+     */
+    private static void fill(BankAccount account, SplittableRandom random, YearMonth first, int count, int months) {
+        ZoneId zone = ZoneId.systemDefault();
+        long start = first.atDay(1).atStartOfDay(zone).toEpochSecond() * 1_000_000L;
+        long end = first.plusMonths(months).atDay(1).atStartOfDay(zone).toEpochSecond() * 1_000_000L;
+        long step = Math.max(1, (end - start) / (count + 1));
+        long balance = 1_000_00L;
+        account.replay(TransactionType.ACCOUNT_OPENED, balance, start);
+        for (int i = 1; i <= count; i++) {
+            long amount = 1 + random.nextInt(50_000);
+            boolean deposit = balance < amount || random.nextBoolean();
+            balance += deposit ? amount : -amount;
+            account.replay(deposit ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL, balance, start + i * step);
+        }
+    }
+
+    /** A channel that accepts and forgets everything written to it. */
+    private static final class Discard implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            source.position(source.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.persistence.Durability;
+import gtpbms.bms.persistence.WriteAheadLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures concurrent transfers and checks that they conserve money and never deadlock.
+ *
+ * <p>Many threads transfer random amounts between random pairs of accounts, in both
+ * directions at once, first across the whole bank and then across a hot set of a few accounts
+ * where almost every transfer contends. The runs must finish within a timeout and leave the
+ * bank's total balance unchanged. A small bank is then transferred through a write-ahead log
+ * and replayed, and must come back with the same balances.
+ *
+ * <p>Usage: {@code TransferBenchmark [accounts] [threads] [transfersPerThread]}
+ * (default 100000, 16, 500000)
+ */
+public class TransferBenchmark {
+    private static final long TIMEOUT_SECONDS = 300;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int transfersPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 500_000;
+
+        boolean passed = run("Uniform", createBank(accounts), accounts, threads, transfersPerThread);
+        passed &= run("Hot set", createBank(accounts), 8, threads, transfersPerThread);
+        passed &= checkReplay();
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(String label, Bank bank, int spread, int threads, int transfersPerThread)
+            throws InterruptedException {
+        long before = totalBalance(bank);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long ok = 0;
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = random.nextInt(spread);
+                    int to = random.nextInt(spread - 1);
+                    if (to >= from) {
+                        to++;
+                    }
+                    if (bank.transfer("NONA" + from, "NONA" + to, 1 + random.nextInt(50_000_00))) {
+                        ok++;
+                    }
+                }
+                succeeded.addAndGet(ok);
+                refused.addAndGet(transfersPerThread - ok);
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.out.println(label + ": transfers did not finish within " + TIMEOUT_SECONDS + " s (deadlock?)");
+            executor.shutdownNow();
+            return false;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long after = totalBalance(bank);
+        System.out.printf("%s: %,d transfers over %,d accounts on %d threads in %d ms (%,.0f transfers/sec), "
+                        + "%,d refused, total balance %s%n",
+                label, succeeded.get() + refused.get(), spread, threads, elapsed / 1_000_000,
+                (succeeded.get() + refused.get()) / (elapsed / 1e9), refused.get(),
+                before == after ? "conserved" : "changed by " + (after - before));
+        return before == after;
+    }
+
+    private static boolean checkReplay() throws Exception {
+        Path dir = Files.createTempDirectory("bms-transfer");
+        Path file = dir.resolve("bank.wal");
+        int accounts = 1_000;
+        Bank bank = new Bank("NONA BANK", accounts);
+        try (WriteAheadLog log = WriteAheadLog.open(file, Durability.INTERVAL, 5)) {
+            log.replay(bank);
+            bank.setPostingListener(log);
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccount(new CurrentAccount("Holder " + i, "NONA" + i, 1_000_00L));
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 100_000; i++) {
+                int from = random.nextInt(accounts);
+                int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                bank.transfer("NONA" + from, "NONA" + to, 1 + random.nextInt(500_00));
+            }
+        }
+
+        Bank recovered = new Bank("NONA BANK", accounts);
+        try (WriteAheadLog log = WriteAheadLog.open(file, Durability.INTERVAL, 5)) {
+            log.replay(recovered);
+        }
+        boolean same = recovered.getAccountCount() == accounts;
+        for (BankAccount account : bank.getAccounts()) {
+            BankAccount copy = recovered.getAccount(account.getAccountNumber());
+            same &= copy != null && copy.getBalance() == account.getBalance()
+                    && copy.getTransactionCount() == account.getTransactionCount();
+        }
+        System.out.println("Replay of logged transfers " + (same ? "matches" : "DOES NOT match") + " the live bank");
+
+        try (var files = Files.list(dir)) {
+            for (Path path : files.toList()) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+        return same;
+    }
+
+    private static Bank createBank(int accounts) {
+        Bank bank = new Bank("NONA BANK", accounts);
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccount(new CurrentAccount("Holder " + i, "NONA" + i, 1_000_000_00L));
+        }
+        return bank;
+    }
+
+    private static long totalBalance(Bank bank) {
+        long total = 0;
+        for (BankAccount account : bank.getAccounts()) {
+            total += account.getBalance();
+        }
+        return total;
+    }
+}
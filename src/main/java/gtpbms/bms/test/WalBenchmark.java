@@ -0,0 +1,100 @@
+package gtpbms.bms.test;
+
+import gtpbms.bms.model.Bank;
+import gtpbms.bms.model.BankAccount;
+import gtpbms.bms.model.SavingsAccount;
+import gtpbms.bms.persistence.Durability;
+import gtpbms.bms.persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures posting throughput through the {@link WriteAheadLog} in each {@link Durability} mode,
+ * then replays each log into a fresh {@link Bank} and checks that every balance was recovered.
+ *
+ * <p>Usage: {@code WalBenchmark [threads] [operationsPerThread] [directory]}
+ */
+public class WalBenchmark {
+    private static final int ACCOUNTS_PER_THREAD = 100;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operationsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        Path directory = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("bms-wal");
+
+        boolean passed = true;
+        for (Durability durability : Durability.values()) {
+            Path file = directory.resolve("ledger-" + durability.name().toLowerCase() + ".wal");
+            WriteAheadLog.delete(file);
+            passed &= run(file, durability, threads, operationsPerThread);
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(Path file, Durability durability, int threads, int operationsPerThread)
+            throws IOException, InterruptedException {
+        Bank bank = new Bank("NONA BANK");
+        WriteAheadLog log = WriteAheadLog.open(file, durability, 5);
+        log.replay(bank);
+        bank.setPostingListener(log);
+
+        for (int i = 0; i < threads * ACCOUNTS_PER_THREAD; i++) {
+            bank.addAccount(new SavingsAccount("Holder " + i, "NONA-" + i, 500_00L));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int first = t * ACCOUNTS_PER_THREAD;
+            pool.execute(() -> {
+                for (int i = 0; i < operationsPerThread; i++) {
+                    BankAccount account = bank.getAccount("NONA-" + (first + i % ACCOUNTS_PER_THREAD));
+                    if (i % 3 == 2) {
+                        account.withdraw(1_00L);
+                    } else {
+                        account.deposit(1_00L);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        log.close();
+        long logged = log.appendedBytes();
+
+        long operations = (long) threads * operationsPerThread;
+        System.out.printf("%-13s %,10.0f ops/sec (%d threads, %,d ops, %,d bytes logged)%n",
+                durability, operations / (elapsed / 1e9), threads, operations, logged);
+
+        Bank recovered = new Bank("NONA BANK");
+        long recoveryStart = System.nanoTime();
+        try (WriteAheadLog replay = WriteAheadLog.open(file, Durability.ASYNC, 0)) {
+            long records = replay.replay(recovered);
+            System.out.printf("%-13s replayed %,d records in %.1f ms%n", "",
+                    records, (System.nanoTime() - recoveryStart) / 1e6);
+        }
+
+        for (BankAccount original : bank.getAccounts()) {
+            BankAccount copy = recovered.getAccount(original.getAccountNumber());
+            if (copy == null || copy.getBalance() != original.getBalance()
+                    || copy.getTransactionCount() != original.getTransactionCount()) {
+                System.out.println("Recovery mismatch for " + original.getAccountNumber());
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,6 +2,8 @@ module java {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.desktop;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
 
     // opens ui to javafx.fxml;
     opens ui.controller to javafx.fxml;
@@ -10,4 +12,5 @@ module java {
     exports ui.controller;
 
     exports gtpbms.bms.model;
+    exports gtpbms.bms.metrics;
 }
@@ -57,45 +57,47 @@ public class AccountOperationsController {
     private void updateAccountInfo() {
         userNameLabel.setText(currentAccount.getAccountHolder());
         accountNumberLabel.setText(currentAccount.getAccountNumber());
-        balanceLabel.setText(String.format("GH₵%.2f", currentAccount.getBalance()));
+        balanceLabel.setText(Money.format(currentAccount.getBalance()));
         accountTypeLabel.setText(currentAccount.getAccountType());
-        transactionTable.setItems(FXCollections.observableArrayList(currentAccount.getTransactionHistory()));
+        // Wraps the read-only history view; the table only reads the rows it displays
+        transactionTable.setItems(FXCollections.observableList(currentAccount.getTransactionHistory()));
     }
 
     /**
      * Configures the transaction table columns and cell value factories.
+     * Rows are already ordered most recent first, and the backing history view is
+     * read-only, so column sorting is disabled.
      */
     private void setupTransactionTable() {
-        dateColumn.setCellValueFactory(cellData -> {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-            return new SimpleStringProperty(cellData.getValue().getTimestamp().format(formatter));
-        });
+        transactionTable.getColumns().forEach(column -> column.setSortable(false));
+
+        dateColumn.setCellValueFactory(cellData -> new SimpleStringProperty(
+                TransactionFormatter.formatTimestamp(cellData.getValue().getTimestampMicros())));
 
         descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
         amountColumn.setCellValueFactory(cellData ->
-                new SimpleStringProperty(String.format("GH₵%.2f", cellData.getValue().getAmount())));
+                new SimpleStringProperty(Money.format(cellData.getValue().getAmount())));
         balanceColumn.setCellValueFactory(cellData ->
-                new SimpleStringProperty(String.format("GH₵%.2f", cellData.getValue().getBalanceAfter())));
+                new SimpleStringProperty(Money.format(cellData.getValue().getBalanceAfter())));
     }
 
     /**
      * Configures account-specific UI features based on account type.
      */
     private void configureAccountSpecificFeatures() {
-        if (currentAccount instanceof FixedDepositAccount fdAccount) {
-            LocalDate maturityDate = fdAccount.getMaturityDate();
-            specialInfoLabel.setText("Matures on: " + maturityDate.format(DateTimeFormatter.ISO_DATE));
-
-            if (LocalDate.now().isBefore(maturityDate)) {
-                withdrawButton.setDisable(true);
-                specialInfoLabel.setText(specialInfoLabel.getText() + " (Withdrawals not allowed yet)");
+        Product product = currentAccount.getProduct();
+        switch (product.getFamily()) {
+            case FIXED_DEPOSIT -> {
+                LocalDate maturityDate = ((FixedDepositAccount) currentAccount).getMaturityDate();
+                specialInfoLabel.setText("Matures on: " + maturityDate.format(DateTimeFormatter.ISO_DATE));
+
+                if (LocalDate.now().isBefore(maturityDate)) {
+                    withdrawButton.setDisable(true);
+                    specialInfoLabel.setText(specialInfoLabel.getText() + " (Withdrawals not allowed yet)");
+                }
             }
-        }
-        else if (currentAccount instanceof SavingsAccount) {
-            specialInfoLabel.setText("Minimum Balance: GHc" + SavingsAccount.getMinimumBalance());
-        }
-        else if (currentAccount instanceof CurrentAccount) {
-            specialInfoLabel.setText("Overdraft Limit: GHc" + CurrentAccount.getOverdraftLimit());
+            case SAVINGS -> specialInfoLabel.setText("Minimum Balance: " + Money.format(product.getMinimumBalance()));
+            case CURRENT -> specialInfoLabel.setText("Overdraft Limit: " + Money.format(product.getOverdraftLimit()));
         }
     }
 
@@ -106,7 +108,7 @@ public class AccountOperationsController {
     @FXML
     private void handleDeposit() {
         try {
-            double amount = Double.parseDouble(depositAmountField.getText());
+            long amount = Money.parse(depositAmountField.getText());
             if (amount <= 0) {
                 showErrorAlert("Deposit amount must be positive");
                 return;
@@ -130,7 +132,7 @@ public class AccountOperationsController {
     @FXML
     private void handleWithdrawal() {
         try {
-            double amount = Double.parseDouble(withdrawalAmountField.getText());
+            long amount = Money.parse(withdrawalAmountField.getText());
             if (amount <= 0) {
                 showErrorAlert("Withdrawal amount must be positive");
                 return;
@@ -15,14 +15,14 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
-import java.util.List;
 import java.time.LocalDate;
+import gtpbms.bms.service.AccountOnboarding;
 import gtpbms.bms.service.BankManager;
 import gtpbms.bms.model.Bank;
 import gtpbms.bms.model.BankAccount;
-import gtpbms.bms.model.FixedDepositAccount;
-import gtpbms.bms.model.SavingsAccount;
-import gtpbms.bms.model.CurrentAccount;
+import gtpbms.bms.model.Money;
+import gtpbms.bms.model.Product;
+import gtpbms.bms.model.ProductCatalogue;
 
 /**
  * Controller for the account creation screen.
@@ -31,23 +31,21 @@ import gtpbms.bms.model.CurrentAccount;
 public class CreateAccountController implements Initializable {
 
     @FXML private TextField fullNameField;
-    @FXML private ComboBox<String> accountTypeComboBox;
+    @FXML private ComboBox<Product> accountTypeComboBox;
     @FXML private TextField initialDepositField;
     @FXML private Button createAccountButton;
     @FXML private Button backToWelcomeButton;
 
     /**
      * Initializes the controller class.
-     * Sets up the account type dropdown with available account types.
+     * Sets up the account type dropdown with the products in the product catalogue.
      *
      * @param url The location used to resolve relative paths
      * @param rb The resources used to localize the root object
      */
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        accountTypeComboBox.setItems(FXCollections.observableArrayList(
-                "Savings Account", "Current Account", "Fixed Deposit Account"
-        ));
+        accountTypeComboBox.setItems(FXCollections.observableArrayList(ProductCatalogue.current().getProducts()));
     }
 
     /**
@@ -62,8 +60,8 @@ public class CreateAccountController implements Initializable {
 
         if (isInputValid()) {
             String fullName = fullNameField.getText();
-            String accountType = accountTypeComboBox.getValue();
-            double initialDeposit = Double.parseDouble(initialDepositField.getText());
+            Product accountType = accountTypeComboBox.getValue();
+            long initialDeposit = Money.parse(initialDepositField.getText());
 
             BankAccount newAccount = createBankAccountByType(fullName, accountType, initialDeposit);
             bank.addAccount(newAccount);
@@ -95,7 +93,7 @@ public class CreateAccountController implements Initializable {
             errorMessage += "Please enter your full name.\n";
         }
 
-        String selectedAccountType = accountTypeComboBox.getValue();
+        Product selectedAccountType = accountTypeComboBox.getValue();
         if (selectedAccountType == null) {
             errorMessage += "Please select an account type.\n";
         }
@@ -104,18 +102,18 @@ public class CreateAccountController implements Initializable {
             errorMessage += "Please enter an initial deposit amount.\n";
         } else {
             try {
-                double amount = Double.parseDouble(initialDepositField.getText());
+                long amount = Money.parse(initialDepositField.getText());
                 if (amount <= 0) {
                     errorMessage += "Initial deposit must be greater than 0.\n";
                 } else if (selectedAccountType != null) {
-                    double minimumRequired = getMinimumDepositForAccountType(selectedAccountType);
+                    long minimumRequired = selectedAccountType.getMinimumOpeningBalance();
                     if (amount < minimumRequired) {
-                        errorMessage += String.format("For %s, minimum initial deposit is GH₵ %.2f\n",
-                                selectedAccountType, minimumRequired);
+                        errorMessage += String.format("For %s, minimum initial deposit is %s\n",
+                                selectedAccountType, Money.format(minimumRequired));
                     }
                 }
             } catch (NumberFormatException e) {
-                errorMessage += "Initial deposit must be a valid number.\n";
+                errorMessage += "Initial deposit must be a valid amount with at most 2 decimal places.\n";
             }
         }
 
@@ -126,41 +124,18 @@ public class CreateAccountController implements Initializable {
         return true;
     }
 
-    /**
-     * Gets the minimum deposit required for the specified account type.
-     *
-     * @param accountType The type of account
-     * @return The minimum required deposit amount
-     */
-    private double getMinimumDepositForAccountType(String accountType) {
-        switch(accountType) {
-            case "Savings Account": return SavingsAccount.MINIMUM_BALANCE;
-            case "Current Account": return CurrentAccount.MINIMUM_BALANCE;
-            default: return 0;
-        }
-    }
-
     /**
      * Creates a specific type of bank account based on user selection.
      *
      * @param fullName The account holder's full name
-     * @param accountType The type of account to create
-     * @param initialDeposit The initial deposit amount
+     * @param accountType The product to open
+     * @param initialDeposit The initial deposit amount, in pesewas
      * @return The newly created bank account
-     * @throws IllegalArgumentException if accountType is invalid
      */
-    private BankAccount createBankAccountByType(String fullName, String accountType, double initialDeposit) {
-        switch(accountType) {
-            case "Savings Account":
-                return new SavingsAccount(fullName, generateAccountNumber(), initialDeposit);
-            case "Current Account":
-                return new CurrentAccount(fullName, generateAccountNumber(), initialDeposit);
-            case "Fixed Deposit Account":
-                LocalDate maturityDate = LocalDate.now().plusYears(1);
-                return new FixedDepositAccount(fullName, generateAccountNumber(), initialDeposit, maturityDate);
-            default:
-                throw new IllegalArgumentException("Invalid account type: " + accountType);
-        }
+    private BankAccount createBankAccountByType(String fullName, Product accountType, long initialDeposit) {
+        AccountOnboarding.OpenRequest request = new AccountOnboarding.OpenRequest(
+                fullName, accountType.getId(), initialDeposit, null);
+        return AccountOnboarding.create(request, generateAccountNumber(), LocalDate.now());
     }
 
     /**
@@ -245,11 +220,11 @@ public class CreateAccountController implements Initializable {
 
     /**
      * Generates a new account number.
-     * Note: In a real implementation, this would use proper account number generation logic.
+     * Numbers come from the bank's account number generator, so they are never reused.
      *
      * @return A generated account number
      */
     private String generateAccountNumber() {
-        return "NONA" + System.currentTimeMillis();
+        return BankManager.getAccountNumberGenerator().next();
     }
 }
\ No newline at end of file